@@ -138,5 +138,10 @@ public class AnalyticsSerializerTest {
         android.util.Log.v(TAG, payload);
         LogContainer actualContainer = serializer.deserializeContainer(payload, null);
         Assert.assertEquals(expectedContainer, actualContainer);
+
+        /* Logs stored one by one are read from a stream. */
+        for (Log log : logs) {
+            Assert.assertEquals(log, serializer.deserializeLog(serializer.serializeLog(log), null));
+        }
     }
 }
\ No newline at end of file
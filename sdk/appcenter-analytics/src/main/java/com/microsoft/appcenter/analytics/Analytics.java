@@ -16,6 +16,8 @@ import com.microsoft.appcenter.AbstractAppCenterService;
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.Constants;
 import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.OverflowException;
+import com.microsoft.appcenter.OverflowPolicy;
 import com.microsoft.appcenter.analytics.channel.AnalyticsListener;
 import com.microsoft.appcenter.analytics.channel.AnalyticsValidator;
 import com.microsoft.appcenter.analytics.channel.SessionTracker;
@@ -27,6 +29,7 @@ import com.microsoft.appcenter.analytics.ingestion.models.json.PageLogFactory;
 import com.microsoft.appcenter.analytics.ingestion.models.json.StartSessionLogFactory;
 import com.microsoft.appcenter.analytics.ingestion.models.one.CommonSchemaEventLog;
 import com.microsoft.appcenter.analytics.ingestion.models.one.json.CommonSchemaEventLogFactory;
+import com.microsoft.appcenter.channel.AbstractChannelListener;
 import com.microsoft.appcenter.channel.Channel;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.json.LogFactory;
@@ -150,6 +153,28 @@ public class Analytics extends AbstractAppCenterService {
      */
     private long mTransmissionInterval;
 
+    /**
+     * Overflow policy of the Analytics group, null if not set.
+     */
+    private OverflowPolicy mOverflowPolicy;
+
+    /**
+     * Channel listener reacting to backpressure of the Analytics group.
+     */
+    private Channel.Listener mBackpressureListener;
+
+    /**
+     * True while the Analytics group reached the high watermark of its overflow policy.
+     * Only accessed in background thread.
+     */
+    private boolean mEventVolumeReduced;
+
+    /**
+     * Number of logs received while event volume is reduced, used for sampling.
+     * Only accessed in background thread.
+     */
+    private int mReducedLogCount;
+
     /**
      * Automatic page tracking flag.
      * TODO the backend does not support pages yet so the default value would be true after the service becomes public.
@@ -225,6 +250,21 @@ public class Analytics extends AbstractAppCenterService {
         return getInstance().setInstanceTransmissionInterval(seconds);
     }
 
+    /**
+     * Set the policy applied when too many events are waiting to be sent.
+     * While the backlog is above the high watermark of the policy, Analytics only keeps one event
+     * out of the sampling interval of the policy, events tracked with {@link Flags#CRITICAL} are never sampled.
+     * Events sampled out are reported to {@link AnalyticsListener#onSendingFailed}. With {@link OverflowPolicy#SAMPLE},
+     * events are only sampled by the policy once the backlog is at capacity.
+     * Should be called before the service is started.
+     *
+     * @param policy the overflow policy.
+     * @return <code>true</code> if the policy is set, <code>false</code> otherwise.
+     */
+    public static boolean setOverflowPolicy(OverflowPolicy policy) {
+        return getInstance().setInstanceOverflowPolicy(policy);
+    }
+
     /**
      * Pauses log transmission. This API cannot be used if the service is disabled.
      * Transmission is resumed:
@@ -721,6 +761,28 @@ public class Analytics extends AbstractAppCenterService {
         if (enabled) {
             mChannel.addGroup(ANALYTICS_CRITICAL_GROUP, getTriggerCount(), Constants.DEFAULT_TRIGGER_INTERVAL, getTriggerMaxParallelRequests(), null, getChannelListener());
 
+            /*
+             * Reduce event volume when the overflow policy signals pressure,
+             * unless the channel already samples logs in that mode: sampling twice would keep far fewer logs.
+             */
+            if (mOverflowPolicy != null) {
+                if (mOverflowPolicy.getMode() != OverflowPolicy.SAMPLE) {
+                    mBackpressureListener = new AbstractChannelListener() {
+
+                        @Override
+                        public void onBackpressureChanged(@NonNull String groupName, boolean highWatermarkReached) {
+                            if (ANALYTICS_GROUP.equals(groupName)) {
+                                AppCenterLog.info(LOG_TAG, highWatermarkReached ? "Too many events waiting to be sent, sampling events." : "Stop sampling events.");
+                                mEventVolumeReduced = highWatermarkReached;
+                                mReducedLogCount = 0;
+                            }
+                        }
+                    };
+                    mChannel.addListener(mBackpressureListener);
+                }
+                mChannel.setOverflowPolicy(ANALYTICS_GROUP, mOverflowPolicy);
+            }
+
             /* Check if service started at application level and enable corresponding features. */
             startAppLevelFeatures();
         }
@@ -743,6 +805,11 @@ public class Analytics extends AbstractAppCenterService {
                 mChannel.removeListener(mAnalyticsTransmissionTargetListener);
                 mAnalyticsTransmissionTargetListener = null;
             }
+            if (mBackpressureListener != null) {
+                mChannel.removeListener(mBackpressureListener);
+                mBackpressureListener = null;
+                mEventVolumeReduced = false;
+            }
         }
     }
 
@@ -813,9 +880,33 @@ public class Analytics extends AbstractAppCenterService {
         PageLog pageLog = new PageLog();
         pageLog.setName(name);
         pageLog.setProperties(properties);
+        if (isSampledOut(pageLog)) {
+            return;
+        }
         mChannel.enqueue(pageLog, ANALYTICS_GROUP, Flags.DEFAULTS);
     }
 
+    /**
+     * Check if a normal priority log should be skipped while event volume is reduced.
+     * A skipped log is reported to the listener as failed, like logs discarded by the channel.
+     *
+     * @param log the log.
+     * @return true to skip the log.
+     */
+    @WorkerThread
+    private boolean isSampledOut(Log log) {
+        if (!mEventVolumeReduced || mReducedLogCount++ % mOverflowPolicy.getSamplingInterval() == 0) {
+            return false;
+        }
+        String message = "Log sampled out to reduce event volume.";
+        AppCenterLog.debug(LOG_TAG, message);
+        if (mAnalyticsListener != null) {
+            mAnalyticsListener.onBeforeSending(log);
+            mAnalyticsListener.onSendingFailed(log, new OverflowException(message));
+        }
+        return true;
+    }
+
     /**
      * Implements {@link #enableManualSessionTracker()}.
      */
@@ -875,6 +966,9 @@ public class Analytics extends AbstractAppCenterService {
 
                 /* Filter and validate flags. For now we support only persistence. */
                 int filteredFlags = Flags.getPersistenceFlag(flags, true);
+                if (filteredFlags != Flags.CRITICAL && isSampledOut(eventLog)) {
+                    return;
+                }
                 mChannel.enqueue(eventLog, filteredFlags == Flags.CRITICAL ? ANALYTICS_CRITICAL_GROUP : ANALYTICS_GROUP, filteredFlags);
             }
         });
@@ -983,6 +1077,18 @@ public class Analytics extends AbstractAppCenterService {
         return true;
     }
 
+    /**
+     * Implements {@link #setOverflowPolicy(OverflowPolicy)}.
+     */
+    private synchronized boolean setInstanceOverflowPolicy(OverflowPolicy policy) {
+        if (isStarted()) {
+            AppCenterLog.error(LOG_TAG, "Overflow policy should be set before the service is started.");
+            return false;
+        }
+        mOverflowPolicy = policy;
+        return true;
+    }
+
     /**
      * Post a command.
      *
@@ -5,6 +5,9 @@
 
 package com.microsoft.appcenter.analytics.ingestion.models;
 
+import android.util.JsonReader;
+
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 import com.microsoft.appcenter.ingestion.models.properties.TypedProperty;
 import com.microsoft.appcenter.ingestion.models.properties.TypedPropertyUtils;
@@ -13,6 +16,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -22,7 +26,7 @@ import static com.microsoft.appcenter.ingestion.models.CommonProperties.TYPED_PR
 /**
  * Event log.
  */
-public class EventLog extends LogWithNameAndProperties {
+public class EventLog extends LogWithNameAndProperties implements StreamingModel {
 
     public static final String TYPE = "event";
 
@@ -85,6 +89,24 @@ public class EventLog extends LogWithNameAndProperties {
         setTypedProperties(TypedPropertyUtils.read(object));
     }
 
+    @Override
+    protected boolean readProperty(String name, JsonReader reader) throws IOException, JSONException {
+        if (ID.equals(name)) {
+            setId(UUID.fromString(reader.nextString()));
+        } else if (TYPED_PROPERTIES.equals(name)) {
+            setTypedProperties(TypedPropertyUtils.read(reader));
+        } else {
+            return super.readProperty(name, reader);
+        }
+        return true;
+    }
+
+    @Override
+    protected void checkRequiredProperties() throws JSONException {
+        super.checkRequiredProperties();
+        JSONUtils.checkRequired(getId(), ID);
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
@@ -27,6 +27,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -40,6 +41,8 @@ import android.content.Context;
 
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.OverflowException;
+import com.microsoft.appcenter.OverflowPolicy;
 import com.microsoft.appcenter.analytics.channel.AnalyticsListener;
 import com.microsoft.appcenter.analytics.channel.AnalyticsValidator;
 import com.microsoft.appcenter.analytics.channel.SessionTracker;
@@ -895,6 +898,89 @@ public class AnalyticsTest extends AbstractAnalyticsTest {
         assertFalse(result);
     }
 
+    @Test
+    public void setOverflowPolicySamplesEventsUnderPressure() {
+        OverflowPolicy policy = new OverflowPolicy(OverflowPolicy.DROP_NEWEST, 10).setSamplingInterval(2);
+        assertTrue(Analytics.setOverflowPolicy(policy));
+        AnalyticsListener analyticsListener = mock(AnalyticsListener.class);
+        Analytics.setListener(analyticsListener);
+        Analytics analytics = Analytics.getInstance();
+        Channel channel = mock(Channel.class);
+        analytics.onStarting(mAppCenterHandler);
+        analytics.onStarted(mock(Context.class), channel, "", null, true);
+        verify(channel).setOverflowPolicy(ANALYTICS_GROUP, policy);
+        ArgumentCaptor<Channel.Listener> listeners = ArgumentCaptor.forClass(Channel.Listener.class);
+        verify(channel, atLeastOnce()).addListener(listeners.capture());
+
+        /* Signal pressure: only one normal event out of 2 is kept, critical events are kept. */
+        for (Channel.Listener listener : listeners.getAllValues()) {
+            listener.onBackpressureChanged(ANALYTICS_GROUP, true);
+        }
+        for (int i = 0; i < 4; i++) {
+            Analytics.trackEvent("eventName");
+        }
+        Analytics.trackEvent("eventName", (Map<String, String>) null, CRITICAL);
+        Analytics.trackEvent("eventName", (Map<String, String>) null, CRITICAL);
+        verify(channel, times(2)).enqueue(isA(EventLog.class), eq(ANALYTICS_GROUP), eq(NORMAL));
+        verify(channel, times(2)).enqueue(isA(EventLog.class), eq(ANALYTICS_CRITICAL_GROUP), eq(CRITICAL));
+
+        /* Sampled out events are reported as failed. */
+        verify(analyticsListener, times(2)).onBeforeSending(isA(EventLog.class));
+        verify(analyticsListener, times(2)).onSendingFailed(isA(EventLog.class), isA(OverflowException.class));
+
+        /* Other groups are ignored. */
+        for (Channel.Listener listener : listeners.getAllValues()) {
+            listener.onBackpressureChanged(ANALYTICS_CRITICAL_GROUP, false);
+        }
+        Analytics.trackEvent("eventName");
+        Analytics.trackEvent("eventName");
+        verify(channel, times(3)).enqueue(isA(EventLog.class), eq(ANALYTICS_GROUP), eq(NORMAL));
+
+        /* Back to low watermark: every event is kept. */
+        for (Channel.Listener listener : listeners.getAllValues()) {
+            listener.onBackpressureChanged(ANALYTICS_GROUP, false);
+        }
+        Analytics.trackEvent("eventName");
+        Analytics.trackEvent("eventName");
+        verify(channel, times(5)).enqueue(isA(EventLog.class), eq(ANALYTICS_GROUP), eq(NORMAL));
+
+        /* Listener removed when disabled. */
+        Analytics.setEnabled(false).get();
+        verify(channel, times(listeners.getAllValues().size())).removeListener(any(Channel.Listener.class));
+    }
+
+    @Test
+    public void setSampleOverflowPolicyDoesNotSampleTwice() {
+        OverflowPolicy policy = new OverflowPolicy(OverflowPolicy.SAMPLE, 10).setSamplingInterval(2);
+        assertTrue(Analytics.setOverflowPolicy(policy));
+        Analytics analytics = Analytics.getInstance();
+        Channel channel = mock(Channel.class);
+        analytics.onStarting(mAppCenterHandler);
+        analytics.onStarted(mock(Context.class), channel, "", null, true);
+        verify(channel).setOverflowPolicy(ANALYTICS_GROUP, policy);
+        ArgumentCaptor<Channel.Listener> listeners = ArgumentCaptor.forClass(Channel.Listener.class);
+        verify(channel, atLeastOnce()).addListener(listeners.capture());
+
+        /* The channel samples events itself, Analytics keeps them all. */
+        for (Channel.Listener listener : listeners.getAllValues()) {
+            listener.onBackpressureChanged(ANALYTICS_GROUP, true);
+        }
+        for (int i = 0; i < 4; i++) {
+            Analytics.trackEvent("eventName");
+        }
+        verify(channel, times(4)).enqueue(isA(EventLog.class), eq(ANALYTICS_GROUP), eq(NORMAL));
+    }
+
+    @Test
+    public void unableToSetOverflowPolicyAfterStart() {
+        Analytics analytics = Analytics.getInstance();
+        Channel channel = mock(Channel.class);
+        analytics.onStarting(mAppCenterHandler);
+        analytics.onStarted(mock(Context.class), channel, null, null, false);
+        assertFalse(Analytics.setOverflowPolicy(new OverflowPolicy(OverflowPolicy.DROP_NEWEST, 10)));
+        verify(channel, never()).setOverflowPolicy(anyString(), any(OverflowPolicy.class));
+    }
+
     /**
      * Activity with page name automatically resolving to "My" (no "Activity" suffix).
      */
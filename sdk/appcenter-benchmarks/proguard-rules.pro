@@ -0,0 +1 @@
+# Benchmarks are not shipped, nothing to keep for consumers.
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.microsoft.appcenter.analytics.Analytics;
+import com.microsoft.appcenter.analytics.AnalyticsTransmissionTarget;
+import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpUtils;
+import com.microsoft.appcenter.http.ServiceCall;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.OneCollectorIngestion;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+/**
+ * Tracks events at a steady rate for a while through the whole SDK: {@link Analytics#trackEvent(String)},
+ * the channel, the logs database and the default HTTP client, sending them to a local TLS stand-in
+ * for the App Center and One Collector ingestion endpoints.
+ * <p>
+ * The server can delay responses and fail calls with errors or throttling. The report gives the rate
+ * of tracked and delivered events, the latency between tracking an event and the server receiving it,
+ * the largest database size and Java heap usage. It is logged and written as JSON to the additional
+ * test output directory, copied to build/outputs, or else to the external files directory of the app.
+ * <p>
+ * Settings are instrumentation arguments, such as
+ * {@code -Pandroid.testInstrumentationRunnerArguments.soak.eventsPerSecond=500}:
+ * <ul>
+ * <li>{@code soak.durationSeconds}: how long events are tracked, 60 by default.</li>
+ * <li>{@code soak.eventsPerSecond}: tracking rate, 100 by default.</li>
+ * <li>{@code soak.oneCollectorRatio}: share of events tracked for a transmission target, 0.5 by default.</li>
+ * <li>{@code soak.latencyMillis}: delay before the server responds, 50 by default.</li>
+ * <li>{@code soak.errorRate}: share of calls failing with HTTP 500, 0 by default.</li>
+ * <li>{@code soak.throttleRate}: share of calls failing with HTTP 429 or 503 and a retry delay, 0 by default.</li>
+ * <li>{@code soak.retryAfterMillis}: retry delay asked by throttled calls, 1000 by default.</li>
+ * <li>{@code soak.drainSeconds}: how long to wait for the remaining events after tracking, 120 by default.</li>
+ * </ul>
+ */
+public class PipelineSoakBenchmark {
+
+    private static final String TAG = "PipelineSoakBenchmark";
+
+    private static final String TRANSMISSION_TARGET = "4dacd24d0b1b42db9e0cd4a9d6d0f1c5-b3a37be1-0b43-4a57-a8df-c5ee23b5efbb-7271";
+
+    /**
+     * Prefix of the event names, followed by the event sequence number.
+     */
+    private static final String EVENT_PREFIX = "soak_";
+
+    /**
+     * Event names in App Center and One Collector request bodies.
+     */
+    private static final Pattern EVENT_NAME_PATTERN = Pattern.compile("\"name\":\"" + EVENT_PREFIX + "(\\d+)\"");
+
+    /**
+     * Path of the One Collector stand-in on the local server.
+     */
+    private static final String ONE_COLLECTOR_PATH = "/OneCollector/1.0";
+
+    /**
+     * Name of the logs database, see {@link com.microsoft.appcenter.persistence.DatabasePersistence}.
+     */
+    private static final String DATABASE = "com.microsoft.appcenter.persistence";
+
+    private static final String RETRY_AFTER_MS_HEADER = "x-ms-retry-after-ms";
+
+    /**
+     * Time between two rounds of tracking due events and sampling resources.
+     */
+    private static final long SAMPLING_INTERVAL_MILLIS = 10;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private final Map<Integer, Integer> mResponseCounts = new TreeMap<>();
+
+    private final AtomicInteger mDeliveredCount = new AtomicInteger();
+
+    private final AtomicInteger mDuplicateCount = new AtomicInteger();
+
+    private final AtomicLong mLastDeliveryTime = new AtomicLong();
+
+    private final Random mTargetRandom = new Random(0);
+
+    private int mDurationSeconds;
+
+    private int mEventsPerSecond;
+
+    private double mOneCollectorRatio;
+
+    private long mLatencyMillis;
+
+    private double mErrorRate;
+
+    private double mThrottleRate;
+
+    private long mRetryAfterMillis;
+
+    private int mDrainSeconds;
+
+    private Context mContext;
+
+    private MockWebServer mServer;
+
+    private SSLSocketFactory mDefaultSocketFactory;
+
+    private HttpClient mHttpClient;
+
+    private AtomicLongArray mTrackTimes;
+
+    private AtomicLongArray mDeliveryTimes;
+
+    private long mMaxDatabaseBytes;
+
+    private long mMaxHeapBytes;
+
+    private static int getInt(Bundle arguments, String key, int defaultValue) {
+        String value = arguments.getString(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static double getDouble(Bundle arguments, String key, double defaultValue) {
+        String value = arguments.getString(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static long getPercentile(long[] sortedValues, double percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, index)];
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        mDurationSeconds = getInt(arguments, "soak.durationSeconds", 60);
+        mEventsPerSecond = getInt(arguments, "soak.eventsPerSecond", 100);
+        mOneCollectorRatio = getDouble(arguments, "soak.oneCollectorRatio", 0.5);
+        mLatencyMillis = getInt(arguments, "soak.latencyMillis", 50);
+        mErrorRate = getDouble(arguments, "soak.errorRate", 0);
+        mThrottleRate = getDouble(arguments, "soak.throttleRate", 0);
+        mRetryAfterMillis = getInt(arguments, "soak.retryAfterMillis", 1000);
+        mDrainSeconds = getInt(arguments, "soak.drainSeconds", 120);
+        int eventCount = mDurationSeconds * mEventsPerSecond;
+        mTrackTimes = new AtomicLongArray(eventCount);
+        mDeliveryTimes = new AtomicLongArray(eventCount);
+
+        /* Local TLS stand-in for both ingestion hosts. */
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(InetAddress.getByName("localhost").getCanonicalHostName())
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+        mServer = new MockWebServer();
+        mServer.useHttps(serverCertificates.sslSocketFactory(), false);
+        mServer.setDispatcher(new IngestionDispatcher());
+        mServer.start();
+        mDefaultSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HttpsURLConnection.setDefaultSSLSocketFactory(clientCertificates.sslSocketFactory());
+
+        /* Start from an empty database with the default HTTP client stack. */
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mContext.deleteDatabase(DATABASE);
+        String serverUrl = mServer.url("/").toString();
+        serverUrl = serverUrl.substring(0, serverUrl.length() - 1);
+        mHttpClient = new OneCollectorRedirect(HttpUtils.createHttpClient(mContext, DIRECT_EXECUTOR), serverUrl + ONE_COLLECTOR_PATH);
+        DependencyConfiguration.setHttpClient(mHttpClient);
+        AppCenter.setLogUrl(serverUrl);
+        AppCenter.start((Application) mContext.getApplicationContext(), UUID.randomUUID().toString(), Analytics.class);
+        AppCenter.setEnabled(true).get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        AppCenter.setEnabled(false).get();
+        DependencyConfiguration.setHttpClient(null);
+        mHttpClient.close();
+        mServer.shutdown();
+        HttpsURLConnection.setDefaultSSLSocketFactory(mDefaultSocketFactory);
+    }
+
+    private long getDatabaseBytes() {
+        return mContext.getDatabasePath(DATABASE).length() + mContext.getDatabasePath(DATABASE + "-wal").length();
+    }
+
+    private void sample() {
+        mMaxDatabaseBytes = Math.max(mMaxDatabaseBytes, getDatabaseBytes());
+        Runtime runtime = Runtime.getRuntime();
+        mMaxHeapBytes = Math.max(mMaxHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    @Test
+    public void soak() throws InterruptedException, JSONException, IOException {
+        AnalyticsTransmissionTarget target = Analytics.getTransmissionTarget(TRANSMISSION_TARGET);
+        int eventCount = mTrackTimes.length();
+
+        /* Track the events due since the start on every round. */
+        long startTime = System.nanoTime();
+        int tracked = 0;
+        while (tracked < eventCount) {
+            long elapsed = System.nanoTime() - startTime;
+            int due = (int) Math.min(eventCount, elapsed * mEventsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            for (; tracked < due; tracked++) {
+                mTrackTimes.set(tracked, System.nanoTime());
+                String name = EVENT_PREFIX + tracked;
+                if (mTargetRandom.nextDouble() < mOneCollectorRatio) {
+                    target.trackEvent(name);
+                } else {
+                    Analytics.trackEvent(name);
+                }
+            }
+            sample();
+            Thread.sleep(SAMPLING_INTERVAL_MILLIS);
+        }
+        long trackingNanos = System.nanoTime() - startTime;
+
+        /* Send what is left and wait for the server to receive it. */
+        long drainEndTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(mDrainSeconds);
+        AppCenter.flush(TimeUnit.SECONDS.toMillis(mDrainSeconds));
+        while (mDeliveredCount.get() < eventCount && System.nanoTime() < drainEndTime) {
+            sample();
+            Thread.sleep(SAMPLING_INTERVAL_MILLIS);
+        }
+        sample();
+        long finalDatabaseBytes = getDatabaseBytes();
+
+        /* Latency of each delivered event. */
+        int deliveredCount = 0;
+        long[] latencies = new long[eventCount];
+        for (int i = 0; i < eventCount; i++) {
+            long deliveryTime = mDeliveryTimes.get(i);
+            if (deliveryTime != 0) {
+                latencies[deliveredCount++] = TimeUnit.NANOSECONDS.toMillis(deliveryTime - mTrackTimes.get(i));
+            }
+        }
+        latencies = Arrays.copyOf(latencies, deliveredCount);
+        Arrays.sort(latencies);
+        JSONObject latency = new JSONObject();
+        latency.put("p50", getPercentile(latencies, 0.5));
+        latency.put("p90", getPercentile(latencies, 0.9));
+        latency.put("p99", getPercentile(latencies, 0.99));
+        latency.put("max", getPercentile(latencies, 1));
+        JSONObject responses = new JSONObject();
+        synchronized (mResponseCounts) {
+            for (Map.Entry<Integer, Integer> entry : mResponseCounts.entrySet()) {
+                responses.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+        }
+        long deliveryNanos = mLastDeliveryTime.get() - startTime;
+        JSONObject report = new JSONObject();
+        report.put("durationSeconds", mDurationSeconds);
+        report.put("eventsPerSecond", mEventsPerSecond);
+        report.put("oneCollectorRatio", mOneCollectorRatio);
+        report.put("serverLatencyMillis", mLatencyMillis);
+        report.put("errorRate", mErrorRate);
+        report.put("throttleRate", mThrottleRate);
+        report.put("trackedEvents", eventCount);
+        report.put("deliveredEvents", deliveredCount);
+        report.put("duplicateEvents", mDuplicateCount.get());
+        report.put("trackedEventsPerSecond", eventCount * (double) TimeUnit.SECONDS.toNanos(1) / trackingNanos);
+        report.put("deliveredEventsPerSecond", deliveryNanos > 0 ? deliveredCount * (double) TimeUnit.SECONDS.toNanos(1) / deliveryNanos : 0);
+        report.put("latencyMillis", latency);
+        report.put("responses", responses);
+        report.put("maxDatabaseBytes", mMaxDatabaseBytes);
+        report.put("finalDatabaseBytes", finalDatabaseBytes);
+        report.put("maxHeapBytes", mMaxHeapBytes);
+        writeReport(report.toString(2));
+    }
+
+    private void writeReport(String report) throws IOException {
+        Log.i(TAG, report);
+        String outputDirectory = InstrumentationRegistry.getArguments().getString("additionalTestOutputDir");
+        File directory = outputDirectory != null ? new File(outputDirectory) : mContext.getExternalFilesDir(null);
+        File file = new File(directory, "soak-" + mEventsPerSecond + "-per-second.json");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(report);
+        } finally {
+            writer.close();
+        }
+        Log.i(TAG, "Report written to " + file);
+    }
+
+    /**
+     * Ingestion stand-in recording the events it receives.
+     */
+    private class IngestionDispatcher extends Dispatcher {
+
+        private final Random mResponseRandom = new Random(1);
+
+        private int mThrottleCount;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            if (mLatencyMillis > 0) {
+                Thread.sleep(mLatencyMillis);
+            }
+            MockResponse response = new MockResponse();
+            double random;
+            boolean throttle503;
+            synchronized (this) {
+                random = mResponseRandom.nextDouble();
+                throttle503 = mThrottleCount++ % 2 == 1;
+            }
+            int statusCode = 200;
+            if (random < mErrorRate) {
+                statusCode = 500;
+            } else if (random < mErrorRate + mThrottleRate) {
+                statusCode = throttle503 ? 503 : 429;
+                response.addHeader(RETRY_AFTER_MS_HEADER, mRetryAfterMillis);
+            } else {
+                try {
+                    readEvents(request);
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot read request body", e);
+                    statusCode = 400;
+                }
+            }
+            synchronized (mResponseCounts) {
+                Integer count = mResponseCounts.get(statusCode);
+                mResponseCounts.put(statusCode, count == null ? 1 : count + 1);
+            }
+            return response.setResponseCode(statusCode).setBody("");
+        }
+
+        private void readEvents(RecordedRequest request) throws IOException {
+            InputStream inputStream = request.getBody().inputStream();
+            if ("gzip".equals(request.getHeader("Content-Encoding"))) {
+                inputStream = new GZIPInputStream(inputStream);
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, length);
+            }
+            long deliveryTime = System.nanoTime();
+            Matcher matcher = EVENT_NAME_PATTERN.matcher(outputStream.toString("UTF-8"));
+            while (matcher.find()) {
+                int sequenceNumber = Integer.parseInt(matcher.group(1));
+                if (sequenceNumber < mDeliveryTimes.length()) {
+                    if (mDeliveryTimes.compareAndSet(sequenceNumber, 0, deliveryTime)) {
+                        mDeliveredCount.incrementAndGet();
+                        long lastDeliveryTime;
+                        do {
+                            lastDeliveryTime = mLastDeliveryTime.get();
+                        } while (deliveryTime > lastDeliveryTime && !mLastDeliveryTime.compareAndSet(lastDeliveryTime, deliveryTime));
+                    } else {
+                        mDuplicateCount.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the calls to One Collector, whose URL cannot be changed, to the local server instead.
+     */
+    private static class OneCollectorRedirect implements HttpClient {
+
+        private final HttpClient mHttpClient;
+
+        private final String mLogUrl;
+
+        OneCollectorRedirect(HttpClient httpClient, String logUrl) {
+            mHttpClient = httpClient;
+            mLogUrl = logUrl;
+        }
+
+        @Override
+        public ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
+            if (url.startsWith(OneCollectorIngestion.DEFAULT_LOG_URL)) {
+                url = mLogUrl + url.substring(OneCollectorIngestion.DEFAULT_LOG_URL.length());
+            }
+            return mHttpClient.callAsync(url, method, headers, callTemplate, serviceCallback);
+        }
+
+        @Override
+        public void reopen() {
+            mHttpClient.reopen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mHttpClient.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.analytics.channel;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.microsoft.appcenter.analytics.ingestion.models.EventLog;
+import com.microsoft.appcenter.ingestion.models.properties.BooleanTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.LongTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.StringTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.TypedProperty;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Validates events tracked with properties within the limits, or with names, keys and values that must be truncated
+ * and more properties than allowed. The name and properties of the events are restored before each validation.
+ */
+@RunWith(Parameterized.class)
+public class AnalyticsValidatorBenchmark {
+
+    private static final String TAG = "AnalyticsValidatorBench";
+
+    /**
+     * Number of events.
+     */
+    private static final int EVENTS = 64;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final boolean mTruncated;
+
+    private final AnalyticsValidator mAnalyticsValidator = new AnalyticsValidator();
+
+    private final List<EventLog> mEventLogs = new ArrayList<>();
+
+    private final List<String> mNames = new ArrayList<>();
+
+    private final List<List<TypedProperty>> mProperties = new ArrayList<>();
+
+    private int mFiltered;
+
+    public AnalyticsValidatorBenchmark(boolean truncated) {
+        mTruncated = truncated;
+    }
+
+    @Parameterized.Parameters(name = "truncated={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private static String repeat(String value, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    @Before
+    public void setUp() {
+        int propertyCount = mTruncated ? AnalyticsValidator.MAX_PROPERTY_COUNT + 5 : 5;
+        String suffix = mTruncated ? repeat("x", AnalyticsValidator.MAX_PROPERTY_ITEM_LENGTH) : "";
+        for (int i = 0; i < EVENTS; i++) {
+            List<TypedProperty> properties = new ArrayList<>();
+            for (int j = 0; j < propertyCount; j++) {
+                TypedProperty property;
+                if (j % 3 == 0) {
+                    StringTypedProperty stringProperty = new StringTypedProperty();
+                    stringProperty.setValue("menu/settings" + suffix);
+                    property = stringProperty;
+                } else if (j % 3 == 1) {
+                    LongTypedProperty longProperty = new LongTypedProperty();
+                    longProperty.setValue(1000L * i);
+                    property = longProperty;
+                } else {
+                    BooleanTypedProperty booleanProperty = new BooleanTypedProperty();
+                    booleanProperty.setValue(i % 2 == 0);
+                    property = booleanProperty;
+                }
+                property.setName("property" + j + suffix);
+                properties.add(property);
+            }
+            mProperties.add(properties);
+            mNames.add(mTruncated ? repeat("screen" + i, AnalyticsValidator.MAX_NAME_LENGTH + 10) : "screen" + i);
+            mEventLogs.add(new EventLog());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Log.i(TAG, "truncated=" + mTruncated + " filtered=" + mFiltered);
+    }
+
+    @Test
+    public void shouldFilter() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int i = 0; i < EVENTS; i++) {
+                EventLog log = mEventLogs.get(i);
+                log.setName(mNames.get(i));
+                log.setTypedProperties(new ArrayList<>(mProperties.get(i)));
+                if (mAnalyticsValidator.shouldFilter(log)) {
+                    mFiltered++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.analytics.ingestion.models.json;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.microsoft.appcenter.analytics.ingestion.models.EventLog;
+import com.microsoft.appcenter.analytics.ingestion.models.one.CommonSchemaEventLog;
+import com.microsoft.appcenter.ingestion.models.Device;
+import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.one.CommonSchemaDataUtils;
+import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
+import com.microsoft.appcenter.ingestion.models.properties.BooleanTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.DateTimeTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.DoubleTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.LongTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.StringTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.TypedProperty;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converts event logs to One Collector logs, or only their properties, and serializes them.
+ * The events use the same property names, whose plan is cached, or distinct names for every event,
+ * more than the plans kept, which compiles the plan every time like the SDK used to build the metadata.
+ */
+@RunWith(Parameterized.class)
+public class CommonSchemaConversionBenchmark {
+
+    private static final String TAG = "CommonSchemaConversion";
+
+    private static final String TRANSMISSION_TARGET = "4dacd24d0b1b42db9e0cd4a9d6d0f1c5-b3a37be1-0b43-4a57-a8df-c5ee23b5efbb-7271";
+
+    /**
+     * Number of events, more than the plans kept.
+     */
+    private static final int EVENTS = 64;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final boolean mDistinctNames;
+
+    private final EventLogFactory mEventLogFactory = new EventLogFactory();
+
+    private final LogSerializer mLogSerializer = new DefaultLogSerializer();
+
+    private final List<EventLog> mEventLogs = new ArrayList<>();
+
+    private final List<CommonSchemaLog> mCommonSchemaLogs = new ArrayList<>();
+
+    private int mLength;
+
+    public CommonSchemaConversionBenchmark(boolean distinctNames) {
+        mDistinctNames = distinctNames;
+    }
+
+    @Parameterized.Parameters(name = "distinctNames={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    @Before
+    public void setUp() {
+        Device device = new Device();
+        device.setSdkName("appcenter.android");
+        device.setSdkVersion("5.0.6");
+        device.setModel("Pixel 7");
+        device.setOemName("Google");
+        device.setOsName("Android");
+        device.setOsVersion("14");
+        device.setOsBuild("UQ1A.240205.004");
+        device.setOsApiLevel(34);
+        device.setLocale("en_US");
+        device.setTimeZoneOffset(60);
+        device.setScreenSize("1080x2400");
+        device.setAppVersion("2.3.1");
+        device.setAppBuild("231");
+        device.setAppNamespace("com.contoso.app");
+        device.setCarrierName("Contoso Mobile");
+        device.setCarrierCountry("us");
+        for (int i = 0; i < EVENTS; i++) {
+            String prefix = mDistinctNames ? "event" + i + "." : "event.";
+            StringTypedProperty screen = new StringTypedProperty();
+            screen.setName(prefix + "screen.name");
+            screen.setValue("settings");
+            LongTypedProperty duration = new LongTypedProperty();
+            duration.setName(prefix + "screen.duration");
+            duration.setValue(1000L * i);
+            DoubleTypedProperty ratio = new DoubleTypedProperty();
+            ratio.setName(prefix + "ratio");
+            ratio.setValue(i / 3.0);
+            DateTimeTypedProperty start = new DateTimeTypedProperty();
+            start.setName(prefix + "start");
+            start.setValue(new Date());
+            BooleanTypedProperty premium = new BooleanTypedProperty();
+            premium.setName("user.premium");
+            premium.setValue(i % 2 == 0);
+            StringTypedProperty baseType = new StringTypedProperty();
+            baseType.setName("baseType");
+            baseType.setValue("PageView");
+            StringTypedProperty baseData = new StringTypedProperty();
+            baseData.setName("baseData.uri");
+            baseData.setValue("https://contoso.com/settings");
+            List<TypedProperty> properties = Arrays.<TypedProperty>asList(screen, duration, ratio, start, premium, baseType, baseData);
+            EventLog log = new EventLog();
+            log.setId(UUID.randomUUID());
+            log.setTimestamp(new Date());
+            log.setDevice(device);
+            log.setName("screen");
+            log.setTypedProperties(properties);
+            log.addTransmissionTarget(TRANSMISSION_TARGET);
+            mEventLogs.add(log);
+            mCommonSchemaLogs.addAll(mEventLogFactory.toCommonSchemaLogs(log));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Log.i(TAG, "distinctNames=" + mDistinctNames + " length=" + mLength);
+    }
+
+    @Test
+    public void toCommonSchemaLogs() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (EventLog log : mEventLogs) {
+                mLength += mEventLogFactory.toCommonSchemaLogs(log).size();
+            }
+        }
+    }
+
+    @Test
+    public void addCommonSchemaData() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (EventLog log : mEventLogs) {
+                CommonSchemaEventLog commonSchemaLog = new CommonSchemaEventLog();
+                CommonSchemaDataUtils.addCommonSchemaData(log.getTypedProperties(), commonSchemaLog);
+                mLength += commonSchemaLog.getData().getProperties().length();
+            }
+        }
+    }
+
+    @Test
+    public void serialize() throws JSONException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (CommonSchemaLog log : mCommonSchemaLogs) {
+                mLength = mLogSerializer.serializeLog(log).length();
+            }
+        }
+    }
+}
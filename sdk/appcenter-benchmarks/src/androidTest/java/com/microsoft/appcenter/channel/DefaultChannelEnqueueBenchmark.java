@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.http.ServiceCall;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.Ingestion;
+import com.microsoft.appcenter.ingestion.models.AbstractLog;
+import com.microsoft.appcenter.ingestion.models.Device;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.utils.storage.SharedPreferencesManager;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Measures {@link DefaultChannel#enqueue(Log, String, int)} cost depending on the number of channel listeners.
+ * Persistence and ingestion do nothing so that only the channel pipeline is measured.
+ */
+@RunWith(Parameterized.class)
+public class DefaultChannelEnqueueBenchmark {
+
+    private static final String GROUP = "group_benchmark";
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mListenerCount;
+
+    private DefaultChannel mChannel;
+
+    private Log mLog;
+
+    public DefaultChannelEnqueueBenchmark(int listenerCount) {
+        mListenerCount = listenerCount;
+    }
+
+    @Parameterized.Parameters(name = "listeners={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{0}, {1}, {4}, {8}, {16}});
+    }
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        SharedPreferencesManager.initialize(context);
+        mChannel = new DefaultChannel(context, UUID.randomUUID().toString(), new NoOpPersistence(), new NoOpIngestion(), new Handler(Looper.getMainLooper()));
+        mChannel.addGroup(GROUP, Integer.MAX_VALUE, 3000, 1, null, null);
+
+        /* Paused group: logs are counted but never scheduled for sending. */
+        mChannel.pauseGroup(GROUP, null);
+
+        /*
+         * Mix listeners the way SDK modules do:
+         * most implement a single log callback and some none at all.
+         */
+        for (int i = 0; i < mListenerCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    mChannel.addListener(new AbstractChannelListener() {
+
+                        @Override
+                        public void onPreparingLog(@NonNull Log log, @NonNull String groupName) {
+                            log.setUserId(groupName);
+                        }
+                    });
+                    break;
+
+                case 1:
+                    mChannel.addListener(new AbstractChannelListener() {
+
+                        @Override
+                        public boolean shouldFilter(@NonNull Log log) {
+                            return log.getTimestamp() == null;
+                        }
+                    });
+                    break;
+
+                case 2:
+                    mChannel.addListener(new AbstractChannelListener() {
+
+                        @Override
+                        public void onPreparedLog(@NonNull Log log, @NonNull String groupName, int flags) {
+                            log.setTag(groupName);
+                        }
+                    });
+                    break;
+
+                default:
+                    mChannel.addListener(new AbstractChannelListener() {
+
+                        @Override
+                        public void onGroupAdded(@NonNull String groupName, Channel.GroupListener groupListener, long batchTimeInterval) {
+                        }
+                    });
+            }
+        }
+        BenchmarkLog log = new BenchmarkLog();
+        log.setDevice(new Device());
+        mLog = log;
+    }
+
+    @Test
+    public void enqueue() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mChannel.enqueue(mLog, GROUP, Flags.DEFAULTS);
+        }
+    }
+
+    private static class BenchmarkLog extends AbstractLog {
+
+        @Override
+        public String getType() {
+            return "benchmark";
+        }
+    }
+
+    private static class NoOpPersistence extends Persistence {
+
+        @Override
+        public long putLog(@NonNull Log log, @NonNull String group, int flags) {
+            return 0;
+        }
+
+        @Override
+        public void deleteLogs(@NonNull String group, @NonNull String batchId) {
+        }
+
+        @Override
+        public void deleteLogs(String group) {
+        }
+
+        @Override
+        public int countLogs(@NonNull String group) {
+            return 0;
+        }
+
+        @Override
+        public String getLogs(@NonNull String group, @NonNull Collection<String> pausedTargetKeys, int limit, @NonNull List<Log> outLogs) {
+            return null;
+        }
+
+        @Override
+        public String splitLogs(@NonNull String group, @NonNull String batchId, int index) {
+            return null;
+        }
+
+        @Override
+        public boolean deleteTheOldestLog(@NonNull String group) {
+            return false;
+        }
+
+        @Override
+        public void clearPendingLogState() {
+        }
+
+        @Override
+        public boolean setMaxStorageSize(long maxStorageSizeInBytes) {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class NoOpIngestion implements Ingestion {
+
+        @Override
+        public ServiceCall sendAsync(String appSecret, UUID installId, LogContainer logContainer, ServiceCallback serviceCallback) {
+            return null;
+        }
+
+        @Override
+        public void setLogUrl(String logUrl) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void reopen() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
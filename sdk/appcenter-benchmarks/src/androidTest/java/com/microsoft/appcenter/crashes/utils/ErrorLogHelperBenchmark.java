@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.crashes.utils;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.microsoft.appcenter.crashes.ingestion.models.Exception;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Converts a crash with a few causes to the exception model of error logs,
+ * thrown from a shallow or a deep stack, still within the frames kept per exception.
+ */
+@RunWith(Parameterized.class)
+public class ErrorLogHelperBenchmark {
+
+    private static final String TAG = "ErrorLogHelperBench";
+
+    /**
+     * Number of exceptions in the cause chain.
+     */
+    private static final int CAUSES = 3;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mDepth;
+
+    private Throwable mThrowable;
+
+    private int mFrames;
+
+    public ErrorLogHelperBenchmark(int depth) {
+        mDepth = depth;
+    }
+
+    @Parameterized.Parameters(name = "depth={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{10}, {ErrorLogHelper.FRAME_LIMIT / 2}});
+    }
+
+    private static Throwable createThrowable(int depth, Throwable cause) {
+        if (depth > 0) {
+            return createThrowable(depth - 1, cause);
+        }
+        return new IllegalStateException("Invalid state", cause);
+    }
+
+    @Before
+    public void setUp() {
+        Throwable throwable = null;
+        for (int i = 0; i < CAUSES; i++) {
+            throwable = createThrowable(mDepth, throwable);
+        }
+        mThrowable = throwable;
+    }
+
+    @After
+    public void tearDown() {
+        Log.i(TAG, "depth=" + mDepth + " frames=" + mFrames);
+    }
+
+    @Test
+    public void getModelExceptionFromThrowable() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            Exception exception = ErrorLogHelper.getModelExceptionFromThrowable(mThrowable);
+            mFrames = exception.getFrames().size();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses App Center and One Collector log batches with a new gzip stream per batch, as the SDK used to,
+ * and with {@link RequestCompression} at several levels and with the log dictionary,
+ * to compare compression ratios and CPU time per batch.
+ */
+@RunWith(Parameterized.class)
+public class CompressionBenchmark {
+
+    private static final String TAG = "CompressionBenchmark";
+
+    private static final String GZIP_STREAM = "gzipStream";
+
+    private static final String APP_CENTER = "appCenter";
+
+    private static final String ONE_COLLECTOR = "oneCollector";
+
+    /**
+     * Number of logs in a batch, like the default batch size of a channel group.
+     */
+    private static final int LOGS_PER_BATCH = 50;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final String mEncoder;
+
+    private final String mBatchType;
+
+    private final RequestCompression mCompression;
+
+    private byte[] mPayload;
+
+    private int mCompressedLength;
+
+    private long mCpuTime;
+
+    private int mIterations;
+
+    public CompressionBenchmark(String encoder, String batchType, RequestCompression compression) {
+        mEncoder = encoder;
+        mBatchType = batchType;
+        mCompression = compression;
+    }
+
+    @Parameterized.Parameters(name = "encoder={0},batch={1}")
+    public static Collection<Object[]> data() {
+        List<Object[]> data = new ArrayList<>();
+        for (String batchType : new String[]{APP_CENTER, ONE_COLLECTOR}) {
+            data.add(new Object[]{GZIP_STREAM, batchType, null});
+            data.add(new Object[]{"level1", batchType, new RequestCompression(Deflater.BEST_SPEED, 0, null)});
+            data.add(new Object[]{"level6", batchType, new RequestCompression(6, 0, null)});
+            data.add(new Object[]{"level9", batchType, new RequestCompression(Deflater.BEST_COMPRESSION, 0, null)});
+            data.add(new Object[]{"dictionary1", batchType, new RequestCompression(Deflater.BEST_SPEED, 0, RequestCompression.getLogDictionary())});
+            data.add(new Object[]{"dictionary6", batchType, new RequestCompression(6, 0, RequestCompression.getLogDictionary())});
+        }
+        return data;
+    }
+
+    /**
+     * Build a batch shaped like the ones sent by the Analytics module, with random identifiers
+     * and timestamps so that deflate does not find more repetitions than in real batches.
+     */
+    private static String buildAppCenterBatch(Random random) {
+        StringBuilder payload = new StringBuilder("{\"logs\":[");
+        for (int i = 0; i < LOGS_PER_BATCH; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("{\"type\":\"event\",\"timestamp\":\"2024-01-01T00:").append(10 + random.nextInt(50))
+                    .append(':').append(10 + random.nextInt(50)).append('.').append(100 + random.nextInt(900)).append("Z\"")
+                    .append(",\"sid\":\"").append(UUID.randomUUID())
+                    .append("\",\"device\":{\"sdkName\":\"appcenter.android\",\"sdkVersion\":\"5.0.6\",\"model\":\"Pixel 7\",\"oemName\":\"Google\"")
+                    .append(",\"osName\":\"Android\",\"osVersion\":\"14\",\"osBuild\":\"UQ1A.240205.004\",\"osApiLevel\":34,\"locale\":\"en_US\"")
+                    .append(",\"timeZoneOffset\":60,\"screenSize\":\"1080x2400\",\"appVersion\":\"2.3.1\",\"appBuild\":\"231\"")
+                    .append(",\"appNamespace\":\"com.contoso.app\",\"carrierName\":\"Contoso Mobile\",\"carrierCountry\":\"us\"}")
+                    .append(",\"id\":\"").append(UUID.randomUUID())
+                    .append("\",\"name\":\"screen_").append(random.nextInt(20))
+                    .append("\",\"typedProperties\":[{\"type\":\"string\",\"name\":\"source\",\"value\":\"menu\"}")
+                    .append(",{\"type\":\"long\",\"name\":\"duration\",\"value\":").append(random.nextInt(100000)).append("}]}");
+        }
+        return payload.append("]}").toString();
+    }
+
+    /**
+     * Build a batch of Common Schema logs shaped like the ones sent by the One Collector channel.
+     */
+    private static String buildOneCollectorBatch(Random random) {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < LOGS_PER_BATCH; i++) {
+            payload.append("{\"ver\":\"3.0\",\"name\":\"contoso.app.screen_").append(random.nextInt(20))
+                    .append("\",\"time\":\"2024-01-01T00:").append(10 + random.nextInt(50)).append(':')
+                    .append(10 + random.nextInt(50)).append('.').append(100 + random.nextInt(900)).append("Z\"")
+                    .append(",\"popSample\":100.0,\"iKey\":\"o:81439696f7164d7599d543f9bf37abb7\",\"flags\":1,\"cV\":\"\"")
+                    .append(",\"ext\":{\"protocol\":{\"devMake\":\"Google\",\"devModel\":\"Pixel 7\"}")
+                    .append(",\"user\":{\"localId\":\"a:").append(UUID.randomUUID()).append("\",\"locale\":\"en-US\"}")
+                    .append(",\"os\":{\"name\":\"Android\",\"ver\":\"14\"},\"app\":{\"id\":\"a:com.contoso.app\",\"ver\":\"2.3.1 (231)\",\"locale\":\"en-US\"}")
+                    .append(",\"net\":{\"provider\":\"Contoso Mobile\"},\"sdk\":{\"libVer\":\"appcenter.android-5.0.6\"")
+                    .append(",\"epoch\":\"").append(UUID.randomUUID()).append("\",\"seq\":").append(i + 1)
+                    .append(",\"installId\":\"").append(UUID.randomUUID()).append("\"},\"loc\":{\"tz\":\"+01:00\"}}")
+                    .append(",\"data\":{\"baseType\":\"screen\",\"baseData\":{\"source\":\"menu\"},\"duration\":").append(random.nextInt(100000))
+                    .append("}}\n");
+        }
+        return payload.toString();
+    }
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        String payload = APP_CENTER.equals(mBatchType) ? buildAppCenterBatch(random) : buildOneCollectorBatch(random);
+        mPayload = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @After
+    public void tearDown() {
+        long cpuTime = mIterations > 0 ? TimeUnit.NANOSECONDS.toMicros(mCpuTime / mIterations) : 0;
+        Log.i(TAG, "encoder=" + mEncoder + " batch=" + mBatchType + " size=" + mPayload.length
+                + " compressed=" + mCompressedLength + " ratio=" + (float) mPayload.length / mCompressedLength
+                + " cpuTimeUs=" + cpuTime);
+    }
+
+    private byte[] compress() throws IOException {
+        if (mCompression != null) {
+            return mCompression.compress(mPayload);
+        }
+        ByteArrayOutputStream gzipBuffer = new ByteArrayOutputStream(mPayload.length);
+        GZIPOutputStream gzipStream = new GZIPOutputStream(gzipBuffer);
+        gzipStream.write(mPayload);
+        gzipStream.close();
+        return gzipBuffer.toByteArray();
+    }
+
+    @Test
+    public void compressBatch() throws IOException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            long startTime = Debug.threadCpuTimeNanos();
+            mCompressedLength = compress().length;
+            mCpuTime += Debug.threadCpuTimeNanos() - startTime;
+            mIterations++;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends the first batch to a new local TLS server with and without {@link HttpConnectionWarmer},
+ * to measure the latency saved by resolving the host and caching the TLS session before the first call.
+ * Only the batch is timed, the warm-up runs while timing is paused like it would run during start-up.
+ */
+@RunWith(Parameterized.class)
+public class FirstBatchBenchmark {
+
+    private static final String TAG = "FirstBatchBenchmark";
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final boolean mWarmUp;
+
+    private HandshakeCertificates mServerCertificates;
+
+    private SSLSocketFactory mDefaultSocketFactory;
+
+    private HttpClient mHttpClient;
+
+    private HttpClient.CallTemplate mCallTemplate;
+
+    private int mWarmUpFailures;
+
+    public FirstBatchBenchmark(boolean warmUp) {
+        mWarmUp = warmUp;
+    }
+
+    @Parameterized.Parameters(name = "warmUp={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    @Before
+    public void setUp() throws IOException {
+
+        /* Certificates of the local TLS stand-ins for the ingestion host. */
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(InetAddress.getByName("localhost").getCanonicalHostName())
+                .build();
+        mServerCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+
+        /* The warm-up and the client share the default factory and thus its session cache. */
+        mDefaultSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HttpsURLConnection.setDefaultSSLSocketFactory(clientCertificates.sslSocketFactory());
+        mHttpClient = new DefaultHttpClient(true, HttpUtils.getDefaultExecutor(), DIRECT_EXECUTOR);
+        final String body = "{\"logs\":[{\"type\":\"event\",\"id\":\"0\",\"timestamp\":\"2024-01-01T00:00:00.000Z\""
+                + ",\"sid\":\"0d1e9ab1-4f68-4a1a-9a23-1f6d2b4c8e7f\",\"name\":\"benchmark\"}]}";
+        mCallTemplate = new HttpClient.CallTemplate() {
+
+            @Override
+            public String buildRequestBody() {
+                return body;
+            }
+
+            @Override
+            public void onBeforeCalling(URL url, Map<String, String> headers) {
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Log.i(TAG, "warmUp=" + mWarmUp + " warmUpFailures=" + mWarmUpFailures);
+        mHttpClient.close();
+        HttpsURLConnection.setDefaultSSLSocketFactory(mDefaultSocketFactory);
+    }
+
+    private MockWebServer startServer() throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.useHttps(mServerCertificates.sslSocketFactory(), false);
+        server.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("");
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    @Test
+    public void sendFirstBatch() throws IOException, InterruptedException {
+        final Semaphore semaphore = new Semaphore(0);
+        ServiceCallback serviceCallback = new ServiceCallback() {
+
+            @Override
+            public void onCallSucceeded(HttpResponse httpResponse) {
+                semaphore.release();
+            }
+
+            @Override
+            public void onCallFailed(Exception e) {
+                Log.e(TAG, "Batch failed", e);
+                semaphore.release();
+            }
+        };
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+
+            /* A new server per iteration has a new port: no pooled connection nor cached session from the previous one. */
+            state.pauseTiming();
+            MockWebServer server = startServer();
+            String url = server.url("/logs?api-version=1.0.0").toString();
+            if (mWarmUp && !HttpConnectionWarmer.warmUp(url)) {
+                mWarmUpFailures++;
+            }
+            state.resumeTiming();
+            mHttpClient.callAsync(url, DefaultHttpClient.METHOD_POST, new HashMap<String, String>(), mCallTemplate, serviceCallback);
+            assertTrue(semaphore.tryAcquire(10, TimeUnit.SECONDS));
+            state.pauseTiming();
+            server.shutdown();
+            state.resumeTiming();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.microsoft.appcenter.okhttp.OkHttpHttpClient;
+import com.microsoft.appcenter.okhttp.OkHttpUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends log batches to a local TLS server with the default and the OkHttp clients,
+ * to compare the time per batch and the number of TLS handshakes.
+ */
+@RunWith(Parameterized.class)
+public class HttpClientBenchmark {
+
+    private static final String TAG = "HttpClientBenchmark";
+
+    private static final String DEFAULT = "default";
+
+    private static final String OKHTTP = "okhttp";
+
+    /**
+     * Number of logs in a batch, like the default batch size of a channel group.
+     */
+    private static final int LOGS_PER_BATCH = 50;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final String mClientType;
+
+    private final AtomicInteger mHandshakeCount = new AtomicInteger();
+
+    private MockWebServer mServer;
+
+    private SSLSocketFactory mDefaultSocketFactory;
+
+    private HttpClient mHttpClient;
+
+    private String mUrl;
+
+    private HttpClient.CallTemplate mCallTemplate;
+
+    public HttpClientBenchmark(String clientType) {
+        mClientType = clientType;
+    }
+
+    @Parameterized.Parameters(name = "client={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{DEFAULT}, {OKHTTP}});
+    }
+
+    @Before
+    public void setUp() throws IOException {
+
+        /* Local TLS stand-in for the ingestion host. */
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(InetAddress.getByName("localhost").getCanonicalHostName())
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+        mServer = new MockWebServer();
+        mServer.useHttps(serverCertificates.sslSocketFactory(), false);
+        mServer.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        mServer.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("");
+            }
+        });
+        mServer.start();
+        mUrl = mServer.url("/logs?api-version=1.0.0").toString();
+
+        /* Count handshakes of both clients. */
+        SSLSocketFactory socketFactory = new HandshakeCountingSocketFactory(clientCertificates.sslSocketFactory());
+        if (DEFAULT.equals(mClientType)) {
+            mDefaultSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+            HttpsURLConnection.setDefaultSSLSocketFactory(socketFactory);
+            mHttpClient = new DefaultHttpClient(true, HttpUtils.getDefaultExecutor(), DIRECT_EXECUTOR);
+        } else {
+            mHttpClient = new OkHttpHttpClient(OkHttpUtils.createOkHttpClient().newBuilder()
+                    .sslSocketFactory(socketFactory, clientCertificates.trustManager())
+                    .build(), true, DIRECT_EXECUTOR);
+        }
+
+        /* Batch of logs shaped like App Center events. */
+        StringBuilder payload = new StringBuilder("{\"logs\":[");
+        for (int i = 0; i < LOGS_PER_BATCH; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("{\"type\":\"event\",\"id\":\"").append(i)
+                    .append("\",\"timestamp\":\"2024-01-01T00:00:00.000Z\",\"sid\":\"0d1e9ab1-4f68-4a1a-9a23-1f6d2b4c8e7f\"")
+                    .append(",\"name\":\"benchmark\",\"properties\":{\"key\":\"value\"}}");
+        }
+        final String body = payload.append("]}").toString();
+        mCallTemplate = new HttpClient.CallTemplate() {
+
+            @Override
+            public String buildRequestBody() {
+                return body;
+            }
+
+            @Override
+            public void onBeforeCalling(URL url, Map<String, String> headers) {
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Log.i(TAG, "client=" + mClientType + " batches=" + mServer.getRequestCount() + " handshakes=" + mHandshakeCount.get());
+        mHttpClient.close();
+        mServer.shutdown();
+        if (mDefaultSocketFactory != null) {
+            HttpsURLConnection.setDefaultSSLSocketFactory(mDefaultSocketFactory);
+        }
+    }
+
+    @Test
+    public void sendBatch() throws InterruptedException {
+        final Semaphore semaphore = new Semaphore(0);
+        ServiceCallback serviceCallback = new ServiceCallback() {
+
+            @Override
+            public void onCallSucceeded(HttpResponse httpResponse) {
+                semaphore.release();
+            }
+
+            @Override
+            public void onCallFailed(Exception e) {
+                Log.e(TAG, "Batch failed", e);
+                semaphore.release();
+            }
+        };
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mHttpClient.callAsync(mUrl, DefaultHttpClient.METHOD_POST, new HashMap<String, String>(), mCallTemplate, serviceCallback);
+            assertTrue(semaphore.tryAcquire(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Socket factory counting completed TLS handshakes.
+     */
+    private class HandshakeCountingSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory mDelegate;
+
+        private final HandshakeCompletedListener mListener = new HandshakeCompletedListener() {
+
+            @Override
+            public void handshakeCompleted(HandshakeCompletedEvent event) {
+                mHandshakeCount.incrementAndGet();
+            }
+        };
+
+        HandshakeCountingSocketFactory(SSLSocketFactory delegate) {
+            mDelegate = delegate;
+        }
+
+        private Socket count(Socket socket) {
+            if (socket instanceof SSLSocket) {
+                ((SSLSocket) socket).addHandshakeCompletedListener(mListener);
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return mDelegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return mDelegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return count(mDelegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return count(mDelegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return count(mDelegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return count(mDelegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return count(mDelegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
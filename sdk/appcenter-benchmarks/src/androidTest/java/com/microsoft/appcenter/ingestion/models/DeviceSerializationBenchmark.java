@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.microsoft.appcenter.analytics.ingestion.models.EventLog;
+import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.properties.StringTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.TypedProperty;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serializes a batch of event logs sharing the same {@link Device}, whose JSON is reused between logs,
+ * and with a copy of the device per log, which is serialized every time as the SDK used to.
+ * Also reports the serialized characters per second.
+ */
+@RunWith(Parameterized.class)
+public class DeviceSerializationBenchmark {
+
+    private static final String TAG = "DeviceSerialization";
+
+    /**
+     * Number of logs in a batch, like the default batch size of a channel group.
+     */
+    private static final int LOGS_PER_BATCH = 50;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final boolean mSharedDevice;
+
+    private final LogSerializer mLogSerializer = new DefaultLogSerializer();
+
+    private LogContainer mLogContainer;
+
+    private long mCharacters;
+
+    private long mElapsedNanos;
+
+    public DeviceSerializationBenchmark(boolean sharedDevice) {
+        mSharedDevice = sharedDevice;
+    }
+
+    @Parameterized.Parameters(name = "sharedDevice={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private static Device newDevice() {
+        Device device = new Device();
+        device.setSdkName("appcenter.android");
+        device.setSdkVersion("5.0.6");
+        device.setModel("Pixel 7");
+        device.setOemName("Google");
+        device.setOsName("Android");
+        device.setOsVersion("14");
+        device.setOsBuild("UQ1A.240205.004");
+        device.setOsApiLevel(34);
+        device.setLocale("en_US");
+        device.setTimeZoneOffset(60);
+        device.setScreenSize("1080x2400");
+        device.setAppVersion("2.3.1");
+        device.setAppBuild("231");
+        device.setAppNamespace("com.contoso.app");
+        device.setCarrierName("Contoso Mobile");
+        device.setCarrierCountry("us");
+        return device;
+    }
+
+    @Before
+    public void setUp() {
+        Device.invalidateSerializedCache();
+        Device device = newDevice();
+        List<Log> logs = new ArrayList<>();
+        UUID sid = UUID.randomUUID();
+        for (int i = 0; i < LOGS_PER_BATCH; i++) {
+            EventLog log = new EventLog();
+            log.setId(UUID.randomUUID());
+            log.setSid(sid);
+            log.setTimestamp(new Date());
+            log.setDevice(mSharedDevice ? device : newDevice());
+            log.setName("screen_" + i % 20);
+            StringTypedProperty source = new StringTypedProperty();
+            source.setName("source");
+            source.setValue("menu");
+            List<TypedProperty> properties = Collections.<TypedProperty>singletonList(source);
+            log.setTypedProperties(properties);
+            logs.add(log);
+        }
+        mLogContainer = new LogContainer();
+        mLogContainer.setLogs(logs);
+    }
+
+    @After
+    public void tearDown() {
+        long charactersPerSecond = mElapsedNanos == 0 ? 0 : mCharacters * 1000000000L / mElapsedNanos;
+        android.util.Log.i(TAG, "sharedDevice=" + mSharedDevice + " charactersPerSecond=" + charactersPerSecond);
+    }
+
+    @Test
+    public void serializeContainer() throws JSONException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        long start = System.nanoTime();
+        while (state.keepRunning()) {
+            mCharacters += mLogSerializer.serializeContainer(mLogContainer).length();
+        }
+        mElapsedNanos = System.nanoTime() - start;
+    }
+}
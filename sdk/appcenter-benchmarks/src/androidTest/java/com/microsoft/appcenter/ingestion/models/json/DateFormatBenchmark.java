@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models.json;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats and parses log timestamps with a {@link SimpleDateFormat}, as the SDK used to,
+ * and with {@link JSONDateUtils}.
+ */
+@RunWith(Parameterized.class)
+public class DateFormatBenchmark {
+
+    private static final String TAG = "DateFormatBenchmark";
+
+    private static final String SIMPLE_DATE_FORMAT = "simpleDateFormat";
+
+    private static final String JSON_DATE_UTILS = "jsonDateUtils";
+
+    /**
+     * Number of distinct timestamps, a few days apart.
+     */
+    private static final int DATES = 64;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final String mCodec;
+
+    private final Date[] mDates = new Date[DATES];
+
+    private final String[] mStrings = new String[DATES];
+
+    private DateFormat mDateFormat;
+
+    private long mChecksum;
+
+    public DateFormatBenchmark(String codec) {
+        mCodec = codec;
+    }
+
+    @Parameterized.Parameters(name = "codec={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{SIMPLE_DATE_FORMAT}, {JSON_DATE_UTILS}});
+    }
+
+    @Before
+    public void setUp() {
+        mDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        mDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < DATES; i++) {
+            mDates[i] = new Date(now - i * 3 * 24 * 3600 * 1000L - i * 7919L);
+            mStrings[i] = mDateFormat.format(mDates[i]);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Log.i(TAG, "codec=" + mCodec + " checksum=" + mChecksum);
+    }
+
+    @Test
+    public void format() throws JSONException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        boolean simpleDateFormat = SIMPLE_DATE_FORMAT.equals(mCodec);
+        while (state.keepRunning()) {
+            for (Date date : mDates) {
+                String value = simpleDateFormat ? mDateFormat.format(date) : JSONDateUtils.toString(date);
+                mChecksum += value.charAt(22);
+            }
+        }
+    }
+
+    @Test
+    public void parse() throws JSONException, ParseException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        boolean simpleDateFormat = SIMPLE_DATE_FORMAT.equals(mCodec);
+        while (state.keepRunning()) {
+            for (String value : mStrings) {
+                Date date = simpleDateFormat ? mDateFormat.parse(value) : JSONDateUtils.toDate(value);
+                mChecksum += date.getTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models.json;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.microsoft.appcenter.analytics.ingestion.models.EventLog;
+import com.microsoft.appcenter.analytics.ingestion.models.json.EventLogFactory;
+import com.microsoft.appcenter.ingestion.models.Device;
+import com.microsoft.appcenter.ingestion.models.properties.LongTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.StringTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.TypedProperty;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Deserializes the stored event logs of a batch one by one with {@link DefaultLogSerializer#deserializeLog(String, String)},
+ * as the SDK used to, and together with {@link DefaultLogSerializer#deserializeLogs(List, List, List)}.
+ */
+@RunWith(Parameterized.class)
+public class DeserializationBenchmark {
+
+    private static final String TAG = "DeserializationBench";
+
+    private static final String PER_LOG = "perLog";
+
+    private static final String BATCH = "batch";
+
+    /**
+     * Number of logs in a batch, like the default batch size of a channel group.
+     */
+    private static final int LOGS_PER_BATCH = 50;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final String mReader;
+
+    private final DefaultLogSerializer mLogSerializer = new DefaultLogSerializer();
+
+    private final List<String> mPayloads = new ArrayList<>();
+
+    private final List<String> mTypes = new ArrayList<>();
+
+    private int mCount;
+
+    public DeserializationBenchmark(String reader) {
+        mReader = reader;
+    }
+
+    @Parameterized.Parameters(name = "reader={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{PER_LOG}, {BATCH}});
+    }
+
+    @Before
+    public void setUp() throws JSONException {
+        mLogSerializer.addLogFactory(EventLog.TYPE, new EventLogFactory());
+        Device device = new Device();
+        device.setSdkName("appcenter.android");
+        device.setSdkVersion("5.0.6");
+        device.setModel("Pixel 7");
+        device.setOemName("Google");
+        device.setOsName("Android");
+        device.setOsVersion("14");
+        device.setOsBuild("UQ1A.240205.004");
+        device.setOsApiLevel(34);
+        device.setLocale("en_US");
+        device.setTimeZoneOffset(60);
+        device.setScreenSize("1080x2400");
+        device.setAppVersion("2.3.1");
+        device.setAppBuild("231");
+        device.setAppNamespace("com.contoso.app");
+        device.setCarrierName("Contoso Mobile");
+        device.setCarrierCountry("us");
+        UUID sid = UUID.randomUUID();
+        for (int i = 0; i < LOGS_PER_BATCH; i++) {
+            EventLog log = new EventLog();
+            log.setId(UUID.randomUUID());
+            log.setSid(sid);
+            log.setTimestamp(new Date());
+            log.setDevice(device);
+            log.setName("screen_" + i % 20);
+            StringTypedProperty source = new StringTypedProperty();
+            source.setName("source");
+            source.setValue("menu/settings \"advanced\"");
+            LongTypedProperty duration = new LongTypedProperty();
+            duration.setName("duration");
+            duration.setValue(1000L * i);
+            List<TypedProperty> properties = new ArrayList<>();
+            properties.add(source);
+            properties.add(duration);
+            log.setTypedProperties(properties);
+            mPayloads.add(mLogSerializer.serializeLog(log));
+            mTypes.add(EventLog.TYPE);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Log.i(TAG, "reader=" + mReader + " count=" + mCount);
+    }
+
+    @Test
+    public void deserialize() throws JSONException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        boolean batch = BATCH.equals(mReader);
+        List<JSONException> errors = new ArrayList<>(LOGS_PER_BATCH);
+        while (state.keepRunning()) {
+            if (batch) {
+                errors.clear();
+                mCount = mLogSerializer.deserializeLogs(mPayloads, mTypes, errors).size();
+            } else {
+                mCount = 0;
+                for (String payload : mPayloads) {
+                    mLogSerializer.deserializeLog(payload, EventLog.TYPE);
+                    mCount++;
+                }
+            }
+        }
+    }
+}
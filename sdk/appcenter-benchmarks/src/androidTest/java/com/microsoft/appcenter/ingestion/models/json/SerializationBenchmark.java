@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models.json;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.microsoft.appcenter.analytics.ingestion.models.EventLog;
+import com.microsoft.appcenter.ingestion.models.Device;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.ingestion.models.properties.LongTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.StringTypedProperty;
+import com.microsoft.appcenter.ingestion.models.properties.TypedProperty;
+
+import org.json.JSONException;
+import org.json.JSONStringer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serializes a batch of event logs, or each of its logs as when storing them, with a new {@link JSONStringer}
+ * per batch or log, as the SDK used to, and with {@link DefaultLogSerializer} reusing a {@link BufferedJSONStringer}.
+ */
+@RunWith(Parameterized.class)
+public class SerializationBenchmark {
+
+    private static final String TAG = "SerializationBenchmark";
+
+    private static final String JSON_STRINGER = "jsonStringer";
+
+    private static final String BUFFERED = "buffered";
+
+    /**
+     * Number of logs in a batch, like the default batch size of a channel group.
+     */
+    private static final int LOGS_PER_BATCH = 50;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final String mWriter;
+
+    private final LogSerializer mLogSerializer = new DefaultLogSerializer();
+
+    private LogContainer mLogContainer;
+
+    private int mLength;
+
+    public SerializationBenchmark(String writer) {
+        mWriter = writer;
+    }
+
+    @Parameterized.Parameters(name = "writer={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{JSON_STRINGER}, {BUFFERED}});
+    }
+
+    @Before
+    public void setUp() {
+        Device device = new Device();
+        device.setSdkName("appcenter.android");
+        device.setSdkVersion("5.0.6");
+        device.setModel("Pixel 7");
+        device.setOemName("Google");
+        device.setOsName("Android");
+        device.setOsVersion("14");
+        device.setOsBuild("UQ1A.240205.004");
+        device.setOsApiLevel(34);
+        device.setLocale("en_US");
+        device.setTimeZoneOffset(60);
+        device.setScreenSize("1080x2400");
+        device.setAppVersion("2.3.1");
+        device.setAppBuild("231");
+        device.setAppNamespace("com.contoso.app");
+        device.setCarrierName("Contoso Mobile");
+        device.setCarrierCountry("us");
+        List<com.microsoft.appcenter.ingestion.models.Log> logs = new ArrayList<>();
+        UUID sid = UUID.randomUUID();
+        for (int i = 0; i < LOGS_PER_BATCH; i++) {
+            EventLog log = new EventLog();
+            log.setId(UUID.randomUUID());
+            log.setSid(sid);
+            log.setTimestamp(new Date());
+            log.setDevice(device);
+            log.setName("screen_" + i % 20);
+            StringTypedProperty source = new StringTypedProperty();
+            source.setName("source");
+            source.setValue("menu/settings \"advanced\"");
+            LongTypedProperty duration = new LongTypedProperty();
+            duration.setName("duration");
+            duration.setValue(1000L * i);
+            List<TypedProperty> properties = new ArrayList<>();
+            properties.add(source);
+            properties.add(duration);
+            log.setTypedProperties(properties);
+            logs.add(log);
+        }
+        mLogContainer = new LogContainer();
+        mLogContainer.setLogs(logs);
+    }
+
+    @After
+    public void tearDown() {
+        Log.i(TAG, "writer=" + mWriter + " length=" + mLength);
+    }
+
+    private String serializeWithJSONStringer() throws JSONException {
+        JSONStringer writer = new JSONStringer();
+        writer.object();
+        writer.key("logs").array();
+        for (com.microsoft.appcenter.ingestion.models.Log log : mLogContainer.getLogs()) {
+            writer.object();
+            log.write(writer);
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+        return writer.toString();
+    }
+
+    private String serializeWithJSONStringer(com.microsoft.appcenter.ingestion.models.Log log) throws JSONException {
+        JSONStringer writer = new JSONStringer();
+        writer.object();
+        log.write(writer);
+        writer.endObject();
+        return writer.toString();
+    }
+
+    @Test
+    public void serializeLog() throws JSONException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        boolean jsonStringer = JSON_STRINGER.equals(mWriter);
+        while (state.keepRunning()) {
+            for (com.microsoft.appcenter.ingestion.models.Log log : mLogContainer.getLogs()) {
+                String json = jsonStringer ? serializeWithJSONStringer(log) : mLogSerializer.serializeLog(log);
+                mLength = json.length();
+            }
+        }
+    }
+
+    @Test
+    public void serializeContainer() throws JSONException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            String json = JSON_STRINGER.equals(mWriter) ? serializeWithJSONStringer() : mLogSerializer.serializeContainer(mLogContainer);
+            mLength = json.length();
+        }
+    }
+}
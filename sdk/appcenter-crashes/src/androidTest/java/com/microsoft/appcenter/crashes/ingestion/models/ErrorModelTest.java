@@ -11,6 +11,8 @@ import com.microsoft.appcenter.crashes.ingestion.models.json.ManagedErrorLogFact
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.StreamingLogSerializer;
+import com.microsoft.appcenter.utils.storage.FileManager;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -18,7 +20,14 @@ import org.json.JSONStringer;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Date;
+import java.util.Random;
 import java.util.UUID;
 
 import static com.microsoft.appcenter.crashes.ingestion.models.ErrorAttachmentLog.CHARSET;
@@ -28,6 +37,8 @@ import static com.microsoft.appcenter.test.TestUtils.checkNotEquals;
 import static com.microsoft.appcenter.test.TestUtils.compareSelfNullClass;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @SuppressWarnings("unused")
@@ -608,6 +619,97 @@ public class ErrorModelTest {
         }
     }
 
+    @Test
+    public void errorAttachmentLogWithFile() throws JSONException, IOException {
+        StreamingLogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(ErrorAttachmentLog.TYPE, ErrorAttachmentLogFactory.getInstance());
+
+        /* Prepare the same data in memory and in a file, large enough to be flushed while streaming. */
+        byte[] data = new byte[100 * 1024 + 1];
+        new Random(42).nextBytes(data);
+        File dataFile = File.createTempFile("attachment", ".bin");
+        File logFile = File.createTempFile("attachment", ".json");
+        try {
+            OutputStream outputStream = new FileOutputStream(dataFile);
+            try {
+                outputStream.write(data);
+            } finally {
+                outputStream.close();
+            }
+            ErrorAttachmentLog binaryLog = ErrorAttachmentLog.attachmentWithBinary(data, "dump.bin", "application/octet-stream");
+            ErrorAttachmentLog fileLog = ErrorAttachmentLog.attachmentWithFile(dataFile, "dump.bin", "application/octet-stream");
+            Date timestamp = new Date();
+            UUID id = UUID.randomUUID();
+            UUID errorId = UUID.randomUUID();
+            for (ErrorAttachmentLog log : new ErrorAttachmentLog[]{binaryLog, fileLog}) {
+                log.setTimestamp(timestamp);
+                log.setId(id);
+                log.setErrorId(errorId);
+            }
+            String payload = serializer.serializeLog(binaryLog);
+            assertEquals(payload, serializer.serializeLog(fileLog));
+
+            /* Store the log in a file and read it back, the data staying in the stored file. */
+            Writer writer = new OutputStreamWriter(new FileOutputStream(logFile), "UTF-8");
+            try {
+                serializer.writeLog(fileLog, writer);
+            } finally {
+                writer.close();
+            }
+            ErrorAttachmentLog storedLog = (ErrorAttachmentLog) serializer.deserializeLog(logFile, ErrorAttachmentLog.TYPE);
+            assertTrue(storedLog.isFileBacked());
+            assertNull(storedLog.getData());
+            assertEquals(id, storedLog.getId());
+            assertEquals(errorId, storedLog.getErrorId());
+            assertEquals("dump.bin", storedLog.getFileName());
+            assertEquals(payload, serializer.serializeLog(storedLog));
+
+            /* The data is the same once read in memory. */
+            checkEquals(binaryLog, serializer.deserializeLog(serializer.serializeLog(storedLog), null));
+
+            /* Writers that cannot stream still get the data. */
+            JSONStringer jsonWriter = new JSONStringer();
+            jsonWriter.object();
+            storedLog.write(jsonWriter);
+            jsonWriter.endObject();
+            assertEquals(payload, jsonWriter.toString());
+        } finally {
+
+            //noinspection ResultOfMethodCallIgnored
+            dataFile.delete();
+
+            //noinspection ResultOfMethodCallIgnored
+            logFile.delete();
+        }
+    }
+
+    @Test
+    public void errorAttachmentLogWithDataNotLast() throws JSONException, IOException {
+        StreamingLogSerializer streamingSerializer = new DefaultLogSerializer();
+        streamingSerializer.addLogFactory(ErrorAttachmentLog.TYPE, ErrorAttachmentLogFactory.getInstance());
+        File logFile = File.createTempFile("attachment", ".json");
+        try {
+            ErrorAttachmentLog log = ErrorAttachmentLog.attachmentWithText("hello", "log.txt");
+            log.setTimestamp(new Date());
+            log.setId(UUID.randomUUID());
+            log.setErrorId(UUID.randomUUID());
+            JSONObject json = new JSONObject(streamingSerializer.serializeLog(log));
+            String data = json.getString(DATA);
+            json.remove(DATA);
+            String payload = "{\"" + DATA + "\":\"" + data + "\"," + json.toString().substring(1);
+            FileManager.write(logFile, payload);
+            try {
+                streamingSerializer.deserializeLog(logFile, ErrorAttachmentLog.TYPE);
+                Assert.fail("Expected json exception here");
+            } catch (JSONException ignored) {
+            }
+        } finally {
+
+            //noinspection ResultOfMethodCallIgnored
+            logFile.delete();
+        }
+    }
+
     @Test
     public void deserializeInvalidBase64forErrorAttachment() throws JSONException {
         ErrorAttachmentLog log = new ErrorAttachmentLog();
@@ -628,6 +730,16 @@ public class ErrorModelTest {
         } catch (JSONException e) {
             assertEquals("bad base-64", e.getMessage());
         }
+
+        /* Same error when read from a stream. */
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(ErrorAttachmentLog.TYPE, ErrorAttachmentLogFactory.getInstance());
+        try {
+            serializer.deserializeLog(json.toString(), null);
+            Assert.fail("Expected json exception here");
+        } catch (JSONException e) {
+            assertEquals("bad base-64", e.getMessage());
+        }
     }
 
     private static class MockErrorLog extends AbstractErrorLog {
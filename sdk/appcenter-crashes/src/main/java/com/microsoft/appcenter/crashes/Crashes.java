@@ -1076,6 +1076,13 @@ public class Crashes extends AbstractAppCenterService {
         });
     }
 
+    /**
+     * Get the size of the attachment data, which may be kept in a file.
+     */
+    private static long getAttachmentSize(ErrorAttachmentLog attachment) {
+        return attachment.getData() != null ? attachment.getData().length : attachment.getDataFile().length();
+    }
+
     /**
      * Send error attachment logs through channel.
      */
@@ -1090,10 +1097,10 @@ public class Crashes extends AbstractAppCenterService {
                     attachment.setErrorId(errorId);
                     if (!attachment.isValid()) {
                         AppCenterLog.error(LOG_TAG, "Not all required fields are present in ErrorAttachmentLog.");
-                    } else if (attachment.getData().length > MAX_ATTACHMENT_SIZE) {
+                    } else if (getAttachmentSize(attachment) > MAX_ATTACHMENT_SIZE) {
                         AppCenterLog.error(LOG_TAG, String.format(Locale.ENGLISH,
                                 "Discarding attachment with size above %d bytes: size=%d, fileName=%s.",
-                                MAX_ATTACHMENT_SIZE, attachment.getData().length, attachment.getFileName()));
+                                MAX_ATTACHMENT_SIZE, getAttachmentSize(attachment), attachment.getFileName()));
                     } else {
                         mChannel.enqueue(attachment, ERROR_GROUP, Flags.DEFAULTS);
                     }
@@ -7,14 +7,28 @@ package com.microsoft.appcenter.crashes.ingestion.models;
 
 import androidx.annotation.VisibleForTesting;
 import android.util.Base64;
+import android.util.JsonReader;
 
 import com.microsoft.appcenter.ingestion.models.AbstractLog;
+import com.microsoft.appcenter.ingestion.models.FileBackedLog;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
+import com.microsoft.appcenter.ingestion.models.json.BufferedJSONStringer;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
+import com.microsoft.appcenter.utils.storage.FileManager;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.UUID;
@@ -24,7 +38,7 @@ import static com.microsoft.appcenter.ingestion.models.CommonProperties.ID;
 /**
  * Error attachment log.
  */
-public class ErrorAttachmentLog extends AbstractLog {
+public class ErrorAttachmentLog extends AbstractLog implements StreamingModel, FileBackedLog {
 
     /**
      * Plain text mime type.
@@ -46,6 +60,17 @@ public class ErrorAttachmentLog extends AbstractLog {
     @VisibleForTesting
     static final String DATA = "data";
 
+    /**
+     * Start of the data property in a stored log, written last.
+     */
+    private static final byte[] DATA_PREFIX = ("\"" + DATA + "\":\"").getBytes(CHARSET);
+
+    /**
+     * Maximum length of the other properties in a stored log, which are read in memory.
+     */
+    @VisibleForTesting
+    static final int MAX_STORED_PROPERTIES_LENGTH = 64 * 1024;
+
     /**
      * Error attachment identifier.
      */
@@ -71,6 +96,26 @@ public class ErrorAttachmentLog extends AbstractLog {
      */
     private byte[] data;
 
+    /**
+     * File containing the data, encoded as base64 only while writing JSON.
+     */
+    private File dataFile;
+
+    /**
+     * Stored log file containing the data already encoded, when read from a file.
+     */
+    private File encodedDataFile;
+
+    /**
+     * Position of the quoted base64 data in {@link #encodedDataFile}.
+     */
+    private long encodedDataOffset;
+
+    /**
+     * Length of the quoted base64 data in {@link #encodedDataFile}.
+     */
+    private long encodedDataLength;
+
     /**
      * Build an error attachment log with text suitable for using in {link CrashesListener#getErrorAttachments(ErrorReport)}.
      *
@@ -101,6 +146,24 @@ public class ErrorAttachmentLog extends AbstractLog {
         return attachmentLog;
     }
 
+    /**
+     * Build an error attachment log with the content of a file suitable for using in {link CrashesListener#getErrorAttachments(ErrorReport)}.
+     * The file is not loaded in memory: it is read later on a background thread when the attachment is stored,
+     * so it must not be modified or deleted by the application.
+     *
+     * @param file        file containing the binary data.
+     * @param fileName    file name to use in error attachment log.
+     * @param contentType binary data MIME type.
+     * @return ErrorAttachmentLog built attachment.
+     */
+    public static ErrorAttachmentLog attachmentWithFile(File file, String fileName, String contentType) {
+        ErrorAttachmentLog attachmentLog = new ErrorAttachmentLog();
+        attachmentLog.setDataFile(file);
+        attachmentLog.setFileName(fileName);
+        attachmentLog.setContentType(contentType);
+        return attachmentLog;
+    }
+
     @Override
     public String getType() {
         return TYPE;
@@ -183,7 +246,7 @@ public class ErrorAttachmentLog extends AbstractLog {
     /**
      * Get the data value.
      *
-     * @return the data value
+     * @return the data value, null if the data is kept in a file.
      */
     public byte[] getData() {
         return this.data;
@@ -198,13 +261,37 @@ public class ErrorAttachmentLog extends AbstractLog {
         this.data = data;
     }
 
+    /**
+     * Get the dataFile value.
+     *
+     * @return the dataFile value
+     */
+    public File getDataFile() {
+        return this.dataFile;
+    }
+
+    /**
+     * Set the dataFile value.
+     *
+     * @param dataFile the dataFile value to set
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void setDataFile(File dataFile) {
+        this.dataFile = dataFile;
+    }
+
+    @Override
+    public boolean isFileBacked() {
+        return dataFile != null || encodedDataFile != null;
+    }
+
     /**
      * Checks if the log's values are valid.
      *
      * @return true if validation succeeded, otherwise false.
      */
     public boolean isValid() {
-        return getId() != null && getErrorId() != null && getContentType() != null && getData() != null;
+        return getId() != null && getErrorId() != null && getContentType() != null && (getData() != null || (getDataFile() != null && getDataFile().isFile()));
     }
 
     @SuppressWarnings("ConstantConditions")
@@ -222,6 +309,100 @@ public class ErrorAttachmentLog extends AbstractLog {
         }
     }
 
+    @Override
+    protected boolean readProperty(String name, JsonReader reader) throws IOException, JSONException {
+        if (ID.equals(name)) {
+            setId(UUID.fromString(reader.nextString()));
+        } else if (ERROR_ID.equals(name)) {
+            setErrorId(UUID.fromString(reader.nextString()));
+        } else if (CONTENT_TYPE.equals(name)) {
+            setContentType(reader.nextString());
+        } else if (FILE_NAME.equals(name)) {
+            setFileName(JSONUtils.readString(reader));
+        } else if (DATA.equals(name)) {
+            try {
+                setData(Base64.decode(reader.nextString(), Base64.DEFAULT));
+            } catch (IllegalArgumentException e) {
+                throw new JSONException(e.getMessage());
+            }
+        } else {
+            return super.readProperty(name, reader);
+        }
+        return true;
+    }
+
+    @Override
+    public void read(File file) throws IOException, JSONException {
+
+        /* Find the data, written after the other properties which are small. */
+        ByteArrayOutputStream properties = new ByteArrayOutputStream();
+        long offset = 0;
+        long length = 0;
+        InputStream input = new BufferedInputStream(new FileInputStream(file));
+        try {
+            int matched = 0;
+            while (matched < DATA_PREFIX.length) {
+                int b = input.read();
+                if (b < 0 || offset >= MAX_STORED_PROPERTIES_LENGTH) {
+                    throw new JSONException("Missing data in " + file);
+                }
+                properties.write(b);
+                offset++;
+
+                /* Quotes are escaped in strings, the prefix can only match the property name. */
+                if (b == DATA_PREFIX[matched]) {
+                    matched++;
+                } else {
+                    matched = b == DATA_PREFIX[0] ? 1 : 0;
+                }
+            }
+
+            /* Base64 has no quote: the next one ends the data, which must be the last property. */
+            int b;
+            do {
+                b = input.read();
+                if (b < 0) {
+                    throw new EOFException("Unterminated data in " + file);
+                }
+                length++;
+            } while (b != '"');
+            if (input.read() != '}' || input.read() >= 0) {
+                throw new JSONException("Data is not the last property in " + file);
+            }
+        } finally {
+            input.close();
+        }
+
+        /* Parse the other properties, the data staying in the file. */
+        encodedDataFile = file;
+        encodedDataOffset = offset - 1;
+        encodedDataLength = length + 1;
+        byte[] prefix = properties.toByteArray();
+        int end = prefix.length - DATA_PREFIX.length;
+        if (end > 0 && prefix[end - 1] == ',') {
+            end--;
+        }
+        String json = new String(prefix, 0, end, CHARSET) + "}";
+        try {
+            read(new JsonReader(new StringReader(json)));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            JSONException exception = new JSONException(e.getMessage());
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    @Override
+    protected void checkRequiredProperties() throws JSONException {
+        super.checkRequiredProperties();
+        JSONUtils.checkRequired(getId(), ID);
+        JSONUtils.checkRequired(getErrorId(), ERROR_ID);
+        JSONUtils.checkRequired(getContentType(), CONTENT_TYPE);
+        if (!isFileBacked()) {
+            JSONUtils.checkRequired(getData(), DATA);
+        }
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
@@ -229,7 +410,66 @@ public class ErrorAttachmentLog extends AbstractLog {
         JSONUtils.write(writer, ERROR_ID, getErrorId());
         JSONUtils.write(writer, CONTENT_TYPE, getContentType());
         JSONUtils.write(writer, FILE_NAME, getFileName());
-        JSONUtils.write(writer, DATA, Base64.encodeToString(getData(), Base64.NO_WRAP));
+        if (isFileBacked()) {
+            writer.key(DATA);
+            try {
+                writeFileData(writer);
+            } catch (IOException e) {
+                JSONException exception = new JSONException("Cannot read attachment data: " + e.getMessage());
+                exception.initCause(e);
+                throw exception;
+            }
+        } else {
+            JSONUtils.write(writer, DATA, Base64.encodeToString(getData(), Base64.NO_WRAP));
+        }
+    }
+
+    /**
+     * Write the data kept in a file as a base64 string, streamed if the writer supports it.
+     */
+    private void writeFileData(JSONStringer writer) throws JSONException, IOException {
+        if (dataFile != null) {
+            if (writer instanceof BufferedJSONStringer) {
+                InputStream input = new FileInputStream(dataFile);
+                try {
+                    ((BufferedJSONStringer) writer).base64Value(input);
+                } finally {
+                    input.close();
+                }
+            } else {
+                byte[] bytes = FileManager.readBytes(dataFile);
+                if (bytes == null) {
+                    throw new IOException("Cannot read " + dataFile);
+                }
+                writer.value(Base64.encodeToString(bytes, Base64.NO_WRAP));
+            }
+            return;
+        }
+
+        /* Data read from a stored log is already encoded and quoted. */
+        DataInputStream input = new DataInputStream(new FileInputStream(encodedDataFile));
+        try {
+            skipFully(input, encodedDataOffset);
+            if (writer instanceof BufferedJSONStringer) {
+                ((BufferedJSONStringer) writer).rawValue(input, encodedDataLength);
+            } else {
+                byte[] bytes = new byte[(int) encodedDataLength];
+                input.readFully(bytes);
+                writer.value(new String(bytes, 1, bytes.length - 2, CHARSET).replace("\\/", "/"));
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void skipFully(InputStream input, long count) throws IOException {
+        while (count > 0) {
+            long skipped = input.skip(count);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            count -= skipped;
+        }
     }
 
     @SuppressWarnings({"SimplifiableIfStatement", "EqualsReplaceableByObjectsCall"})
@@ -257,6 +497,12 @@ public class ErrorAttachmentLog extends AbstractLog {
         if (fileName != null ? !fileName.equals(that.fileName) : that.fileName != null) {
             return false;
         }
+        if (dataFile != null ? !dataFile.equals(that.dataFile) : that.dataFile != null) {
+            return false;
+        }
+        if (encodedDataFile != null ? !encodedDataFile.equals(that.encodedDataFile) : that.encodedDataFile != null) {
+            return false;
+        }
         return Arrays.equals(data, that.data);
 
     }
@@ -269,6 +515,8 @@ public class ErrorAttachmentLog extends AbstractLog {
         result = 31 * result + (contentType != null ? contentType.hashCode() : 0);
         result = 31 * result + (fileName != null ? fileName.hashCode() : 0);
         result = 31 * result + Arrays.hashCode(data);
+        result = 31 * result + (dataFile != null ? dataFile.hashCode() : 0);
+        result = 31 * result + (encodedDataFile != null ? encodedDataFile.hashCode() : 0);
         return result;
     }
 }
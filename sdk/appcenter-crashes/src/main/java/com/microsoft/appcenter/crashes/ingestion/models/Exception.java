@@ -5,15 +5,18 @@
 
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.crashes.ingestion.models.json.ExceptionFactory;
 import com.microsoft.appcenter.crashes.ingestion.models.json.StackFrameFactory;
-import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.FRAMES;
@@ -22,7 +25,7 @@ import static com.microsoft.appcenter.ingestion.models.CommonProperties.TYPE;
 /**
  * The Exception model.
  */
-public class Exception implements Model {
+public class Exception implements StreamingModel {
 
     private static final String MESSAGE = "message";
 
@@ -211,6 +214,32 @@ public class Exception implements Model {
         setMinidumpFilePath(object.optString(MINIDUMP_FILE_PATH, null));
     }
 
+    @Override
+    public void read(JsonReader reader) throws IOException, JSONException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (TYPE.equals(name)) {
+                setType(JSONUtils.readString(reader));
+            } else if (MESSAGE.equals(name)) {
+                setMessage(JSONUtils.readString(reader));
+            } else if (STACK_TRACE.equals(name)) {
+                setStackTrace(JSONUtils.readString(reader));
+            } else if (FRAMES.equals(name)) {
+                setFrames(JSONUtils.readArray(reader, StackFrameFactory.getInstance()));
+            } else if (INNER_EXCEPTIONS.equals(name)) {
+                setInnerExceptions(JSONUtils.readArray(reader, ExceptionFactory.getInstance()));
+            } else if (WRAPPER_SDK_NAME.equals(name)) {
+                setWrapperSdkName(JSONUtils.readString(reader));
+            } else if (MINIDUMP_FILE_PATH.equals(name)) {
+                setMinidumpFilePath(JSONUtils.readString(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         JSONUtils.write(writer, TYPE, getType());
@@ -5,12 +5,17 @@
 
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.LogWithProperties;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.UUID;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.ID;
@@ -18,7 +23,7 @@ import static com.microsoft.appcenter.ingestion.models.CommonProperties.ID;
 /**
  * Handled Error log for managed platforms (such as Xamarin, Unity, Android Dalvik/ART).
  */
-public class HandledErrorLog extends LogWithProperties {
+public class HandledErrorLog extends LogWithProperties implements StreamingModel {
 
     /**
      * Log type.
@@ -94,6 +99,26 @@ public class HandledErrorLog extends LogWithProperties {
         }
     }
 
+    @Override
+    protected boolean readProperty(String name, JsonReader reader) throws IOException, JSONException {
+        if (ID.equals(name)) {
+            setId(UUID.fromString(reader.nextString()));
+        } else if (EXCEPTION.equals(name)) {
+            Exception exception = new Exception();
+            exception.read(reader);
+            setException(exception);
+        } else {
+            return super.readProperty(name, reader);
+        }
+        return true;
+    }
+
+    @Override
+    protected void checkRequiredProperties() throws JSONException {
+        super.checkRequiredProperties();
+        JSONUtils.checkRequired(getId(), ID);
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
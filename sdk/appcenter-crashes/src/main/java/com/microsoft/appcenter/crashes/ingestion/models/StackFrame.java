@@ -5,17 +5,21 @@
 
 package com.microsoft.appcenter.crashes.ingestion.models;
 
-import com.microsoft.appcenter.ingestion.models.Model;
+import android.util.JsonReader;
+
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
+
 /**
  * The StackFrame model.
  */
-public class StackFrame implements Model {
+public class StackFrame implements StreamingModel {
 
     private static final String CLASS_NAME = "className";
 
@@ -129,6 +133,26 @@ public class StackFrame implements Model {
         setFileName(object.optString(FILE_NAME, null));
     }
 
+    @Override
+    public void read(JsonReader reader) throws IOException, JSONException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (CLASS_NAME.equals(name)) {
+                setClassName(JSONUtils.readString(reader));
+            } else if (METHOD_NAME.equals(name)) {
+                setMethodName(JSONUtils.readString(reader));
+            } else if (LINE_NUMBER.equals(name)) {
+                setLineNumber(reader.nextInt());
+            } else if (FILE_NAME.equals(name)) {
+                setFileName(JSONUtils.readString(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         JSONUtils.write(writer, CLASS_NAME, getClassName());
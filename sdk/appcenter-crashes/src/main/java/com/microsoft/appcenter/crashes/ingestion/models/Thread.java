@@ -5,14 +5,17 @@
 
 package com.microsoft.appcenter.crashes.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.crashes.ingestion.models.json.StackFrameFactory;
-import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.FRAMES;
@@ -22,7 +25,7 @@ import static com.microsoft.appcenter.ingestion.models.CommonProperties.NAME;
 /**
  * The Thread model.
  */
-public class Thread implements Model {
+public class Thread implements StreamingModel {
 
     /**
      * Thread identifier.
@@ -100,6 +103,27 @@ public class Thread implements Model {
         setFrames(JSONUtils.readArray(object, FRAMES, StackFrameFactory.getInstance()));
     }
 
+    @Override
+    public void read(JsonReader reader) throws IOException, JSONException {
+        Long id = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (ID.equals(name)) {
+                id = reader.nextLong();
+            } else if (NAME.equals(name)) {
+                setName(JSONUtils.readString(reader));
+            } else if (FRAMES.equals(name)) {
+                setFrames(JSONUtils.readArray(reader, StackFrameFactory.getInstance()));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        JSONUtils.checkRequired(id, ID);
+        setId(id);
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         JSONUtils.write(writer, ID, getId());
@@ -938,12 +938,24 @@ public class CrashesTest extends AbstractCrashesTest {
     public void discardHugeErrorAttachments() throws JSONException {
 
         /* Prepare a big (too big) attachment and a small one. */
-        ArrayList<ErrorAttachmentLog> errorAttachmentLogs = new ArrayList<>(2);
+        ArrayList<ErrorAttachmentLog> errorAttachmentLogs = new ArrayList<>(4);
         ErrorAttachmentLog binaryAttachment = ErrorAttachmentLog.attachmentWithBinary(new byte[7 * 1024 * 1024 + 1], "earth.png", "image/png");
         errorAttachmentLogs.add(binaryAttachment);
         ErrorAttachmentLog textAttachment = ErrorAttachmentLog.attachmentWithText("hello", "log.txt");
         errorAttachmentLogs.add(textAttachment);
 
+        /* Same with data kept in files, whose size is checked without reading them. */
+        File hugeFile = mock(File.class);
+        when(hugeFile.isFile()).thenReturn(true);
+        when(hugeFile.length()).thenReturn(7 * 1024 * 1024 + 1L);
+        ErrorAttachmentLog hugeFileAttachment = ErrorAttachmentLog.attachmentWithFile(hugeFile, "earth.raw", "application/octet-stream");
+        errorAttachmentLogs.add(hugeFileAttachment);
+        File smallFile = mock(File.class);
+        when(smallFile.isFile()).thenReturn(true);
+        when(smallFile.length()).thenReturn(5L);
+        ErrorAttachmentLog fileAttachment = ErrorAttachmentLog.attachmentWithFile(smallFile, "log.raw", "application/octet-stream");
+        errorAttachmentLogs.add(fileAttachment);
+
         /* Set up callbacks. */
         CrashesListener listener = mock(CrashesListener.class);
         when(listener.shouldProcess(any(ErrorReport.class))).thenReturn(true);
@@ -972,9 +984,11 @@ public class CrashesTest extends AbstractCrashesTest {
         Channel channel = mock(Channel.class);
         crashes.onStarted(mock(Context.class), channel, "", null, true);
 
-        /* Check we send only the text attachment as the binary is too big. */
+        /* Check we send only the small attachments as the other ones are too big. */
         verify(channel).enqueue(textAttachment, crashes.getGroupName(), NORMAL);
         verify(channel, never()).enqueue(eq(binaryAttachment), anyString(), anyInt());
+        verify(channel).enqueue(fileAttachment, crashes.getGroupName(), NORMAL);
+        verify(channel, never()).enqueue(eq(hugeFileAttachment), anyString(), anyInt());
     }
 
     @Test
@@ -7,6 +7,8 @@ package com.microsoft.appcenter.crashes.ingestion.models;
 
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.UUID;
 
 import static com.microsoft.appcenter.crashes.ingestion.models.ErrorAttachmentLog.CHARSET;
@@ -51,6 +53,33 @@ public class ErrorAttachmentLogTest {
         assertEquals(contentType, attachment.getContentType());
     }
 
+    @Test
+    public void attachmentWithFile() throws IOException {
+        File file = File.createTempFile("attachment", ".bin");
+        try {
+            String fileName = "binary.bin";
+            String contentType = "application/octet-stream";
+            ErrorAttachmentLog attachment = ErrorAttachmentLog.attachmentWithFile(file, fileName, contentType);
+            assertNotNull(attachment);
+            assertNull(attachment.getData());
+            assertEquals(file, attachment.getDataFile());
+            assertTrue(attachment.isFileBacked());
+            assertEquals(fileName, attachment.getFileName());
+            assertEquals(contentType, attachment.getContentType());
+
+            /* Valid only while the file exists. */
+            attachment.setId(UUID.randomUUID());
+            attachment.setErrorId(UUID.randomUUID());
+            assertTrue(attachment.isValid());
+            assertTrue(file.delete());
+            assertFalse(attachment.isValid());
+        } finally {
+
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
     @Test
     public void attachmentWithoutFilename() {
         String text = "Hello World!";
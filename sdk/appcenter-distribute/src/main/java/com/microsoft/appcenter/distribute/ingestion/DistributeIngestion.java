@@ -15,11 +15,14 @@ import com.microsoft.appcenter.http.ServiceCall;
 import com.microsoft.appcenter.http.ServiceCallback;
 import com.microsoft.appcenter.ingestion.AbstractAppCenterIngestion;
 import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpClientFactory;
 import com.microsoft.appcenter.utils.AppCenterLog;
+import com.microsoft.appcenter.utils.HandlerUtils;
 
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static android.util.Log.VERBOSE;
 import static com.microsoft.appcenter.distribute.DistributeConstants.HEADER_API_TOKEN;
@@ -34,6 +37,18 @@ public class DistributeIngestion extends AbstractAppCenterIngestion {
 
     public DistributeIngestion(@NonNull Context context) {
         HttpClient httpClient = DependencyConfiguration.getHttpClient();
+        HttpClientFactory httpClientFactory = DependencyConfiguration.getHttpClientFactory();
+        if (httpClient == null && httpClientFactory != null) {
+
+            /* Distribute handles results on the main thread like with the default client. */
+            httpClient = httpClientFactory.createHttpClient(context, new Executor() {
+
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    HandlerUtils.runOnUiThread(command);
+                }
+            });
+        }
         if (httpClient == null) {
             httpClient = createHttpClient(context);
         }
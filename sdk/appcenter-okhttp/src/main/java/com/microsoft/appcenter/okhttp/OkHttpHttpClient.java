@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.okhttp;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.http.HttpCallTrace;
+import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpClientTracer;
+import com.microsoft.appcenter.http.HttpException;
+import com.microsoft.appcenter.http.HttpResponse;
+import com.microsoft.appcenter.http.HttpUtils;
+import com.microsoft.appcenter.http.RequestCompression;
+import com.microsoft.appcenter.http.ServiceCall;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Utf8;
+
+import static com.microsoft.appcenter.AppCenter.LOG_TAG;
+import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_TYPE_KEY;
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+
+/**
+ * HTTP client based on OkHttp.
+ * <p>
+ * Unlike {@link com.microsoft.appcenter.http.DefaultHttpClient}, connections are kept in the pool of the OkHttp client
+ * between calls and HTTP/2 is negotiated when the server supports it, so consecutive batches to the same host
+ * don't pay a new TCP and TLS handshake.
+ */
+public class OkHttpHttpClient implements HttpClient {
+
+    /**
+     * Content type header value.
+     */
+    @VisibleForTesting
+    static final String CONTENT_TYPE_VALUE = "application/json";
+
+    /**
+     * Content encoding header key.
+     */
+    @VisibleForTesting
+    static final String CONTENT_ENCODING_KEY = "Content-Encoding";
+
+    /**
+     * Character encoding.
+     */
+    private static final String CHARSET_NAME = "UTF-8";
+
+    /**
+     * OkHttp client owning the connection pool.
+     */
+    private final OkHttpClient mOkHttpClient;
+
+    /**
+     * Request body compression settings, null if compression is disabled.
+     */
+    private final RequestCompression mCompression;
+
+    /**
+     * Executor delivering the call results.
+     */
+    private final Executor mCallbackExecutor;
+
+    /**
+     * Ongoing calls.
+     */
+    private final Set<Call> mCalls = new HashSet<>();
+
+    /**
+     * Init.
+     *
+     * @param okHttpClient       OkHttp client, see {@link OkHttpUtils#createOkHttpClient()}.
+     * @param compressionEnabled whether to compress request bodies, with {@link RequestCompression#getDefault()}.
+     * @param callbackExecutor   executor on which {@link ServiceCallback} methods are called.
+     */
+    public OkHttpHttpClient(@NonNull OkHttpClient okHttpClient, boolean compressionEnabled, @NonNull Executor callbackExecutor) {
+        this(okHttpClient, compressionEnabled ? RequestCompression.getDefault() : null, callbackExecutor);
+    }
+
+    /**
+     * Init.
+     *
+     * @param okHttpClient     OkHttp client, see {@link OkHttpUtils#createOkHttpClient()}. Connections are shared with it.
+     * @param compression      request body compression settings, or null to disable compression.
+     * @param callbackExecutor executor on which {@link ServiceCallback} methods are called.
+     */
+    public OkHttpHttpClient(@NonNull OkHttpClient okHttpClient, @Nullable RequestCompression compression, @NonNull Executor callbackExecutor) {
+        mOkHttpClient = okHttpClient.newBuilder().addInterceptor(new RequestBodyInterceptor()).build();
+        mCompression = compression;
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public ServiceCall callAsync(String url, String method, Map<String, String> headers, final CallTemplate callTemplate, final ServiceCallback serviceCallback) {
+        final Call call;
+        final HttpCallTrace trace = HttpClientTracer.getTrace(serviceCallback);
+        try {
+            if (!url.startsWith("https:")) {
+                throw new IOException("App Center support only HTTPS connection.");
+            }
+            Request request = buildRequest(url, method, headers, callTemplate, trace);
+            if (callTemplate != null) {
+                callTemplate.onBeforeCalling(new URL(url), headers);
+            }
+            call = mOkHttpClient.newCall(request);
+        } catch (final Exception e) {
+
+            /* Return the method before calling the listener. */
+            mCallbackExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    serviceCallback.onCallFailed(e);
+                }
+            });
+            return new ServiceCall() {
+
+                @Override
+                public void cancel() {
+                }
+            };
+        }
+        synchronized (this) {
+            mCalls.add(call);
+        }
+        call.enqueue(new Callback() {
+
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                onFinish(call, e, serviceCallback);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                Object result;
+                try {
+                    result = readResponse(response, callTemplate, trace);
+                } catch (IOException e) {
+                    result = e;
+                } finally {
+                    response.close();
+                }
+                onFinish(call, result, serviceCallback);
+            }
+        });
+        return new ServiceCall() {
+
+            @Override
+            public void cancel() {
+                call.cancel();
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mCalls.size() > 0) {
+            AppCenterLog.debug(LOG_TAG, "Cancelling " + mCalls.size() + " network call(s).");
+            for (Call call : mCalls) {
+                call.cancel();
+            }
+            mCalls.clear();
+        }
+    }
+
+    @Override
+    public void reopen() {
+
+        /* Nothing to do, the connection pool is kept while closed. */
+    }
+
+    @VisibleForTesting
+    synchronized Set<Call> getCalls() {
+        return mCalls;
+    }
+
+    /**
+     * Build request, the body is only serialized when OkHttp runs the call.
+     * A traced call carries its trace as a tag for {@link TracingEventListener}.
+     */
+    private Request buildRequest(String url, String method, Map<String, String> headers, CallTemplate callTemplate, HttpCallTrace trace) {
+        RequestBody body = null;
+        if (METHOD_POST.equals(method) && callTemplate != null) {
+
+            /* If no content type specified, assume json. */
+            if (!headers.containsKey(CONTENT_TYPE_KEY)) {
+                headers.put(CONTENT_TYPE_KEY, CONTENT_TYPE_VALUE);
+            }
+
+            /* Compression is decided once the body is serialized, see RequestBodyInterceptor. */
+            body = new CallTemplateRequestBody(MediaType.parse(headers.get(CONTENT_TYPE_KEY)), callTemplate, mCompression, trace);
+        } else if (METHOD_POST.equals(method)) {
+
+            /* OkHttp requires a body for POST. */
+            body = RequestBody.create(null, new byte[0]);
+        }
+        Request.Builder builder = new Request.Builder().url(url).method(method, body);
+        if (trace != null) {
+            builder.tag(HttpCallTrace.class, trace);
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Read response as requested by the call template, throwing {@link HttpException} for non 2xx status codes.
+     * A body that is not read is discarded when the response is closed.
+     */
+    private static HttpResponse readResponse(Response response, CallTemplate callTemplate, HttpCallTrace trace) throws IOException {
+        int status = response.code();
+        ResponseMode responseMode = ResponseMode.READ;
+        if (status >= 200 && status < 300 && callTemplate instanceof ResponseCallTemplate) {
+            responseMode = ((ResponseCallTemplate) callTemplate).getResponseMode();
+        }
+        ResponseBody responseBody = response.body();
+        String payload = "";
+        if (responseBody != null) {
+            if (responseMode == ResponseMode.READ) {
+                payload = responseBody.string();
+                if (trace != null) {
+                    trace.setResponseSize(Utf8.size(payload));
+                }
+            } else if (responseMode == ResponseMode.STREAM) {
+                ((ResponseCallTemplate) callTemplate).readResponseBody(responseBody.byteStream());
+            }
+        }
+        if (AppCenterLog.getLogLevel() <= Log.VERBOSE) {
+            AppCenterLog.verbose(LOG_TAG, "HTTP response status=" + status + " protocol=" + response.protocol());
+        }
+
+        /* Keep first value of each header like the default client. */
+        Map<String, String> responseHeaders;
+        if (responseMode == ResponseMode.DISCARD) {
+            responseHeaders = Collections.emptyMap();
+        } else {
+            responseHeaders = new HashMap<>();
+            Headers headers = response.headers();
+            for (int i = 0; i < headers.size(); i++) {
+                if (!responseHeaders.containsKey(headers.name(i))) {
+                    responseHeaders.put(headers.name(i), headers.value(i));
+                }
+            }
+        }
+        HttpResponse httpResponse = new HttpResponse(status, payload, responseHeaders);
+
+        /* Accept all 2xx codes. */
+        if (status >= 200 && status < 300) {
+            return httpResponse;
+        }
+
+        /* Generate exception on failure. */
+        throw new HttpException(httpResponse);
+    }
+
+    /**
+     * Report result on the callback executor.
+     */
+    private void onFinish(final Call call, final Object result, final ServiceCallback serviceCallback) {
+        synchronized (this) {
+            mCalls.remove(call);
+        }
+        mCallbackExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                /* Handle the result of a cancelled call only if the server responded. */
+                if (result instanceof HttpResponse) {
+                    serviceCallback.onCallSucceeded((HttpResponse) result);
+                } else if (result instanceof HttpException || !call.isCanceled()) {
+                    serviceCallback.onCallFailed((Exception) result);
+                }
+            }
+        });
+    }
+
+    /**
+     * Interceptor serializing the request body on the OkHttp thread before the headers are sent,
+     * so that its length is known and bodies smaller than {@link RequestCompression#getMinLength()} are not compressed.
+     */
+    private static class RequestBodyInterceptor implements Interceptor {
+
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            Request request = chain.request();
+            if (request.body() instanceof CallTemplateRequestBody) {
+                CallTemplateRequestBody body = (CallTemplateRequestBody) request.body();
+                String contentEncoding = body.serialize();
+                if (contentEncoding != null) {
+                    request = request.newBuilder().header(CONTENT_ENCODING_KEY, contentEncoding).build();
+                }
+            }
+            return chain.proceed(request);
+        }
+    }
+
+    /**
+     * Request body built from a call template when the call runs.
+     * It is kept in a segment buffer so that it can be written again when OkHttp retries the request.
+     */
+    private static class CallTemplateRequestBody extends RequestBody {
+
+        private final MediaType mContentType;
+
+        private final CallTemplate mCallTemplate;
+
+        private final RequestCompression mCompression;
+
+        private final HttpCallTrace mTrace;
+
+        /**
+         * Serialized body before compression.
+         */
+        private final Buffer mBuffer = new Buffer();
+
+        private boolean mSerialized;
+
+        private boolean mCompress;
+
+        CallTemplateRequestBody(MediaType contentType, CallTemplate callTemplate, RequestCompression compression, HttpCallTrace trace) {
+            mContentType = contentType;
+            mCallTemplate = callTemplate;
+            mCompression = compression;
+            mTrace = trace;
+        }
+
+        /**
+         * Serialize the body from the call template, unless already done.
+         *
+         * @return content encoding if the body is large enough to be compressed, null otherwise.
+         * @throws IOException if the call template fails to serialize the body.
+         */
+        String serialize() throws IOException {
+            if (!mSerialized) {
+                try {
+
+                    /* Stream body unless we need it as a string for logging. */
+                    if (mCallTemplate instanceof StreamingCallTemplate && AppCenterLog.getLogLevel() > Log.VERBOSE) {
+                        Writer writer = new OutputStreamWriter(mBuffer.outputStream(), CHARSET_NAME);
+                        ((StreamingCallTemplate) mCallTemplate).writeRequestBody(writer);
+                        writer.flush();
+                    } else {
+                        String payload = mCallTemplate.buildRequestBody();
+                        if (AppCenterLog.getLogLevel() <= Log.VERBOSE) {
+                            AppCenterLog.verbose(LOG_TAG, HttpUtils.hideUrlEncodedTokens(payload));
+                        }
+                        mBuffer.writeUtf8(payload);
+                    }
+                } catch (JSONException e) {
+                    throw new IOException(e);
+                }
+                mSerialized = true;
+                mCompress = mCompression != null && mBuffer.size() >= mCompression.getMinLength();
+                if (mTrace != null) {
+                    mTrace.setRequestSize(mBuffer.size());
+                }
+            }
+            return mCompress ? mCompression.getContentEncoding() : null;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return mContentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return mSerialized && !mCompress ? mBuffer.size() : -1;
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            serialize();
+            if (!mCompress) {
+                sink.write(mBuffer.clone(), mBuffer.size());
+                return;
+            }
+
+            /* Closing the compressing stream writes its trailer. */
+            OutputStream out = mCompression.compress(sink.outputStream(), HttpUtils.WRITE_BUFFER_SIZE);
+            boolean written = false;
+            try {
+                mBuffer.copyTo(out);
+                written = true;
+            } finally {
+                if (written) {
+                    out.close();
+                } else {
+                    RequestCompression.abort(out);
+                }
+            }
+        }
+    }
+}
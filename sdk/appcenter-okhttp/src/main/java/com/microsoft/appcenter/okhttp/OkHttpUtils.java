@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.okhttp;
+
+import android.content.Context;
+import android.net.TrafficStats;
+import android.os.Process;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpClientFactory;
+import com.microsoft.appcenter.http.HttpClientNetworkStateHandler;
+import com.microsoft.appcenter.http.HttpClientRetryer;
+import com.microsoft.appcenter.http.HttpClientTracer;
+import com.microsoft.appcenter.utils.HandlerUtils;
+import com.microsoft.appcenter.utils.NetworkStateHelper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import static com.microsoft.appcenter.http.HttpUtils.CONNECT_TIMEOUT;
+import static com.microsoft.appcenter.http.HttpUtils.DEFAULT_MAX_CONCURRENT_CALLS;
+import static com.microsoft.appcenter.http.HttpUtils.DEFAULT_THREAD_PRIORITY;
+import static com.microsoft.appcenter.http.HttpUtils.READ_TIMEOUT;
+import static com.microsoft.appcenter.http.HttpUtils.THREAD_STATS_TAG;
+
+/**
+ * Create App Center HTTP clients based on OkHttp.
+ * <p>
+ * To use it, set the client factory before starting App Center:
+ * <pre>
+ * DependencyConfiguration.setHttpClientFactory(OkHttpUtils.createHttpClientFactory());
+ * AppCenter.start(application, appSecret, Analytics.class);
+ * </pre>
+ * The SDK then creates the client with the executor it needs results on, such as the App Center thread.
+ */
+public class OkHttpUtils {
+
+    /**
+     * Time an idle OkHttp thread is kept alive, in milliseconds.
+     */
+    private static final long THREAD_KEEP_ALIVE_TIME = 30000;
+
+    /**
+     * Executor delivering callbacks on the main thread.
+     */
+    @VisibleForTesting
+    static final Executor MAIN_THREAD_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            HandlerUtils.runOnUiThread(command);
+        }
+    };
+
+    @VisibleForTesting
+    OkHttpUtils() {
+    }
+
+    /**
+     * Create an OkHttp based client with the same network state handling and retries as the default client,
+     * delivering results on the main thread.
+     *
+     * @param context context.
+     * @return HTTP client.
+     */
+    public static HttpClient createHttpClient(@NonNull Context context) {
+        return createHttpClient(context, createOkHttpClient(), MAIN_THREAD_EXECUTOR);
+    }
+
+    /**
+     * Create a client based on the given OkHttp client, with the same network state handling and retries as the default client,
+     * delivering results on the main thread.
+     * Using a client derived with {@link OkHttpClient#newBuilder()} shares its connection pool.
+     *
+     * @param context      context.
+     * @param okHttpClient OkHttp client.
+     * @return HTTP client.
+     */
+    public static HttpClient createHttpClient(@NonNull Context context, @NonNull OkHttpClient okHttpClient) {
+        return createHttpClient(context, okHttpClient, MAIN_THREAD_EXECUTOR);
+    }
+
+    /**
+     * Create an OkHttp based client with the same network state handling and retries as the default client.
+     *
+     * @param context          context.
+     * @param callbackExecutor executor on which {@link com.microsoft.appcenter.http.ServiceCallback} methods are called.
+     * @return HTTP client.
+     */
+    public static HttpClient createHttpClient(@NonNull Context context, @NonNull Executor callbackExecutor) {
+        return createHttpClient(context, createOkHttpClient(), callbackExecutor);
+    }
+
+    /**
+     * Create a client based on the given OkHttp client, with the same network state handling and retries as the default client.
+     * Using a client derived with {@link OkHttpClient#newBuilder()} shares its connection pool.
+     *
+     * @param context          context.
+     * @param okHttpClient     OkHttp client.
+     * @param callbackExecutor executor on which {@link com.microsoft.appcenter.http.ServiceCallback} methods are called.
+     * @return HTTP client.
+     */
+    public static HttpClient createHttpClient(@NonNull Context context, @NonNull OkHttpClient okHttpClient, @NonNull Executor callbackExecutor) {
+        HttpClient httpClient = new HttpClientTracer(new OkHttpHttpClient(okHttpClient, true, callbackExecutor));
+        httpClient = new HttpClientNetworkStateHandler(httpClient, NetworkStateHelper.getSharedInstance(context));
+
+        /* Retryer should be applied last to avoid retries in offline. */
+        return new HttpClientRetryer(httpClient);
+    }
+
+    /**
+     * Create a factory of OkHttp based clients, see {@link #createHttpClient(Context, Executor)}.
+     *
+     * @return HTTP client factory.
+     */
+    public static HttpClientFactory createHttpClientFactory() {
+        return createHttpClientFactory(createOkHttpClient());
+    }
+
+    /**
+     * Create a factory of clients based on the given OkHttp client, see {@link #createHttpClient(Context, OkHttpClient, Executor)}.
+     *
+     * @param okHttpClient OkHttp client.
+     * @return HTTP client factory.
+     */
+    public static HttpClientFactory createHttpClientFactory(@NonNull final OkHttpClient okHttpClient) {
+        return new HttpClientFactory() {
+
+            @NonNull
+            @Override
+            public HttpClient createHttpClient(@NonNull Context context, @NonNull Executor callbackExecutor) {
+                return OkHttpUtils.createHttpClient(context, okHttpClient, callbackExecutor);
+            }
+        };
+    }
+
+    /**
+     * Create an OkHttp client with the App Center timeouts,
+     * running calls on background priority threads whose sockets are tagged for App Center.
+     * Connection timings of traced calls are only measured by clients derived from this one.
+     *
+     * @return OkHttp client.
+     */
+    public static OkHttpClient createOkHttpClient() {
+        Dispatcher dispatcher = new Dispatcher(createExecutorService());
+        dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_CONCURRENT_CALLS);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectTimeout(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
+                .writeTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
+                .eventListenerFactory(TracingEventListener.FACTORY)
+                .build();
+    }
+
+    private static ExecutorService createExecutorService() {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, THREAD_KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                return new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(DEFAULT_THREAD_PRIORITY);
+
+                        /* Do tag socket to avoid strict mode issue. */
+                        TrafficStats.setThreadStatsTag(THREAD_STATS_TAG);
+                        runnable.run();
+                    }
+                }, "AppCenter.OkHttp-" + mCount.incrementAndGet());
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.okhttp;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+
+import com.microsoft.appcenter.http.HttpCallTrace;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Request;
+
+/**
+ * Event listener filling the connection timings and wire sizes of a traced call.
+ * The trace is found in the request tags, other calls are not listened to.
+ */
+class TracingEventListener extends EventListener {
+
+    /**
+     * Factory to set on the OkHttp client.
+     */
+    static final Factory FACTORY = new Factory() {
+
+        @NonNull
+        @Override
+        public EventListener create(@NonNull Call call) {
+            HttpCallTrace trace = call.request().tag(HttpCallTrace.class);
+            return trace != null ? new TracingEventListener(trace) : NONE;
+        }
+    };
+
+    private final HttpCallTrace mTrace;
+
+    private long mConnectStartTime;
+
+    private long mSecureConnectStartTime;
+
+    private long mRequestSentTime;
+
+    private TracingEventListener(HttpCallTrace trace) {
+        mTrace = trace;
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        mConnectStartTime = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        if (mConnectStartTime == 0) {
+            mConnectStartTime = SystemClock.elapsedRealtime();
+        }
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        mSecureConnectStartTime = SystemClock.elapsedRealtime();
+        mTrace.setConnectTime(mSecureConnectStartTime - mConnectStartTime);
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+        mTrace.setTlsTime(SystemClock.elapsedRealtime() - mSecureConnectStartTime);
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+
+        /* Pooled connection. */
+        if (mConnectStartTime == 0) {
+            mTrace.setConnectTime(0);
+            mTrace.setTlsTime(0);
+        }
+    }
+
+    @Override
+    public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+        mRequestSentTime = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        mRequestSentTime = SystemClock.elapsedRealtime();
+        mTrace.setCompressedRequestSize(byteCount);
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        mTrace.setTimeToFirstByte(SystemClock.elapsedRealtime() - mRequestSentTime);
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        mTrace.setCompressedResponseSize(byteCount);
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.okhttp;
+
+import android.util.Log;
+
+import com.microsoft.appcenter.http.HttpCallTrace;
+import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpClientTracer;
+import com.microsoft.appcenter.http.HttpException;
+import com.microsoft.appcenter.http.HttpResponse;
+import com.microsoft.appcenter.http.RequestCompression;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+import okio.Okio;
+
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_GET;
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OkHttpHttpClientTest {
+
+    private static final String PAYLOAD = "{\"logs\":[{\"type\":\"event\",\"name\":\"test\"}]}";
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private MockWebServer mServer;
+
+    private OkHttpClient mOkHttpClient;
+
+    @Before
+    public void setUp() throws IOException {
+
+        /* Local TLS server trusted by the client. */
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(InetAddress.getByName("localhost").getCanonicalHostName())
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+        mServer = new MockWebServer();
+        mServer.useHttps(serverCertificates.sslSocketFactory(), false);
+        mServer.start();
+        mOkHttpClient = OkHttpUtils.createOkHttpClient().newBuilder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void postCompressedBody() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("OK").addHeader("x-test", "value"));
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn(PAYLOAD);
+        RequestCompression compression = new RequestCompression(Deflater.DEFAULT_COMPRESSION, 0, null);
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, compression, DIRECT_EXECUTOR);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("App-Secret", "secret");
+
+        /* Call. */
+        ResultCallback callback = new ResultCallback();
+        httpClient.callAsync(mServer.url("/logs").toString(), METHOD_POST, headers, callTemplate, callback);
+        callback.await();
+
+        /* Verify response. */
+        assertNull(callback.mException);
+        assertEquals(200, callback.mResponse.getStatusCode());
+        assertEquals("OK", callback.mResponse.getPayload());
+        assertEquals("value", callback.mResponse.getHeaders().get("x-test"));
+        verify(callTemplate).onBeforeCalling(any(URL.class), anyMap());
+
+        /* Verify request. */
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("secret", request.getHeader("App-Secret"));
+        assertEquals(OkHttpHttpClient.CONTENT_TYPE_VALUE, request.getHeader("Content-Type"));
+        assertEquals(RequestCompression.ENCODING_GZIP, request.getHeader(OkHttpHttpClient.CONTENT_ENCODING_KEY));
+        assertEquals(PAYLOAD, Okio.buffer(Okio.source(new GZIPInputStream(request.getBody().inputStream()))).readUtf8());
+        assertTrue(httpClient.getCalls().isEmpty());
+    }
+
+    @Test
+    public void doNotCompressSmallBody() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("OK"));
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn(PAYLOAD);
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, true, DIRECT_EXECUTOR);
+
+        /* Call. */
+        ResultCallback callback = new ResultCallback();
+        httpClient.callAsync(mServer.url("/logs").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+        callback.await();
+
+        /* Payload is below the default minimum length. */
+        assertEquals(200, callback.mResponse.getStatusCode());
+        RecordedRequest request = mServer.takeRequest();
+        assertNull(request.getHeader(OkHttpHttpClient.CONTENT_ENCODING_KEY));
+        assertEquals(String.valueOf(PAYLOAD.length()), request.getHeader("Content-Length"));
+        assertEquals(PAYLOAD, request.getBody().readUtf8());
+    }
+
+    @Test
+    public void compressLargeBody() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("OK"));
+        StringBuilder payload = new StringBuilder();
+        while (payload.length() < RequestCompression.DEFAULT_MIN_LENGTH) {
+            payload.append(PAYLOAD);
+        }
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn(payload.toString());
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, true, DIRECT_EXECUTOR);
+
+        /* Call. */
+        ResultCallback callback = new ResultCallback();
+        httpClient.callAsync(mServer.url("/logs").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+        callback.await();
+
+        /* Verify. */
+        assertEquals(200, callback.mResponse.getStatusCode());
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals(RequestCompression.ENCODING_GZIP, request.getHeader(OkHttpHttpClient.CONTENT_ENCODING_KEY));
+        assertTrue(request.getBodySize() < payload.length());
+        assertEquals(payload.toString(), Okio.buffer(Okio.source(new GZIPInputStream(request.getBody().inputStream()))).readUtf8());
+    }
+
+    @Test
+    public void hideTokensInVerboseLog() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("OK"));
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn("grant_type=refresh&token=secret");
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, false, DIRECT_EXECUTOR);
+        int logLevel = AppCenterLog.getLogLevel();
+        Logger logger = mock(Logger.class);
+        AppCenterLog.setLogger(logger);
+        AppCenterLog.setLogLevel(Log.VERBOSE);
+        try {
+
+            /* Call. */
+            ResultCallback callback = new ResultCallback();
+            httpClient.callAsync(mServer.url("/token").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+            callback.await();
+        } finally {
+            AppCenterLog.setLogLevel(logLevel);
+            AppCenterLog.setLogger(null);
+        }
+
+        /* Token is sent but not logged. */
+        assertEquals("grant_type=refresh&token=secret", mServer.takeRequest().getBody().readUtf8());
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        verify(logger, atLeastOnce()).log(eq(Level.ALL), messages.capture());
+        boolean logged = false;
+        for (String message : messages.getAllValues()) {
+            assertFalse(message.contains("secret"));
+            logged |= message.contains("grant_type=refresh&token=***");
+        }
+        assertTrue(logged);
+    }
+
+    @Test
+    public void postStreamingBodyWithoutCompression() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("OK"));
+        HttpClient.StreamingCallTemplate callTemplate = mock(HttpClient.StreamingCallTemplate.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((Writer) invocation.getArguments()[0]).write(PAYLOAD);
+                return null;
+            }
+        }).when(callTemplate).writeRequestBody(any(Writer.class));
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, false, DIRECT_EXECUTOR);
+
+        /* Call. */
+        ResultCallback callback = new ResultCallback();
+        httpClient.callAsync(mServer.url("/logs").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+        callback.await();
+
+        /* Verify body streamed as is. */
+        assertEquals(200, callback.mResponse.getStatusCode());
+        verify(callTemplate, never()).buildRequestBody();
+        RecordedRequest request = mServer.takeRequest();
+        assertNull(request.getHeader(OkHttpHttpClient.CONTENT_ENCODING_KEY));
+        assertEquals(PAYLOAD, request.getBody().readUtf8());
+    }
+
+    @Test
+    public void httpErrorReportedAsHttpException() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(503).setBody("Busy").addHeader("x-ms-retry-after-ms", "1000"));
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, true, DIRECT_EXECUTOR);
+
+        /* Call. */
+        ResultCallback callback = new ResultCallback();
+        httpClient.callAsync(mServer.url("/config").toString(), METHOD_GET, new HashMap<String, String>(), null, callback);
+        callback.await();
+
+        /* Verify. */
+        assertNull(callback.mResponse);
+        assertTrue(callback.mException instanceof HttpException);
+        HttpResponse response = ((HttpException) callback.mException).getHttpResponse();
+        assertEquals(503, response.getStatusCode());
+        assertEquals("Busy", response.getPayload());
+        assertEquals("1000", response.getHeaders().get("x-ms-retry-after-ms"));
+        assertEquals("GET", mServer.takeRequest().getMethod());
+    }
+
+    @Test
+    public void connectionIsReused() throws Exception {
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn(PAYLOAD);
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, true, DIRECT_EXECUTOR);
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setBody("OK"));
+            ResultCallback callback = new ResultCallback();
+            httpClient.callAsync(mServer.url("/logs").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+            callback.await();
+            assertEquals(200, callback.mResponse.getStatusCode());
+        }
+
+        /* Sequence number is the index of the request on its connection. */
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, mServer.takeRequest().getSequenceNumber());
+        }
+    }
+
+    @Test
+    public void traceCalls() throws Exception {
+        HttpClient.CallTemplate callTemplate = mock(HttpClient.CallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn(PAYLOAD);
+        final List<HttpCallTrace> traces = new ArrayList<>();
+        HttpClientTracer.Listener listener = new HttpClientTracer.Listener() {
+
+            @Override
+            public void onCallTraced(HttpCallTrace trace) {
+                traces.add(trace);
+            }
+        };
+        HttpClientTracer.addListener(listener);
+        try {
+            HttpClient httpClient = new HttpClientTracer(new OkHttpHttpClient(mOkHttpClient, true, DIRECT_EXECUTOR));
+            for (int i = 0; i < 2; i++) {
+                mServer.enqueue(new MockResponse().setBody("OK"));
+                ResultCallback callback = new ResultCallback();
+                httpClient.callAsync(mServer.url("/logs").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+                callback.await();
+            }
+        } finally {
+            HttpClientTracer.removeListener(listener);
+        }
+
+        /* First call opens the connection. */
+        assertEquals(2, traces.size());
+        HttpCallTrace trace = traces.get(0);
+        assertEquals(200, trace.getStatusCode());
+        assertEquals(PAYLOAD.length(), trace.getRequestSize());
+        assertEquals(mServer.takeRequest().getBodySize(), trace.getCompressedRequestSize());
+        assertEquals(2, trace.getResponseSize());
+        assertEquals(2, trace.getCompressedResponseSize());
+        assertTrue(trace.getConnectTime() >= 0);
+        assertTrue(trace.getTlsTime() >= 0);
+        assertTrue(trace.getTimeToFirstByte() >= 0);
+
+        /* Second call reuses it. */
+        trace = traces.get(1);
+        assertEquals(0, trace.getConnectTime());
+        assertEquals(0, trace.getTlsTime());
+    }
+
+    @Test
+    public void discardResponse() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("OK").addHeader("x-test", "value"));
+        HttpClient.ResponseCallTemplate callTemplate = mock(HttpClient.ResponseCallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn(PAYLOAD);
+        when(callTemplate.getResponseMode()).thenReturn(HttpClient.ResponseMode.DISCARD);
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, true, DIRECT_EXECUTOR);
+
+        /* Call. */
+        ResultCallback callback = new ResultCallback();
+        httpClient.callAsync(mServer.url("/logs").toString(), METHOD_POST, new HashMap<String, String>(), callTemplate, callback);
+        callback.await();
+
+        /* Only the status is kept. */
+        assertEquals(200, callback.mResponse.getStatusCode());
+        assertEquals("", callback.mResponse.getPayload());
+        assertTrue(callback.mResponse.getHeaders().isEmpty());
+    }
+
+    @Test
+    public void httpUrlIsRejected() throws Exception {
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, true, DIRECT_EXECUTOR);
+        ResultCallback callback = new ResultCallback();
+        httpClient.callAsync("http://localhost/logs", METHOD_GET, new HashMap<String, String>(), null, callback);
+        callback.await();
+        assertTrue(callback.mException instanceof IOException);
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void closeCancelsCalls() throws Exception {
+        mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        OkHttpHttpClient httpClient = new OkHttpHttpClient(mOkHttpClient, true, DIRECT_EXECUTOR);
+        ResultCallback callback = new ResultCallback();
+        httpClient.callAsync(mServer.url("/config").toString(), METHOD_GET, new HashMap<String, String>(), null, callback);
+        mServer.takeRequest();
+        assertEquals(1, httpClient.getCalls().size());
+
+        /* Cancelled call is not reported. */
+        httpClient.close();
+        assertTrue(httpClient.getCalls().isEmpty());
+        assertFalse(callback.mSemaphore.tryAcquire(500, TimeUnit.MILLISECONDS));
+    }
+
+    private static class ResultCallback implements ServiceCallback {
+
+        private final Semaphore mSemaphore = new Semaphore(0);
+
+        private HttpResponse mResponse;
+
+        private Exception mException;
+
+        @Override
+        public void onCallSucceeded(HttpResponse httpResponse) {
+            mResponse = httpResponse;
+            mSemaphore.release();
+        }
+
+        @Override
+        public void onCallFailed(Exception e) {
+            mException = e;
+            mSemaphore.release();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(mSemaphore.tryAcquire(10, TimeUnit.SECONDS));
+        }
+    }
+}
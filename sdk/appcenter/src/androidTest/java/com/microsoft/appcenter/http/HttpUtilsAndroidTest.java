@@ -21,6 +21,7 @@ import java.util.concurrent.RejectedExecutionException;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
 
+import static com.microsoft.appcenter.http.HttpUtils.isPayloadTooLargeError;
 import static com.microsoft.appcenter.http.HttpUtils.isRecoverableError;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -63,4 +64,12 @@ public class HttpUtilsAndroidTest {
         assertTrue(isRecoverableError(new SSLHandshakeException("java.security.cert.CertPathValidatorException: Trust anchor for certification path not found.")));
         assertTrue(isRecoverableError(new SSLHandshakeException("javax.net.ssl.SSLProtocolException: SSL handshake aborted: ssl=0x870c918: Failure in SSL library, usually a protocol error\nerror:14077410:SSL routines:SSL23_GET_SERVER_HELLO:sslv3 alert handshake failure (external/openssl/ssl/s23_clnt.c:658 0xb7c393a1:0x00000000)")));
     }
+
+    @Test
+    public void isPayloadTooLargeErrorTest() {
+        assertTrue(isPayloadTooLargeError(new HttpException(new HttpResponse(413))));
+        assertFalse(isPayloadTooLargeError(new HttpException(new HttpResponse(400))));
+        assertFalse(isPayloadTooLargeError(new HttpException(new HttpResponse(500))));
+        assertFalse(isPayloadTooLargeError(new IOException()));
+    }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models.json;
+
+import android.util.Base64;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings("unused")
+public class BufferedJSONStringerAndroidTest {
+
+    private static void write(JSONStringer writer, UUID uuid, String longString) throws JSONException {
+        writer.object();
+        writer.key("string").value("simple");
+        writer.key("escaped").value("quote\" backslash\\ slash/ tab\t newline\n return\r feed\f backspace\b control\u0001 unicode\u00e9\u2028");
+        writer.key("long").value(longString);
+        writer.key("empty").value("");
+        writer.key("uuid").value(uuid);
+        writer.key("int").value(Integer.valueOf(-42));
+        writer.key("maxLong").value(Long.MAX_VALUE);
+        writer.key("minLong").value(Long.MIN_VALUE);
+        writer.key("zero").value(0);
+        writer.key("double").value(3.25);
+        writer.key("integralDouble").value(2.0);
+        writer.key("boxedDouble").value(Double.valueOf(-0.5));
+        writer.key("float").value(Float.valueOf(1.5f));
+        writer.key("true").value(true);
+        writer.key("false").value(Boolean.FALSE);
+        writer.key("null").value(null);
+        writer.key("jsonNull").value(JSONObject.NULL);
+        writer.key("jsonObject").value(new JSONObject().put("a", 1).put("b", new JSONObject().put("c", new JSONArray().put(2.5).put(JSONObject.NULL))).put("d", new JSONObject()));
+        writer.key("jsonArray").value(new JSONArray().put("b").put(new JSONObject().put("e", "f\"")).put(new JSONArray()));
+        writer.key("array").array().value(1).value("two").object().endObject().array().endArray().endArray();
+        writer.key("nested").object().key("a").object().key("b").array().value(true).endArray().endObject().endObject();
+        writer.endObject();
+    }
+
+    @Test
+    public void sameOutputAsJSONStringer() throws JSONException {
+        UUID uuid = UUID.randomUUID();
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longString.append("0123456789/\"");
+        }
+        JSONStringer expected = new JSONStringer();
+        write(expected, uuid, longString.toString());
+        BufferedJSONStringer actual = new BufferedJSONStringer();
+        write(actual, uuid, longString.toString());
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.toString().length(), actual.length());
+    }
+
+    @Test
+    public void resetAndWriteTo() throws JSONException, IOException {
+        BufferedJSONStringer writer = new BufferedJSONStringer();
+        assertNull(writer.toString());
+        writer.array().value("first").endArray();
+        assertEquals("[\"first\"]", writer.toString());
+
+        /* Another document after reset. */
+        writer.reset();
+        writer.object().key("second").value(2).endObject();
+        StringWriter stringWriter = new StringWriter();
+        writer.writeTo(stringWriter);
+        assertEquals("{\"second\":2}", stringWriter.toString());
+    }
+
+    @Test
+    public void rawValue() throws JSONException {
+        BufferedJSONStringer writer = new BufferedJSONStringer();
+        try {
+            writer.rawValue("{}");
+            fail();
+        } catch (JSONException ignored) {
+        }
+        writer.array().rawValue("{\"a\":1}").rawValue("[]").endArray();
+        assertEquals("[{\"a\":1},[]]", writer.toString());
+        writer.reset();
+        writer.object().key("a").rawValue("{\"b\":true}").key("c").value(2).endObject();
+        assertEquals("{\"a\":{\"b\":true},\"c\":2}", writer.toString());
+        writer.reset();
+        writer.object();
+        try {
+            writer.rawValue("1");
+            fail();
+        } catch (JSONException ignored) {
+        }
+    }
+
+    @Test
+    public void streamedValues() throws JSONException, IOException {
+
+        /* Sizes around the chunks and the flush threshold, padded or not. */
+        Random random = new Random(42);
+        for (int size : new int[]{0, 1, 2, 3, 3071, 3072, 3073, 20000}) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            JSONStringer expected = new JSONStringer();
+            expected.array().value(Base64.encodeToString(data, Base64.NO_WRAP)).value(1).endArray();
+            BufferedJSONStringer writer = new BufferedJSONStringer();
+            StringWriter output = new StringWriter();
+            writer.setOutput(output);
+            writer.array();
+            writer.base64Value(new ByteArrayInputStream(data));
+            writer.value(1).endArray();
+            writer.writeTo(output);
+            assertEquals(expected.toString(), output.toString());
+
+            /* Copy the encoded value back. */
+            String encoded = expected.toString().substring(1, expected.toString().length() - 3);
+            writer.reset();
+            writer.array();
+            writer.rawValue(new ByteArrayInputStream(encoded.getBytes("US-ASCII")), encoded.length());
+            writer.value(1).endArray();
+            assertEquals(expected.toString(), writer.toString());
+        }
+
+        /* Stream shorter than expected. */
+        BufferedJSONStringer writer = new BufferedJSONStringer();
+        writer.array();
+        try {
+            writer.rawValue(new ByteArrayInputStream(new byte[1]), 2);
+            fail();
+        } catch (EOFException ignored) {
+        }
+
+        /* No value expected. */
+        writer.reset();
+        try {
+            writer.base64Value(new ByteArrayInputStream(new byte[1]));
+            fail();
+        } catch (JSONException ignored) {
+        }
+    }
+
+    @Test
+    public void nestingErrors() throws JSONException {
+        BufferedJSONStringer writer = new BufferedJSONStringer();
+        try {
+            writer.value("top level");
+            fail();
+        } catch (JSONException ignored) {
+        }
+        try {
+            writer.key("no object");
+            fail();
+        } catch (JSONException ignored) {
+        }
+        writer.object();
+        try {
+            writer.value("no key");
+            fail();
+        } catch (JSONException ignored) {
+        }
+        try {
+            writer.key(null);
+            fail();
+        } catch (JSONException ignored) {
+        }
+        try {
+            writer.endArray();
+            fail();
+        } catch (JSONException ignored) {
+        }
+        writer.endObject();
+        try {
+            writer.object();
+            fail();
+        } catch (JSONException ignored) {
+        }
+        try {
+            new BufferedJSONStringer().array().value(Double.NaN);
+            fail();
+        } catch (JSONException ignored) {
+        }
+    }
+}
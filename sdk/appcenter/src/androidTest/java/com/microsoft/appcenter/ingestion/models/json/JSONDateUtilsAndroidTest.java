@@ -6,11 +6,19 @@
 package com.microsoft.appcenter.ingestion.models.json;
 
 import org.json.JSONException;
+import org.json.JSONStringer;
 import org.junit.Test;
 
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 @SuppressWarnings("unused")
 public class JSONDateUtilsAndroidTest {
@@ -46,4 +54,65 @@ public class JSONDateUtilsAndroidTest {
     public void parseInvalidDate() throws JSONException {
         JSONDateUtils.toDate("Fri Jul 07 17:43:56 PDT 2017");
     }
+
+    @Test
+    public void sameAsSimpleDateFormat() throws JSONException, ParseException {
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long minTime = dateFormat.parse(JSONDateUtils.MIN_YEAR + "-01-01T00:00:00.000Z").getTime();
+        long maxTime = dateFormat.parse(JSONDateUtils.MAX_YEAR + "-12-31T23:59:59.999Z").getTime();
+        long[] times = new long[10000];
+        times[0] = 0;
+        times[1] = -1;
+        times[2] = minTime;
+        times[3] = maxTime;
+        times[4] = minTime - 1;
+        times[5] = maxTime + 1;
+        times[6] = dateFormat.parse("2000-02-29T23:59:59.999Z").getTime();
+        times[7] = dateFormat.parse("1500-02-29T12:00:00.000Z").getTime();
+        Random random = new Random(42);
+        for (int i = 8; i < times.length; i++) {
+            times[i] = minTime + (long) (random.nextDouble() * (maxTime - minTime));
+        }
+        for (long time : times) {
+            Date date = new Date(time);
+            String expected = dateFormat.format(date);
+            assertEquals(expected, JSONDateUtils.toString(date));
+            assertEquals(dateFormat.parse(expected), JSONDateUtils.toDate(expected));
+
+            /* Same output when written in a JSON buffer. */
+            JSONStringer writer = new BufferedJSONStringer();
+            writer.object();
+            JSONDateUtils.write(writer, "date", date);
+            writer.endObject();
+            assertEquals("{\"date\":\"" + expected + "\"}", writer.toString());
+        }
+    }
+
+    @Test
+    public void parseStrictly() {
+        String[] invalidDates = {
+                "2017-02-29T00:00:00.000Z",
+                "2016-13-01T00:00:00.000Z",
+                "2016-00-01T00:00:00.000Z",
+                "2016-04-31T00:00:00.000Z",
+                "2016-01-01T24:00:00.000Z",
+                "2016-01-01T00:60:00.000Z",
+                "2016-01-01T00:00:60.000Z",
+                "2016-01-01T00:00:00.000",
+                "2016-01-01T00:00:00.000Z ",
+                "2016-01-01 00:00:00.000Z",
+                "2016-01-01T00:00:00.0a0Z",
+                "2016-1-01T00:00:00.000Z",
+                "+016-01-01T00:00:00.000Z",
+                ""
+        };
+        for (String date : invalidDates) {
+            try {
+                JSONDateUtils.toDate(date);
+                fail("Expected JSONException for " + date);
+            } catch (JSONException ignored) {
+            }
+        }
+    }
 }
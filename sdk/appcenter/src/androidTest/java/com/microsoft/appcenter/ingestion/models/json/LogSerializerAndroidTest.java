@@ -6,14 +6,18 @@
 package com.microsoft.appcenter.ingestion.models.json;
 
 import com.microsoft.appcenter.AndroidTestUtils;
+import com.microsoft.appcenter.ingestion.models.Device;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
 import com.microsoft.appcenter.ingestion.models.StartServiceLog;
 
 import org.json.JSONException;
+import org.json.JSONStringer;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -23,6 +27,12 @@ import java.util.UUID;
 import static com.microsoft.appcenter.ingestion.models.json.MockLog.MOCK_LOG_TYPE;
 import static com.microsoft.appcenter.test.TestUtils.TAG;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -111,6 +121,207 @@ public class LogSerializerAndroidTest {
         assertEquals(log, actualContainer);
     }
 
+    private static Device newDevice() {
+        Device device = new Device();
+        device.setSdkName("appcenter.android");
+        device.setSdkVersion("5.0.6");
+        device.setModel("Pixel");
+        device.setOemName("Google");
+        device.setOsName("Android");
+        device.setOsVersion("14");
+        device.setOsBuild("UP1A");
+        device.setOsApiLevel(34);
+        device.setLocale("en_US");
+        device.setTimeZoneOffset(-480);
+        device.setScreenSize("1080x2400");
+        device.setAppVersion("1.0");
+        device.setAppBuild("1");
+        device.setAppNamespace("com.example");
+        device.setCarrierName("carrier \"quoted\"");
+        device.setCarrierCountry("us");
+        device.setWrapperSdkName("appcenter.xamarin");
+        device.setWrapperSdkVersion("1.2.3");
+        device.setWrapperRuntimeVersion("4.5.6");
+        device.setLiveUpdateReleaseLabel("v1/label");
+        device.setLiveUpdateDeploymentKey("key");
+        device.setLiveUpdatePackageHash("hash");
+        return device;
+    }
+
+    @Test
+    public void startServiceLogWithDevice() throws JSONException {
+        Device device = newDevice();
+        StartServiceLog log = new StartServiceLog();
+        log.setServices(Collections.singletonList("Analytics"));
+        log.oneCollectorEnabled(true);
+        log.setSid(UUID.randomUUID());
+        log.setTimestamp(new Date());
+        log.setDistributionGroupId("group");
+        log.setUserId("alice");
+        log.setDataResidencyRegion("rg");
+        log.setDevice(device);
+
+        /* Verify serialize and deserialize from a stream. */
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+        String payload = serializer.serializeLog(log);
+        assertEquals(log, serializer.deserializeLog(payload, null));
+        assertEquals(log, serializer.deserializeLog(payload, StartServiceLog.TYPE));
+    }
+
+    @Test
+    public void reuseSerializedDevice() throws JSONException {
+        Device device = newDevice();
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            StartServiceLog log = new StartServiceLog();
+            log.setServices(Collections.singletonList("Analytics"));
+            log.setTimestamp(new Date());
+            log.setDevice(device);
+            logs.add(log);
+        }
+        LogContainer container = new LogContainer();
+        container.setLogs(logs);
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+
+        /* Same payload as when the device is written every time. */
+        JSONStringer writer = new JSONStringer();
+        writer.object().key("logs").array();
+        for (Log log : logs) {
+            writer.object();
+            log.write(writer);
+            writer.endObject();
+        }
+        writer.endArray().endObject();
+        String payload = serializer.serializeContainer(container);
+        assertEquals(writer.toString(), payload);
+        assertEquals(container, serializer.deserializeContainer(payload, null));
+
+        /* Changes are serialized after invalidating the cache. */
+        device.setCarrierName("other");
+        Device.invalidateSerializedCache();
+        assertTrue(serializer.serializeLog(logs.get(0)).contains("\"carrierName\":\"other\""));
+
+        /* A new device instance is serialized again. */
+        Device otherDevice = newDevice();
+        otherDevice.setCarrierName("new");
+        logs.get(1).setDevice(otherDevice);
+        assertTrue(serializer.serializeLog(logs.get(1)).contains("\"carrierName\":\"new\""));
+    }
+
+    @Test
+    public void deserializeLogs() throws JSONException {
+        BatchLogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+        List<String> payloads = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+
+            /* Each log has its own device, the last one being different. */
+            Device device = newDevice();
+            if (i == 3) {
+                device.setAppVersion("2.0");
+            }
+            StartServiceLog log = new StartServiceLog();
+            log.setServices(Collections.singletonList("Analytics"));
+            log.setTimestamp(new Date());
+            log.setDevice(device);
+            payloads.add(serializer.serializeLog(log));
+            types.add(i % 2 == 0 ? StartServiceLog.TYPE : null);
+        }
+        payloads.add("{\"type\":\"unknown\"}");
+        types.add(null);
+        payloads.add("{");
+        types.add(StartServiceLog.TYPE);
+
+        /* Same logs as when deserialized one by one, invalid ones being reported. */
+        List<JSONException> errors = new ArrayList<>();
+        List<Log> logs = serializer.deserializeLogs(payloads, types, errors);
+        assertEquals(payloads.size(), logs.size());
+        assertEquals(payloads.size(), errors.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(serializer.deserializeLog(payloads.get(i), null), logs.get(i));
+            assertNull(errors.get(i));
+        }
+        assertNull(logs.get(4));
+        assertNotNull(errors.get(4));
+        assertNull(logs.get(5));
+        assertNotNull(errors.get(5));
+
+        /* Identical devices are shared. */
+        assertSame(logs.get(0).getDevice(), logs.get(1).getDevice());
+        assertSame(logs.get(0).getDevice(), logs.get(2).getDevice());
+        assertNotSame(logs.get(0).getDevice(), logs.get(3).getDevice());
+    }
+
+    @Test
+    public void writeLogLines() throws JSONException, IOException {
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            StartServiceLog log = new StartServiceLog();
+            log.setServices(Collections.singletonList("Service" + i));
+            log.setTimestamp(new Date());
+            log.setDevice(newDevice());
+            logs.add(log);
+        }
+
+        /* Same as serializing each log followed by a line feed. */
+        StreamingLogSerializer serializer = new DefaultLogSerializer();
+        StringBuilder expected = new StringBuilder();
+        for (Log log : logs) {
+            expected.append(serializer.serializeLog(log)).append('\n');
+        }
+        StringWriter writer = new StringWriter();
+        serializer.writeLogLines(logs, writer);
+        assertEquals(expected.toString(), writer.toString());
+
+        /* Nothing for no logs. */
+        writer = new StringWriter();
+        serializer.writeLogLines(Collections.<Log>emptyList(), writer);
+        assertEquals("", writer.toString());
+    }
+
+    @Test
+    public void skipUnknownProperties() throws JSONException {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+        String payload = "{\"type\":\"startService\",\"unknown\":{\"a\":[1,{\"b\":null}]},\"timestamp\":\"2024-01-01T00:00:00.000Z\",\"services\":[\"A\"]}";
+        StartServiceLog log = (StartServiceLog) serializer.deserializeLog(payload, null);
+        assertEquals(Collections.singletonList("A"), log.getServices());
+    }
+
+    @Test
+    public void deserializeInvalidLogs() {
+        LogSerializer serializer = new DefaultLogSerializer();
+        serializer.addLogFactory(StartServiceLog.TYPE, new StartServiceLogFactory());
+        String[] payloads = {
+
+                /* Missing timestamp. */
+                "{\"type\":\"startService\",\"services\":[\"A\"]}",
+
+                /* Malformed. */
+                "{\"type\":\"startService\",\"timestamp\":",
+
+                /* Invalid value type. */
+                "{\"type\":\"startService\",\"timestamp\":\"2024-01-01T00:00:00.000Z\",\"services\":\"A\"}",
+
+                /* Invalid session identifier. */
+                "{\"type\":\"startService\",\"timestamp\":\"2024-01-01T00:00:00.000Z\",\"sid\":\"sid\"}",
+
+                /* Incomplete device. */
+                "{\"type\":\"startService\",\"timestamp\":\"2024-01-01T00:00:00.000Z\",\"device\":{\"sdkName\":\"appcenter.android\"}}"
+        };
+        for (String payload : payloads) {
+            try {
+                serializer.deserializeLog(payload, null);
+                fail("Expected JSONException for " + payload);
+            } catch (JSONException e) {
+                assertTrue(e.getMessage() != null);
+            }
+        }
+    }
+
     @Test
     public void logWithUserId() throws JSONException {
         MockLog expectedLog = AndroidTestUtils.generateMockLog();
@@ -570,4 +570,39 @@ public class CommonSchemaDataUtilsAndroidTest {
         assertEquals("Some.Type", log.getData().getProperties().optString("baseType"));
         assertNull(log.getExt().getMetadata());
     }
+
+    @Test
+    public void samePropertyNames() throws JSONException {
+        String expectedMetadata = "{\"f\":{\"a\":{\"f\":{\"b\":4}}}}";
+        for (int i = 0; i < CommonSchemaDataUtils.MAX_PLANS + 2; i++) {
+
+            /* Same names again with other values, after other names. */
+            MockCommonSchemaLog log = new MockCommonSchemaLog();
+            List<TypedProperty> properties = new ArrayList<>();
+            LongTypedProperty property = new LongTypedProperty();
+            property.setName("a.b");
+            property.setValue(i);
+            properties.add(property);
+            properties.add(typedProperty("c", "d" + i));
+            CommonSchemaDataUtils.addCommonSchemaData(properties, log);
+            assertEquals(i, log.getData().getProperties().getJSONObject("a").getLong("b"));
+            assertEquals("d" + i, log.getData().getProperties().getString("c"));
+            assertEquals(expectedMetadata, log.getExt().getMetadata().getMetadata().toString());
+
+            /* Metadata can be modified without changing the next logs. */
+            log.getExt().getMetadata().getMetadata().remove(METADATA_FIELDS);
+            MockCommonSchemaLog otherLog = new MockCommonSchemaLog();
+            CommonSchemaDataUtils.addCommonSchemaData(Collections.<TypedProperty>singletonList(typedProperty("other" + i, "value")), otherLog);
+            assertNull(otherLog.getExt());
+        }
+
+        /* Same names with other types. */
+        MockCommonSchemaLog log = new MockCommonSchemaLog();
+        List<TypedProperty> properties = new ArrayList<>();
+        properties.add(typedProperty("a.b", "string"));
+        properties.add(typedProperty("c", "d"));
+        CommonSchemaDataUtils.addCommonSchemaData(properties, log);
+        assertEquals("string", log.getData().getProperties().getJSONObject("a").getString("b"));
+        assertNull(log.getExt());
+    }
 }
@@ -18,6 +18,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.anyString;
@@ -40,6 +41,8 @@ import com.microsoft.appcenter.AndroidTestUtils;
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.Constants;
 import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.ingestion.models.Device;
+import com.microsoft.appcenter.ingestion.models.FileBackedLog;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogWithProperties;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
@@ -51,6 +54,7 @@ import com.microsoft.appcenter.ingestion.models.one.Data;
 import com.microsoft.appcenter.ingestion.models.one.MockCommonSchemaLog;
 import com.microsoft.appcenter.ingestion.models.one.MockCommonSchemaLogFactory;
 import com.microsoft.appcenter.persistence.Persistence.PersistenceException;
+import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.crypto.CryptoUtils;
 import com.microsoft.appcenter.utils.storage.DatabaseManager;
 import com.microsoft.appcenter.utils.storage.FileManager;
@@ -58,6 +62,7 @@ import com.microsoft.appcenter.utils.storage.SQLiteUtils;
 import com.microsoft.appcenter.utils.storage.SharedPreferencesManager;
 
 import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -65,6 +70,7 @@ import org.junit.runner.RunWith;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -117,6 +123,32 @@ public class DatabasePersistenceAndroidTest {
         return values;
     }
 
+    private static long getStoredBytes(Cursor cursor) throws UnsupportedEncodingException {
+        long bytes = 0;
+        try {
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    String value = cursor.getString(i);
+                    if (value != null) {
+                        bytes += value.getBytes("UTF-8").length;
+                    }
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return bytes;
+    }
+
+    private static int getDeviceCount(DatabasePersistence persistence) {
+        Cursor cursor = persistence.mDatabaseManager.getCursor(DatabasePersistence.DEVICES_TABLE, null, null, null, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
     private void putLog(int inputFlags, Integer persistedPriorityFlag) throws PersistenceException {
 
         /* Initialize database persistence. */
@@ -230,6 +262,52 @@ public class DatabasePersistenceAndroidTest {
         }
     }
 
+    @Test
+    public void putFileBackedLog() throws PersistenceException, JSONException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+
+        /* Set a log serializer creating logs that keep their data in a file. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory() {
+
+            @Override
+            public Log create() {
+                return new MockFileBackedLog();
+            }
+        });
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Even a small log is streamed to a payload file. */
+            Log log = logSerializer.deserializeLog(logSerializer.serializeLog(AndroidTestUtils.generateMockLog()), MOCK_LOG_TYPE);
+            long id = persistence.putLog(log, "test-p1", NORMAL);
+            File directory = persistence.getLargePayloadGroupDirectory("test-p1");
+            File file = persistence.getLargePayloadFile(directory, id);
+            assertTrue(file.exists());
+
+            /* No temporary file is left. */
+            String[] fileNames = directory.list();
+            assertNotNull(fileNames);
+            assertEquals(1, fileNames.length);
+
+            /* The log is read back from its file. */
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test-p1", Collections.emptyList(), 1, outputLogs);
+            assertEquals(1, outputLogs.size());
+            assertEquals(log, outputLogs.get(0));
+            assertEquals(file, ((MockFileBackedLog) outputLogs.get(0)).mFile);
+
+            /* Delete entire group. */
+            persistence.deleteLogs("test-p1");
+            assertEquals(0, persistence.countLogs("test-p1"));
+            assertFalse(file.exists());
+        } finally {
+            persistence.close();
+        }
+    }
+
     @Test
     public void putLargeLogFails() {
 
@@ -766,6 +844,99 @@ public class DatabasePersistenceAndroidTest {
         }
     }
 
+    @Test
+    public void splitLogs() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext, 1, SCHEMA);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Persist 3 logs and get them. */
+            List<Log> logs = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Log log = AndroidTestUtils.generateMockLog();
+                persistence.putLog(log, "test-p1", NORMAL);
+                logs.add(log);
+            }
+            List<Log> outputLogs = new ArrayList<>();
+            String id = persistence.getLogs("test-p1", Collections.emptyList(), 5, outputLogs);
+            assertEquals(logs, outputLogs);
+
+            /* Cannot split an unknown batch, or at either end. */
+            assertNull(persistence.splitLogs("test-p1", "unknown", 1));
+            assertNull(persistence.splitLogs("test-p2", id, 1));
+            assertNull(persistence.splitLogs("test-p1", id, 0));
+            assertNull(persistence.splitLogs("test-p1", id, 3));
+
+            /* Move the last 2 logs to a batch of their own. */
+            String movedId = persistence.splitLogs("test-p1", id, 1);
+            assertNotNull(movedId);
+            assertNotEquals(id, movedId);
+
+            /* Logs remain pending. */
+            outputLogs.clear();
+            assertNull(persistence.getLogs("test-p1", Collections.emptyList(), 5, outputLogs));
+
+            /* Deleting the moved logs keeps the first log. */
+            persistence.deleteLogs("test-p1", movedId);
+            assertEquals(1, persistence.countLogs("test-p1"));
+            persistence.clearPendingLogState();
+            persistence.getLogs("test-p1", Collections.emptyList(), 5, outputLogs);
+            assertEquals(Collections.singletonList(logs.get(0)), outputLogs);
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void deleteTheOldestLogOfGroup() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext, 1, SCHEMA);
+
+        /* Set a mock log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Persist a critical log, then 3 normal logs and another group log. */
+            Log criticalLog = AndroidTestUtils.generateMockLog();
+            persistence.putLog(criticalLog, "test-p1", CRITICAL);
+            List<Log> logs = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Log log = AndroidTestUtils.generateMockLog();
+                persistence.putLog(log, "test-p1", NORMAL);
+                logs.add(log);
+            }
+            persistence.putLog(AndroidTestUtils.generateMockLog(), "test-p2", NORMAL);
+
+            /* Logs being sent are not deleted. */
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test-p1", Collections.emptyList(), 2, outputLogs);
+            assertEquals(Arrays.asList(criticalLog, logs.get(0)), outputLogs);
+
+            /* The oldest normal log not being sent is deleted first. */
+            assertTrue(persistence.deleteTheOldestLog("test-p1"));
+            assertEquals(3, persistence.countLogs("test-p1"));
+            assertEquals(1, persistence.countLogs("test-p2"));
+            outputLogs.clear();
+            persistence.getLogs("test-p1", Collections.emptyList(), 5, outputLogs);
+            assertEquals(Collections.singletonList(logs.get(2)), outputLogs);
+
+            /* Nothing left to delete. */
+            assertFalse(persistence.deleteTheOldestLog("test-p1"));
+            assertFalse(persistence.deleteTheOldestLog("test-p3"));
+        } finally {
+            persistence.close();
+        }
+    }
+
     @Test
     public void deleteLogsForGroup() throws PersistenceException {
 
@@ -1180,4 +1351,208 @@ public class DatabasePersistenceAndroidTest {
             persistence.close();
         }
     }
+
+    @Test
+    public void putLogsStoresDeviceOnce() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Put logs sharing the same device like the channel does. */
+            MockLog firstLog = AndroidTestUtils.generateMockLog();
+            MockLog secondLog = AndroidTestUtils.generateMockLog();
+            secondLog.setDevice(firstLog.getDevice());
+            persistence.putLog(firstLog, "test-p1", NORMAL);
+            persistence.putLog(secondLog, "test-p1", NORMAL);
+            assertNotNull(firstLog.getDevice());
+
+            /* Device is stored once and not inline. */
+            assertEquals(1, getDeviceCount(persistence));
+            ContentValues values = getContentValues(persistence, "test-p1");
+            assertNotNull(values.getAsString(DatabasePersistence.COLUMN_DEVICE_KEY));
+            assertFalse(values.getAsString(DatabasePersistence.COLUMN_LOG).contains("\"device\""));
+
+            /* Device is restored when reading logs, and shared between logs. */
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test-p1", Collections.emptyList(), 2, outputLogs);
+            assertEquals(Arrays.asList(firstLog, secondLog), outputLogs);
+            assertSame(outputLogs.get(0).getDevice(), outputLogs.get(1).getDevice());
+
+            /* Device is deleted with the logs referencing it. */
+            persistence.deleteLogs("test-p1");
+            assertEquals(0, getDeviceCount(persistence));
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void putLogsWithDifferentDevices() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+            MockLog firstLog = AndroidTestUtils.generateMockLog();
+            MockLog secondLog = AndroidTestUtils.generateMockLog();
+            secondLog.getDevice().setAppVersion(firstLog.getDevice().getAppVersion() + ".1");
+            persistence.putLog(firstLog, "test-p1", NORMAL);
+            persistence.putLog(secondLog, "test-p2", NORMAL);
+            assertEquals(2, getDeviceCount(persistence));
+
+            /* Check devices restored. */
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test-p1", Collections.emptyList(), 1, outputLogs);
+            persistence.getLogs("test-p2", Collections.emptyList(), 1, outputLogs);
+            assertEquals(Arrays.asList(firstLog, secondLog), outputLogs);
+
+            /* Only unreferenced device is deleted. */
+            persistence.deleteLogs("test-p1");
+            assertEquals(1, getDeviceCount(persistence));
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void putLogsWithDeviceKeyStoresLessBytes() throws PersistenceException, JSONException, UnsupportedEncodingException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Store the same batch with the device inline, as before the devices table, and with a device key. */
+            Device device = AndroidTestUtils.generateMockLog().getDevice();
+            for (int i = 0; i < 50; i++) {
+                MockLog log = AndroidTestUtils.generateMockLog();
+                log.setDevice(device);
+                ContentValues contentValues = new ContentValues();
+                contentValues.put(DatabasePersistence.COLUMN_GROUP, "inline");
+                contentValues.put(DatabasePersistence.COLUMN_LOG, logSerializer.serializeLog(log));
+                contentValues.put(DatabasePersistence.COLUMN_PRIORITY, NORMAL);
+                persistence.mDatabaseManager.put(contentValues);
+                persistence.putLog(log, "deviceKey", NORMAL);
+            }
+
+            /* Compare the bytes of the log payloads, device keys and devices stored for each batch. */
+            String[] columns = {DatabasePersistence.COLUMN_LOG, DatabasePersistence.COLUMN_DEVICE_KEY};
+            SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
+            builder.appendWhere(DatabasePersistence.COLUMN_GROUP + " = ?");
+            long inlineBytes = getStoredBytes(persistence.mDatabaseManager.getCursor(builder, columns, new String[]{"inline"}, null));
+            long deviceKeyBytes = getStoredBytes(persistence.mDatabaseManager.getCursor(builder, columns, new String[]{"deviceKey"}, null))
+                    + getStoredBytes(persistence.mDatabaseManager.getCursor(DatabasePersistence.DEVICES_TABLE, null, new String[]{DatabasePersistence.COLUMN_DEVICE_KEY, DatabasePersistence.COLUMN_DEVICE}, null, null));
+            android.util.Log.i(AppCenterLog.LOG_TAG, "Batch of 50 logs stored in " + inlineBytes + " bytes with inline device, " + deviceKeyBytes + " bytes with device key.");
+            assertTrue(deviceKeyBytes < inlineBytes);
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void putLogAfterDatabaseRecreated() throws PersistenceException {
+
+        /* Initialize database persistence. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+        persistence.setLogSerializer(logSerializer);
+        try {
+            MockLog firstLog = AndroidTestUtils.generateMockLog();
+            persistence.putLog(firstLog, "test-p1", NORMAL);
+
+            /* Delete the database like when it is corrupted: it is created again on next access. */
+            persistence.mDatabaseManager.close();
+            sContext.deleteDatabase(DatabasePersistence.DATABASE);
+
+            /* Device is stored again instead of referencing the deleted one. */
+            MockLog secondLog = AndroidTestUtils.generateMockLog();
+            secondLog.setDevice(firstLog.getDevice());
+            persistence.putLog(secondLog, "test-p1", NORMAL);
+            assertEquals(1, getDeviceCount(persistence));
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test-p1", Collections.emptyList(), 2, outputLogs);
+            assertEquals(Collections.singletonList(secondLog), outputLogs);
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void upgradeFromVersion6to7() throws PersistenceException, JSONException {
+
+        /* Initialize database persistence with old version, without device key column. */
+        ContentValues schema = new ContentValues(SCHEMA);
+        schema.remove(DatabasePersistence.COLUMN_DEVICE_KEY);
+        String createLogsSql = "CREATE TABLE IF NOT EXISTS `logs`" +
+                "(`oid` INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "`target_token` TEXT," +
+                "`type` TEXT," +
+                "`priority` INTEGER," +
+                "`log` TEXT," +
+                "`persistence_group` TEXT," +
+                "`target_key` TEXT);";
+        DatabaseManager databaseManager = new DatabaseManager(sContext, DatabasePersistence.DATABASE, DatabasePersistence.TABLE, DatabasePersistence.VERSION_INLINE_DEVICE, schema, createLogsSql, mock(DatabaseManager.Listener.class));
+
+        /* Init log serializer. */
+        LogSerializer logSerializer = new DefaultLogSerializer();
+        logSerializer.addLogFactory(MOCK_LOG_TYPE, new MockLogFactory());
+
+        /* Insert old data with inline device before upgrade. */
+        Log oldLog = AndroidTestUtils.generateMockLog();
+        try {
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(DatabasePersistence.COLUMN_GROUP, "test");
+            contentValues.put(DatabasePersistence.COLUMN_LOG, logSerializer.serializeLog(oldLog));
+            contentValues.put(DatabasePersistence.COLUMN_PRIORITY, NORMAL);
+            databaseManager.put(contentValues);
+        } finally {
+            databaseManager.close();
+        }
+
+        /* Upgrade. */
+        DatabasePersistence persistence = new DatabasePersistence(sContext);
+        persistence.setLogSerializer(logSerializer);
+        try {
+
+            /* Old data is kept. */
+            assertEquals(1, persistence.countLogs("test"));
+
+            /* New data uses devices table. */
+            Log newLog = AndroidTestUtils.generateMockLog();
+            persistence.putLog(newLog, "test", NORMAL);
+            assertEquals(1, getDeviceCount(persistence));
+
+            /* Both old and new logs are restored with their device. */
+            List<Log> outputLogs = new ArrayList<>();
+            persistence.getLogs("test", Collections.emptyList(), 2, outputLogs);
+            assertEquals(Arrays.asList(oldLog, newLog), outputLogs);
+        } finally {
+            persistence.close();
+        }
+    }
+
+    private static class MockFileBackedLog extends MockLog implements FileBackedLog {
+
+        private File mFile;
+
+        @Override
+        public boolean isFileBacked() {
+            return true;
+        }
+
+        @Override
+        public void read(File file) throws JSONException {
+            read(new JSONObject(FileManager.read(file)));
+            mFile = file;
+        }
+    }
 }
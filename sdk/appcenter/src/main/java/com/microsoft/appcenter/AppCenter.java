@@ -22,6 +22,10 @@ import com.microsoft.appcenter.channel.Channel;
 import com.microsoft.appcenter.channel.DefaultChannel;
 import com.microsoft.appcenter.channel.OneCollectorChannelListener;
 import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpClientFactory;
+import com.microsoft.appcenter.http.HttpConnectionWarmer;
+import com.microsoft.appcenter.ingestion.AppCenterIngestion;
+import com.microsoft.appcenter.ingestion.OneCollectorIngestion;
 import com.microsoft.appcenter.ingestion.models.StartServiceLog;
 import com.microsoft.appcenter.ingestion.models.WrapperSdk;
 import com.microsoft.appcenter.ingestion.models.json.DefaultLogSerializer;
@@ -49,6 +53,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 import static android.content.pm.ApplicationInfo.FLAG_DEBUGGABLE;
@@ -242,6 +247,11 @@ public class AppCenter {
      */
     private @Nullable String mDataResidencyRegion;
 
+    /**
+     * Whether to warm up the connections to the ingestion hosts once started.
+     */
+    private boolean mConnectionWarmUpEnabled;
+
     /**
      * Get unique instance.
      *
@@ -311,7 +321,7 @@ public class AppCenter {
      * @param countryCode the two-letter ISO country code. See <code>https://www.iso.org/obp/ui/#search</code> for more information.
      */
     public static void setCountryCode(String countryCode) {
-        DeviceInfoHelper.setCountryCode(countryCode);
+        getInstance().setInstanceCountryCode(countryCode);
     }
 
     /**
@@ -323,6 +333,17 @@ public class AppCenter {
         getInstance().mDataResidencyRegion = dataResidencyRegion;
     }
 
+    /**
+     * Enable or disable resolving the ingestion hosts and opening a TLS session with them
+     * in background once App Center is started, so that the first logs are sent faster.
+     * It must be called before starting App Center. Disabled by default.
+     *
+     * @param enabled true to warm up the connections.
+     */
+    public static void setConnectionWarmUpEnabled(boolean enabled) {
+        getInstance().mConnectionWarmUpEnabled = enabled;
+    }
+
     /**
      * Set the country code or any other string to identify residency region.
      *
@@ -496,6 +517,34 @@ public class AppCenter {
         return getInstance().setInstanceEnabledAsync(enabled);
     }
 
+    /**
+     * Send all the logs that are pending in storage without waiting for the batch time interval.
+     * <p>
+     * The future result is true once every log persisted at call time has been sent,
+     * false if the SDK is disabled, offline, not configured, or if sending failed.
+     *
+     * @return future with result being whether all pending logs have been sent.
+     * @see AppCenterFuture
+     */
+    public static AppCenterFuture<Boolean> flush() {
+        return getInstance().flushInstanceAsync(0);
+    }
+
+    /**
+     * Send all the logs that are pending in storage without waiting for the batch time interval.
+     * <p>
+     * The future result is true once every log persisted at call time has been sent,
+     * false if the SDK is disabled, offline, not configured, if sending failed or if
+     * the timeout expired first. Logs keep being sent in background after the timeout.
+     *
+     * @param timeoutMillis maximum time in milliseconds to wait for the logs to be sent.
+     * @return future with result being whether all pending logs have been sent in time.
+     * @see AppCenterFuture
+     */
+    public static AppCenterFuture<Boolean> flush(long timeoutMillis) {
+        return getInstance().flushInstanceAsync(timeoutMillis);
+    }
+
     /**
      * Get a unique installation identifier.
      * The identifier is persisted until the application is uninstalled and installed again.
@@ -582,6 +631,28 @@ public class AppCenter {
         }
     }
 
+    /**
+     * {@link #setCountryCode(String)} implementation at instance level.
+     *
+     * @param countryCode the two-letter ISO country code.
+     */
+    private synchronized void setInstanceCountryCode(String countryCode) {
+        DeviceInfoHelper.setCountryCode(countryCode);
+
+        /* If SDK already configured, reset device info cache. */
+        if (mHandler != null) {
+
+            /* Every channel operation must be in background since it uses locks and accesses disks. */
+            mHandler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    mChannel.invalidateDeviceCache();
+                }
+            });
+        }
+    }
+
     /**
      * {@link #setLogLevel(int)} implementation at instance level.
      *
@@ -892,7 +963,21 @@ public class AppCenter {
         /* Instantiate HTTP client if it doesn't exist as a dependency. */
         HttpClient httpClient = DependencyConfiguration.getHttpClient();
         if (httpClient == null) {
-            httpClient = createHttpClient(mContext);
+
+            /* Deliver results on the App Center thread rather than bouncing them through the main thread. */
+            Executor callbackExecutor = new Executor() {
+
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    mHandler.post(command);
+                }
+            };
+            HttpClientFactory httpClientFactory = DependencyConfiguration.getHttpClientFactory();
+            if (httpClientFactory != null) {
+                httpClient = httpClientFactory.createHttpClient(mContext, callbackExecutor);
+            } else {
+                httpClient = createHttpClient(mContext, callbackExecutor);
+            }
         }
 
         /* Init channel. */
@@ -1077,7 +1162,25 @@ public class AppCenter {
                 mStartedServicesNamesToLog.add(service.getServiceName());
             }
             sendStartServiceLog();
+            if (mConnectionWarmUpEnabled && enabled && isInstanceNetworkRequestsAllowed()) {
+                warmUpConnections();
+            }
+        }
+    }
+
+    /**
+     * Warm up the connections to the configured ingestion hosts.
+     */
+    @WorkerThread
+    private void warmUpConnections() {
+        Collection<String> urls = new ArrayList<>();
+        if (mAppSecret != null) {
+            urls.add(mLogUrl != null ? mLogUrl : AppCenterIngestion.DEFAULT_LOG_URL);
+        }
+        if (mTransmissionTargetToken != null) {
+            urls.add(mLogUrl != null && mAppSecret == null ? mLogUrl : OneCollectorIngestion.DEFAULT_LOG_URL);
         }
+        HttpConnectionWarmer.warmUp(mContext, urls);
     }
 
     /**
@@ -1115,6 +1218,58 @@ public class AppCenter {
         }
     }
 
+    /**
+     * Implements {@link #flush(long)} at instance level.
+     *
+     * @param timeoutMillis timeout in milliseconds, 0 or negative for no timeout.
+     * @return future with result being whether all pending logs have been sent.
+     */
+    private synchronized AppCenterFuture<Boolean> flushInstanceAsync(long timeoutMillis) {
+        final DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        if (checkPrecondition()) {
+            final Runnable timeout = new Runnable() {
+
+                @Override
+                public void run() {
+                    if (!future.isDone()) {
+                        AppCenterLog.warn(LOG_TAG, "Flush timed out before all logs were sent.");
+                        future.complete(false);
+                    }
+                }
+            };
+            if (timeoutMillis > 0) {
+                mHandler.postDelayed(timeout, timeoutMillis);
+            }
+
+            /* Stop waiting for the timeout as soon as the channel completes the flush. */
+            final DefaultAppCenterFuture<Boolean> channelFuture = new DefaultAppCenterFuture<Boolean>() {
+
+                @Override
+                public synchronized void complete(Boolean value) {
+                    super.complete(value);
+                    mHandler.removeCallbacks(timeout);
+                    future.complete(value);
+                }
+            };
+            mAppCenterHandler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    mChannel.flush(null, channelFuture);
+                }
+            }, new Runnable() {
+
+                @Override
+                public void run() {
+                    channelFuture.complete(false);
+                }
+            });
+        } else {
+            future.complete(false);
+        }
+        return future;
+    }
+
     /**
      * Implements {@link #isEnabled()} at instance level.
      */
@@ -6,6 +6,7 @@
 package com.microsoft.appcenter;
 
 import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpClientFactory;
 
 /**
  * Configuration to override default dependencies used by the SDK.
@@ -17,6 +18,11 @@ public final class DependencyConfiguration {
      */
     private static HttpClient sHttpClient;
 
+    /**
+     * HTTP client factory.
+     */
+    private static HttpClientFactory sHttpClientFactory;
+
     DependencyConfiguration() {
     }
 
@@ -37,4 +43,23 @@ public final class DependencyConfiguration {
     public static void setHttpClient(HttpClient httpClient) {
         sHttpClient = httpClient;
     }
+
+    /**
+     * Get HTTP client factory.
+     *
+     * @return HTTP client factory.
+     */
+    public static HttpClientFactory getHttpClientFactory() {
+        return sHttpClientFactory;
+    }
+
+    /**
+     * Set a factory creating the HTTP client when no client is set with {@link #setHttpClient(HttpClient)}.
+     * Unlike a client created in advance, the client created by the factory delivers results where the SDK needs them.
+     *
+     * @param httpClientFactory HTTP client factory.
+     */
+    public static void setHttpClientFactory(HttpClientFactory httpClientFactory) {
+        sHttpClientFactory = httpClientFactory;
+    }
 }
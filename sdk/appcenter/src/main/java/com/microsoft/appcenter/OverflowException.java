@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter;
+
+/**
+ * Reported when a log is discarded by the {@link OverflowPolicy} of its group.
+ */
+public class OverflowException extends Exception {
+
+    public OverflowException(String detailMessage) {
+        super(detailMessage);
+    }
+}
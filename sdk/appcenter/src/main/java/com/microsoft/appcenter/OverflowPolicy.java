@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter;
+
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import static com.microsoft.appcenter.utils.AppCenterLog.LOG_TAG;
+
+/**
+ * Policy applied by the channel when a group has too many logs waiting to be sent.
+ * <p>
+ * The backlog of a group is the number of logs stored or being sent for that group. It is tracked in memory,
+ * so applying the policy does not need to query the database.
+ */
+public class OverflowPolicy {
+
+    /**
+     * When the backlog is at capacity, discard the new log.
+     */
+    public static final int DROP_NEWEST = 1;
+
+    /**
+     * When the backlog is at capacity, discard the oldest log with the lowest priority that is not being sent
+     * to make room for the new log. The discarded log is not reported to listeners.
+     */
+    public static final int DROP_OLDEST = 2;
+
+    /**
+     * When the backlog is at capacity, keep only one new log out of every sampling interval,
+     * discarding the oldest log that is not being sent to make room for it.
+     */
+    public static final int SAMPLE = 3;
+
+    /**
+     * When the backlog is at capacity, hold the new log in memory until the backlog goes below capacity.
+     * The log is discarded if that does not happen within the block timeout,
+     * or right away if as many logs as the capacity are already held.
+     */
+    public static final int BLOCK = 4;
+
+    /**
+     * Default sampling interval.
+     */
+    private static final int DEFAULT_SAMPLING_INTERVAL = 10;
+
+    /**
+     * Default block timeout in milliseconds.
+     */
+    private static final long DEFAULT_BLOCK_TIMEOUT = 10000;
+
+    /**
+     * Mode.
+     */
+    private final int mMode;
+
+    /**
+     * Maximum number of logs in the backlog of a group.
+     */
+    private final int mCapacity;
+
+    /**
+     * Backlog at or below which a group is no longer under pressure.
+     */
+    private int mLowWatermark;
+
+    /**
+     * Backlog at or above which a group is under pressure.
+     */
+    private int mHighWatermark;
+
+    /**
+     * One log out of this number is kept in {@link #SAMPLE} mode.
+     */
+    private int mSamplingInterval = DEFAULT_SAMPLING_INTERVAL;
+
+    /**
+     * Maximum time a log is held in {@link #BLOCK} mode, in milliseconds.
+     */
+    private long mBlockTimeout = DEFAULT_BLOCK_TIMEOUT;
+
+    /**
+     * Init a policy. Watermarks default to half and 80% of the capacity.
+     *
+     * @param mode     one of {@link #DROP_NEWEST}, {@link #DROP_OLDEST}, {@link #SAMPLE} or {@link #BLOCK}.
+     *                 An invalid value falls back to {@link #DROP_NEWEST}.
+     * @param capacity maximum number of logs stored or being sent for a group, at least 1.
+     */
+    public OverflowPolicy(int mode, int capacity) {
+        if (mode < DROP_NEWEST || mode > BLOCK) {
+            AppCenterLog.warn(LOG_TAG, "Invalid value=" + mode + " for overflow mode, using DROP_NEWEST as a default.");
+            mode = DROP_NEWEST;
+        }
+        if (capacity < 1) {
+            AppCenterLog.warn(LOG_TAG, "Invalid value=" + capacity + " for overflow capacity, using 1.");
+            capacity = 1;
+        }
+        mMode = mode;
+        mCapacity = capacity;
+        mLowWatermark = capacity / 2;
+        mHighWatermark = capacity * 4 / 5;
+    }
+
+    /**
+     * Set the backlog thresholds used to signal pressure.
+     * A group reaching the high watermark is under pressure until its backlog goes back to the low watermark.
+     *
+     * @param lowWatermark  low watermark, lower than high watermark and at least 0.
+     * @param highWatermark high watermark, at most the capacity.
+     * @return this instance.
+     */
+    public OverflowPolicy setWatermarks(int lowWatermark, int highWatermark) {
+        if (lowWatermark < 0 || lowWatermark >= highWatermark || highWatermark > mCapacity) {
+            AppCenterLog.error(LOG_TAG, "Invalid watermarks low=" + lowWatermark + " high=" + highWatermark + " for capacity=" + mCapacity + ".");
+        } else {
+            mLowWatermark = lowWatermark;
+            mHighWatermark = highWatermark;
+        }
+        return this;
+    }
+
+    /**
+     * Set how many logs are sampled to keep one in {@link #SAMPLE} mode.
+     *
+     * @param samplingInterval sampling interval, at least 1.
+     * @return this instance.
+     */
+    public OverflowPolicy setSamplingInterval(int samplingInterval) {
+        if (samplingInterval < 1) {
+            AppCenterLog.error(LOG_TAG, "Invalid sampling interval=" + samplingInterval + ".");
+        } else {
+            mSamplingInterval = samplingInterval;
+        }
+        return this;
+    }
+
+    /**
+     * Set how long a log can be held in {@link #BLOCK} mode.
+     *
+     * @param blockTimeout timeout in milliseconds, at least 0.
+     * @return this instance.
+     */
+    public OverflowPolicy setBlockTimeout(long blockTimeout) {
+        if (blockTimeout < 0) {
+            AppCenterLog.error(LOG_TAG, "Invalid block timeout=" + blockTimeout + ".");
+        } else {
+            mBlockTimeout = blockTimeout;
+        }
+        return this;
+    }
+
+    /**
+     * Get the mode.
+     *
+     * @return the mode.
+     */
+    public int getMode() {
+        return mMode;
+    }
+
+    /**
+     * Get the capacity.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Get the low watermark.
+     *
+     * @return the low watermark.
+     */
+    public int getLowWatermark() {
+        return mLowWatermark;
+    }
+
+    /**
+     * Get the high watermark.
+     *
+     * @return the high watermark.
+     */
+    public int getHighWatermark() {
+        return mHighWatermark;
+    }
+
+    /**
+     * Get the sampling interval.
+     *
+     * @return the sampling interval.
+     */
+    public int getSamplingInterval() {
+        return mSamplingInterval;
+    }
+
+    /**
+     * Get the block timeout.
+     *
+     * @return the block timeout in milliseconds.
+     */
+    public long getBlockTimeout() {
+        return mBlockTimeout;
+    }
+}
@@ -51,4 +51,12 @@ public class AbstractChannelListener implements Channel.Listener {
     @Override
     public void onResumed(@NonNull String groupName, String targetToken) {
     }
+
+    @Override
+    public void onBackpressureChanged(@NonNull String groupName, boolean highWatermarkReached) {
+    }
+
+    @Override
+    public void onPayloadTooLarge(@NonNull String groupName, int logCount) {
+    }
 }
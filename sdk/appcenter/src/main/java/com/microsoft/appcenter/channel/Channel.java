@@ -7,9 +7,12 @@ package com.microsoft.appcenter.channel;
 
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.microsoft.appcenter.OverflowPolicy;
 import com.microsoft.appcenter.ingestion.Ingestion;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.utils.async.DefaultAppCenterFuture;
 
 import static com.microsoft.appcenter.Flags.CRITICAL;
 import static com.microsoft.appcenter.Flags.NORMAL;
@@ -110,6 +113,25 @@ public interface Channel {
      */
     void clear(String groupName);
 
+    /**
+     * Send the logs persisted for a group without waiting for the batch time interval.
+     * The maximum number of parallel batches of the group is still respected.
+     *
+     * @param groupName the group name, or null to flush every group.
+     * @param future    future completed with true once every log pending at call time has been sent,
+     *                  or with false if a batch failed, the channel got suspended or the group cannot send logs
+     *                  at the moment (disabled, offline, paused or missing app secret).
+     */
+    void flush(@Nullable String groupName, @NonNull DefaultAppCenterFuture<Boolean> future);
+
+    /**
+     * Set the policy applied when a group has too many logs waiting to be sent.
+     *
+     * @param groupName the group name.
+     * @param policy    the policy, or null to let the backlog grow up to the storage size limit.
+     */
+    void setOverflowPolicy(@NonNull String groupName, @Nullable OverflowPolicy policy);
+
     /**
      * Invalidate device cache that this channel may have.
      */
@@ -219,6 +241,24 @@ public interface Channel {
          * @param targetToken The target token is resumed, or null when the entire group is resumed.
          */
         void onResumed(@NonNull String groupName, String targetToken);
+
+        /**
+         * Called when the backlog of a group that has an overflow policy crosses a watermark.
+         *
+         * @param groupName            The group name.
+         * @param highWatermarkReached true when the backlog reached the high watermark,
+         *                             false when it went back to the low watermark.
+         */
+        void onBackpressureChanged(@NonNull String groupName, boolean highWatermarkReached);
+
+        /**
+         * Called when the server rejects logs because the request is too large.
+         * A batch of several logs is split in two halves that are sent again, a single log is discarded.
+         *
+         * @param groupName The group name.
+         * @param logCount  The number of logs in the rejected request.
+         */
+        void onPayloadTooLarge(@NonNull String groupName, int logCount);
     }
 
     /**
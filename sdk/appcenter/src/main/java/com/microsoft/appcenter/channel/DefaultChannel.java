@@ -9,11 +9,14 @@ import android.content.Context;
 import android.os.Handler;
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.CancellationException;
+import com.microsoft.appcenter.OverflowException;
+import com.microsoft.appcenter.OverflowPolicy;
 import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.http.HttpResponse;
 import com.microsoft.appcenter.http.HttpUtils;
@@ -30,6 +33,7 @@ import com.microsoft.appcenter.persistence.Persistence;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.DeviceInfoHelper;
 import com.microsoft.appcenter.utils.IdHelper;
+import com.microsoft.appcenter.utils.async.DefaultAppCenterFuture;
 import com.microsoft.appcenter.utils.storage.SharedPreferencesManager;
 
 import java.io.IOException;
@@ -41,6 +45,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -63,6 +68,11 @@ public class DefaultChannel implements Channel {
     @VisibleForTesting
     static final String START_TIMER_PREFIX = "startTimerPrefix.";
 
+    /**
+     * Empty listener array.
+     */
+    private static final Listener[] EMPTY_LISTENERS = new Listener[0];
+
     /**
      * Transmission interval minimum value, in ms.
      */
@@ -93,6 +103,21 @@ public class DefaultChannel implements Channel {
      */
     private final Collection<Listener> mListeners;
 
+    /**
+     * Listeners implementing {@link Listener#onPreparingLog(Log, String)}, rebuilt when listeners change.
+     */
+    private Listener[] mPreparingLogListeners = EMPTY_LISTENERS;
+
+    /**
+     * Listeners implementing {@link Listener#onPreparedLog(Log, String, int)}, rebuilt when listeners change.
+     */
+    private Listener[] mPreparedLogListeners = EMPTY_LISTENERS;
+
+    /**
+     * Listeners implementing {@link Listener#shouldFilter(Log)}, rebuilt when listeners change.
+     */
+    private Listener[] mFilterListeners = EMPTY_LISTENERS;
+
     /**
      * The Persistence instance used to store events in the local storage.
      */
@@ -231,6 +256,11 @@ public class DefaultChannel implements Channel {
         /* Count pending logs. */
         groupState.mPendingLogCount = mPersistence.countLogs(groupName);
 
+        /* Restore custom interval timer from a previous process. */
+        if (batchTimeInterval > MINIMUM_TRANSMISSION_INTERVAL) {
+            groupState.mTimerStartTime = SharedPreferencesManager.getLong(START_TIMER_PREFIX + groupName);
+        }
+
         /*
          * If no app secret, don't resume sending App Center logs from storage.
          * If the ingestion is alternate implementation we assume One Collector
@@ -254,6 +284,8 @@ public class DefaultChannel implements Channel {
         GroupState groupState = mGroupStates.remove(groupName);
         if (groupState != null) {
             cancelTimer(groupState);
+            completeFlushes(groupState, false);
+            discardBlockedLogs(groupState, new CancellationException());
         }
 
         /* Call listeners so that they can react on group removed. */
@@ -378,9 +410,274 @@ public class DefaultChannel implements Channel {
         }
     }
 
+    @Override
+    public void flush(@Nullable String groupName, @NonNull DefaultAppCenterFuture<Boolean> future) {
+        Collection<GroupState> groupStates;
+        if (groupName == null) {
+            groupStates = new ArrayList<>(mGroupStates.values());
+        } else {
+            GroupState groupState = mGroupStates.get(groupName);
+            if (groupState == null) {
+                AppCenterLog.error(LOG_TAG, "Invalid group name:" + groupName);
+                future.complete(false);
+                return;
+            }
+            groupStates = Collections.singletonList(groupState);
+        }
+        if (!mEnabled || !mIngestion.isEnabled()) {
+            AppCenterLog.debug(LOG_TAG, "Channel is disabled or in offline mode, cannot flush logs.");
+            future.complete(false);
+            return;
+        }
+        FlushRequest flushRequest = new FlushRequest(future, groupStates.size());
+        for (GroupState groupState : groupStates) {
+            flush(groupState, flushRequest);
+        }
+    }
+
+    /**
+     * Start flushing a group.
+     *
+     * @param groupState   the group state.
+     * @param flushRequest the flush request the group is part of.
+     */
+    private void flush(@NonNull GroupState groupState, @NonNull FlushRequest flushRequest) {
+        if (groupState.mPaused || (mAppSecret == null && groupState.mIngestion == mIngestion)) {
+            AppCenterLog.debug(LOG_TAG, "Cannot flush " + groupState.mName + ", group is paused or app secret is missing.");
+            flushRequest.onGroupFlushed(false);
+            return;
+        }
+
+        /* Snapshot the current backlog: pending logs and logs already being sent. */
+        int backlog = getBacklog(groupState);
+        AppCenterLog.debug(LOG_TAG, "flush(" + groupState.mName + ") backlog=" + backlog);
+        if (backlog <= 0) {
+            flushRequest.onGroupFlushed(true);
+            return;
+        }
+        groupState.mPendingFlushes.add(new GroupFlush(flushRequest, backlog));
+        checkPendingLogs(groupState);
+    }
+
+    /**
+     * Complete the flushes of a group that have nothing left to wait for.
+     *
+     * @param groupState   the group state.
+     * @param storageEmpty true if storage has no more logs to send for this group.
+     */
+    private void checkFlushes(@NonNull GroupState groupState, boolean storageEmpty) {
+        boolean drained = groupState.mSendingBatches.isEmpty() && (storageEmpty || groupState.mPendingLogCount <= 0);
+        for (Iterator<GroupFlush> iterator = groupState.mPendingFlushes.iterator(); iterator.hasNext(); ) {
+            GroupFlush groupFlush = iterator.next();
+            if (drained || groupFlush.mRemainingLogCount <= 0) {
+                iterator.remove();
+                groupFlush.mFlushRequest.onGroupFlushed(true);
+            }
+        }
+    }
+
+    /**
+     * Complete all the pending flushes of a group.
+     *
+     * @param groupState the group state.
+     * @param succeeded  flush result.
+     */
+    private void completeFlushes(@NonNull GroupState groupState, boolean succeeded) {
+        for (GroupFlush groupFlush : groupState.mPendingFlushes) {
+            groupFlush.mFlushRequest.onGroupFlushed(succeeded);
+        }
+        groupState.mPendingFlushes.clear();
+    }
+
+    @Override
+    public void setOverflowPolicy(@NonNull String groupName, @Nullable OverflowPolicy policy) {
+        GroupState groupState = mGroupStates.get(groupName);
+        if (groupState == null) {
+            AppCenterLog.error(LOG_TAG, "Invalid group name:" + groupName);
+            return;
+        }
+        AppCenterLog.debug(LOG_TAG, "setOverflowPolicy(" + groupName + ") mode=" + (policy != null ? policy.getMode() : null));
+        groupState.mOverflowPolicy = policy;
+        groupState.mSampledLogCount = 0;
+        releaseBlockedLogs(groupState);
+        checkBackpressure(groupState);
+    }
+
+    /**
+     * Get the number of logs stored or being sent for a group, without querying the database.
+     *
+     * @param groupState the group state.
+     * @return pending logs and logs already being sent.
+     */
+    private static int getBacklog(@NonNull GroupState groupState) {
+        int backlog = groupState.mPendingLogCount;
+        for (List<Log> batch : groupState.mSendingBatches.values()) {
+            backlog += batch.size();
+        }
+        return backlog;
+    }
+
+    /**
+     * Apply the overflow policy of a group to a new log.
+     *
+     * @param groupState the group state.
+     * @param log        the new log.
+     * @param flags      the new log flags.
+     * @return true if the log can be persisted now, false if it was discarded or blocked.
+     */
+    private boolean applyOverflowPolicy(@NonNull final GroupState groupState, @NonNull Log log, int flags) {
+        OverflowPolicy policy = groupState.mOverflowPolicy;
+        if (policy == null) {
+            return true;
+        }
+        boolean full = getBacklog(groupState) >= policy.getCapacity();
+        switch (policy.getMode()) {
+            case OverflowPolicy.DROP_OLDEST:
+                if (full && !dropOldestLog(groupState)) {
+                    discardLog(groupState, log, "Log discarded, backlog is full and no stored log can be dropped.");
+                    return false;
+                }
+                return true;
+
+            case OverflowPolicy.SAMPLE:
+                if (!full) {
+                    groupState.mSampledLogCount = 0;
+                    return true;
+                }
+                if (groupState.mSampledLogCount++ % policy.getSamplingInterval() != 0 || !dropOldestLog(groupState)) {
+                    discardLog(groupState, log, "Log discarded by sampling, backlog is full.");
+                    return false;
+                }
+                return true;
+
+            case OverflowPolicy.BLOCK:
+
+                /* Keep blocked logs in order. */
+                if (full || !groupState.mBlockedLogs.isEmpty()) {
+                    if (groupState.mBlockedLogs.size() >= policy.getCapacity()) {
+                        discardLog(groupState, log, "Log discarded, backlog is full and too many logs are blocked.");
+                        return false;
+                    }
+                    final BlockedLog blockedLog = new BlockedLog(log, flags);
+                    blockedLog.mTimeout = new Runnable() {
+
+                        @Override
+                        public void run() {
+                            if (groupState.mBlockedLogs.remove(blockedLog)) {
+                                discardLog(groupState, blockedLog.mLog, "Log discarded, backlog is still full after block timeout.");
+                            }
+                        }
+                    };
+                    groupState.mBlockedLogs.add(blockedLog);
+                    AppCenterLog.debug(LOG_TAG, "Log blocked, backlog of " + groupState.mName + " is full.");
+                    mAppCenterHandler.postDelayed(blockedLog.mTimeout, policy.getBlockTimeout());
+                    return false;
+                }
+                return true;
+
+            default:
+                if (full) {
+                    discardLog(groupState, log, "Log discarded, backlog is full.");
+                    return false;
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Delete the oldest stored log of a group with the lowest priority that is not being sent.
+     * The log is not read back, so listeners are not notified, like for logs deleted when the storage is full.
+     *
+     * @param groupState the group state.
+     * @return true if a log was deleted.
+     */
+    private boolean dropOldestLog(@NonNull GroupState groupState) {
+        if (groupState.mPendingLogCount <= 0 || !mPersistence.deleteTheOldestLog(groupState.mName)) {
+            return false;
+        }
+        groupState.mPendingLogCount--;
+        AppCenterLog.warn(LOG_TAG, "Oldest log dropped, backlog is full. Group=" + groupState.mName);
+        return true;
+    }
+
+    /**
+     * Report a log discarded by the overflow policy.
+     *
+     * @param groupState the group state.
+     * @param log        the discarded log.
+     * @param message    the reason.
+     */
+    private static void discardLog(@NonNull GroupState groupState, @NonNull Log log, String message) {
+        AppCenterLog.warn(LOG_TAG, message + " Group=" + groupState.mName);
+        if (groupState.mListener != null) {
+            groupState.mListener.onBeforeSending(log);
+            groupState.mListener.onFailure(log, new OverflowException(message));
+        }
+    }
+
+    /**
+     * Persist the blocked logs of a group while its backlog allows.
+     *
+     * @param groupState the group state.
+     */
+    private void releaseBlockedLogs(@NonNull GroupState groupState) {
+        OverflowPolicy policy = groupState.mOverflowPolicy;
+        boolean blocking = policy != null && policy.getMode() == OverflowPolicy.BLOCK;
+        while (!groupState.mBlockedLogs.isEmpty() && (!blocking || getBacklog(groupState) < policy.getCapacity())) {
+            BlockedLog blockedLog = groupState.mBlockedLogs.remove(0);
+            mAppCenterHandler.removeCallbacks(blockedLog.mTimeout);
+            persistLog(groupState, blockedLog.mLog, blockedLog.mFlags);
+        }
+    }
+
+    /**
+     * Fail all the blocked logs of a group.
+     *
+     * @param groupState the group state.
+     * @param exception  the exception to report.
+     */
+    private void discardBlockedLogs(@NonNull GroupState groupState, @NonNull Exception exception) {
+        for (BlockedLog blockedLog : groupState.mBlockedLogs) {
+            mAppCenterHandler.removeCallbacks(blockedLog.mTimeout);
+            if (groupState.mListener != null) {
+                groupState.mListener.onBeforeSending(blockedLog.mLog);
+                groupState.mListener.onFailure(blockedLog.mLog, exception);
+            }
+        }
+        groupState.mBlockedLogs.clear();
+    }
+
+    /**
+     * Notify listeners when the backlog of a group crosses a watermark of its overflow policy.
+     *
+     * @param groupState the group state.
+     */
+    private void checkBackpressure(@NonNull GroupState groupState) {
+        OverflowPolicy policy = groupState.mOverflowPolicy;
+        boolean highWatermarkReached = groupState.mHighWatermarkReached;
+        if (policy == null) {
+            highWatermarkReached = false;
+        } else {
+            int backlog = getBacklog(groupState) + groupState.mBlockedLogs.size();
+            if (backlog >= policy.getHighWatermark()) {
+                highWatermarkReached = true;
+            } else if (backlog <= policy.getLowWatermark()) {
+                highWatermarkReached = false;
+            }
+        }
+        if (highWatermarkReached != groupState.mHighWatermarkReached) {
+            groupState.mHighWatermarkReached = highWatermarkReached;
+            AppCenterLog.debug(LOG_TAG, "Backpressure of " + groupState.mName + " changed, highWatermarkReached=" + highWatermarkReached);
+            for (Listener listener : mListeners) {
+                listener.onBackpressureChanged(groupState.mName, highWatermarkReached);
+            }
+        }
+    }
+
     @Override
     public void invalidateDeviceCache() {
         mDevice = null;
+        Device.invalidateSerializedCache();
     }
 
     /**
@@ -394,6 +691,7 @@ public class DefaultChannel implements Channel {
         mCurrentState++;
         for (GroupState groupState : mGroupStates.values()) {
             cancelTimer(groupState);
+            completeFlushes(groupState, false);
 
             /* Delete all other batches and call callback method that are currently in progress. */
             for (Iterator<Map.Entry<String, List<Log>>> iterator = groupState.mSendingBatches.entrySet().iterator(); iterator.hasNext(); ) {
@@ -418,6 +716,7 @@ public class DefaultChannel implements Channel {
         }
         if (deleteLogs) {
             for (GroupState groupState : mGroupStates.values()) {
+                discardBlockedLogs(groupState, exception);
                 deleteLogsOnSuspended(groupState);
             }
         } else {
@@ -446,7 +745,7 @@ public class DefaultChannel implements Channel {
         if (groupState.mScheduled) {
             groupState.mScheduled = false;
             mAppCenterHandler.removeCallbacks(groupState.mRunnable);
-            SharedPreferencesManager.remove(START_TIMER_PREFIX + groupState.mName);
+            groupState.mTimerStartTime = 0;
         }
     }
 
@@ -472,7 +771,7 @@ public class DefaultChannel implements Channel {
         cancelTimer(groupState);
 
         /* Check if we have reached the maximum number of pending batches, log to LogCat and don't trigger another sending. */
-        if (groupState.mSendingBatches.size() == groupState.mMaxParallelBatches) {
+        if (groupState.mSendingBatches.size() >= groupState.mMaxParallelBatches) {
             AppCenterLog.debug(LOG_TAG, "Already sending " + groupState.mMaxParallelBatches + " batches of analytics data to the server.");
             return;
         }
@@ -486,6 +785,15 @@ public class DefaultChannel implements Channel {
 
         /* Nothing more to do if no logs. */
         if (batchId == null) {
+
+            /* Remaining logs are for paused targets only, flushes cannot complete before the targets are resumed. */
+            if (pendingLogCount > 0) {
+                completeFlushes(groupState, false);
+            } else {
+                checkFlushes(groupState, true);
+            }
+            releaseBlockedLogs(groupState);
+            checkBackpressure(groupState);
             return;
         }
         AppCenterLog.debug(LOG_TAG, "ingestLogs(" + groupState.mName + "," + batchId + ") pendingLogCount=" + groupState.mPendingLogCount);
@@ -573,14 +881,31 @@ public class DefaultChannel implements Channel {
                     groupListener.onSuccess(log);
                 }
             }
-            checkPendingLogs(groupState);
+            completeBatch(groupState, removedLogsForBatchId);
+        }
+    }
+
+    /**
+     * Account for a batch that was sent or discarded and check what to do next.
+     *
+     * @param groupState The group state.
+     * @param batch      The logs of the batch.
+     */
+    private void completeBatch(@NonNull GroupState groupState, @NonNull List<Log> batch) {
+        for (GroupFlush groupFlush : groupState.mPendingFlushes) {
+            groupFlush.mRemainingLogCount -= batch.size();
         }
+        checkPendingLogs(groupState);
+        checkFlushes(groupState, false);
+        releaseBlockedLogs(groupState);
+        checkBackpressure(groupState);
     }
 
     /**
      * The actual implementation to react to not being able to send a batch to the server.
      * Will disable the sender in case of a recoverable error.
      * Will delete batch of data in case of a non-recoverable error.
+     * Will split the batch in halves if it is too large for the server, until a single log is too large and discarded.
      *
      * @param groupState the group state
      * @param batchId    the batch ID
@@ -590,6 +915,10 @@ public class DefaultChannel implements Channel {
         String groupName = groupState.mName;
         List<Log> removedLogsForBatchId = groupState.mSendingBatches.remove(batchId);
         if (removedLogsForBatchId != null) {
+            if (HttpUtils.isPayloadTooLargeError(e)) {
+                handlePayloadTooLarge(groupState, batchId, removedLogsForBatchId, e);
+                return;
+            }
             AppCenterLog.error(LOG_TAG, "Sending logs groupName=" + groupName + " id=" + batchId + " failed", e);
             boolean recoverableError = HttpUtils.isRecoverableError(e);
             if (recoverableError) {
@@ -607,6 +936,43 @@ public class DefaultChannel implements Channel {
         }
     }
 
+    /**
+     * Send a batch rejected as too large again as two batches of half the size, or discard a single log that is too large.
+     * Each half is stored as a batch of its own, so that a half accepted by the server is deleted
+     * even if the other half fails.
+     *
+     * @param groupState the group state.
+     * @param batchId    the batch ID.
+     * @param batch      the rejected logs.
+     * @param e          the exception.
+     */
+    private void handlePayloadTooLarge(@NonNull GroupState groupState, @NonNull String batchId, @NonNull List<Log> batch, @NonNull Exception e) {
+        for (Listener listener : mListeners) {
+            listener.onPayloadTooLarge(groupState.mName, batch.size());
+        }
+        int half = batch.size() / 2;
+        String secondBatchId = batch.size() > 1 ? mPersistence.splitLogs(groupState.mName, batchId, half) : null;
+        if (secondBatchId != null) {
+            AppCenterLog.warn(LOG_TAG, "Sending " + batch.size() + " logs groupName=" + groupState.mName + " id=" + batchId + " failed, payload too large, sending them in two batches.");
+            List<Log> firstBatch = new ArrayList<>(batch.subList(0, half));
+            List<Log> secondBatch = new ArrayList<>(batch.subList(half, batch.size()));
+            groupState.mSendingBatches.put(batchId, firstBatch);
+            groupState.mSendingBatches.put(secondBatchId, secondBatch);
+            sendLogs(groupState, mCurrentState, firstBatch, batchId);
+            sendLogs(groupState, mCurrentState, secondBatch, secondBatchId);
+        } else {
+            AppCenterLog.error(LOG_TAG, "Discarding " + batch.size() + " log(s), payload too large. Group=" + groupState.mName, e);
+            mPersistence.deleteLogs(groupState.mName, batchId);
+            GroupListener groupListener = groupState.mListener;
+            if (groupListener != null) {
+                for (Log log : batch) {
+                    groupListener.onFailure(log, e);
+                }
+            }
+            completeBatch(groupState, batch);
+        }
+    }
+
     @Override
     public void enqueue(@NonNull Log log, @NonNull final String groupName, int flags) {
 
@@ -628,7 +994,7 @@ public class DefaultChannel implements Channel {
         }
 
         /* Call listeners so that they can decorate the log. */
-        for (Listener listener : mListeners) {
+        for (Listener listener : mPreparingLogListeners) {
             listener.onPreparingLog(log, groupName);
         }
 
@@ -660,14 +1026,17 @@ public class DefaultChannel implements Channel {
         }
 
         /* Notify listeners that log is prepared and is in a final state. */
-        for (Listener listener : mListeners) {
+        for (Listener listener : mPreparedLogListeners) {
             listener.onPreparedLog(log, groupName, flags);
         }
 
         /* Call listeners so that they can filter the log. */
         boolean filteredOut = false;
-        for (Listener listener : mListeners) {
-            filteredOut = filteredOut || listener.shouldFilter(log);
+        for (Listener listener : mFilterListeners) {
+            if (listener.shouldFilter(log)) {
+                filteredOut = true;
+                break;
+            }
         }
 
         /* If filtered out, nothing more to do. */
@@ -680,36 +1049,52 @@ public class DefaultChannel implements Channel {
                 AppCenterLog.debug(LOG_TAG, "Log of type '" + log.getType() + "' was not filtered out by listener(s) but no app secret was provided. Not persisting/sending the log.");
                 return;
             }
-            try {
 
-                /* Persist log. */
-                mPersistence.putLog(log, groupName, flags);
-            } catch (Persistence.PersistenceException e) {
-                AppCenterLog.error(LOG_TAG, "Error persisting log", e);
-                if (groupState.mListener != null) {
-                    groupState.mListener.onBeforeSending(log);
-                    groupState.mListener.onFailure(log, e);
-                }
-                return;
+            /* Check backlog before persisting. */
+            if (applyOverflowPolicy(groupState, log, flags)) {
+                persistLog(groupState, log, flags);
             }
+        }
+    }
 
-            /* Nothing more to do if the log is from a paused transmission target. */
-            Iterator<String> targetKeys = log.getTransmissionTargetTokens().iterator();
-            String targetKey = targetKeys.hasNext() ? PartAUtils.getTargetKey(targetKeys.next()) : null;
-            if (groupState.mPausedTargetKeys.contains(targetKey)) {
-                AppCenterLog.debug(LOG_TAG, "Transmission target ikey=" + targetKey + " is paused.");
-                return;
-            }
+    /**
+     * Persist a log and schedule sending it.
+     *
+     * @param groupState the group state.
+     * @param log        the log.
+     * @param flags      the log flags.
+     */
+    private void persistLog(@NonNull GroupState groupState, @NonNull Log log, int flags) {
+        try {
 
-            /* Increment counters and schedule ingestion if we are enabled. */
-            groupState.mPendingLogCount++;
-            AppCenterLog.debug(LOG_TAG, "enqueue(" + groupState.mName + ") pendingLogCount=" + groupState.mPendingLogCount);
-            if (mEnabled) {
-                checkPendingLogs(groupState);
-            } else {
-                AppCenterLog.debug(LOG_TAG, "Channel is temporarily disabled, log was saved to disk.");
+            /* Persist log. */
+            mPersistence.putLog(log, groupState.mName, flags);
+        } catch (Persistence.PersistenceException e) {
+            AppCenterLog.error(LOG_TAG, "Error persisting log", e);
+            if (groupState.mListener != null) {
+                groupState.mListener.onBeforeSending(log);
+                groupState.mListener.onFailure(log, e);
             }
+            return;
+        }
+
+        /* Nothing more to do if the log is from a paused transmission target. */
+        Iterator<String> targetKeys = log.getTransmissionTargetTokens().iterator();
+        String targetKey = targetKeys.hasNext() ? PartAUtils.getTargetKey(targetKeys.next()) : null;
+        if (groupState.mPausedTargetKeys.contains(targetKey)) {
+            AppCenterLog.debug(LOG_TAG, "Transmission target ikey=" + targetKey + " is paused.");
+            return;
         }
+
+        /* Increment counters and schedule ingestion if we are enabled. */
+        groupState.mPendingLogCount++;
+        AppCenterLog.debug(LOG_TAG, "enqueue(" + groupState.mName + ") pendingLogCount=" + groupState.mPendingLogCount);
+        if (mEnabled) {
+            checkPendingLogs(groupState);
+        } else {
+            AppCenterLog.debug(LOG_TAG, "Channel is temporarily disabled, log was saved to disk.");
+        }
+        checkBackpressure(groupState);
     }
 
     /**
@@ -721,7 +1106,14 @@ public class DefaultChannel implements Channel {
     void checkPendingLogs(@NonNull GroupState groupState) {
         AppCenterLog.debug(LOG_TAG, String.format("checkPendingLogs(%s) pendingLogCount=%s batchTimeInterval=%s",
                 groupState.mName, groupState.mPendingLogCount, groupState.mBatchTimeInterval));
-        Long batchTimeInterval = resolveTriggerInterval(groupState);
+        Long batchTimeInterval;
+
+        /* Ignore batch time interval while flushing. */
+        if (!groupState.mPendingFlushes.isEmpty() && groupState.mPendingLogCount > 0) {
+            batchTimeInterval = 0L;
+        } else {
+            batchTimeInterval = resolveTriggerInterval(groupState);
+        }
 
         /* Check if there is no need to trigger ingestion. */
         if (batchTimeInterval == null || groupState.mPaused) {
@@ -757,14 +1149,26 @@ public class DefaultChannel implements Channel {
         }
     }
 
+    /**
+     * Calculate remaining custom interval using the in-memory timer start time.
+     * Storage is only written when a timer starts, so that the interval survives a process restart.
+     * Stopping a timer is not persisted: if the process dies before the next timer starts,
+     * the next launch finds the previous start time, which is either still running
+     * (logs wait for the rest of that interval) or already elapsed (pending logs are sent right away,
+     * which can only be logs that were being sent when the process died).
+     *
+     * @param groupState The group state.
+     * @return Remaining interval to trigger ingestion. <code>null</code> if there is no need to trigger at all.
+     */
     @WorkerThread
     private Long resolveCustomTriggerInterval(@NonNull GroupState groupState) {
         long now = System.currentTimeMillis();
-        long startTimer = SharedPreferencesManager.getLong(START_TIMER_PREFIX + groupState.mName);
+        long startTimer = groupState.mTimerStartTime;
         if (groupState.mPendingLogCount > 0) {
 
             /* The timer isn't started or has invalid value (start time in the future), so start it and store the current time. */
             if (startTimer == 0 || startTimer > now) {
+                groupState.mTimerStartTime = now;
                 SharedPreferencesManager.putLong(START_TIMER_PREFIX + groupState.mName, now);
                 AppCenterLog.debug(LOG_TAG, "The timer value for " + groupState.mName + " has been saved.");
                 return groupState.mBatchTimeInterval;
@@ -775,8 +1179,8 @@ public class DefaultChannel implements Channel {
         } else {
 
             /* If the interval is over. */
-            if (startTimer + groupState.mBatchTimeInterval < now) {
-                SharedPreferencesManager.remove(START_TIMER_PREFIX + groupState.mName);
+            if (startTimer != 0 && startTimer + groupState.mBatchTimeInterval < now) {
+                groupState.mTimerStartTime = 0;
                 AppCenterLog.debug(LOG_TAG, "The timer for " + groupState.mName + " channel finished.");
             }
             return null;
@@ -803,11 +1207,58 @@ public class DefaultChannel implements Channel {
     @Override
     public void addListener(Listener listener) {
         mListeners.add(listener);
+        updateLogListeners();
     }
 
     @Override
     public void removeListener(Listener listener) {
         mListeners.remove(listener);
+        updateLogListeners();
+    }
+
+    /**
+     * Rebuild the per log callback listener arrays used by {@link #enqueue(Log, String, int)},
+     * skipping listeners that inherit the empty implementation from {@link AbstractChannelListener}.
+     */
+    private void updateLogListeners() {
+        List<Listener> preparingLogListeners = new ArrayList<>();
+        List<Listener> preparedLogListeners = new ArrayList<>();
+        List<Listener> filterListeners = new ArrayList<>();
+        for (Listener listener : mListeners) {
+            if (isImplemented(listener, "onPreparingLog", Log.class, String.class)) {
+                preparingLogListeners.add(listener);
+            }
+            if (isImplemented(listener, "onPreparedLog", Log.class, String.class, int.class)) {
+                preparedLogListeners.add(listener);
+            }
+            if (isImplemented(listener, "shouldFilter", Log.class)) {
+                filterListeners.add(listener);
+            }
+        }
+        mPreparingLogListeners = preparingLogListeners.toArray(EMPTY_LISTENERS);
+        mPreparedLogListeners = preparedLogListeners.toArray(EMPTY_LISTENERS);
+        mFilterListeners = filterListeners.toArray(EMPTY_LISTENERS);
+    }
+
+    /**
+     * Check whether a listener callback does something.
+     *
+     * @param listener       listener.
+     * @param methodName     callback name.
+     * @param parameterTypes callback parameter types.
+     * @return false if the callback is the empty implementation of {@link AbstractChannelListener},
+     * true otherwise including when the callback cannot be looked up.
+     */
+    @VisibleForTesting
+    static boolean isImplemented(@NonNull Listener listener, @NonNull String methodName, Class<?>... parameterTypes) {
+        if (!(listener instanceof AbstractChannelListener)) {
+            return true;
+        }
+        try {
+            return listener.getClass().getMethod(methodName, parameterTypes).getDeclaringClass() != AbstractChannelListener.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
     }
 
     @Override
@@ -880,6 +1331,12 @@ public class DefaultChannel implements Channel {
          */
         boolean mScheduled;
 
+        /**
+         * Start time of the custom interval timer, 0 if not started.
+         * Persisted only when a timer starts, see {@link #resolveCustomTriggerInterval(GroupState)}.
+         */
+        long mTimerStartTime;
+
         /**
          * Indicates if the group is paused.
          */
@@ -890,6 +1347,31 @@ public class DefaultChannel implements Channel {
          */
         final Collection<String> mPausedTargetKeys = new HashSet<>();
 
+        /**
+         * Flushes waiting for the logs of this group to be sent.
+         */
+        final Collection<GroupFlush> mPendingFlushes = new ArrayList<>();
+
+        /**
+         * Policy applied when the backlog is full, null if the backlog is only limited by storage size.
+         */
+        OverflowPolicy mOverflowPolicy;
+
+        /**
+         * Logs waiting for the backlog to go below capacity in {@link OverflowPolicy#BLOCK} mode.
+         */
+        final List<BlockedLog> mBlockedLogs = new LinkedList<>();
+
+        /**
+         * Number of logs received while the backlog is full in {@link OverflowPolicy#SAMPLE} mode.
+         */
+        int mSampledLogCount;
+
+        /**
+         * Whether the backlog reached the high watermark and did not go back to the low watermark yet.
+         */
+        boolean mHighWatermarkReached;
+
         /**
          * Runnable that triggers ingestion of this group data
          * and triggers itself in {@link #mBatchTimeInterval} ms.
@@ -922,4 +1404,92 @@ public class DefaultChannel implements Channel {
             mListener = listener;
         }
     }
+
+    /**
+     * Flush operation that can span several groups.
+     */
+    private static class FlushRequest {
+
+        /**
+         * Future to complete once every group is flushed.
+         */
+        private final DefaultAppCenterFuture<Boolean> mFuture;
+
+        /**
+         * Number of groups still being flushed.
+         */
+        private int mPendingGroupCount;
+
+        /**
+         * Whether all the groups flushed so far succeeded.
+         */
+        private boolean mSucceeded = true;
+
+        FlushRequest(DefaultAppCenterFuture<Boolean> future, int groupCount) {
+            mFuture = future;
+            mPendingGroupCount = groupCount;
+            if (groupCount == 0) {
+                mFuture.complete(true);
+            }
+        }
+
+        /**
+         * Called when a group completes flushing.
+         *
+         * @param succeeded true if all logs of the group backlog have been sent.
+         */
+        void onGroupFlushed(boolean succeeded) {
+            mSucceeded &= succeeded;
+            if (--mPendingGroupCount == 0) {
+                mFuture.complete(mSucceeded);
+            }
+        }
+    }
+
+    /**
+     * Log held in memory by the overflow policy.
+     */
+    private static class BlockedLog {
+
+        /**
+         * The log.
+         */
+        final Log mLog;
+
+        /**
+         * The log flags.
+         */
+        final int mFlags;
+
+        /**
+         * Discards the log when the block timeout expires.
+         */
+        Runnable mTimeout;
+
+        BlockedLog(Log log, int flags) {
+            mLog = log;
+            mFlags = flags;
+        }
+    }
+
+    /**
+     * Flush state for a specific group.
+     */
+    private static class GroupFlush {
+
+        /**
+         * Flush request this group belongs to.
+         */
+        final FlushRequest mFlushRequest;
+
+        /**
+         * Number of logs from the snapshot still to be sent.
+         */
+        int mRemainingLogCount;
+
+        GroupFlush(FlushRequest flushRequest, int remainingLogCount) {
+            mFlushRequest = flushRequest;
+            mRemainingLogCount = remainingLogCount;
+        }
+    }
 }
@@ -5,7 +5,7 @@
 
 package com.microsoft.appcenter.http;
 
-import android.os.AsyncTask;
+import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.utils.AppCenterLog;
@@ -14,6 +14,7 @@ import com.microsoft.appcenter.utils.HandlerUtils;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
@@ -64,9 +65,16 @@ public class DefaultHttpClient implements HttpClient, DefaultHttpClientCallTask.
     static final String CONTENT_ENCODING_KEY = "Content-Encoding";
 
     /**
-     * Content encoding header key.
+     * Executor delivering callbacks on the main thread.
      */
-    static final String CONTENT_ENCODING_VALUE = "gzip";
+    @VisibleForTesting
+    static final Executor MAIN_THREAD_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            HandlerUtils.runOnUiThread(command);
+        }
+    };
 
     /**
      * List of ongoing call tasks.
@@ -74,16 +82,50 @@ public class DefaultHttpClient implements HttpClient, DefaultHttpClientCallTask.
     private final Set<DefaultHttpClientCallTask> mTasks = new HashSet<>();
 
     /**
-     * Indicates whether compression is enabled.
+     * Compression of request bodies, null if disabled.
+     */
+    private final RequestCompression mCompression;
+
+    /**
+     * Executor running the calls.
+     */
+    private final Executor mExecutor;
+
+    /**
+     * Executor delivering the call results.
      */
-    private final boolean mCompressionEnabled;
+    private final Executor mCallbackExecutor;
 
     public DefaultHttpClient() {
         this(true);
     }
 
     public DefaultHttpClient(boolean compressionEnabled) {
-        mCompressionEnabled = compressionEnabled;
+        this(compressionEnabled, HttpUtils.getDefaultExecutor(), MAIN_THREAD_EXECUTOR);
+    }
+
+    /**
+     * Init.
+     *
+     * @param compressionEnabled whether to compress large request bodies.
+     * @param executor           executor running the calls, see {@link HttpUtils#createExecutor(int, int)}.
+     * @param callbackExecutor   executor on which {@link ServiceCallback} methods are called.
+     */
+    public DefaultHttpClient(boolean compressionEnabled, @NonNull Executor executor, @NonNull Executor callbackExecutor) {
+        this(compressionEnabled ? RequestCompression.getDefault() : null, executor, callbackExecutor);
+    }
+
+    /**
+     * Init.
+     *
+     * @param compression      compression of large request bodies, null to disable it.
+     * @param executor         executor running the calls, see {@link HttpUtils#createExecutor(int, int)}.
+     * @param callbackExecutor executor on which {@link ServiceCallback} methods are called.
+     */
+    public DefaultHttpClient(RequestCompression compression, @NonNull Executor executor, @NonNull Executor callbackExecutor) {
+        mCompression = compression;
+        mExecutor = executor;
+        mCallbackExecutor = callbackExecutor;
     }
 
     @VisibleForTesting
@@ -93,18 +135,18 @@ public class DefaultHttpClient implements HttpClient, DefaultHttpClientCallTask.
 
     @Override
     public ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, final ServiceCallback serviceCallback) {
-        final DefaultHttpClientCallTask task = new DefaultHttpClientCallTask(url, method, headers, callTemplate, serviceCallback, this, mCompressionEnabled);
+        final DefaultHttpClientCallTask task = new DefaultHttpClientCallTask(url, method, headers, callTemplate, serviceCallback, this, mCompression, mCallbackExecutor);
         try {
-            task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            task.executeOnExecutor(mExecutor);
         } catch (final RejectedExecutionException e) {
 
             /*
-             * When executor saturated (shared with app), we should use the retry mechanism
+             * When executor saturated or shut down, we should use the retry mechanism
              * rather than creating more threads to avoid putting too much pressure on the hosting app.
              * Also we need to return the method before calling the listener,
-             * so we post the callback on handler to make sure of that.
+             * so we post the callback on the callback executor to make sure of that.
              */
-            HandlerUtils.runOnUiThread(new Runnable() {
+            mCallbackExecutor.execute(new Runnable() {
 
                 @Override
                 public void run() {
@@ -117,7 +159,7 @@ public class DefaultHttpClient implements HttpClient, DefaultHttpClientCallTask.
             @Override
             public void cancel() {
 
-                /* This doesn't kill the AsyncTask, so we should check the state manually. */
+                /* This doesn't kill the call, so the task checks the state manually. */
                 task.cancel(true);
             }
         };
@@ -152,6 +194,16 @@ public class DefaultHttpClient implements HttpClient, DefaultHttpClientCallTask.
 
     @VisibleForTesting
     boolean isCompressionEnabled() {
-        return mCompressionEnabled;
+        return mCompression != null;
+    }
+
+    @VisibleForTesting
+    RequestCompression getCompression() {
+        return mCompression;
+    }
+
+    @VisibleForTesting
+    Executor getCallbackExecutor() {
+        return mCallbackExecutor;
     }
 }
@@ -6,32 +6,41 @@
 package com.microsoft.appcenter.http;
 
 import android.net.TrafficStats;
-import android.os.AsyncTask;
+import android.os.SystemClock;
 import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.utils.AppCenterLog;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 
 import static com.microsoft.appcenter.AppCenter.LOG_TAG;
 import static com.microsoft.appcenter.http.DefaultHttpClient.CHARSET_NAME;
 import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_ENCODING_KEY;
-import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_ENCODING_VALUE;
 import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_TYPE_KEY;
 import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_TYPE_VALUE;
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
@@ -39,34 +48,27 @@ import static com.microsoft.appcenter.http.HttpUtils.READ_BUFFER_SIZE;
 import static com.microsoft.appcenter.http.HttpUtils.THREAD_STATS_TAG;
 import static com.microsoft.appcenter.http.HttpUtils.WRITE_BUFFER_SIZE;
 import static com.microsoft.appcenter.http.HttpUtils.createHttpsConnection;
+import static com.microsoft.appcenter.http.HttpUtils.hideUrlEncodedTokens;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 /**
- * Async task for default HTTP client.
+ * Call task for default HTTP client.
+ * <p>
+ * The call runs on the executor passed to {@link #executeOnExecutor(Executor)} and its result is delivered on the callback executor.
  */
-class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
+class DefaultHttpClientCallTask implements Runnable {
 
     /**
      * Default string builder capacity.
      */
     private static final int DEFAULT_STRING_BUILDER_CAPACITY = 16;
 
-    /**
-     * Minimum payload length in bytes to use gzip.
-     */
-    private static final int MIN_GZIP_LENGTH = 1400;
-
     /**
      * Maximum payload length to use prettify for logging.
      */
     private static final int MAX_PRETTIFY_LOG_LENGTH = 4 * 1024;
 
-    /**
-     * Pattern used to replace token in url encoded parameters.
-     */
-    private static final Pattern TOKEN_REGEX_URL_ENCODED = Pattern.compile("token=[^&]+");
-
     /**
      * Pattern used to replace token in json responses.
      */
@@ -89,16 +91,52 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
 
     private final Tracker mTracker;
 
-    private final boolean mCompressionEnabled;
+    /**
+     * Compression of request bodies, null if disabled.
+     */
+    private final RequestCompression mCompression;
+
+    private final Executor mCallbackExecutor;
+
+    /**
+     * Cancelled flag, checked by the call while sending and receiving.
+     */
+    private volatile boolean mCancelled;
 
-    DefaultHttpClientCallTask(String url, String method, Map<String, String> headers, HttpClient.CallTemplate callTemplate, ServiceCallback serviceCallback, Tracker tracker, boolean compressionEnabled) {
+    /**
+     * Thread running the call, used to interrupt it when cancelled.
+     */
+    private Thread mThread;
+
+    /**
+     * Trace to fill, null if the call is not traced.
+     */
+    private HttpCallTrace mTrace;
+
+    /**
+     * Socket factory measuring connection times, null if the call is not traced.
+     */
+    private TracingSSLSocketFactory mTracingSocketFactory;
+
+    DefaultHttpClientCallTask(String url, String method, Map<String, String> headers, HttpClient.CallTemplate callTemplate, ServiceCallback serviceCallback, Tracker tracker, RequestCompression compression, Executor callbackExecutor) {
         mUrl = url;
         mMethod = method;
         mHeaders = headers;
         mCallTemplate = callTemplate;
         mServiceCallback = serviceCallback;
         mTracker = tracker;
-        mCompressionEnabled = compressionEnabled;
+        mCompression = compression;
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Open the request body stream, which opens the connection if not already done.
+     */
+    private OutputStream getOutputStream(HttpsURLConnection httpsURLConnection) throws IOException {
+        if (mTracingSocketFactory != null) {
+            mTracingSocketFactory.markConnectStart();
+        }
+        return httpsURLConnection.getOutputStream();
     }
 
     private static InputStream getInputStream(HttpsURLConnection httpsURLConnection) throws IOException {
@@ -122,6 +160,28 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
         }
     }
 
+    /**
+     * Write payload from a streaming template, without holding the encoded or compressed payload in memory.
+     */
+    private void streamPayload(HttpsURLConnection httpsURLConnection, HttpClient.StreamingCallTemplate callTemplate) throws IOException, JSONException {
+        RequestBodyOutputStream out = new RequestBodyOutputStream(httpsURLConnection);
+        boolean written = false;
+        try {
+            Writer writer = new OutputStreamWriter(out, CHARSET_NAME);
+            callTemplate.writeRequestBody(writer);
+            writer.flush();
+            written = true;
+        } finally {
+
+            /* Don't finish a body that failed to be written, only free the compressor. */
+            if (written) {
+                out.close();
+            } else {
+                out.abort();
+            }
+        }
+    }
+
     /**
      * Dump response stream to a string.
      */
@@ -134,6 +194,11 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
          */
         StringBuilder builder = new StringBuilder(max(httpsURLConnection.getContentLength(), DEFAULT_STRING_BUILDER_CAPACITY));
         InputStream stream = getInputStream(httpsURLConnection);
+        CountingInputStream countingStream = null;
+        if (mTrace != null && stream != null) {
+            countingStream = new CountingInputStream(stream);
+            stream = countingStream;
+        }
 
         //noinspection TryFinallyCanBeTryWithResources
         try {
@@ -146,18 +211,54 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
                     break;
                 }
             }
+            if (countingStream != null) {
+
+                /* The connection hides the length of a response it decompresses. */
+                int contentLength = httpsURLConnection.getContentLength();
+                mTrace.setResponseSize(countingStream.mCount);
+                mTrace.setCompressedResponseSize(contentLength >= 0 ? contentLength : HttpCallTrace.UNKNOWN);
+            }
             return builder.toString();
         } finally {
             stream.close();
         }
     }
 
+    /**
+     * Get how to consume the response, successful responses can be streamed or ignored by the call template.
+     */
+    private HttpClient.ResponseMode getResponseMode(int status) {
+        if (status >= 200 && status < 300 && mCallTemplate instanceof HttpClient.ResponseCallTemplate) {
+            return ((HttpClient.ResponseCallTemplate) mCallTemplate).getResponseMode();
+        }
+        return HttpClient.ResponseMode.READ;
+    }
+
+    /**
+     * Give response stream to the call template.
+     */
+    private void streamResponse(HttpsURLConnection httpsURLConnection, HttpClient.ResponseCallTemplate callTemplate) throws IOException {
+        InputStream stream = httpsURLConnection.getInputStream();
+
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            callTemplate.readResponseBody(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
     /**
      * Do http call.
      */
     private HttpResponse doHttpCall() throws Exception {
         URL url = new URL(mUrl);
         HttpsURLConnection httpsURLConnection = createHttpsConnection(url);
+        mTrace = HttpClientTracer.getTrace(mServiceCallback);
+        if (mTrace != null) {
+            mTracingSocketFactory = new TracingSSLSocketFactory(httpsURLConnection.getSSLSocketFactory(), mTrace);
+            httpsURLConnection.setSSLSocketFactory(mTracingSocketFactory);
+        }
         try {
 
             /* Build payload now if POST. */
@@ -166,12 +267,19 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
             byte[] binaryPayload = null;
             boolean shouldCompress = false;
             boolean isPost = mMethod.equals(METHOD_POST);
+            HttpClient.StreamingCallTemplate streamingCallTemplate = null;
             if (isPost && mCallTemplate != null) {
 
-                /* Get bytes, check if large enough to compress. */
-                payload = mCallTemplate.buildRequestBody();
-                binaryPayload = payload.getBytes(CHARSET_NAME);
-                shouldCompress = mCompressionEnabled && binaryPayload.length >= MIN_GZIP_LENGTH;
+                /* Stream payload unless we need it as a string for logging. */
+                if (mCallTemplate instanceof HttpClient.StreamingCallTemplate && AppCenterLog.getLogLevel() > Log.VERBOSE) {
+                    streamingCallTemplate = (HttpClient.StreamingCallTemplate) mCallTemplate;
+                } else {
+
+                    /* Get bytes, check if large enough to compress. */
+                    payload = mCallTemplate.buildRequestBody();
+                    binaryPayload = payload.getBytes(CHARSET_NAME);
+                    shouldCompress = mCompression != null && binaryPayload.length >= mCompression.getMinLength();
+                }
 
                 /* If no content type specified, assume json. */
                 if (!mHeaders.containsKey(CONTENT_TYPE_KEY)) {
@@ -181,7 +289,7 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
 
             /* If about to compress, add corresponding header. */
             if (shouldCompress) {
-                mHeaders.put(CONTENT_ENCODING_KEY, CONTENT_ENCODING_VALUE);
+                mHeaders.put(CONTENT_ENCODING_KEY, mCompression.getContentEncoding());
             }
 
             /* Send headers. */
@@ -198,12 +306,16 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
             }
 
             /* Send payload. */
-            if (binaryPayload != null) {
+            long requestSentTime = 0;
+            if (streamingCallTemplate != null) {
+                streamPayload(httpsURLConnection, streamingCallTemplate);
+                requestSentTime = getTraceTime();
+            } else if (binaryPayload != null) {
 
                 /* Log payload. */
                 if (AppCenterLog.getLogLevel() <= Log.VERBOSE) {
                     if (payload.length() < MAX_PRETTIFY_LOG_LENGTH) {
-                        payload = TOKEN_REGEX_URL_ENCODED.matcher(payload).replaceAll("token=***");
+                        payload = hideUrlEncodedTokens(payload);
                         if (CONTENT_TYPE_VALUE.equals(mHeaders.get(CONTENT_TYPE_KEY))) {
                             payload = new JSONObject(payload).toString(2);
                         }
@@ -212,18 +324,21 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
                 }
 
                 /* Compress payload if large enough to be worth it. */
+                int requestSize = binaryPayload.length;
+                long compressionStartTime = getTraceTime();
                 if (shouldCompress) {
-                    ByteArrayOutputStream gzipBuffer = new ByteArrayOutputStream(binaryPayload.length);
-                    GZIPOutputStream gzipStream = new GZIPOutputStream(gzipBuffer);
-                    gzipStream.write(binaryPayload);
-                    gzipStream.close();
-                    binaryPayload = gzipBuffer.toByteArray();
+                    binaryPayload = mCompression.compress(binaryPayload);
+                }
+                if (mTrace != null) {
+                    mTrace.setRequestSize(requestSize);
+                    mTrace.setCompressedRequestSize(binaryPayload.length);
+                    mTrace.setCompressionTime(getTraceTime() - compressionStartTime);
                 }
 
                 /* Send payload on the wire. */
                 httpsURLConnection.setDoOutput(true);
                 httpsURLConnection.setFixedLengthStreamingMode(binaryPayload.length);
-                OutputStream out = httpsURLConnection.getOutputStream();
+                OutputStream out = getOutputStream(httpsURLConnection);
 
                 //noinspection TryFinallyCanBeTryWithResources
                 try {
@@ -231,18 +346,42 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
                 } finally {
                     out.close();
                 }
+                requestSentTime = getTraceTime();
             }
             if (isCancelled()) {
                 return null;
             }
 
             /* Read response. */
+            if (mTracingSocketFactory != null) {
+                mTracingSocketFactory.markConnectStart();
+            }
+            long responseWaitTime = getTraceTime();
             int status = httpsURLConnection.getResponseCode();
-            String response = readResponse(httpsURLConnection);
+            if (mTrace != null) {
+                long timeToFirstByte;
+                if (requestSentTime > 0) {
+                    timeToFirstByte = getTraceTime() - requestSentTime;
+                } else {
+
+                    /* The connection was opened while waiting for the response. */
+                    timeToFirstByte = getTraceTime() - responseWaitTime - max(0, mTrace.getConnectTime()) - max(0, mTrace.getTlsTime());
+                }
+                mTrace.setTimeToFirstByte(max(0, timeToFirstByte));
+            }
+            HttpClient.ResponseMode responseMode = getResponseMode(status);
+            String response = "";
+            if (responseMode == HttpClient.ResponseMode.READ) {
+                response = readResponse(httpsURLConnection);
+            } else if (responseMode == HttpClient.ResponseMode.STREAM) {
+                streamResponse(httpsURLConnection, (HttpClient.ResponseCallTemplate) mCallTemplate);
+            }
             if (AppCenterLog.getLogLevel() <= Log.VERBOSE) {
                 String contentType = httpsURLConnection.getHeaderField(CONTENT_TYPE_KEY);
                 String logPayload;
-                if (contentType == null || contentType.startsWith("text/") || contentType.startsWith("application/")) {
+                if (responseMode != HttpClient.ResponseMode.READ) {
+                    logPayload = "<" + responseMode.name().toLowerCase(Locale.ENGLISH) + ">";
+                } else if (contentType == null || contentType.startsWith("text/") || contentType.startsWith("application/")) {
                     logPayload = TOKEN_REGEX_JSON.matcher(response).replaceAll("token\":\"***\"");
                     logPayload = REDIRECT_URI_REGEX_JSON.matcher(logPayload).replaceAll("redirect_uri\":\"***\"");
                 } else {
@@ -250,9 +389,14 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
                 }
                 AppCenterLog.verbose(LOG_TAG, "HTTP response status=" + status + " payload=" + logPayload);
             }
-            Map<String, String> responseHeaders = new HashMap<>();
-            for (Map.Entry<String, List<String>> header : httpsURLConnection.getHeaderFields().entrySet()) {
-                responseHeaders.put(header.getKey(), header.getValue().iterator().next());
+            Map<String, String> responseHeaders;
+            if (responseMode == HttpClient.ResponseMode.DISCARD) {
+                responseHeaders = Collections.emptyMap();
+            } else {
+                responseHeaders = new HashMap<>();
+                for (Map.Entry<String, List<String>> header : httpsURLConnection.getHeaderFields().entrySet()) {
+                    responseHeaders.put(header.getKey(), header.getValue().iterator().next());
+                }
             }
             HttpResponse httpResponse = new HttpResponse(status, response, responseHeaders);
 
@@ -267,11 +411,95 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
 
             /* Release connection. */
             httpsURLConnection.disconnect();
+            if (mTracingSocketFactory != null) {
+                mTracingSocketFactory.release();
+            }
         }
     }
 
+    /**
+     * Get the current time to compute trace durations.
+     *
+     * @return time in milliseconds, 0 if the call is not traced.
+     */
+    private long getTraceTime() {
+        return mTrace != null ? SystemClock.elapsedRealtime() : 0;
+    }
+
+    /**
+     * Start the call on the given executor.
+     *
+     * @param executor executor running the call.
+     * @return this task.
+     * @throws RejectedExecutionException if the executor does not accept the call.
+     */
+    DefaultHttpClientCallTask executeOnExecutor(Executor executor) {
+        onPreExecute();
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            mTracker.onFinish(this);
+            throw e;
+        }
+        return this;
+    }
+
+    /**
+     * Cancel the call. The result of a call that was cancelled is not reported unless the server already responded.
+     *
+     * @param mayInterruptIfRunning whether to interrupt the thread running the call.
+     */
+    void cancel(boolean mayInterruptIfRunning) {
+        mCancelled = true;
+        if (mayInterruptIfRunning) {
+            synchronized (this) {
+                if (mThread != null) {
+                    mThread.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether the call was cancelled.
+     *
+     * @return true if cancelled.
+     */
+    boolean isCancelled() {
+        return mCancelled;
+    }
+
     @Override
-    protected Object doInBackground(Void... params) {
+    public void run() {
+        synchronized (this) {
+            mThread = Thread.currentThread();
+        }
+        final Object result;
+        try {
+            result = doInBackground();
+        } finally {
+            synchronized (this) {
+                mThread = null;
+
+                /* Don't leave the interrupted state to the next task on this thread. */
+                Thread.interrupted();
+            }
+        }
+        mCallbackExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                if (isCancelled()) {
+                    onCancelled(result);
+                } else {
+                    onPostExecute(result);
+                }
+            }
+        });
+    }
+
+    @VisibleForTesting
+    Object doInBackground() {
 
         /* Do tag socket to avoid strict mode issue. */
         TrafficStats.setThreadStatsTag(THREAD_STATS_TAG);
@@ -284,13 +512,13 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
         }
     }
 
-    @Override
-    protected void onPreExecute() {
+    @VisibleForTesting
+    void onPreExecute() {
         mTracker.onStart(this);
     }
 
-    @Override
-    protected void onPostExecute(Object result) {
+    @VisibleForTesting
+    void onPostExecute(Object result) {
         mTracker.onFinish(this);
         if (result instanceof Exception) {
             mServiceCallback.onCallFailed((Exception) result);
@@ -300,8 +528,8 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
         }
     }
 
-    @Override
-    protected void onCancelled(Object result) {
+    @VisibleForTesting
+    void onCancelled(Object result) {
 
         /* Handle the result even if it was cancelled. */
         if (result instanceof HttpResponse || result instanceof HttpException) {
@@ -311,6 +539,190 @@ class DefaultHttpClientCallTask extends AsyncTask<Void, Void, Object> {
         }
     }
 
+    /**
+     * Request body stream that keeps a payload smaller than the compression minimum length in memory
+     * to send it with a fixed length, or switches to chunked streaming, compressed if enabled, for larger payloads.
+     */
+    private class RequestBodyOutputStream extends OutputStream {
+
+        private final HttpsURLConnection mHttpsURLConnection;
+
+        /**
+         * Payload start, null once streaming.
+         */
+        private byte[] mBuffer;
+
+        private int mCount;
+
+        /**
+         * Connection stream, null until streaming.
+         */
+        private OutputStream mOut;
+
+        /**
+         * Size of the payload before compression.
+         */
+        private long mSize;
+
+        /**
+         * Stream measuring what is sent on the wire when streaming a traced call.
+         */
+        private CountingOutputStream mCountingStream;
+
+        /**
+         * Time spent writing to {@link #mOut}, in nanoseconds.
+         */
+        private long mWriteTime;
+
+        RequestBodyOutputStream(HttpsURLConnection httpsURLConnection) {
+            mHttpsURLConnection = httpsURLConnection;
+            mBuffer = new byte[mCompression != null ? mCompression.getMinLength() : RequestCompression.DEFAULT_MIN_LENGTH];
+        }
+
+        @Override
+        public void write(int oneByte) throws IOException {
+            write(new byte[]{(byte) oneByte}, 0, 1);
+        }
+
+        @Override
+        public void write(@NonNull byte[] buffer, int offset, int count) throws IOException {
+            mSize += count;
+            if (mOut == null) {
+                if (mCount + count < mBuffer.length) {
+                    System.arraycopy(buffer, offset, mBuffer, mCount, count);
+                    mCount += count;
+                    return;
+                }
+                startStreaming();
+            }
+            long startTime = mCountingStream != null ? System.nanoTime() : 0;
+            for (int i = 0; i < count && !isCancelled(); i += WRITE_BUFFER_SIZE) {
+                mOut.write(buffer, offset + i, min(count - i, WRITE_BUFFER_SIZE));
+            }
+            if (mCountingStream != null) {
+                mWriteTime += System.nanoTime() - startTime;
+            }
+        }
+
+        private void startStreaming() throws IOException {
+            if (mCompression != null) {
+                mHttpsURLConnection.setRequestProperty(CONTENT_ENCODING_KEY, mCompression.getContentEncoding());
+            }
+            mHttpsURLConnection.setDoOutput(true);
+            mHttpsURLConnection.setChunkedStreamingMode(WRITE_BUFFER_SIZE);
+            OutputStream out = getOutputStream(mHttpsURLConnection);
+            if (mTrace != null) {
+                mCountingStream = new CountingOutputStream(out);
+                out = mCountingStream;
+            }
+            mOut = mCompression != null ? mCompression.compress(out, WRITE_BUFFER_SIZE) : out;
+            mOut.write(mBuffer, 0, mCount);
+            mBuffer = null;
+        }
+
+        /**
+         * Stop writing the payload after a failure, the compressor is not reused.
+         */
+        void abort() {
+            if (mOut != null && mCompression != null) {
+                RequestCompression.abort(mOut);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mOut == null) {
+                mHttpsURLConnection.setDoOutput(true);
+                mHttpsURLConnection.setFixedLengthStreamingMode(mCount);
+                mOut = getOutputStream(mHttpsURLConnection);
+                mOut.write(mBuffer, 0, mCount);
+            }
+            long startTime = mCountingStream != null ? System.nanoTime() : 0;
+            mOut.close();
+            if (mTrace != null) {
+                mTrace.setRequestSize(mSize);
+                if (mCountingStream != null) {
+                    mWriteTime += System.nanoTime() - startTime;
+                    mTrace.setCompressedRequestSize(mCountingStream.mCount);
+
+                    /* Compression time is the time spent in the compressing stream minus the time spent sending. */
+                    long compressionTime = mCompression != null ? mWriteTime - mCountingStream.mWriteTime : 0;
+                    mTrace.setCompressionTime(TimeUnit.NANOSECONDS.toMillis(max(0, compressionTime)));
+                } else {
+                    mTrace.setCompressedRequestSize(mCount);
+                    mTrace.setCompressionTime(0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream counting the bytes sent on the wire and the time spent sending them.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long mCount;
+
+        /**
+         * Time spent writing, in nanoseconds.
+         */
+        private long mWriteTime;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int oneByte) throws IOException {
+            write(new byte[]{(byte) oneByte}, 0, 1);
+        }
+
+        @Override
+        public void write(@NonNull byte[] buffer, int offset, int count) throws IOException {
+            long startTime = System.nanoTime();
+            out.write(buffer, offset, count);
+            mWriteTime += System.nanoTime() - startTime;
+            mCount += count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            long startTime = System.nanoTime();
+            out.close();
+            mWriteTime += System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Stream counting the bytes read.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = in.read();
+            if (result >= 0) {
+                mCount++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+            int result = in.read(buffer, offset, count);
+            if (result > 0) {
+                mCount += result;
+            }
+            return result;
+        }
+    }
+
     /**
      * The callback used for maintain ongoing call tasks.
      */
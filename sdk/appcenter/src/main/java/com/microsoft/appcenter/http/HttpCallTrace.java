@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+/**
+ * Timings and sizes of one HTTP call attempt, reported to {@link HttpClientTracer.Listener}.
+ * <p>
+ * Times are in milliseconds and sizes in bytes. A value of -1 means the HTTP client could not measure it.
+ * Connect and TLS times are 0 when a pooled connection was reused.
+ */
+public class HttpCallTrace {
+
+    /**
+     * Value of metrics that were not measured.
+     */
+    public static final long UNKNOWN = -1;
+
+    private final String mUrl;
+
+    private final String mMethod;
+
+    private final int mRetryAttempt;
+
+    private long mRequestSize = UNKNOWN;
+
+    private long mCompressedRequestSize = UNKNOWN;
+
+    private long mCompressionTime = UNKNOWN;
+
+    private long mConnectTime = UNKNOWN;
+
+    private long mTlsTime = UNKNOWN;
+
+    private long mTimeToFirstByte = UNKNOWN;
+
+    private long mResponseSize = UNKNOWN;
+
+    private long mCompressedResponseSize = UNKNOWN;
+
+    private long mTotalTime = UNKNOWN;
+
+    private int mStatusCode;
+
+    private Exception mException;
+
+    /**
+     * Init.
+     *
+     * @param url          URL.
+     * @param method       HTTP method.
+     * @param retryAttempt 0 for the first try, then the number of the retry.
+     */
+    public HttpCallTrace(String url, String method, int retryAttempt) {
+        mUrl = url;
+        mMethod = method;
+        mRetryAttempt = retryAttempt;
+    }
+
+    /**
+     * Get the URL.
+     *
+     * @return URL.
+     */
+    public String getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * Get the HTTP method.
+     *
+     * @return HTTP method.
+     */
+    public String getMethod() {
+        return mMethod;
+    }
+
+    /**
+     * Get the retry attempt.
+     *
+     * @return 0 for the first try, then the number of the retry.
+     */
+    public int getRetryAttempt() {
+        return mRetryAttempt;
+    }
+
+    /**
+     * Get the request body size before compression.
+     *
+     * @return size in bytes.
+     */
+    public long getRequestSize() {
+        return mRequestSize;
+    }
+
+    public void setRequestSize(long requestSize) {
+        mRequestSize = requestSize;
+    }
+
+    /**
+     * Get the request body size sent on the wire, equal to {@link #getRequestSize()} when not compressed.
+     *
+     * @return size in bytes.
+     */
+    public long getCompressedRequestSize() {
+        return mCompressedRequestSize;
+    }
+
+    public void setCompressedRequestSize(long compressedRequestSize) {
+        mCompressedRequestSize = compressedRequestSize;
+    }
+
+    /**
+     * Get the time spent compressing the request body.
+     *
+     * @return time in milliseconds.
+     */
+    public long getCompressionTime() {
+        return mCompressionTime;
+    }
+
+    public void setCompressionTime(long compressionTime) {
+        mCompressionTime = compressionTime;
+    }
+
+    /**
+     * Get the time to resolve the host and open the TCP connection.
+     *
+     * @return time in milliseconds.
+     */
+    public long getConnectTime() {
+        return mConnectTime;
+    }
+
+    public void setConnectTime(long connectTime) {
+        mConnectTime = connectTime;
+    }
+
+    /**
+     * Get the time of the TLS handshake.
+     *
+     * @return time in milliseconds.
+     */
+    public long getTlsTime() {
+        return mTlsTime;
+    }
+
+    public void setTlsTime(long tlsTime) {
+        mTlsTime = tlsTime;
+    }
+
+    /**
+     * Get the time between the end of the request upload and the response headers.
+     *
+     * @return time in milliseconds.
+     */
+    public long getTimeToFirstByte() {
+        return mTimeToFirstByte;
+    }
+
+    public void setTimeToFirstByte(long timeToFirstByte) {
+        mTimeToFirstByte = timeToFirstByte;
+    }
+
+    /**
+     * Get the response body size after decompression.
+     *
+     * @return size in bytes.
+     */
+    public long getResponseSize() {
+        return mResponseSize;
+    }
+
+    public void setResponseSize(long responseSize) {
+        mResponseSize = responseSize;
+    }
+
+    /**
+     * Get the response body size received on the wire.
+     *
+     * @return size in bytes.
+     */
+    public long getCompressedResponseSize() {
+        return mCompressedResponseSize;
+    }
+
+    public void setCompressedResponseSize(long compressedResponseSize) {
+        mCompressedResponseSize = compressedResponseSize;
+    }
+
+    /**
+     * Get the time from the call to the result.
+     *
+     * @return time in milliseconds.
+     */
+    public long getTotalTime() {
+        return mTotalTime;
+    }
+
+    void setTotalTime(long totalTime) {
+        mTotalTime = totalTime;
+    }
+
+    /**
+     * Get the HTTP status code.
+     *
+     * @return status code or 0 if the server did not respond.
+     */
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    void setStatusCode(int statusCode) {
+        mStatusCode = statusCode;
+    }
+
+    /**
+     * Get the failure.
+     *
+     * @return exception or null if the call succeeded.
+     */
+    public Exception getException() {
+        return mException;
+    }
+
+    void setException(Exception exception) {
+        mException = exception;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCallTrace{" +
+                "method=" + mMethod +
+                ", retryAttempt=" + mRetryAttempt +
+                ", statusCode=" + mStatusCode +
+                ", requestSize=" + mRequestSize +
+                ", compressedRequestSize=" + mCompressedRequestSize +
+                ", compressionTime=" + mCompressionTime +
+                ", connectTime=" + mConnectTime +
+                ", tlsTime=" + mTlsTime +
+                ", timeToFirstByte=" + mTimeToFirstByte +
+                ", responseSize=" + mResponseSize +
+                ", compressedResponseSize=" + mCompressedResponseSize +
+                ", totalTime=" + mTotalTime +
+                '}';
+    }
+}
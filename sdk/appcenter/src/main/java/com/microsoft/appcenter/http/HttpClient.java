@@ -8,6 +8,9 @@ package com.microsoft.appcenter.http;
 import org.json.JSONException;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
 import java.net.URL;
 import java.util.Map;
 
@@ -50,6 +53,87 @@ public interface HttpClient extends Closeable {
         void onBeforeCalling(URL url, Map<String, String> headers);
     }
 
+    /**
+     * Call callbacks able to write a large request body directly to the connection.
+     * The client can still call {@link #buildRequestBody()} instead, for example to log the request body.
+     */
+    interface StreamingCallTemplate extends CallTemplate {
+
+        /**
+         * Called when the method is POST to write request body.
+         * The writer must not be closed by the template.
+         *
+         * @param writer writer to the request body.
+         * @throws JSONException callback can throw this to make the call fail if a JSON error occurs.
+         * @throws IOException   if writing to the connection fails.
+         */
+        void writeRequestBody(Writer writer) throws JSONException, IOException;
+    }
+
+    /**
+     * How a call template consumes a successful response.
+     * A response with an error status is always read to build the {@link HttpException}.
+     */
+    enum ResponseMode {
+
+        /**
+         * Read the body as the payload and keep the headers.
+         */
+        READ,
+
+        /**
+         * Keep the headers, the payload is empty.
+         */
+        HEADERS,
+
+        /**
+         * Keep only the status code, the payload and headers are empty.
+         */
+        DISCARD,
+
+        /**
+         * Give the body to {@link ResponseCallTemplate#readResponseBody(InputStream)} and keep the headers, the payload is empty.
+         */
+        STREAM
+    }
+
+    /**
+     * Call callbacks declaring how the response is consumed.
+     */
+    interface ResponseCallTemplate extends CallTemplate {
+
+        /**
+         * Get how to consume a successful response.
+         *
+         * @return response mode.
+         */
+        ResponseMode getResponseMode();
+
+        /**
+         * Called with the body of a successful response when the mode is {@link ResponseMode#STREAM},
+         * on the thread doing the call. The stream is closed by the client.
+         *
+         * @param inputStream response body.
+         * @throws IOException to make the call fail if reading or writing the body fails.
+         */
+        void readResponseBody(InputStream inputStream) throws IOException;
+    }
+
+    /**
+     * Call callbacks whose request body can be sent in the same request as the body of another call
+     * to the same URL with the same method and headers.
+     */
+    interface MergeableCallTemplate extends CallTemplate {
+
+        /**
+         * Get callbacks sending the request bodies of this call and of another call in a single request.
+         *
+         * @param callTemplate callbacks of the other call.
+         * @return merged callbacks, or null if the bodies cannot be merged.
+         */
+        CallTemplate merge(CallTemplate callTemplate);
+    }
+
     /**
      * Make this client active again after closing.
      */
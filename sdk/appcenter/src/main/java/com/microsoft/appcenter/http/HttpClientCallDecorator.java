@@ -17,13 +17,13 @@ abstract class HttpClientCallDecorator implements Runnable, ServiceCall, Service
      */
     private final HttpClient mDecoratedApi;
 
-    private final String mUrl;
+    final String mUrl;
 
-    private final String mMethod;
+    final String mMethod;
 
-    private final Map<String, String> mHeaders;
+    final Map<String, String> mHeaders;
 
-    private final HttpClient.CallTemplate mCallTemplate;
+    final HttpClient.CallTemplate mCallTemplate;
 
     /**
      * Callback.
@@ -54,6 +54,18 @@ abstract class HttpClientCallDecorator implements Runnable, ServiceCall, Service
         mServiceCall = mDecoratedApi.callAsync(mUrl, mMethod, mHeaders, mCallTemplate, this);
     }
 
+    /**
+     * Get the retry attempt of this call, counted by the retry decorator wrapping it if any.
+     *
+     * @return 0 for the first try, then the number of the retry.
+     */
+    int getRetryAttempt() {
+        if (mServiceCallback instanceof HttpClientCallDecorator) {
+            return ((HttpClientCallDecorator) mServiceCallback).getRetryAttempt();
+        }
+        return 0;
+    }
+
     @Override
     public void onCallSucceeded(HttpResponse httpResponse) {
         mServiceCallback.onCallSucceeded(httpResponse);
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Creates an HTTP client once the SDK knows where call results must be delivered.
+ */
+public interface HttpClientFactory {
+
+    /**
+     * Create an HTTP client.
+     *
+     * @param context          application context.
+     * @param callbackExecutor executor on which {@link ServiceCallback} methods must be called, such as the App Center thread.
+     * @return HTTP client.
+     */
+    @NonNull
+    HttpClient createHttpClient(@NonNull Context context, @NonNull Executor callbackExecutor);
+}
@@ -5,11 +5,18 @@
 
 package com.microsoft.appcenter.http;
 
+import android.os.Handler;
+import androidx.annotation.VisibleForTesting;
+
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.NetworkStateHelper;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -17,18 +24,65 @@ import static com.microsoft.appcenter.utils.AppCenterLog.LOG_TAG;
 
 /**
  * Decorator pausing calls while network is down.
+ * <p>
+ * When network comes back, the pending calls are not all made at once: calls to the same URL with the same
+ * headers are merged in fewer requests when their call templates allow it, then the requests are made
+ * after a random delay and only a few at a time.
  */
 public class HttpClientNetworkStateHandler extends HttpClientDecorator implements NetworkStateHelper.Listener {
 
+    /**
+     * Maximum random delay in milliseconds before making a request held while network was down.
+     */
+    @VisibleForTesting
+    static final int REPLAY_JITTER = 2000;
+
+    /**
+     * Maximum number of requests held while network was down that are made at the same time.
+     */
+    @VisibleForTesting
+    static final int MAX_CONCURRENT_REPLAYS = 2;
+
+    /**
+     * Maximum number of calls merged in a single request.
+     */
+    @VisibleForTesting
+    static final int MAX_MERGED_CALLS = 4;
+
     /**
      * Network state helper.
      */
     private final NetworkStateHelper mNetworkStateHelper;
 
     /**
-     * All pending calls.
+     * Handler to delay requests after network comes back.
+     */
+    private final Handler mHandler;
+
+    /**
+     * Random object for delay randomness.
+     */
+    private final SecureRandom mRandom = new SecureRandom();
+
+    /**
+     * All calls waiting for network.
+     */
+    private final Set<Call> mCalls = new LinkedHashSet<>();
+
+    /**
+     * Requests waiting for their turn after network came back.
+     */
+    private final LinkedList<Replay> mReplays = new LinkedList<>();
+
+    /**
+     * Requests scheduled but not yet started.
+     */
+    private final Set<Replay> mScheduledReplays = new LinkedHashSet<>();
+
+    /**
+     * Number of requests scheduled or in progress after network came back.
      */
-    private final Set<Call> mCalls = new HashSet<>();
+    private int mActiveReplays;
 
     /**
      * Init.
@@ -37,8 +91,21 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
      * @param networkStateHelper network state helper.
      */
     public HttpClientNetworkStateHandler(HttpClient decoratedApi, NetworkStateHelper networkStateHelper) {
+        this(decoratedApi, networkStateHelper, HttpClientRetryer.getRetryHandler());
+    }
+
+    /**
+     * Init.
+     *
+     * @param decoratedApi       decorated API.
+     * @param networkStateHelper network state helper.
+     * @param handler            handler to delay requests after network comes back.
+     */
+    @VisibleForTesting
+    HttpClientNetworkStateHandler(HttpClient decoratedApi, NetworkStateHelper networkStateHelper, Handler handler) {
         super(decoratedApi);
         mNetworkStateHelper = networkStateHelper;
+        mHandler = handler;
         mNetworkStateHelper.addListener(this);
     }
 
@@ -46,7 +113,14 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
     public synchronized ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
         Call call = new Call(mDecoratedApi, url, method, headers, callTemplate, serviceCallback);
         if (mNetworkStateHelper.isNetworkConnected()) {
-            call.run();
+            if (mReplays.isEmpty()) {
+                call.run();
+            } else {
+
+                /* Don't overtake the requests that waited for network. */
+                mReplays.add(new Replay(call));
+                scheduleReplays();
+            }
         } else {
             mCalls.add(call);
             AppCenterLog.debug(LOG_TAG, "Call triggered with no network connectivity, waiting network to become available...");
@@ -57,6 +131,12 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
     @Override
     public synchronized void close() throws IOException {
         mNetworkStateHelper.removeListener(this);
+        for (Replay replay : mScheduledReplays) {
+            mHandler.removeCallbacks(replay);
+            mActiveReplays--;
+        }
+        mScheduledReplays.clear();
+        mReplays.clear();
         mCalls.clear();
         super.close();
     }
@@ -69,12 +149,27 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
 
     @Override
     public synchronized void onNetworkStateUpdated(boolean connected) {
-        if (connected && mCalls.size() > 0) {
-            AppCenterLog.debug(LOG_TAG, "Network is available. " + mCalls.size() + " pending call(s) to submit now.");
-            for (Call call : mCalls) {
-                call.run();
+        if (connected) {
+            if (mCalls.size() > 0) {
+                List<Replay> replays = mergeCalls(mCalls);
+                mCalls.clear();
+                AppCenterLog.debug(LOG_TAG, "Network is available. " + replays.size() + " request(s) to submit now.");
+                mReplays.addAll(replays);
+                scheduleReplays();
+            }
+        } else {
+
+            /* Requests not started yet wait for network again. */
+            for (Replay replay : mScheduledReplays) {
+                mHandler.removeCallbacks(replay);
+                mActiveReplays--;
+                mCalls.addAll(replay.mMergedCalls);
+            }
+            mScheduledReplays.clear();
+            for (Replay replay : mReplays) {
+                mCalls.addAll(replay.mMergedCalls);
             }
-            mCalls.clear();
+            mReplays.clear();
         }
 
         /*
@@ -83,11 +178,61 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
          */
     }
 
+    /**
+     * Merge calls in as few requests as possible, keeping the order of the first call of each request.
+     *
+     * @param calls calls waiting for network.
+     * @return requests to make.
+     */
+    private List<Replay> mergeCalls(Set<Call> calls) {
+        List<Replay> replays = new ArrayList<>();
+        for (Call call : calls) {
+            boolean merged = false;
+            if (call.mCallTemplate instanceof MergeableCallTemplate) {
+                for (Replay replay : replays) {
+                    if (replay.merge(call)) {
+                        merged = true;
+                        break;
+                    }
+                }
+            }
+            if (!merged) {
+                replays.add(new Replay(call));
+            }
+        }
+        return replays;
+    }
+
+    /**
+     * Schedule waiting requests with a random delay, while under the maximum number of concurrent requests.
+     */
+    private synchronized void scheduleReplays() {
+        while (mActiveReplays < MAX_CONCURRENT_REPLAYS && !mReplays.isEmpty()) {
+            Replay replay = mReplays.removeFirst();
+            mActiveReplays++;
+            mScheduledReplays.add(replay);
+            mHandler.postDelayed(replay, mRandom.nextInt(REPLAY_JITTER));
+        }
+    }
+
+    /**
+     * Called when a request made after network came back is completed.
+     */
+    private synchronized void completeReplay() {
+        mActiveReplays--;
+        scheduleReplays();
+    }
+
     private synchronized void cancelCall(Call call) {
         if (call.mServiceCall != null) {
             call.mServiceCall.cancel();
         }
         mCalls.remove(call);
+
+        /* Other calls may share the request, just forget this one. */
+        if (call.mReplay != null) {
+            call.mReplay.mMergedCalls.remove(call);
+        }
     }
 
     /**
@@ -95,6 +240,11 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
      */
     private class Call extends HttpClientCallDecorator {
 
+        /**
+         * Request made for this call after network came back, if any.
+         */
+        Replay mReplay;
+
         Call(HttpClient decoratedApi, String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
             super(decoratedApi, url, method, headers, callTemplate, serviceCallback);
         }
@@ -104,4 +254,132 @@ public class HttpClientNetworkStateHandler extends HttpClientDecorator implement
             cancelCall(this);
         }
     }
+
+    /**
+     * Request made after network came back, for one or more calls.
+     * The first call provides URL, method and headers and is used to count retries.
+     */
+    private class Replay extends HttpClientCallDecorator {
+
+        /**
+         * Calls sent by this request.
+         */
+        final List<Call> mMergedCalls = new ArrayList<>();
+
+        /**
+         * Callbacks merged from the calls when they were added, only used to check whether more calls fit.
+         * The request is built from the calls left when it is made, as calls can be canceled in the meantime.
+         */
+        private CallTemplate mMergedCallTemplate;
+
+        Replay(Call call) {
+            super(mDecoratedApi, call.mUrl, call.mMethod, call.mHeaders, call.mCallTemplate, call);
+            mMergedCallTemplate = call.mCallTemplate;
+            mMergedCalls.add(call);
+            call.mReplay = this;
+        }
+
+        /**
+         * Add a call to this request if possible.
+         *
+         * @param call call.
+         * @return true if merged.
+         */
+        boolean merge(Call call) {
+            if (mMergedCalls.size() >= MAX_MERGED_CALLS || !(mMergedCallTemplate instanceof MergeableCallTemplate)
+                    || !mUrl.equals(call.mUrl) || !mMethod.equals(call.mMethod) || !mHeaders.equals(call.mHeaders)) {
+                return false;
+            }
+            CallTemplate callTemplate = ((MergeableCallTemplate) mMergedCallTemplate).merge(call.mCallTemplate);
+            if (callTemplate == null) {
+                return false;
+            }
+            mMergedCallTemplate = callTemplate;
+            mMergedCalls.add(call);
+            call.mReplay = this;
+            return true;
+        }
+
+        @Override
+        public void run() {
+            synchronized (HttpClientNetworkStateHandler.this) {
+                if (!mScheduledReplays.remove(this)) {
+                    return;
+                }
+                if (mMergedCalls.isEmpty()) {
+                    completeReplay();
+                    return;
+                }
+
+                /* Merge the bodies of the calls that were not canceled. */
+                CallTemplate callTemplate = mMergedCalls.get(0).mCallTemplate;
+                for (int i = 1; i < mMergedCalls.size(); i++) {
+                    CallTemplate mergedCallTemplate = ((MergeableCallTemplate) callTemplate).merge(mMergedCalls.get(i).mCallTemplate);
+
+                    /* Calls that no longer merge are sent in requests of their own. */
+                    if (mergedCallTemplate == null) {
+                        List<Call> otherCalls = mMergedCalls.subList(i, mMergedCalls.size());
+                        for (int j = otherCalls.size() - 1; j >= 0; j--) {
+                            mReplays.addFirst(new Replay(otherCalls.get(j)));
+                        }
+                        otherCalls.clear();
+                        scheduleReplays();
+                        break;
+                    }
+                    callTemplate = mergedCallTemplate;
+                }
+                if (mMergedCalls.size() > 1) {
+                    AppCenterLog.debug(LOG_TAG, "Sending " + mMergedCalls.size() + " calls in a single request.");
+                }
+                ServiceCall serviceCall = mDecoratedApi.callAsync(mUrl, mMethod, mHeaders, callTemplate, this);
+
+                /* A call sent alone can still be canceled. */
+                if (mMergedCalls.size() == 1) {
+                    mMergedCalls.get(0).mServiceCall = serviceCall;
+                }
+            }
+        }
+
+        /**
+         * Get the calls to notify of the request result.
+         */
+        private List<Call> completeCalls() {
+            synchronized (HttpClientNetworkStateHandler.this) {
+                List<Call> calls = new ArrayList<>(mMergedCalls);
+                mMergedCalls.clear();
+                for (Call call : calls) {
+                    call.mReplay = null;
+                }
+                return calls;
+            }
+        }
+
+        @Override
+        public void onCallSucceeded(HttpResponse httpResponse) {
+            for (Call call : completeCalls()) {
+                call.onCallSucceeded(httpResponse);
+            }
+            completeReplay();
+        }
+
+        @Override
+        public void onCallFailed(Exception e) {
+            List<Call> calls = completeCalls();
+            if (calls.size() > 1 && (HttpUtils.isPayloadTooLargeError(e) || !HttpUtils.isRecoverableError(e))) {
+
+                /*
+                 * The merged request is too large, or was rejected maybe because of a single call:
+                 * send each call on its own so that the other calls don't fail with it.
+                 */
+                for (Call call : calls) {
+                    call.run();
+                }
+            } else {
+                for (Call call : calls) {
+                    call.onCallFailed(e);
+                }
+            }
+            completeReplay();
+        }
+    }
 }
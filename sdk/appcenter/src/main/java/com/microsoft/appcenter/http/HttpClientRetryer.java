@@ -6,21 +6,31 @@
 package com.microsoft.appcenter.http;
 
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
 import androidx.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.utils.AppCenterLog;
 
+import java.net.URL;
 import java.net.UnknownHostException;
-import java.util.Map;
 import java.security.SecureRandom;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static com.microsoft.appcenter.http.DefaultHttpClient.X_MS_RETRY_AFTER_MS_HEADER;
 
 /**
  * Decorator managing retries.
+ * <p>
+ * Retries are scheduled on a background thread owned by the SDK and limited by a {@link RetryBudget}
+ * shared by all calls, which also remembers when each host asked to be called again.
  */
 public class HttpClientRetryer extends HttpClientDecorator {
 
@@ -35,42 +45,192 @@ public class HttpClientRetryer extends HttpClientDecorator {
     };
 
     /**
-     * Android "timer" using the main thread loop.
+     * Maximum delay honored from a server response, longer delays are reduced to it.
+     */
+    @VisibleForTesting
+    static final long MAX_RETRY_AFTER_DELAY = RETRY_INTERVALS[RETRY_INTERVALS.length - 1];
+
+    /**
+     * Standard retry after header, in seconds or as an HTTP date.
+     */
+    @VisibleForTesting
+    static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    /**
+     * HTTP date format used by the retry after header.
+     */
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    /**
+     * Handler of the thread scheduling retries, shared by all retryers and with {@link HttpClientNetworkStateHandler}.
+     */
+    private static Handler sRetryHandler;
+
+    /**
+     * Android "timer" on a background thread.
      */
     private final Handler mHandler;
 
+    /**
+     * Retry budget and retry after times per host.
+     */
+    private final RetryBudget mRetryBudget;
+
     /**
      * Random object for interval randomness.
      */
     private final SecureRandom mRandom = new SecureRandom();
 
+    /**
+     * Last failure that took a retry from the budget.
+     */
+    private Exception mLastFailure;
+
+    /**
+     * Calls that failed with {@link #mLastFailure}.
+     */
+    private final Set<RetryableCall> mLastFailureCalls = new HashSet<>();
+
+    /**
+     * Retry delay of the calls that failed with {@link #mLastFailure}, or -1 if they are not retried.
+     */
+    private long mLastFailureDelay;
+
     /**
      * Init with default retry policy.
      *
      * @param decoratedApi API to decorate.
      */
-    HttpClientRetryer(HttpClient decoratedApi) {
-        this(decoratedApi, new Handler(Looper.getMainLooper()));
+    public HttpClientRetryer(HttpClient decoratedApi) {
+        this(decoratedApi, getRetryHandler(), RetryBudget.getSharedInstance());
     }
 
     /**
-     * Init.
+     * Init with a budget only used by this retryer.
      *
      * @param decoratedApi API to decorate.
      * @param handler      handler for timed retries.
      */
     @VisibleForTesting
     HttpClientRetryer(HttpClient decoratedApi, Handler handler) {
+        this(decoratedApi, handler, new RetryBudget(RetryBudget.DEFAULT_CAPACITY, RetryBudget.DEFAULT_REFILL_INTERVAL, false));
+    }
+
+    /**
+     * Init.
+     *
+     * @param decoratedApi API to decorate.
+     * @param handler      handler for timed retries.
+     * @param retryBudget  retry budget.
+     */
+    @VisibleForTesting
+    HttpClientRetryer(HttpClient decoratedApi, Handler handler, RetryBudget retryBudget) {
         super(decoratedApi);
         mHandler = handler;
+        mRetryBudget = retryBudget;
+    }
+
+    /**
+     * Get the handler of the retry thread, starting the thread the first time.
+     *
+     * @return retry handler.
+     */
+    static synchronized Handler getRetryHandler() {
+        if (sRetryHandler == null) {
+            HandlerThread handlerThread = new HandlerThread("AppCenter.Retry");
+            handlerThread.start();
+            sRetryHandler = new Handler(handlerThread.getLooper());
+        }
+        return sRetryHandler;
+    }
+
+    /**
+     * Get the host of a URL.
+     *
+     * @param url URL, can be null.
+     * @return host or null if the URL is not valid.
+     */
+    @VisibleForTesting
+    static String getHost(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return new URL(url).getHost();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the delay requested by the server in a response.
+     *
+     * @param httpResponse response.
+     * @return delay in milliseconds, 0 if not specified, at most {@link #MAX_RETRY_AFTER_DELAY}.
+     */
+    @VisibleForTesting
+    static long getRetryAfterDelay(HttpResponse httpResponse) {
+        return Math.min(Math.max(0, parseRetryAfterDelay(httpResponse)), MAX_RETRY_AFTER_DELAY);
+    }
+
+    private static long parseRetryAfterDelay(HttpResponse httpResponse) {
+        for (Map.Entry<String, String> header : httpResponse.getHeaders().entrySet()) {
+            String name = header.getKey();
+            String value = header.getValue();
+            if (name == null || value == null) {
+                continue;
+            }
+            try {
+                if (X_MS_RETRY_AFTER_MS_HEADER.equalsIgnoreCase(name)) {
+                    return Long.parseLong(value.trim());
+                }
+                if (RETRY_AFTER_HEADER.equalsIgnoreCase(name)) {
+                    try {
+                        return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+                    } catch (NumberFormatException e) {
+                        Date date = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US).parse(value.trim());
+                        return date.getTime() - System.currentTimeMillis();
+                    }
+                }
+            } catch (NumberFormatException | ParseException e) {
+                AppCenterLog.warn(AppCenter.LOG_TAG, "Invalid " + name + " header value: " + value);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Take a retry from the budget for a failed request.
+     * Calls merged in a single request by {@link HttpClientNetworkStateHandler} fail with the same exception:
+     * they take a single retry from the budget and are retried at the same time.
+     *
+     * @param call  failed call.
+     * @param e     failure.
+     * @param delay retry delay of the call.
+     * @return retry delay of the calls that failed with this exception, or -1 if the budget is exhausted.
+     */
+    private synchronized long acquireRetry(RetryableCall call, Exception e, long delay) {
+        if (e != mLastFailure || !mLastFailureCalls.add(call)) {
+            mLastFailure = e;
+            mLastFailureCalls.clear();
+            mLastFailureCalls.add(call);
+            mLastFailureDelay = mRetryBudget.tryAcquire() ? delay : -1;
+        }
+        return mLastFailureDelay;
     }
 
     @Override
     public ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
 
-        /* Wrap the call with the retry logic and call delegate. */
+        /* Wrap the call with the retry logic and call delegate, unless the host asked to wait. */
         RetryableCall retryableCall = new RetryableCall(mDecoratedApi, url, method, headers, callTemplate, serviceCallback);
-        retryableCall.run();
+        long delay = mRetryBudget.getRetryAfterDelay(retryableCall.mHost);
+        if (delay > 0) {
+            AppCenterLog.debug(AppCenter.LOG_TAG, "Host " + retryableCall.mHost + " asked to wait, call will be made in " + delay + " ms");
+            mHandler.postDelayed(retryableCall, delay);
+        } else {
+            retryableCall.run();
+        }
         return retryableCall;
     }
 
@@ -79,19 +239,43 @@ public class HttpClientRetryer extends HttpClientDecorator {
      */
     private class RetryableCall extends HttpClientCallDecorator {
 
+        /**
+         * Host of the URL.
+         */
+        private final String mHost;
+
         /**
          * Current retry counter. 0 means its the first try.
          */
         private int mRetryCount;
 
+        /**
+         * Number of tries started, including retries requested by the server.
+         */
+        private int mTries;
+
         RetryableCall(HttpClient decoratedApi, String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
             super(decoratedApi, url, method, headers, callTemplate, serviceCallback);
+            mHost = getHost(url);
+        }
+
+        @Override
+        public synchronized void run() {
+            mTries++;
+            super.run();
+        }
+
+        @Override
+        synchronized int getRetryAttempt() {
+            return mTries - 1;
         }
 
         @Override
         public synchronized void cancel() {
             mHandler.removeCallbacks(this);
-            super.cancel();
+            if (mServiceCall != null) {
+                super.cancel();
+            }
         }
 
         @Override
@@ -99,16 +283,26 @@ public class HttpClientRetryer extends HttpClientDecorator {
             if (mRetryCount < RETRY_INTERVALS.length && HttpUtils.isRecoverableError(e)) {
                 long delay = 0;
                 if (e instanceof HttpException) {
-                    HttpException httpException = (HttpException) e;
-                    String retryAfterMs = httpException.getHttpResponse().getHeaders().get(X_MS_RETRY_AFTER_MS_HEADER);
-                    if (retryAfterMs != null) {
-                        delay = Long.parseLong(retryAfterMs);
-                    }
+                    delay = getRetryAfterDelay(((HttpException) e).getHttpResponse());
+
+                    /* Apply the server delay to all calls to this host. */
+                    mRetryBudget.setRetryAfter(mHost, delay);
                 }
+                int retryCount = mRetryCount;
                 if (delay == 0) {
-                    delay = RETRY_INTERVALS[mRetryCount++] / 2;
+                    delay = RETRY_INTERVALS[retryCount++] / 2;
                     delay += mRandom.nextInt((int) delay);
+
+                    /* Don't call before another call was asked to wait. */
+                    delay = Math.max(delay, mRetryBudget.getRetryAfterDelay(mHost));
+                }
+                delay = acquireRetry(this, e, delay);
+                if (delay < 0) {
+                    AppCenterLog.warn(AppCenter.LOG_TAG, "Try #" + mRetryCount + " failed and retry budget is exhausted, not retrying.", e);
+                    mServiceCallback.onCallFailed(e);
+                    return;
                 }
+                mRetryCount = retryCount;
                 String message = "Try #" + mRetryCount + " failed and will be retried in " + delay + " ms";
                 if (e instanceof UnknownHostException) {
                     message += " (UnknownHostException)";
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.AppCenter;
+import com.microsoft.appcenter.utils.AppCenterLog;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Decorator reporting a {@link HttpCallTrace} of each call attempt to the registered listeners.
+ * <p>
+ * It wraps the HTTP client doing the calls, under {@link HttpClientNetworkStateHandler} and {@link HttpClientRetryer},
+ * so that each retry is reported. The wrapped client fills the timings it can measure in the trace
+ * returned by {@link #getTrace(ServiceCallback)}. Calls are not decorated while no listener is registered.
+ */
+public class HttpClientTracer extends HttpClientDecorator {
+
+    /**
+     * Listeners shared by all tracers.
+     */
+    private static final Set<Listener> sListeners = new CopyOnWriteArraySet<>();
+
+    /**
+     * Init.
+     *
+     * @param decoratedApi HTTP client doing the calls.
+     */
+    public HttpClientTracer(HttpClient decoratedApi) {
+        super(decoratedApi);
+    }
+
+    /**
+     * Register a listener for the calls of all HTTP clients of the SDK.
+     *
+     * @param listener listener.
+     */
+    public static void addListener(@NonNull Listener listener) {
+        sListeners.add(listener);
+    }
+
+    /**
+     * Unregister a listener.
+     *
+     * @param listener listener.
+     */
+    public static void removeListener(@NonNull Listener listener) {
+        sListeners.remove(listener);
+    }
+
+    @VisibleForTesting
+    static void removeAllListeners() {
+        sListeners.clear();
+    }
+
+    /**
+     * Get the trace to fill for a call, used by HTTP clients wrapped by this decorator.
+     *
+     * @param serviceCallback callback passed to {@link HttpClient#callAsync}.
+     * @return trace or null if the call is not traced.
+     */
+    public static HttpCallTrace getTrace(ServiceCallback serviceCallback) {
+        if (serviceCallback instanceof TracedCall) {
+            return ((TracedCall) serviceCallback).mTrace;
+        }
+        return null;
+    }
+
+    @Override
+    public ServiceCall callAsync(String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback) {
+        if (sListeners.isEmpty()) {
+            return mDecoratedApi.callAsync(url, method, headers, callTemplate, serviceCallback);
+        }
+        int retryAttempt = 0;
+        if (serviceCallback instanceof HttpClientCallDecorator) {
+            retryAttempt = ((HttpClientCallDecorator) serviceCallback).getRetryAttempt();
+        }
+        TracedCall call = new TracedCall(mDecoratedApi, url, method, headers, callTemplate, serviceCallback, new HttpCallTrace(url, method, retryAttempt));
+        call.run();
+        return call;
+    }
+
+    /**
+     * Listener for call traces.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a call attempt completes, on the thread delivering the result and before the result is handled.
+         * A cancelled call is not reported.
+         *
+         * @param trace trace of the call attempt.
+         */
+        void onCallTraced(HttpCallTrace trace);
+    }
+
+    /**
+     * Call measuring its total time and reporting its trace.
+     */
+    private static class TracedCall extends HttpClientCallDecorator {
+
+        private final HttpCallTrace mTrace;
+
+        private final long mStartTime;
+
+        TracedCall(HttpClient decoratedApi, String url, String method, Map<String, String> headers, CallTemplate callTemplate, ServiceCallback serviceCallback, HttpCallTrace trace) {
+            super(decoratedApi, url, method, headers, callTemplate, serviceCallback);
+            mTrace = trace;
+            mStartTime = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void onCallSucceeded(HttpResponse httpResponse) {
+            mTrace.setStatusCode(httpResponse.getStatusCode());
+            notifyListeners();
+            super.onCallSucceeded(httpResponse);
+        }
+
+        @Override
+        public void onCallFailed(Exception e) {
+            if (e instanceof HttpException) {
+                mTrace.setStatusCode(((HttpException) e).getHttpResponse().getStatusCode());
+            }
+            mTrace.setException(e);
+            notifyListeners();
+            super.onCallFailed(e);
+        }
+
+        private void notifyListeners() {
+            mTrace.setTotalTime(SystemClock.elapsedRealtime() - mStartTime);
+            for (Listener listener : sListeners) {
+
+                /* A failing listener must not prevent the call from completing. */
+                try {
+                    listener.onCallTraced(mTrace);
+                } catch (RuntimeException e) {
+                    AppCenterLog.error(AppCenter.LOG_TAG, "HTTP call trace listener failed.", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.content.Context;
+import android.net.TrafficStats;
+import android.os.Process;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.microsoft.appcenter.utils.AppCenterLog;
+import com.microsoft.appcenter.utils.NetworkStateHelper;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import javax.net.ssl.SSLSocket;
+
+import static com.microsoft.appcenter.AppCenter.LOG_TAG;
+import static com.microsoft.appcenter.http.HttpUtils.THREAD_STATS_TAG;
+
+/**
+ * Resolves the ingestion hosts and does a TLS handshake with them ahead of the first call,
+ * so that the first batch finds the addresses in the DNS cache and resumes the TLS session.
+ * <p>
+ * The warm-up connections use the socket factory shared by the SDK connections,
+ * see {@link HttpUtils#getSSLSocketFactory()}, and are closed right after the handshake.
+ */
+public class HttpConnectionWarmer {
+
+    /**
+     * Default HTTPS port.
+     */
+    private static final int HTTPS_PORT = 443;
+
+    /**
+     * Priority of the warm-up thread, lower than the HTTP calls it must not delay.
+     */
+    @VisibleForTesting
+    static final int THREAD_PRIORITY = Process.THREAD_PRIORITY_LOWEST;
+
+    /**
+     * Single thread executor running the warm-ups, created on first use.
+     */
+    private static Executor sExecutor;
+
+    /**
+     * Hosts already warmed up successfully in this process.
+     */
+    private static final Set<String> sWarmedUpHosts = new HashSet<>();
+
+    @VisibleForTesting
+    HttpConnectionWarmer() {
+
+        /* Hide constructor. */
+    }
+
+    /**
+     * Warm up connections to the hosts of the given URLs in background, if the network is connected.
+     * Each host is warmed up only once per process. Warm-ups run one at a time on their own low priority thread,
+     * so they don't take threads from {@link HttpUtils#getDefaultExecutor()}.
+     *
+     * @param context context.
+     * @param urls    URLs of the endpoints that are going to be called.
+     */
+    public static void warmUp(@NonNull Context context, @NonNull Collection<String> urls) {
+        if (!NetworkStateHelper.getSharedInstance(context).isNetworkConnected()) {
+            AppCenterLog.debug(LOG_TAG, "Skip connection warm-up, network is not connected.");
+            return;
+        }
+        for (final String url : urls) {
+            getExecutor().execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    warmUp(url);
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the executor running the warm-ups.
+     *
+     * @return warm-up executor.
+     */
+    private static synchronized Executor getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = HttpUtils.createExecutor(1, THREAD_PRIORITY);
+        }
+        return sExecutor;
+    }
+
+    /**
+     * Resolve the host of a URL and do a TLS handshake with it, unless it already succeeded in this process.
+     * A failed warm-up can be tried again.
+     *
+     * @param url URL of an endpoint.
+     * @return true if the handshake succeeded.
+     */
+    @WorkerThread
+    public static boolean warmUp(@NonNull String url) {
+        String host;
+        int port;
+        try {
+            URL parsedUrl = new URL(url);
+            host = parsedUrl.getHost();
+            port = parsedUrl.getPort() != -1 ? parsedUrl.getPort() : HTTPS_PORT;
+        } catch (IOException e) {
+            AppCenterLog.warn(LOG_TAG, "Skip connection warm-up of invalid URL: " + url);
+            return false;
+        }
+        String hostKey = host + ":" + port;
+        synchronized (sWarmedUpHosts) {
+            if (sWarmedUpHosts.contains(hostKey)) {
+                return false;
+            }
+        }
+        long startTime = SystemClock.elapsedRealtime();
+
+        /* Do tag socket to avoid strict mode issue. */
+        TrafficStats.setThreadStatsTag(THREAD_STATS_TAG);
+        Socket socket = new Socket();
+        try {
+            InetAddress address = InetAddress.getByName(host);
+            long resolvedTime = SystemClock.elapsedRealtime();
+            socket.connect(new InetSocketAddress(address, port), HttpUtils.CONNECT_TIMEOUT);
+            socket.setSoTimeout(HttpUtils.READ_TIMEOUT);
+
+            /* Layer TLS with the host name so that the session is cached for this host. */
+            SSLSocket sslSocket = (SSLSocket) HttpUtils.getSSLSocketFactory().createSocket(socket, host, port, true);
+            socket = sslSocket;
+            sslSocket.startHandshake();
+            synchronized (sWarmedUpHosts) {
+                sWarmedUpHosts.add(hostKey);
+            }
+            AppCenterLog.debug(LOG_TAG, "Connection to " + host + " warmed up in " + (SystemClock.elapsedRealtime() - startTime)
+                    + "ms, DNS took " + (resolvedTime - startTime) + "ms.");
+            return true;
+        } catch (IOException e) {
+            AppCenterLog.debug(LOG_TAG, "Failed to warm up connection to " + host + ": " + e);
+            return false;
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            TrafficStats.clearThreadStatsTag();
+        }
+    }
+
+    @VisibleForTesting
+    static synchronized void reset() {
+        synchronized (sWarmedUpHosts) {
+            sWarmedUpHosts.clear();
+        }
+        sExecutor = null;
+    }
+}
@@ -7,6 +7,7 @@ package com.microsoft.appcenter.http;
 
 import android.content.Context;
 import android.os.Build;
+import android.os.Process;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
@@ -21,12 +22,19 @@ import java.net.URLConnection;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSocketFactory;
 
 /**
  * HTTP utilities.
@@ -58,6 +66,21 @@ public class HttpUtils {
      */
     public static final int READ_TIMEOUT = 10000;
 
+    /**
+     * Default maximum number of concurrent HTTP calls.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_CALLS = 4;
+
+    /**
+     * Default priority of the threads running HTTP calls.
+     */
+    public static final int DEFAULT_THREAD_PRIORITY = Process.THREAD_PRIORITY_BACKGROUND;
+
+    /**
+     * Time an idle HTTP thread is kept alive, in milliseconds.
+     */
+    private static final long THREAD_KEEP_ALIVE_TIME = 30000;
+
     /**
      * Maximum characters to be displayed in a log for application secret.
      */
@@ -84,15 +107,77 @@ public class HttpUtils {
      */
     private static final Pattern TOKEN_VALUE_PATTERN = Pattern.compile(":[^\"]+");
 
+    /**
+     * Pattern used to replace token in url encoded parameters.
+     */
+    private static final Pattern TOKEN_URL_ENCODED_PATTERN = Pattern.compile("token=[^&]+");
+
     /**
      * One Collector Ingestion API key pattern (secret key within the header value).
      */
     private static final Pattern API_KEY_PATTERN = Pattern.compile("-[^,]+(?<!-)(,|$)");
 
+    /**
+     * Executor shared by HTTP clients that are not given one.
+     */
+    private static Executor sDefaultExecutor;
+
     @VisibleForTesting
     HttpUtils() {
     }
 
+    /**
+     * Get the executor used by default to run HTTP calls,
+     * with {@link #DEFAULT_MAX_CONCURRENT_CALLS} threads at {@link #DEFAULT_THREAD_PRIORITY}.
+     *
+     * @return shared executor.
+     */
+    public static synchronized Executor getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            sDefaultExecutor = createExecutor(DEFAULT_MAX_CONCURRENT_CALLS, DEFAULT_THREAD_PRIORITY);
+        }
+        return sDefaultExecutor;
+    }
+
+    /**
+     * Create an executor to run HTTP calls, owned by the SDK rather than shared with the application.
+     * Calls beyond the concurrency limit are queued, idle threads are stopped.
+     *
+     * @param maxConcurrentCalls maximum number of calls running at the same time.
+     * @param threadPriority     Linux priority of the threads, see {@link Process#setThreadPriority(int)}.
+     * @return new executor.
+     */
+    public static Executor createExecutor(int maxConcurrentCalls, final int threadPriority) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, THREAD_KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                return new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(threadPriority);
+                        runnable.run();
+                    }
+                }, "AppCenter.Http-" + mCount.incrementAndGet());
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Check whether the server rejected a request because its body is too large.
+     *
+     * @param t exception or error.
+     * @return true if the request should be sent again with a smaller body.
+     */
+    public static boolean isPayloadTooLargeError(Throwable t) {
+        return t instanceof HttpException && ((HttpException) t).getHttpResponse().getStatusCode() == HttpsURLConnection.HTTP_ENTITY_TOO_LARGE;
+    }
+
     /**
      * Check whether an exception/error describes a recoverable error or not.
      *
@@ -188,6 +273,16 @@ public class HttpUtils {
         return TOKEN_VALUE_PATTERN.matcher(tickets).replaceAll(":***");
     }
 
+    /**
+     * Hide token values in url encoded parameters of a request body before logging it.
+     *
+     * @param payload request body.
+     * @return obfuscated body.
+     */
+    public static String hideUrlEncodedTokens(@NonNull String payload) {
+        return TOKEN_URL_ENCODED_PATTERN.matcher(payload).replaceAll("token=***");
+    }
+
     public static HttpClient createHttpClient(@NonNull Context context) {
         return createHttpClient(context, true);
     }
@@ -198,13 +293,40 @@ public class HttpUtils {
         return new HttpClientRetryer(createHttpClientWithoutRetryer(context, compressionEnabled));
     }
 
+    /**
+     * Create the default HTTP client stack delivering results on the given executor.
+     *
+     * @param context          context.
+     * @param callbackExecutor executor on which {@link ServiceCallback} methods are called, such as the App Center thread.
+     * @return HTTP client.
+     */
+    public static HttpClient createHttpClient(@NonNull Context context, @NonNull Executor callbackExecutor) {
+        HttpClient httpClient = new HttpClientTracer(new DefaultHttpClient(true, getDefaultExecutor(), callbackExecutor));
+        httpClient = new HttpClientNetworkStateHandler(httpClient, NetworkStateHelper.getSharedInstance(context));
+        return new HttpClientRetryer(httpClient);
+    }
+
     public static HttpClient createHttpClientWithoutRetryer(@NonNull Context context, boolean compressionEnabled) {
-        HttpClient httpClient = new DefaultHttpClient(compressionEnabled);
+        HttpClient httpClient = new HttpClientTracer(new DefaultHttpClient(compressionEnabled));
         NetworkStateHelper networkStateHelper = NetworkStateHelper.getSharedInstance(context);
         httpClient = new HttpClientNetworkStateHandler(httpClient, networkStateHelper);
         return httpClient;
     }
 
+    /**
+     * Get the socket factory of the HTTPS connections created by {@link #createHttpsConnection(URL)}.
+     * It is shared by all connections so that TLS sessions are resumed between them.
+     *
+     * @return socket factory.
+     */
+    @NonNull
+    public static SSLSocketFactory getSSLSocketFactory() {
+        if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.LOLLIPOP) {
+            return TLS1_2SocketFactory.getInstance();
+        }
+        return HttpsURLConnection.getDefaultSSLSocketFactory();
+    }
+
     /**
      * Create HTTPS connection.
      *
@@ -239,7 +361,7 @@ public class HttpUtils {
          * See https://github.com/square/okhttp/issues/2372#issuecomment-244807676
          */
         if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.LOLLIPOP) {
-            httpsURLConnection.setSSLSocketFactory(new TLS1_2SocketFactory());
+            httpsURLConnection.setSSLSocketFactory(TLS1_2SocketFactory.getInstance());
         }
 
         /* Configure connection timeouts. */
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compression of request bodies.
+ * <p>
+ * Bodies are compressed with gzip by default. {@link Deflater}s are kept in a small pool when their stream is closed,
+ * so that compressing a batch does not allocate the native compression state again. Deflaters that do not fit
+ * in the pool are ended right away rather than left to the finalizer.
+ * <p>
+ * A preset dictionary makes small JSON batches compress much better, but it is only allowed when the server
+ * accepts a zlib stream that needs it, so it must only be set for such endpoints.
+ */
+public class RequestCompression {
+
+    /**
+     * Default minimum body length in bytes to compress.
+     */
+    public static final int DEFAULT_MIN_LENGTH = 1400;
+
+    /**
+     * Content encoding of gzip streams.
+     */
+    public static final String ENCODING_GZIP = "gzip";
+
+    /**
+     * Content encoding of zlib streams.
+     */
+    public static final String ENCODING_DEFLATE = "deflate";
+
+    /**
+     * Field names and values found in most App Center and One Collector logs,
+     * the most frequent ones last as deflate prefers close matches.
+     */
+    @VisibleForTesting
+    static final String LOG_DICTIONARY = "\"wrapperSdkVersion\":\"\"wrapperSdkName\":\"\"wrapperRuntimeVersion\":\""
+            + "\"liveUpdateReleaseLabel\":\"\"liveUpdateDeploymentKey\":\"\"liveUpdatePackageHash\":\""
+            + "\"carrierName\":\"\"carrierCountry\":\"\"appNamespace\":\"\"typedProperties\":[{\"type\":\"string\",\"name\":\""
+            + "\"metadata\":{\"f\":{\"data\":{\"baseType\":\"\"baseData\":{\"properties\":{"
+            + "\"ext\":{\"protocol\":{\"devMake\":\"\"devModel\":\"\"},\"user\":{\"localId\":\"a:\",\"locale\":\""
+            + "\"os\":{\"name\":\"Android\",\"ver\":\"\"app\":{\"id\":\"a:\",\"ver\":\"\",\"locale\":\"\"net\":{\"provider\":\""
+            + "\"sdk\":{\"libVer\":\"appcenter.android-\",\"epoch\":\"\",\"seq\":\",\"installId\":\"\"loc\":{\"tz\":\"+"
+            + "{\"ver\":\"3.0\",\"name\":\"\"time\":\"\"iKey\":\"o:\"flags\":"
+            + "\"device\":{\"sdkName\":\"appcenter.android\",\"sdkVersion\":\"\"model\":\"\"oemName\":\""
+            + "\"osName\":\"Android\",\"osVersion\":\"\"osBuild\":\"\"osApiLevel\":\"locale\":\"en_US\",\"timeZoneOffset\":"
+            + "\"screenSize\":\"\"appVersion\":\"\"appBuild\":\"\"},\"userId\":\"\"properties\":{\"value\":\""
+            + "{\"logs\":[{\"type\":\"event\",\"id\":\"\"timestamp\":\"\"sid\":\"\"name\":\"";
+
+    /**
+     * Gzip header without file name, time or extra fields.
+     */
+    private static final byte[] GZIP_HEADER = {(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    /**
+     * Maximum number of idle deflaters kept for each format, one per concurrent call by default.
+     */
+    @VisibleForTesting
+    static final int MAX_IDLE_DEFLATERS = HttpUtils.DEFAULT_MAX_CONCURRENT_CALLS;
+
+    /**
+     * Idle deflaters producing raw deflate data.
+     */
+    @VisibleForTesting
+    static final Deque<Deflater> sIdleRawDeflaters = new ArrayDeque<>();
+
+    /**
+     * Idle deflaters producing zlib data.
+     */
+    @VisibleForTesting
+    static final Deque<Deflater> sIdleZlibDeflaters = new ArrayDeque<>();
+
+    /**
+     * Default settings.
+     */
+    private static final RequestCompression DEFAULT = new RequestCompression(Deflater.DEFAULT_COMPRESSION, DEFAULT_MIN_LENGTH, null);
+
+    private final int mLevel;
+
+    private final int mMinLength;
+
+    private final byte[] mDictionary;
+
+    /**
+     * Init.
+     *
+     * @param level      compression level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param minLength  minimum body length in bytes to compress, smaller bodies are sent as is.
+     * @param dictionary preset dictionary, or null to use gzip. The server must know it, see {@link #getLogDictionary()}.
+     */
+    public RequestCompression(int level, int minLength, byte[] dictionary) {
+        if ((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        mLevel = level;
+        mMinLength = minLength;
+        mDictionary = dictionary;
+    }
+
+    /**
+     * Get the default settings: gzip with the default level for bodies of at least {@link #DEFAULT_MIN_LENGTH} bytes.
+     *
+     * @return default settings.
+     */
+    public static RequestCompression getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get a preset dictionary built from the common fields of App Center and One Collector logs.
+     *
+     * @return dictionary.
+     */
+    public static byte[] getLogDictionary() {
+        return LOG_DICTIONARY.getBytes(Charset.forName(DefaultHttpClient.CHARSET_NAME));
+    }
+
+    /**
+     * Get the minimum body length to compress.
+     *
+     * @return length in bytes.
+     */
+    public int getMinLength() {
+        return mMinLength;
+    }
+
+    /**
+     * Get the content encoding header value of compressed bodies.
+     *
+     * @return {@link #ENCODING_GZIP} or {@link #ENCODING_DEFLATE} when using a preset dictionary.
+     */
+    public String getContentEncoding() {
+        return mDictionary == null ? ENCODING_GZIP : ENCODING_DEFLATE;
+    }
+
+    /**
+     * Take an idle deflater from a pool, or create one if the pool is empty.
+     *
+     * @param pool   pool of idle deflaters.
+     * @param nowrap true for raw deflate data, false for zlib data.
+     * @return deflater.
+     */
+    private static Deflater obtainDeflater(Deque<Deflater> pool, boolean nowrap) {
+        synchronized (pool) {
+            Deflater deflater = pool.pollFirst();
+            if (deflater != null) {
+                return deflater;
+            }
+        }
+        return new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+    }
+
+    /**
+     * Give a deflater back to its pool, or free its native memory if the pool is full.
+     *
+     * @param pool     pool of idle deflaters.
+     * @param deflater deflater no longer used.
+     */
+    private static void releaseDeflater(Deque<Deflater> pool, Deflater deflater) {
+        synchronized (pool) {
+            if (pool.size() < MAX_IDLE_DEFLATERS) {
+                pool.addFirst(deflater);
+                return;
+            }
+        }
+        deflater.end();
+    }
+
+    /**
+     * Get a stream compressing to the given stream with a pooled deflater.
+     * Closing the stream closes the given stream and gives the deflater back to the pool.
+     *
+     * @param out          stream to write compressed data to.
+     * @param bufferLength size of the output buffer.
+     * @return compressing stream.
+     * @throws IOException if writing the header fails.
+     */
+    public OutputStream compress(@NonNull OutputStream out, int bufferLength) throws IOException {
+        Deque<Deflater> pool = mDictionary == null ? sIdleRawDeflaters : sIdleZlibDeflaters;
+        Deflater deflater = obtainDeflater(pool, mDictionary == null);
+        deflater.reset();
+        deflater.setLevel(mLevel);
+        if (mDictionary != null) {
+            deflater.setDictionary(mDictionary);
+            return new PooledDeflaterStream(out, pool, deflater, bufferLength);
+        }
+        return new GzipStream(out, pool, deflater, bufferLength);
+    }
+
+    /**
+     * Stop using a stream returned by {@link #compress(OutputStream, int)} that failed or will not be finished.
+     * Its deflater is ended instead of going back to the pool: the stream can no longer be used, and the stream it was writing to is not closed.
+     *
+     * @param compressingStream stream returned by {@link #compress(OutputStream, int)}.
+     */
+    public static void abort(@NonNull OutputStream compressingStream) {
+        if (compressingStream instanceof PooledDeflaterStream) {
+            ((PooledDeflaterStream) compressingStream).abort();
+        }
+    }
+
+    /**
+     * Compress a body.
+     *
+     * @param payload body.
+     * @return compressed body.
+     * @throws IOException if compression fails.
+     */
+    public byte[] compress(@NonNull byte[] payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length / 2);
+        OutputStream out = compress(buffer, HttpUtils.WRITE_BUFFER_SIZE);
+
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            out.write(payload);
+        } finally {
+            out.close();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Deflater stream giving its deflater back to the pool when closed.
+     */
+    private static class PooledDeflaterStream extends DeflaterOutputStream {
+
+        private final Deque<Deflater> mPool;
+
+        private boolean mReleased;
+
+        PooledDeflaterStream(OutputStream out, Deque<Deflater> pool, Deflater deflater, int bufferLength) {
+            super(out, deflater, bufferLength);
+            mPool = pool;
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean closed = false;
+            try {
+                super.close();
+                closed = true;
+            } finally {
+
+                /* A deflater that failed to finish is not reused. */
+                if (closed && !mReleased) {
+                    mReleased = true;
+                    releaseDeflater(mPool, def);
+                } else {
+                    abort();
+                }
+            }
+        }
+
+        /**
+         * End the deflater without giving it back to the pool, unless already released.
+         */
+        void abort() {
+            if (!mReleased) {
+                mReleased = true;
+                def.end();
+            }
+        }
+    }
+
+    /**
+     * Gzip stream using a given deflater, unlike {@link java.util.zip.GZIPOutputStream}.
+     */
+    private static class GzipStream extends PooledDeflaterStream {
+
+        private final CRC32 mCrc = new CRC32();
+
+        GzipStream(OutputStream out, Deque<Deflater> pool, Deflater deflater, int bufferLength) throws IOException {
+            super(out, pool, deflater, bufferLength);
+            try {
+                out.write(GZIP_HEADER);
+            } catch (IOException e) {
+                abort();
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(@NonNull byte[] buffer, int offset, int count) throws IOException {
+            super.write(buffer, offset, count);
+            mCrc.update(buffer, offset, count);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!def.finished()) {
+                super.finish();
+                writeInt((int) mCrc.getValue());
+                writeInt(def.getTotalIn());
+            }
+        }
+
+        private void writeInt(int value) throws IOException {
+            out.write(value & 0xff);
+            out.write((value >> 8) & 0xff);
+            out.write((value >> 16) & 0xff);
+            out.write((value >> 24) & 0xff);
+        }
+    }
+}
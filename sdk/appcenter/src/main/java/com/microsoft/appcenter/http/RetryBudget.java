@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.microsoft.appcenter.utils.storage.SharedPreferencesManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries allowed across all calls of the HTTP clients sharing this budget,
+ * and the time before which each host asked not to be called again.
+ * <p>
+ * The budget is a token bucket: each retry takes a token and tokens come back over time.
+ * The shared instance keeps its state in storage so that restarting the process does not reset it.
+ */
+class RetryBudget {
+
+    /**
+     * Default maximum number of tokens, enough for 2 calls to use all their retries at once.
+     */
+    @VisibleForTesting
+    static final int DEFAULT_CAPACITY = 2 * HttpClientRetryer.RETRY_INTERVALS.length;
+
+    /**
+     * Default time to get a token back, in milliseconds.
+     */
+    @VisibleForTesting
+    static final long DEFAULT_REFILL_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Storage key for the number of tokens.
+     */
+    @VisibleForTesting
+    static final String PREF_TOKENS = "AppCenter.retryBudgetTokens";
+
+    /**
+     * Storage key for the time the last token was given back.
+     */
+    @VisibleForTesting
+    static final String PREF_REFILL_TIME = "AppCenter.retryBudgetRefillTime";
+
+    /**
+     * Storage key prefix for the retry after time of a host.
+     */
+    @VisibleForTesting
+    static final String PREF_RETRY_AFTER_PREFIX = "AppCenter.retryAfter.";
+
+    /**
+     * Shared instance.
+     */
+    private static RetryBudget sSharedInstance;
+
+    private final int mCapacity;
+
+    private final long mRefillInterval;
+
+    /**
+     * Whether the state is kept in storage.
+     */
+    private final boolean mPersistent;
+
+    /**
+     * Time before which each host must not be called, in milliseconds since epoch.
+     */
+    private final Map<String, Long> mRetryAfterTimes = new HashMap<>();
+
+    /**
+     * Whether the state was read from storage.
+     */
+    private boolean mLoaded;
+
+    private int mTokens;
+
+    private long mRefillTime;
+
+    /**
+     * Init.
+     *
+     * @param capacity       maximum number of tokens.
+     * @param refillInterval time to get a token back, in milliseconds.
+     * @param persistent     whether to keep the state in storage.
+     */
+    RetryBudget(int capacity, long refillInterval, boolean persistent) {
+        mCapacity = capacity;
+        mRefillInterval = refillInterval;
+        mPersistent = persistent;
+        mTokens = capacity;
+    }
+
+    /**
+     * Get the budget shared by the SDK HTTP clients.
+     *
+     * @return shared instance.
+     */
+    static synchronized RetryBudget getSharedInstance() {
+        if (sSharedInstance == null) {
+            sSharedInstance = new RetryBudget(DEFAULT_CAPACITY, DEFAULT_REFILL_INTERVAL, true);
+        }
+        return sSharedInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void unsetSharedInstance() {
+        sSharedInstance = null;
+    }
+
+    /**
+     * Take a token for a retry.
+     *
+     * @return true if a retry is allowed, false if the budget is exhausted.
+     */
+    synchronized boolean tryAcquire() {
+        load();
+
+        /* Give tokens back for the time elapsed since the last refill. */
+        long now = System.currentTimeMillis();
+        if (mTokens < mCapacity) {
+            long elapsed = now - mRefillTime;
+            if (elapsed < 0) {
+
+                /* Clock went back, restart counting. */
+                mRefillTime = now;
+            } else if (elapsed >= mRefillInterval) {
+                long refill = elapsed / mRefillInterval;
+                mTokens = (int) Math.min(mCapacity, mTokens + refill);
+                mRefillTime += refill * mRefillInterval;
+            }
+        } else {
+            mRefillTime = now;
+        }
+        if (mTokens == 0) {
+            return false;
+        }
+        mTokens--;
+        if (mPersistent) {
+            SharedPreferencesManager.putInt(PREF_TOKENS, mTokens);
+            SharedPreferencesManager.putLong(PREF_REFILL_TIME, mRefillTime);
+        }
+        return true;
+    }
+
+    /**
+     * Remember that a host asked not to be called before some time.
+     *
+     * @param host  host, can be null if unknown.
+     * @param delay delay from now in milliseconds, longer delays than {@link HttpClientRetryer#MAX_RETRY_AFTER_DELAY} are reduced to it.
+     */
+    synchronized void setRetryAfter(String host, long delay) {
+        if (host == null || delay <= 0) {
+            return;
+        }
+        long time = System.currentTimeMillis() + Math.min(delay, HttpClientRetryer.MAX_RETRY_AFTER_DELAY);
+        Long previousTime = getRetryAfterTime(host);
+        if (previousTime == null || previousTime < time) {
+            mRetryAfterTimes.put(host, time);
+            if (mPersistent) {
+                SharedPreferencesManager.putLong(PREF_RETRY_AFTER_PREFIX + host, time);
+            }
+        }
+    }
+
+    /**
+     * Get the time to wait before calling a host.
+     *
+     * @param host host, can be null if unknown.
+     * @return delay from now in milliseconds, 0 if the host can be called now.
+     */
+    synchronized long getRetryAfterDelay(String host) {
+        if (host == null) {
+            return 0;
+        }
+        Long time = getRetryAfterTime(host);
+        if (time == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long delay = time - now;
+        if (delay <= 0) {
+            mRetryAfterTimes.remove(host);
+            if (mPersistent) {
+                SharedPreferencesManager.remove(PREF_RETRY_AFTER_PREFIX + host);
+            }
+            return 0;
+        }
+
+        /* A time stored before the device clock went back can't postpone calls for longer than the maximum delay. */
+        if (delay > HttpClientRetryer.MAX_RETRY_AFTER_DELAY) {
+            delay = HttpClientRetryer.MAX_RETRY_AFTER_DELAY;
+            mRetryAfterTimes.put(host, now + delay);
+            if (mPersistent) {
+                SharedPreferencesManager.putLong(PREF_RETRY_AFTER_PREFIX + host, now + delay);
+            }
+        }
+        return delay;
+    }
+
+    private Long getRetryAfterTime(String host) {
+        Long time = mRetryAfterTimes.get(host);
+        if (time == null && mPersistent && !mRetryAfterTimes.containsKey(host)) {
+            long storedTime = SharedPreferencesManager.getLong(PREF_RETRY_AFTER_PREFIX + host, 0);
+            time = storedTime > 0 ? storedTime : null;
+            mRetryAfterTimes.put(host, time);
+        }
+        return time;
+    }
+
+    /**
+     * Read the token state from storage the first time it is needed,
+     * storage might not be initialized yet when the HTTP clients are created.
+     */
+    private void load() {
+        if (mPersistent && !mLoaded) {
+            mTokens = Math.min(mCapacity, Math.max(0, SharedPreferencesManager.getInt(PREF_TOKENS, mCapacity)));
+            mRefillTime = SharedPreferencesManager.getLong(PREF_REFILL_TIME, System.currentTimeMillis());
+        }
+        mLoaded = true;
+    }
+}
@@ -19,6 +19,9 @@ import static javax.net.ssl.HttpsURLConnection.getDefaultSSLSocketFactory;
 
 /**
  * This class forces TLS 1.2 protocol via adapter pattern.
+ * <p>
+ * Connections should use {@link #getInstance()} so that they share the TLS session cache of a single context
+ * and can be pooled together.
  */
 class TLS1_2SocketFactory extends SSLSocketFactory {
 
@@ -39,6 +42,11 @@ class TLS1_2SocketFactory extends SSLSocketFactory {
      */
     private final SSLSocketFactory delegate;
 
+    /**
+     * Shared instance.
+     */
+    private static TLS1_2SocketFactory sInstance;
+
     TLS1_2SocketFactory() {
         SSLSocketFactory socketFactory = null;
         try {
@@ -55,6 +63,18 @@ class TLS1_2SocketFactory extends SSLSocketFactory {
         delegate = socketFactory != null ? socketFactory : getDefaultSSLSocketFactory();
     }
 
+    /**
+     * Get the factory shared by all connections.
+     *
+     * @return shared instance.
+     */
+    static synchronized TLS1_2SocketFactory getInstance() {
+        if (sInstance == null) {
+            sInstance = new TLS1_2SocketFactory();
+        }
+        return sInstance;
+    }
+
     /**
      * Force TLS 1.2 protocol on a socket.
      *
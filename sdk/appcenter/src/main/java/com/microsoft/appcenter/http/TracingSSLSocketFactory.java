@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Socket factory measuring the connect and TLS handshake times of a traced call.
+ * <p>
+ * It is equal to the other tracing factories wrapping the same factory, so that pooled connections are still reused between traced calls.
+ */
+class TracingSSLSocketFactory extends SSLSocketFactory {
+
+    /**
+     * Socket factory.
+     *
+     * Do not rename it! See https://github.com/square/okhttp/issues/2323
+     */
+    private final SSLSocketFactory delegate;
+
+    /**
+     * Trace to fill, cleared when the call ends as the connection pool can keep this factory.
+     */
+    private volatile HttpCallTrace mTrace;
+
+    /**
+     * Whether the connection started to be opened.
+     */
+    private boolean mConnectStarted;
+
+    /**
+     * Time the connection started to be opened.
+     */
+    private long mConnectStartTime;
+
+    TracingSSLSocketFactory(SSLSocketFactory delegate, HttpCallTrace trace) {
+        this.delegate = delegate;
+        mTrace = trace;
+    }
+
+    /**
+     * Mark the time the connection starts to be opened, unless already marked.
+     */
+    synchronized void markConnectStart() {
+        if (!mConnectStarted) {
+            mConnectStarted = true;
+            mConnectStartTime = SystemClock.elapsedRealtime();
+
+            /* Reused connection unless a socket is created. */
+            HttpCallTrace trace = mTrace;
+            if (trace != null) {
+                trace.setConnectTime(0);
+                trace.setTlsTime(0);
+            }
+        }
+    }
+
+    /**
+     * Stop filling the trace.
+     */
+    void release() {
+        mTrace = null;
+    }
+
+    /**
+     * Do the TLS handshake now to measure it.
+     *
+     * @param socket socket returned by the delegate once connected.
+     * @return that same socket.
+     */
+    private Socket handshake(Socket socket) throws IOException {
+        HttpCallTrace trace = mTrace;
+        if (trace != null && socket instanceof SSLSocket) {
+            long handshakeStartTime = SystemClock.elapsedRealtime();
+            synchronized (this) {
+                trace.setConnectTime(mConnectStarted ? handshakeStartTime - mConnectStartTime : HttpCallTrace.UNKNOWN);
+            }
+            ((SSLSocket) socket).startHandshake();
+            trace.setTlsTime(SystemClock.elapsedRealtime() - handshakeStartTime);
+        }
+        return socket;
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return delegate.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return handshake(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return handshake(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return handshake(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return handshake(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        return handshake(delegate.createSocket(socket, host, port, autoClose));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TracingSSLSocketFactory && delegate.equals(((TracingSSLSocketFactory) o).delegate);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+}
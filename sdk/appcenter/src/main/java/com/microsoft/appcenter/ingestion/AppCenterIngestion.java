@@ -12,16 +12,24 @@ import com.microsoft.appcenter.http.AbstractAppCallTemplate;
 import com.microsoft.appcenter.http.HttpClient;
 import com.microsoft.appcenter.http.ServiceCall;
 import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.StreamingLogSerializer;
+import com.microsoft.appcenter.utils.AppCenterLog;
 
 import org.json.JSONException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import static android.util.Log.VERBOSE;
 import static com.microsoft.appcenter.Constants.APP_SECRET;
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
 
@@ -48,6 +56,13 @@ public class AppCenterIngestion extends AbstractAppCenterIngestion {
     @VisibleForTesting
     static final String INSTALL_ID = "Install-ID";
 
+    /**
+     * Maximum number of logs sent in a request merging several batches,
+     * so that a merged request is not larger than a batch of the default size.
+     */
+    @VisibleForTesting
+    static final int MAX_MERGED_LOG_COUNT = 50;
+
     /**
      * Log serializer.
      */
@@ -77,7 +92,7 @@ public class AppCenterIngestion extends AbstractAppCenterIngestion {
     /**
      * Inner class is used to be able to mock System.currentTimeMillis, does not work if using anonymous inner class...
      */
-    private static class IngestionCallTemplate extends AbstractAppCallTemplate {
+    private static class IngestionCallTemplate extends AbstractAppCallTemplate implements HttpClient.StreamingCallTemplate, HttpClient.ResponseCallTemplate, HttpClient.MergeableCallTemplate {
 
         private final LogSerializer mLogSerializer;
 
@@ -94,5 +109,47 @@ public class AppCenterIngestion extends AbstractAppCenterIngestion {
             /* Serialize payload. */
             return mLogSerializer.serializeContainer(mLogContainer);
         }
+
+        @Override
+        public void writeRequestBody(Writer writer) throws JSONException, IOException {
+
+            /* Stream logs so that data kept in files, like attachments, is not loaded in memory. */
+            if (mLogSerializer instanceof StreamingLogSerializer) {
+                ((StreamingLogSerializer) mLogSerializer).writeContainer(mLogContainer, writer);
+            } else {
+                writer.write(buildRequestBody());
+            }
+        }
+
+        @Override
+        public HttpClient.ResponseMode getResponseMode() {
+
+            /* Only the status matters, read the body only to log it. */
+            return AppCenterLog.getLogLevel() <= VERBOSE ? HttpClient.ResponseMode.READ : HttpClient.ResponseMode.DISCARD;
+        }
+
+        @Override
+        public void readResponseBody(InputStream inputStream) {
+
+            /* Not streamed. */
+        }
+
+        @Override
+        public HttpClient.CallTemplate merge(HttpClient.CallTemplate callTemplate) {
+            if (!(callTemplate instanceof IngestionCallTemplate)) {
+                return null;
+            }
+            List<Log> otherLogs = ((IngestionCallTemplate) callTemplate).mLogContainer.getLogs();
+            if (mLogContainer.getLogs().size() + otherLogs.size() > MAX_MERGED_LOG_COUNT) {
+                return null;
+            }
+
+            /* Same URL and headers means same app secret and install identifier, logs can share a container. */
+            List<Log> logs = new ArrayList<>(mLogContainer.getLogs());
+            logs.addAll(otherLogs);
+            LogContainer logContainer = new LogContainer();
+            logContainer.setLogs(logs);
+            return new IngestionCallTemplate(mLogSerializer, logContainer);
+        }
     }
 }
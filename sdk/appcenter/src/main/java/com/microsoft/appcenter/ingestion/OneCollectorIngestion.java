@@ -16,6 +16,7 @@ import com.microsoft.appcenter.http.ServiceCallback;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.StreamingLogSerializer;
 import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.TicketCache;
@@ -24,8 +25,12 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -45,7 +50,7 @@ public class OneCollectorIngestion extends AbstractAppCenterIngestion {
     /**
      * Default log URL.
      */
-    private static final String DEFAULT_LOG_URL = "https://mobile.events.data.microsoft.com/OneCollector/1.0";
+    public static final String DEFAULT_LOG_URL = "https://mobile.events.data.microsoft.com/OneCollector/1.0";
 
     /**
      * Content type header.
@@ -107,29 +112,21 @@ public class OneCollectorIngestion extends AbstractAppCenterIngestion {
     public ServiceCall sendAsync(String appSecret, UUID installId, LogContainer logContainer, ServiceCallback serviceCallback) throws IllegalArgumentException {
         super.sendAsync(appSecret, installId, logContainer, serviceCallback);
 
-        /* Gather API keys from logs. */
+        /* Gather API keys and tickets from logs in a single pass. */
         Map<String, String> headers = new HashMap<>();
         Set<String> apiKeys = new LinkedHashSet<>();
+        Set<String> ticketKeys = new HashSet<>();
+        JSONObject tickets = new JSONObject();
         for (Log log : logContainer.getLogs()) {
             apiKeys.addAll(log.getTransmissionTargetTokens());
-        }
+            List<String> logTicketKeys = ((CommonSchemaLog) log).getExt().getProtocol().getTicketKeys();
+            if (logTicketKeys != null) {
+                for (String ticketKey : logTicketKeys) {
 
-        /* Build the header. String.join with iterable is only API level 26+. */
-        StringBuilder apiKey = new StringBuilder();
-        for (String targetToken : apiKeys) {
-            apiKey.append(targetToken).append(",");
-        }
-        if (!apiKeys.isEmpty()) {
-            apiKey.deleteCharAt(apiKey.length() - 1);
-        }
-        headers.put(API_KEY, apiKey.toString());
-
-        /* Gather tokens from logs. */
-        JSONObject tickets = new JSONObject();
-        for (Log log : logContainer.getLogs()) {
-            List<String> ticketKeys = ((CommonSchemaLog) log).getExt().getProtocol().getTicketKeys();
-            if (ticketKeys != null) {
-                for (String ticketKey : ticketKeys) {
+                    /* Logs of a batch usually share the same tickets, look them up once. */
+                    if (!ticketKeys.add(ticketKey)) {
+                        continue;
+                    }
                     String token = TicketCache.getTicket(ticketKey);
                     if (token != null) {
                         try {
@@ -143,6 +140,16 @@ public class OneCollectorIngestion extends AbstractAppCenterIngestion {
             }
         }
 
+        /* Build the header. String.join with iterable is only API level 26+. */
+        StringBuilder apiKey = new StringBuilder();
+        for (String targetToken : apiKeys) {
+            apiKey.append(targetToken).append(",");
+        }
+        if (!apiKeys.isEmpty()) {
+            apiKey.deleteCharAt(apiKey.length() - 1);
+        }
+        headers.put(API_KEY, apiKey.toString());
+
         /* Pass ticket header if we have at least 1 token. */
         if (tickets.length() > 0) {
             headers.put(TICKETS, tickets.toString());
@@ -171,7 +178,7 @@ public class OneCollectorIngestion extends AbstractAppCenterIngestion {
     /**
      * Call template implementation for One Collector.
      */
-    private static class IngestionCallTemplate implements HttpClient.CallTemplate {
+    private static class IngestionCallTemplate implements HttpClient.StreamingCallTemplate, HttpClient.ResponseCallTemplate {
 
         /**
          * Log serializer.
@@ -195,14 +202,43 @@ public class OneCollectorIngestion extends AbstractAppCenterIngestion {
         public String buildRequestBody() throws JSONException {
 
             /* Serialize payload. */
-            StringBuilder jsonStream = new StringBuilder();
-            for (Log log : mLogContainer.getLogs()) {
-                jsonStream.append(mLogSerializer.serializeLog(log));
+            StringWriter writer = new StringWriter();
+            try {
+                writeRequestBody(writer);
+            } catch (IOException e) {
 
-                /* We have to use a different delimiter specific to OneCollector. */
-                jsonStream.append('\n');
+                /* A string writer does not fail. */
+                throw new IllegalStateException(e);
             }
-            return jsonStream.toString();
+            return writer.toString();
+        }
+
+        @Override
+        public void writeRequestBody(Writer writer) throws JSONException, IOException {
+
+            /* We have to use a different delimiter specific to OneCollector: one log per line. */
+            List<Log> logs = mLogContainer.getLogs();
+            if (mLogSerializer instanceof StreamingLogSerializer) {
+                ((StreamingLogSerializer) mLogSerializer).writeLogLines(logs, writer);
+            } else {
+                for (Log log : logs) {
+                    writer.write(mLogSerializer.serializeLog(log));
+                    writer.write('\n');
+                }
+            }
+        }
+
+        @Override
+        public HttpClient.ResponseMode getResponseMode() {
+
+            /* Only the status matters, read the body only to log it. */
+            return AppCenterLog.getLogLevel() <= VERBOSE ? HttpClient.ResponseMode.READ : HttpClient.ResponseMode.DISCARD;
+        }
+
+        @Override
+        public void readResponseBody(InputStream inputStream) {
+
+            /* Not streamed. */
         }
 
         @Override
@@ -5,6 +5,7 @@
 
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -16,6 +17,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashSet;
@@ -186,14 +188,13 @@ public abstract class AbstractLog implements Log {
     @Override
     public void write(JSONStringer writer) throws JSONException {
         JSONUtils.write(writer, TYPE, getType());
-        writer.key(TIMESTAMP).value(JSONDateUtils.toString(getTimestamp()));
+        JSONDateUtils.write(writer, TIMESTAMP, getTimestamp());
         JSONUtils.write(writer, SID, getSid());
         JSONUtils.write(writer, DISTRIBUTION_GROUP_ID, getDistributionGroupId());
         JSONUtils.write(writer, USER_ID, getUserId());
         if (getDevice() != null) {
-            writer.key(DEVICE).object();
-            getDevice().write(writer);
-            writer.endObject();
+            writer.key(DEVICE);
+            getDevice().writeObject(writer);
         }
         if (getDataResidencyRegion() != null) {
             JSONUtils.write(writer, DATA_RESIDENCY_REGION, getDataResidencyRegion());
@@ -221,6 +222,73 @@ public abstract class AbstractLog implements Log {
         }
     }
 
+    /**
+     * Read the log from a JSON stream, using {@link #readProperty(String, JsonReader)} for each property.
+     * Subclasses declare {@link StreamingModel} once they read all their properties that way, so that
+     * subclasses that only override {@link #read(JSONObject)} are still read from a {@link JSONObject}.
+     *
+     * @param reader JSON stream positioned before the log object.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if a property is missing or invalid.
+     */
+    public void read(JsonReader reader) throws IOException, JSONException {
+        String type = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (TYPE.equals(name)) {
+                type = reader.nextString();
+            } else if (!readProperty(name, reader)) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        JSONUtils.checkRequired(type, TYPE);
+        if (!type.equals(getType())) {
+            throw new JSONException("Invalid type");
+        }
+        checkRequiredProperties();
+    }
+
+    /**
+     * Read a property value from a JSON stream.
+     *
+     * @param name   property name.
+     * @param reader JSON stream positioned before the value.
+     * @return true if the value was read, false if the property is unknown and must be skipped.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the value is invalid.
+     */
+    protected boolean readProperty(String name, JsonReader reader) throws IOException, JSONException {
+        if (TIMESTAMP.equals(name)) {
+            setTimestamp(JSONDateUtils.toDate(reader.nextString()));
+        } else if (SID.equals(name)) {
+            setSid(UUID.fromString(reader.nextString()));
+        } else if (DISTRIBUTION_GROUP_ID.equals(name)) {
+            setDistributionGroupId(JSONUtils.readString(reader));
+        } else if (USER_ID.equals(name)) {
+            setUserId(JSONUtils.readString(reader));
+        } else if (DEVICE.equals(name)) {
+            Device device = new Device();
+            device.read(reader);
+            setDevice(device);
+        } else if (DATA_RESIDENCY_REGION.equals(name)) {
+            setDataResidencyRegion(JSONUtils.readString(reader));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check the properties read from a JSON stream once the object is complete.
+     *
+     * @throws JSONException if a required property is missing.
+     */
+    protected void checkRequiredProperties() throws JSONException {
+        JSONUtils.checkRequired(getTimestamp(), TIMESTAMP);
+    }
+
     @SuppressWarnings("EqualsReplaceableByObjectsCall")
     @Override
     public boolean equals(Object o) {
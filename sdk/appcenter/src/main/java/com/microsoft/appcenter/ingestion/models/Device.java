@@ -5,14 +5,22 @@
 
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
+import com.microsoft.appcenter.ingestion.models.json.BufferedJSONStringer;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
+
 /**
  * Device characteristic log.
+ * <p>
+ * A device must not be modified once attached to logs: the JSON of the last device written is kept
+ * and reused while the same instance is written again. Use a new instance when properties change.
  */
 public class Device extends WrapperSdk {
 
@@ -48,6 +56,11 @@ public class Device extends WrapperSdk {
 
     private static final String APP_NAMESPACE = "appNamespace";
 
+    /**
+     * Last device written as a JSON object, compared by identity.
+     */
+    private static volatile SerializedDevice sLastSerializedDevice;
+
     /**
      * Name of the SDK.
      */
@@ -439,6 +452,95 @@ public class Device extends WrapperSdk {
         setAppNamespace(object.optString(APP_NAMESPACE, null));
     }
 
+    @Override
+    protected boolean readProperty(String name, JsonReader reader) throws IOException, JSONException {
+        if (SDK_NAME.equals(name)) {
+            setSdkName(reader.nextString());
+        } else if (SDK_VERSION.equals(name)) {
+            setSdkVersion(reader.nextString());
+        } else if (MODEL.equals(name)) {
+            setModel(reader.nextString());
+        } else if (OEM_NAME.equals(name)) {
+            setOemName(reader.nextString());
+        } else if (OS_NAME.equals(name)) {
+            setOsName(reader.nextString());
+        } else if (OS_VERSION.equals(name)) {
+            setOsVersion(reader.nextString());
+        } else if (OS_BUILD.equals(name)) {
+            setOsBuild(JSONUtils.readString(reader));
+        } else if (OS_API_LEVEL.equals(name)) {
+            setOsApiLevel(reader.nextInt());
+        } else if (LOCALE.equals(name)) {
+            setLocale(reader.nextString());
+        } else if (TIME_ZONE_OFFSET.equals(name)) {
+            setTimeZoneOffset(reader.nextInt());
+        } else if (SCREEN_SIZE.equals(name)) {
+            setScreenSize(reader.nextString());
+        } else if (APP_VERSION.equals(name)) {
+            setAppVersion(reader.nextString());
+        } else if (CARRIER_NAME.equals(name)) {
+            setCarrierName(JSONUtils.readString(reader));
+        } else if (CARRIER_COUNTRY.equals(name)) {
+            setCarrierCountry(JSONUtils.readString(reader));
+        } else if (APP_BUILD.equals(name)) {
+            setAppBuild(reader.nextString());
+        } else if (APP_NAMESPACE.equals(name)) {
+            setAppNamespace(JSONUtils.readString(reader));
+        } else {
+            return super.readProperty(name, reader);
+        }
+        return true;
+    }
+
+    @Override
+    protected void checkRequiredProperties() throws JSONException {
+        super.checkRequiredProperties();
+        JSONUtils.checkRequired(getSdkName(), SDK_NAME);
+        JSONUtils.checkRequired(getSdkVersion(), SDK_VERSION);
+        JSONUtils.checkRequired(getModel(), MODEL);
+        JSONUtils.checkRequired(getOemName(), OEM_NAME);
+        JSONUtils.checkRequired(getOsName(), OS_NAME);
+        JSONUtils.checkRequired(getOsVersion(), OS_VERSION);
+        JSONUtils.checkRequired(getLocale(), LOCALE);
+        JSONUtils.checkRequired(getTimeZoneOffset(), TIME_ZONE_OFFSET);
+        JSONUtils.checkRequired(getScreenSize(), SCREEN_SIZE);
+        JSONUtils.checkRequired(getAppVersion(), APP_VERSION);
+        JSONUtils.checkRequired(getAppBuild(), APP_BUILD);
+    }
+
+    /**
+     * Forget the JSON kept for the last device written.
+     */
+    public static void invalidateSerializedCache() {
+        sLastSerializedDevice = null;
+    }
+
+    /**
+     * Write this device as a JSON object value.
+     * A {@link BufferedJSONStringer} gets a copy of the JSON kept for this instance if it was the last device written.
+     *
+     * @param writer JSON writer, after the property name.
+     * @throws JSONException if a required property is missing.
+     */
+    void writeObject(JSONStringer writer) throws JSONException {
+        if (!(writer instanceof BufferedJSONStringer)) {
+            writer.object();
+            write(writer);
+            writer.endObject();
+            return;
+        }
+        SerializedDevice serializedDevice = sLastSerializedDevice;
+        if (serializedDevice == null || serializedDevice.mDevice != this) {
+            BufferedJSONStringer deviceWriter = new BufferedJSONStringer();
+            deviceWriter.object();
+            write(deviceWriter);
+            deviceWriter.endObject();
+            serializedDevice = new SerializedDevice(this, deviceWriter.toString());
+            sLastSerializedDevice = serializedDevice;
+        }
+        ((BufferedJSONStringer) writer).rawValue(serializedDevice.mJson);
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
@@ -542,4 +644,19 @@ public class Device extends WrapperSdk {
         result = 31 * result + (appNamespace != null ? appNamespace.hashCode() : 0);
         return result;
     }
+
+    /**
+     * A device with its JSON object.
+     */
+    private static class SerializedDevice {
+
+        final Device mDevice;
+
+        final String mJson;
+
+        SerializedDevice(Device device, String json) {
+            mDevice = device;
+            mJson = json;
+        }
+    }
 }
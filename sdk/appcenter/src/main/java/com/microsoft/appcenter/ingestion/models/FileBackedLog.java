@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Log whose large data can stay in a file instead of memory, such as a binary attachment.
+ * The data is read from the file only while the log is written to a
+ * {@link com.microsoft.appcenter.ingestion.models.json.BufferedJSONStringer} with an output set.
+ */
+public interface FileBackedLog extends Log {
+
+    /**
+     * Check whether the data of this log is kept in a file.
+     *
+     * @return true if the log must be streamed rather than serialized in memory.
+     */
+    boolean isFileBacked();
+
+    /**
+     * Read the log from a file where it was stored as a single JSON object,
+     * keeping a reference to its large data in that file instead of loading it.
+     *
+     * @param file file containing the serialized log, which must not be modified while the log is used.
+     * @throws IOException   if the file cannot be read or is malformed.
+     * @throws JSONException if a property is missing or invalid.
+     */
+    void read(File file) throws IOException, JSONException;
+}
@@ -5,12 +5,15 @@
 
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -49,6 +52,15 @@ public abstract class LogWithProperties extends AbstractLog {
         setProperties(JSONUtils.readMap(object, PROPERTIES));
     }
 
+    @Override
+    protected boolean readProperty(String name, JsonReader reader) throws IOException, JSONException {
+        if (PROPERTIES.equals(name)) {
+            setProperties(JSONUtils.readMap(reader));
+            return true;
+        }
+        return super.readProperty(name, reader);
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
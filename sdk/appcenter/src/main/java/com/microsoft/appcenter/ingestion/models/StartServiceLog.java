@@ -5,19 +5,22 @@
 
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
  * Describe a AppCenter.start call from the SDK.
  */
 @SuppressWarnings("RedundantSuppression")
-public class StartServiceLog extends AbstractLog {
+public class StartServiceLog extends AbstractLog implements StreamingModel {
 
     /**
      * Log type.
@@ -76,6 +79,18 @@ public class StartServiceLog extends AbstractLog {
         oneCollectorEnabled(JSONUtils.readBoolean(object, IS_ONE_COLLECTOR_ENABLED));
     }
 
+    @Override
+    protected boolean readProperty(String name, JsonReader reader) throws IOException, JSONException {
+        if (SERVICES.equals(name)) {
+            setServices(JSONUtils.readStringArray(reader));
+        } else if (IS_ONE_COLLECTOR_ENABLED.equals(name)) {
+            oneCollectorEnabled(reader.nextBoolean());
+        } else {
+            return super.readProperty(name, reader);
+        }
+        return true;
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models;
+
+import android.util.JsonReader;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+
+/**
+ * Model that can also be read from a JSON stream, without building a {@link org.json.JSONObject} first.
+ * Models implementing only {@link Model} are still read with {@link Model#read(org.json.JSONObject)}.
+ */
+public interface StreamingModel extends Model {
+
+    /**
+     * Read the next JSON object of the stream, including its braces.
+     * Unknown properties are skipped.
+     *
+     * @param reader JSON stream positioned before the object.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if a property is missing or invalid, like {@link Model#read(org.json.JSONObject)}.
+     */
+    void read(JsonReader reader) throws IOException, JSONException;
+}
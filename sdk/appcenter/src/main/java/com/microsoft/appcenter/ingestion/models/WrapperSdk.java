@@ -5,13 +5,17 @@
 
 package com.microsoft.appcenter.ingestion.models;
 
+import android.util.JsonReader;
+
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
-public class WrapperSdk implements Model {
+import java.io.IOException;
+
+public class WrapperSdk implements StreamingModel {
 
     private static final String WRAPPER_SDK_VERSION = "wrapperSdkVersion";
 
@@ -178,6 +182,54 @@ public class WrapperSdk implements Model {
         setLiveUpdatePackageHash(object.optString(LIVE_UPDATE_PACKAGE_HASH, null));
     }
 
+    @Override
+    public void read(JsonReader reader) throws IOException, JSONException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!readProperty(reader.nextName(), reader)) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        checkRequiredProperties();
+    }
+
+    /**
+     * Read a property value from a JSON stream.
+     *
+     * @param name   property name.
+     * @param reader JSON stream positioned before the value.
+     * @return true if the value was read, false if the property is unknown and must be skipped.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if the value is invalid.
+     */
+    protected boolean readProperty(String name, JsonReader reader) throws IOException, JSONException {
+        if (WRAPPER_SDK_VERSION.equals(name)) {
+            setWrapperSdkVersion(JSONUtils.readString(reader));
+        } else if (WRAPPER_SDK_NAME.equals(name)) {
+            setWrapperSdkName(JSONUtils.readString(reader));
+        } else if (WRAPPER_RUNTIME_VERSION.equals(name)) {
+            setWrapperRuntimeVersion(JSONUtils.readString(reader));
+        } else if (LIVE_UPDATE_RELEASE_LABEL.equals(name)) {
+            setLiveUpdateReleaseLabel(JSONUtils.readString(reader));
+        } else if (LIVE_UPDATE_DEPLOYMENT_KEY.equals(name)) {
+            setLiveUpdateDeploymentKey(JSONUtils.readString(reader));
+        } else if (LIVE_UPDATE_PACKAGE_HASH.equals(name)) {
+            setLiveUpdatePackageHash(JSONUtils.readString(reader));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check the properties read from a JSON stream once the object is complete.
+     *
+     * @throws JSONException if a required property is missing.
+     */
+    protected void checkRequiredProperties() throws JSONException {
+    }
+
     @Override
     public void write(JSONStringer writer) throws JSONException {
         JSONUtils.write(writer, WRAPPER_SDK_VERSION, getWrapperSdkVersion());
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models.json;
+
+import androidx.annotation.NonNull;
+
+import com.microsoft.appcenter.ingestion.models.Log;
+
+import org.json.JSONException;
+
+import java.util.List;
+
+/**
+ * Log serializer that can also deserialize logs read together, like the rows of a database query,
+ * sharing what they have in common instead of deserializing each log on its own.
+ */
+public interface BatchLogSerializer extends LogSerializer {
+
+    /**
+     * Deserialize logs like {@link #deserializeLog(String, String)}, logs with identical devices sharing the same {@link com.microsoft.appcenter.ingestion.models.Device}.
+     * A log that cannot be deserialized does not prevent deserializing the other ones.
+     *
+     * @param payloads serialized logs.
+     * @param types    types of the logs at the same positions, null elements to read the type from the payload.
+     * @param errors   where an element is added for each payload: the error if the log cannot be deserialized, null otherwise.
+     * @return logs at the same positions as their payloads, null elements for the logs that cannot be deserialized.
+     */
+    @NonNull
+    List<Log> deserializeLogs(@NonNull List<String> payloads, @NonNull List<String> types, @NonNull List<JSONException> errors);
+}
@@ -0,0 +1,612 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models.json;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.UUID;
+
+/**
+ * JSON writer producing the same text as {@link JSONStringer} into a growable character buffer
+ * that is kept between documents, so that {@link com.microsoft.appcenter.ingestion.models.Model#write(JSONStringer)}
+ * implementations can use it unchanged.
+ * <p>
+ * Strings without characters to escape are copied in bulk, integers, {@link UUID} values and nested
+ * {@link JSONObject} or {@link JSONArray} values are written without building strings. Call {@link #reset()} before writing another document with the same instance.
+ * An instance must only be used by one thread at a time.
+ */
+public class BufferedJSONStringer extends JSONStringer {
+
+    /**
+     * Initial buffer capacity in characters.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Initial nesting capacity.
+     */
+    private static final int INITIAL_DEPTH = 8;
+
+    /**
+     * Nesting state: in an array without values.
+     */
+    private static final int EMPTY_ARRAY = 1;
+
+    /**
+     * Nesting state: in an array with values.
+     */
+    private static final int NONEMPTY_ARRAY = 2;
+
+    /**
+     * Nesting state: in an object without properties.
+     */
+    private static final int EMPTY_OBJECT = 3;
+
+    /**
+     * Nesting state: in an object after a key, waiting for its value.
+     */
+    private static final int DANGLING_KEY = 4;
+
+    /**
+     * Nesting state: in an object with properties.
+     */
+    private static final int NONEMPTY_OBJECT = 5;
+
+    /**
+     * Buffered characters written to the output, if any, while writing a large value.
+     */
+    private static final int FLUSH_THRESHOLD = 8 * 1024;
+
+    /**
+     * Bytes read at once when encoding a stream, a multiple of 3 to encode without padding.
+     */
+    private static final int BASE64_CHUNK_SIZE = 3 * 1024;
+
+    /**
+     * Base64 digits.
+     */
+    private static final char[] BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Characters to escape: 0 to copy as is, 'u' for a unicode escape, else the escape letter.
+     */
+    private static final char[] ESCAPES = new char[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['/'] = '/';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\f'] = 'f';
+    }
+
+    /**
+     * Characters written so far.
+     */
+    private char[] mBuffer = new char[INITIAL_CAPACITY];
+
+    /**
+     * Number of characters written.
+     */
+    private int mLength;
+
+    /**
+     * Nesting states, innermost last.
+     */
+    private int[] mStack = new int[INITIAL_DEPTH];
+
+    /**
+     * Nesting depth.
+     */
+    private int mDepth;
+
+    /**
+     * Where large values are flushed, null to keep everything in the buffer.
+     */
+    private Writer mOutput;
+
+    /**
+     * Forget the current document and output to write another one, keeping the buffer.
+     */
+    public void reset() {
+        mLength = 0;
+        mDepth = 0;
+        mOutput = null;
+    }
+
+    /**
+     * Set a writer where the buffer is flushed while writing large values read from streams,
+     * so that they are not held in memory. The characters still in the buffer must then be written
+     * with {@link #writeTo(Writer)} at the end of the document, {@link #toString()} only returns them.
+     *
+     * @param output writer, or null to keep the whole document in the buffer.
+     */
+    public void setOutput(Writer output) {
+        mOutput = output;
+    }
+
+    /**
+     * Get the buffer capacity.
+     *
+     * @return capacity in characters.
+     */
+    int getCapacity() {
+        return mBuffer.length;
+    }
+
+    /**
+     * Get the number of characters written.
+     *
+     * @return length.
+     */
+    public int length() {
+        return mLength;
+    }
+
+    /**
+     * Write the document to a writer, without building a string.
+     *
+     * @param writer writer.
+     * @throws IOException if writing fails.
+     */
+    public void writeTo(@NonNull Writer writer) throws IOException {
+        writer.write(mBuffer, 0, mLength);
+    }
+
+    @Override
+    public JSONStringer array() throws JSONException {
+        return open(EMPTY_ARRAY, '[');
+    }
+
+    @Override
+    public JSONStringer endArray() throws JSONException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    @Override
+    public JSONStringer object() throws JSONException {
+        return open(EMPTY_OBJECT, '{');
+    }
+
+    @Override
+    public JSONStringer endObject() throws JSONException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    @Override
+    public JSONStringer key(String name) throws JSONException {
+        if (name == null) {
+            throw new JSONException("Names must be non-null");
+        }
+        int context = peek();
+        if (context == NONEMPTY_OBJECT) {
+            append(',');
+        } else if (context != EMPTY_OBJECT) {
+            throw new JSONException("Nesting problem");
+        }
+        mStack[mDepth - 1] = DANGLING_KEY;
+        string(name);
+        return this;
+    }
+
+    @Override
+    public JSONStringer value(Object value) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        if (value instanceof String) {
+            string((String) value);
+        } else if (value instanceof Integer || value instanceof Long) {
+            appendLong(((Number) value).longValue());
+        } else if (value instanceof UUID) {
+            uuid((UUID) value);
+        } else if (value instanceof JSONObject) {
+            nestedObject((JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            nestedArray((JSONArray) value);
+        } else if (value == null || value instanceof Boolean || value == JSONObject.NULL) {
+            append(String.valueOf(value));
+        } else if (value instanceof Number) {
+            append(JSONObject.numberToString((Number) value));
+        } else {
+            string(value.toString());
+        }
+        return this;
+    }
+
+    @Override
+    public JSONStringer value(boolean value) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        append(value ? "true" : "false");
+        return this;
+    }
+
+    @Override
+    public JSONStringer value(double value) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        append(JSONObject.numberToString(value));
+        return this;
+    }
+
+    @Override
+    public JSONStringer value(long value) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        appendLong(value);
+        return this;
+    }
+
+    /**
+     * Write a value that is already serialized, such as a JSON object kept from a previous document.
+     *
+     * @param json serialized value.
+     * @return this writer.
+     * @throws JSONException if there is no value expected.
+     */
+    public JSONStringer rawValue(@NonNull String json) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        append(json);
+        return this;
+    }
+
+    /**
+     * Write a value that is already serialized and read from a stream, such as a large string kept in a file.
+     *
+     * @param json   stream of the serialized value, only ASCII characters.
+     * @param length number of bytes to read.
+     * @return this writer.
+     * @throws JSONException if there is no value expected.
+     * @throws IOException   if reading the stream or flushing to the output fails.
+     */
+    public JSONStringer rawValue(@NonNull InputStream json, long length) throws JSONException, IOException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        byte[] bytes = new byte[(int) Math.min(length, FLUSH_THRESHOLD)];
+        while (length > 0) {
+            int read = json.read(bytes, 0, (int) Math.min(length, bytes.length));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            ensureCapacity(read);
+            for (int i = 0; i < read; i++) {
+                mBuffer[mLength++] = (char) bytes[i];
+            }
+            length -= read;
+            flushIfNeeded();
+        }
+        return this;
+    }
+
+    /**
+     * Write the content of a stream as a base64 string, like a {@link String} value encoded with
+     * {@code Base64.encodeToString(data, Base64.NO_WRAP)}, without holding the content in memory.
+     *
+     * @param input stream to encode until its end.
+     * @return this writer.
+     * @throws JSONException if there is no value expected.
+     * @throws IOException   if reading the stream or flushing to the output fails.
+     */
+    public JSONStringer base64Value(@NonNull InputStream input) throws JSONException, IOException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        append('"');
+        byte[] bytes = new byte[BASE64_CHUNK_SIZE];
+        int length;
+        do {
+
+            /* Fill the chunk so that only the last one needs padding. */
+            length = 0;
+            int read = 0;
+            while (length < bytes.length && (read = input.read(bytes, length, bytes.length - length)) >= 0) {
+                length += read;
+            }
+
+            /* Each 3 bytes become 4 digits, slash being escaped like in a string. */
+            ensureCapacity((length + 2) / 3 * 8);
+            for (int i = 0; i < length; i += 3) {
+                int bits = (bytes[i] & 0xff) << 16;
+                if (i + 1 < length) {
+                    bits |= (bytes[i + 1] & 0xff) << 8;
+                }
+                if (i + 2 < length) {
+                    bits |= bytes[i + 2] & 0xff;
+                }
+                appendBase64Digit(bits >> 18);
+                appendBase64Digit(bits >> 12);
+                if (i + 1 < length) {
+                    appendBase64Digit(bits >> 6);
+                } else {
+                    mBuffer[mLength++] = '=';
+                }
+                if (i + 2 < length) {
+                    appendBase64Digit(bits);
+                } else {
+                    mBuffer[mLength++] = '=';
+                }
+            }
+            flushIfNeeded();
+        } while (length == bytes.length);
+        append('"');
+        return this;
+    }
+
+    private void appendBase64Digit(int bits) {
+        char digit = BASE64_DIGITS[bits & 0x3f];
+        if (digit == '/') {
+            mBuffer[mLength++] = '\\';
+        }
+        mBuffer[mLength++] = digit;
+    }
+
+    /**
+     * Write the buffer to the output, if any, once it is large enough.
+     */
+    private void flushIfNeeded() throws IOException {
+        if (mOutput != null && mLength >= FLUSH_THRESHOLD) {
+            mOutput.write(mBuffer, 0, mLength);
+            mLength = 0;
+        }
+    }
+
+    /**
+     * Write a quoted date formatted by {@link JSONDateUtils#format(long, char[], int)}, without building a string.
+     *
+     * @param time milliseconds since epoch, supported by {@link JSONDateUtils#isSupported(long)}.
+     * @throws JSONException if there is no value expected.
+     */
+    void dateValue(long time) throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        beforeValue();
+        ensureCapacity(JSONDateUtils.DATE_LENGTH + 2);
+        mBuffer[mLength++] = '"';
+        JSONDateUtils.format(time, mBuffer, mLength);
+        mLength += JSONDateUtils.DATE_LENGTH;
+        mBuffer[mLength++] = '"';
+    }
+
+    /**
+     * Get the document, or null if nothing was written, like {@link JSONStringer#toString()}.
+     * Only the characters not flushed yet are returned when an output is set.
+     */
+    @Override
+    public String toString() {
+        return mLength == 0 ? null : new String(mBuffer, 0, mLength);
+    }
+
+    private JSONStringer open(int empty, char openBracket) throws JSONException {
+        if (mDepth == 0 && mLength > 0) {
+            throw new JSONException("Nesting problem: multiple top-level roots");
+        }
+        beforeValue();
+        push(empty, openBracket);
+        return this;
+    }
+
+    private void push(int empty, char openBracket) {
+        if (mDepth == mStack.length) {
+            mStack = Arrays.copyOf(mStack, mDepth * 2);
+        }
+        mStack[mDepth++] = empty;
+        append(openBracket);
+    }
+
+    /**
+     * Write the properties of a {@link JSONObject} value in this buffer, instead of appending
+     * {@link JSONObject#toString()} that serializes them with another {@link JSONStringer}.
+     */
+    private void nestedObject(JSONObject object) throws JSONException {
+        push(EMPTY_OBJECT, '{');
+        for (Iterator<String> iterator = object.keys(); iterator.hasNext(); ) {
+            String name = iterator.next();
+            key(name).value(object.opt(name));
+        }
+        close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    /**
+     * Write the values of a {@link JSONArray} value in this buffer.
+     */
+    private void nestedArray(JSONArray array) throws JSONException {
+        push(EMPTY_ARRAY, '[');
+        for (int i = 0; i < array.length(); i++) {
+            value(array.opt(i));
+        }
+        close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    private JSONStringer close(int empty, int nonempty, char closeBracket) throws JSONException {
+        int context = peek();
+        if (context != nonempty && context != empty) {
+            throw new JSONException("Nesting problem");
+        }
+        mDepth--;
+        append(closeBracket);
+        return this;
+    }
+
+    private int peek() throws JSONException {
+        if (mDepth == 0) {
+            throw new JSONException("Nesting problem");
+        }
+        return mStack[mDepth - 1];
+    }
+
+    /**
+     * Insert the separator needed before a value and update the nesting state.
+     */
+    private void beforeValue() throws JSONException {
+        if (mDepth == 0) {
+            return;
+        }
+        int context = mStack[mDepth - 1];
+        if (context == EMPTY_ARRAY) {
+            mStack[mDepth - 1] = NONEMPTY_ARRAY;
+        } else if (context == NONEMPTY_ARRAY) {
+            append(',');
+        } else if (context == DANGLING_KEY) {
+            append(':');
+            mStack[mDepth - 1] = NONEMPTY_OBJECT;
+        } else {
+            throw new JSONException("Nesting problem");
+        }
+    }
+
+    /**
+     * Write a quoted and escaped string.
+     */
+    private void string(String value) {
+        int length = value.length();
+        ensureCapacity(length + 2);
+        mBuffer[mLength++] = '"';
+
+        /* Copy the characters that don't need escaping in bulk. */
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= ESCAPES.length || ESCAPES[c] == 0) {
+                continue;
+            }
+            if (i > start) {
+                value.getChars(start, i, mBuffer, mLength);
+                mLength += i - start;
+            }
+            start = i + 1;
+
+            /* Room for the longest escape, the rest of the string and the closing quote. */
+            ensureCapacity(6 + length - start + 1);
+            char escape = ESCAPES[c];
+            mBuffer[mLength++] = '\\';
+            if (escape == 'u') {
+                mBuffer[mLength++] = 'u';
+                mBuffer[mLength++] = '0';
+                mBuffer[mLength++] = '0';
+                mBuffer[mLength++] = HEX_DIGITS[c >> 4];
+                mBuffer[mLength++] = HEX_DIGITS[c & 0xf];
+            } else {
+                mBuffer[mLength++] = escape;
+            }
+        }
+        if (length > start) {
+            value.getChars(start, length, mBuffer, mLength);
+            mLength += length - start;
+        }
+        mBuffer[mLength++] = '"';
+    }
+
+    /**
+     * Write a quoted UUID, in the format of {@link UUID#toString()}.
+     */
+    private void uuid(UUID value) {
+        ensureCapacity(38);
+        mBuffer[mLength++] = '"';
+        long mostSignificantBits = value.getMostSignificantBits();
+        long leastSignificantBits = value.getLeastSignificantBits();
+        appendHex(mostSignificantBits >>> 32, 8);
+        mBuffer[mLength++] = '-';
+        appendHex(mostSignificantBits >>> 16, 4);
+        mBuffer[mLength++] = '-';
+        appendHex(mostSignificantBits, 4);
+        mBuffer[mLength++] = '-';
+        appendHex(leastSignificantBits >>> 48, 4);
+        mBuffer[mLength++] = '-';
+        appendHex(leastSignificantBits, 12);
+        mBuffer[mLength++] = '"';
+    }
+
+    /**
+     * Write the lowest digits of a number in hexadecimal.
+     */
+    private void appendHex(long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            mBuffer[mLength + i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+        mLength += digits;
+    }
+
+    /**
+     * Write a number in decimal.
+     */
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            mBuffer[mLength++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = mLength + digits - 1; i >= mLength; i--) {
+            mBuffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        mLength += digits;
+    }
+
+    private void append(char c) {
+        ensureCapacity(1);
+        mBuffer[mLength++] = c;
+    }
+
+    private void append(String value) {
+        int length = value.length();
+        ensureCapacity(length);
+        value.getChars(0, length, mBuffer, mLength);
+        mLength += length;
+    }
+
+    private void ensureCapacity(int extra) {
+        int capacity = mLength + extra;
+        if (capacity > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(capacity, mBuffer.length * 2));
+        }
+    }
+}
@@ -5,17 +5,28 @@
 
 package com.microsoft.appcenter.ingestion.models.json;
 
+import android.util.JsonReader;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
+import com.microsoft.appcenter.ingestion.models.Device;
+import com.microsoft.appcenter.ingestion.models.FileBackedLog;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
+import com.microsoft.appcenter.utils.storage.FileManager;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -24,12 +35,57 @@ import java.util.Map;
 
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.TYPE;
 
-public class DefaultLogSerializer implements LogSerializer {
+public class DefaultLogSerializer implements StreamingLogSerializer, BatchLogSerializer {
 
     private static final String LOGS = "logs";
 
+    /**
+     * Start of a serialized log, whose type is written first.
+     */
+    private static final String TYPE_PREFIX = "{\"" + TYPE + "\":\"";
+
+    /**
+     * Writers with a buffer larger than this, after serializing large attachments for example, are not kept.
+     */
+    @VisibleForTesting
+    static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    /**
+     * Writer kept by each thread between serializations, null while in use.
+     */
+    private static final ThreadLocal<BufferedJSONStringer> sWriter = new ThreadLocal<BufferedJSONStringer>() {
+
+        @Override
+        protected BufferedJSONStringer initialValue() {
+            return new BufferedJSONStringer();
+        }
+    };
+
     private final Map<String, LogFactory> mLogFactories = new HashMap<>();
 
+    /**
+     * Get the writer of the current thread, or a new one if it is already in use.
+     */
+    private static BufferedJSONStringer obtainWriter() {
+        BufferedJSONStringer writer = sWriter.get();
+        if (writer == null) {
+            return new BufferedJSONStringer();
+        }
+        sWriter.set(null);
+        writer.reset();
+        return writer;
+    }
+
+    /**
+     * Keep a writer for the next serialization on the current thread, unless its buffer grew too much.
+     */
+    private static void releaseWriter(BufferedJSONStringer writer) {
+        writer.setOutput(null);
+        if (writer.getCapacity() <= MAX_RETAINED_CAPACITY) {
+            sWriter.set(writer);
+        }
+    }
+
     @NonNull
     private JSONStringer writeLog(JSONStringer writer, Log log) throws JSONException {
         writer.object();
@@ -52,16 +108,161 @@ public class DefaultLogSerializer implements LogSerializer {
         return log;
     }
 
+    @NonNull
+    private static Log readLog(String json, String type, LogFactory logFactory) throws JSONException {
+        if (logFactory == null) {
+            throw new JSONException("Unknown log type: " + type);
+        }
+        Log log = logFactory.create();
+
+        /* Logs that can't be read from a stream, like the ones of other libraries, are read from a JSON object. */
+        if (!(log instanceof StreamingModel)) {
+            log.read(new JSONObject(json));
+            return log;
+        }
+        try {
+            ((StreamingModel) log).read(new JsonReader(new StringReader(json)));
+            return log;
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+
+            /* Report malformed or unexpected values like JSON objects do. */
+            JSONException exception = new JSONException(e.getMessage());
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    /**
+     * Get the log type from the start of a serialized log without parsing it.
+     *
+     * @param json serialized log.
+     * @return log type, or null if the log does not start with its type.
+     */
+    private static String peekType(String json) {
+        if (json.startsWith(TYPE_PREFIX)) {
+            int end = json.indexOf('"', TYPE_PREFIX.length());
+            if (end > 0 && json.lastIndexOf('\\', end) < TYPE_PREFIX.length()) {
+                return json.substring(TYPE_PREFIX.length(), end);
+            }
+        }
+        return null;
+    }
+
     @NonNull
     @Override
     public String serializeLog(@NonNull Log log) throws JSONException {
-        return writeLog(new JSONStringer(), log).toString();
+        BufferedJSONStringer writer = obtainWriter();
+        try {
+            return writeLog(writer, log).toString();
+        } finally {
+            releaseWriter(writer);
+        }
+    }
+
+    @Override
+    public void writeLogLines(@NonNull List<Log> logs, @NonNull Writer writer) throws JSONException, IOException {
+        BufferedJSONStringer jsonWriter = obtainWriter();
+        try {
+            for (Log log : logs) {
+
+                /* Reuse the buffer for each log, a document has only one root. */
+                jsonWriter.reset();
+                writeLog(jsonWriter, log);
+                jsonWriter.writeTo(writer);
+                writer.write('\n');
+            }
+        } finally {
+            releaseWriter(jsonWriter);
+        }
+    }
+
+    @Override
+    public void writeLog(@NonNull Log log, @NonNull Writer writer) throws JSONException, IOException {
+        BufferedJSONStringer jsonWriter = obtainWriter();
+        try {
+            jsonWriter.setOutput(writer);
+            writeLog(jsonWriter, log);
+            jsonWriter.writeTo(writer);
+        } finally {
+            releaseWriter(jsonWriter);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Log deserializeLog(@NonNull File file, String type) throws JSONException, IOException {
+        LogFactory logFactory = type == null ? null : mLogFactories.get(type);
+        Log log = logFactory == null ? null : logFactory.create();
+        if (log instanceof FileBackedLog) {
+            ((FileBackedLog) log).read(file);
+            return log;
+        }
+
+        /* Other logs are small enough to be read as a string. */
+        String json = FileManager.read(file);
+        if (json == null) {
+            throw new IOException("Cannot read log file " + file);
+        }
+        return deserializeLog(json, type);
     }
 
     @NonNull
     @Override
     public Log deserializeLog(@NonNull String json, String type) throws JSONException {
-        return readLog(new JSONObject(json), type);
+        if (type == null) {
+            type = peekType(json);
+            if (type == null) {
+                return readLog(new JSONObject(json), null);
+            }
+        }
+        return readLog(json, type, mLogFactories.get(type));
+    }
+
+    @NonNull
+    @Override
+    public List<Log> deserializeLogs(@NonNull List<String> payloads, @NonNull List<String> types, @NonNull List<JSONException> errors) {
+        List<Log> logs = new ArrayList<>(payloads.size());
+        Map<Device, Device> devices = new HashMap<>();
+        String lastType = null;
+        LogFactory lastLogFactory = null;
+        for (int i = 0; i < payloads.size(); i++) {
+            String json = payloads.get(i);
+            String type = types.get(i);
+            try {
+                if (type == null) {
+                    type = peekType(json);
+                }
+                Log log;
+                if (type == null) {
+                    log = readLog(new JSONObject(json), null);
+                } else {
+
+                    /* Logs read together are often of the same type. */
+                    if (!type.equals(lastType)) {
+                        lastType = type;
+                        lastLogFactory = mLogFactories.get(type);
+                    }
+                    log = readLog(json, type, lastLogFactory);
+                }
+
+                /* Share identical devices, which also lets them be serialized once when logs are sent. */
+                Device device = log.getDevice();
+                if (device != null) {
+                    Device sharedDevice = devices.get(device);
+                    if (sharedDevice == null) {
+                        devices.put(device, device);
+                    } else {
+                        log.setDevice(sharedDevice);
+                    }
+                }
+                logs.add(log);
+                errors.add(null);
+            } catch (JSONException e) {
+                logs.add(null);
+                errors.add(e);
+            }
+        }
+        return logs;
     }
 
     @Override
@@ -74,17 +275,39 @@ public class DefaultLogSerializer implements LogSerializer {
     public String serializeContainer(@NonNull LogContainer logContainer) throws JSONException {
 
         /* Init JSON serializer. */
-        JSONStringer writer = new JSONStringer();
+        BufferedJSONStringer writer = obtainWriter();
+        try {
 
-        /* Start writing JSON. */
-        writer.object();
-        writer.key(LOGS).array();
-        for (Log log : logContainer.getLogs()) {
-            writeLog(writer, log);
+            /* Start writing JSON. */
+            writer.object();
+            writer.key(LOGS).array();
+            for (Log log : logContainer.getLogs()) {
+                writeLog(writer, log);
+            }
+            writer.endArray();
+            writer.endObject();
+            return writer.toString();
+        } finally {
+            releaseWriter(writer);
+        }
+    }
+
+    @Override
+    public void writeContainer(@NonNull LogContainer logContainer, @NonNull Writer writer) throws JSONException, IOException {
+        BufferedJSONStringer jsonWriter = obtainWriter();
+        try {
+            jsonWriter.setOutput(writer);
+            jsonWriter.object();
+            jsonWriter.key(LOGS).array();
+            for (Log log : logContainer.getLogs()) {
+                writeLog(jsonWriter, log);
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+            jsonWriter.writeTo(writer);
+        } finally {
+            releaseWriter(jsonWriter);
         }
-        writer.endArray();
-        writer.endObject();
-        return writer.toString();
     }
 
     @NonNull
@@ -5,7 +5,10 @@
 
 package com.microsoft.appcenter.ingestion.models.json;
 
+import androidx.annotation.VisibleForTesting;
+
 import org.json.JSONException;
+import org.json.JSONStringer;
 
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -18,11 +21,43 @@ import java.util.TimeZone;
  * Utility to convert date to string and vice versa to use in JSON payloads.
  * The date format is using ISO 8601 and includes date and time to milliseconds accuracy.
  * It also always uses UTC timezone.
+ * <p>
+ * Dates are formatted and parsed from epoch milliseconds without {@link SimpleDateFormat},
+ * which is only kept for dates before {@link #MIN_YEAR} or after {@link #MAX_YEAR}.
  */
 public final class JSONDateUtils {
 
     /**
-     * Date formatter.
+     * Length of a formatted date.
+     */
+    static final int DATE_LENGTH = 24;
+
+    /**
+     * First year formatted without {@link SimpleDateFormat}, which uses the Julian calendar for dates before 1582.
+     */
+    @VisibleForTesting
+    static final int MIN_YEAR = 1600;
+
+    /**
+     * Last year formatted without {@link SimpleDateFormat}, with 4 digits.
+     */
+    @VisibleForTesting
+    static final int MAX_YEAR = 9999;
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+
+    /**
+     * First time formatted without {@link SimpleDateFormat}.
+     */
+    private static final long MIN_TIME = daysFromCivil(MIN_YEAR, 1, 1) * MILLIS_PER_DAY;
+
+    /**
+     * Last time formatted without {@link SimpleDateFormat}.
+     */
+    private static final long MAX_TIME = daysFromCivil(MAX_YEAR + 1, 1, 1) * MILLIS_PER_DAY - 1;
+
+    /**
+     * Date formatter for the dates out of the supported range.
      */
     private static final ThreadLocal<DateFormat> DATE_FORMAT = new ThreadLocal<DateFormat>() {
 
@@ -55,7 +90,13 @@ public final class JSONDateUtils {
      */
     public static String toString(Date date) throws JSONException {
         checkNull(date);
-        return DATE_FORMAT.get().format(date);
+        long time = date.getTime();
+        if (!isSupported(time)) {
+            return DATE_FORMAT.get().format(date);
+        }
+        char[] buffer = new char[DATE_LENGTH];
+        format(time, buffer, 0);
+        return new String(buffer);
     }
 
     /**
@@ -67,10 +108,155 @@ public final class JSONDateUtils {
      */
     public static Date toDate(String date) throws JSONException {
         checkNull(date);
+
+        /* Years after the supported range are formatted with more than 4 digits. */
+        if (date.length() > DATE_LENGTH && date.charAt(date.length() - DATE_LENGTH + 4) == '-') {
+            return parseWithDateFormat(date);
+        }
+        if (date.length() != DATE_LENGTH
+                || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != 'T'
+                || date.charAt(13) != ':' || date.charAt(16) != ':' || date.charAt(19) != '.' || date.charAt(23) != 'Z') {
+            throw new JSONException("Unparseable date: \"" + date + "\"");
+        }
+        int year = parseDigits(date, 0, 4);
+        if (year >= 0 && year < MIN_YEAR) {
+            return parseWithDateFormat(date);
+        }
+        int month = parseDigits(date, 5, 2);
+        int day = parseDigits(date, 8, 2);
+        int hour = parseDigits(date, 11, 2);
+        int minute = parseDigits(date, 14, 2);
+        int second = parseDigits(date, 17, 2);
+        int millisecond = parseDigits(date, 20, 3);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millisecond < 0) {
+            throw new JSONException("Unparseable date: \"" + date + "\"");
+        }
+        long days = daysFromCivil(year, month, day);
+        return new Date(days * MILLIS_PER_DAY + ((hour * 60L + minute) * 60L + second) * 1000L + millisecond);
+    }
+
+    private static Date parseWithDateFormat(String date) throws JSONException {
         try {
             return DATE_FORMAT.get().parse(date);
         } catch (ParseException e) {
             throw new JSONException(e.getMessage());
         }
     }
+
+    /**
+     * Write a date value, directly in the buffer of a {@link BufferedJSONStringer}.
+     *
+     * @param writer JSON writer.
+     * @param key    property name.
+     * @param date   date.
+     * @throws JSONException if the date is null.
+     */
+    public static void write(JSONStringer writer, String key, Date date) throws JSONException {
+        checkNull(date);
+        writer.key(key);
+        long time = date.getTime();
+        if (writer instanceof BufferedJSONStringer && isSupported(time)) {
+            ((BufferedJSONStringer) writer).dateValue(time);
+        } else {
+            writer.value(toString(date));
+        }
+    }
+
+    /**
+     * Check if a time can be formatted without {@link SimpleDateFormat}.
+     */
+    static boolean isSupported(long time) {
+        return time >= MIN_TIME && time <= MAX_TIME;
+    }
+
+    /**
+     * Format a supported time.
+     *
+     * @param time   milliseconds since epoch, between {@link #MIN_YEAR} and {@link #MAX_YEAR}.
+     * @param buffer buffer to write {@link #DATE_LENGTH} characters to.
+     * @param offset where to write in the buffer.
+     */
+    static void format(long time, char[] buffer, int offset) {
+
+        /* Time is after 1600 but may be before epoch, round days down. */
+        long days = time / MILLIS_PER_DAY;
+        int millisOfDay = (int) (time - days * MILLIS_PER_DAY);
+        if (millisOfDay < 0) {
+            days--;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+
+        /* Civil date from days since epoch, see http://howardhinnant.github.io/date_algorithms.html. */
+        long shiftedDays = days + 719468;
+        long era = shiftedDays / 146097;
+        int dayOfEra = (int) (shiftedDays - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        int millisecond = millisOfDay % 1000;
+        int seconds = millisOfDay / 1000;
+        writeDigits(buffer, offset, year, 4);
+        buffer[offset + 4] = '-';
+        writeDigits(buffer, offset + 5, month, 2);
+        buffer[offset + 7] = '-';
+        writeDigits(buffer, offset + 8, day, 2);
+        buffer[offset + 10] = 'T';
+        writeDigits(buffer, offset + 11, seconds / 3600, 2);
+        buffer[offset + 13] = ':';
+        writeDigits(buffer, offset + 14, seconds / 60 % 60, 2);
+        buffer[offset + 16] = ':';
+        writeDigits(buffer, offset + 17, seconds % 60, 2);
+        buffer[offset + 19] = '.';
+        writeDigits(buffer, offset + 20, millisecond, 3);
+        buffer[offset + 23] = 'Z';
+    }
+
+    /**
+     * Days since epoch of a proleptic Gregorian date, see http://howardhinnant.github.io/date_algorithms.html.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        if (month <= 2) {
+            year--;
+        }
+        long era = (year >= 0 ? year : year - 399) / 400;
+        int yearOfEra = (int) (year - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Parse ASCII digits.
+     *
+     * @return value or -1 if a character is not a digit.
+     */
+    private static int parseDigits(String value, int offset, int digits) {
+        int result = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + c - '0';
+        }
+        return result;
+    }
 }
@@ -5,15 +5,20 @@
 
 package com.microsoft.appcenter.ingestion.models.json;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 import androidx.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.ingestion.models.Model;
+import com.microsoft.appcenter.ingestion.models.StreamingModel;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -22,6 +27,11 @@ import java.util.Map;
 
 public class JSONUtils {
 
+    /**
+     * Initial capacity of the lists of models read from a JSON stream, whose size is not known in advance.
+     */
+    private static final int INITIAL_ARRAY_CAPACITY = 10;
+
     @VisibleForTesting
     JSONUtils() {
     }
@@ -88,6 +98,71 @@ public class JSONUtils {
         return array;
     }
 
+    /**
+     * Check that a required property was read from a JSON stream.
+     *
+     * @param value value read, null if the property was missing.
+     * @param key   property name.
+     * @throws JSONException if the value is missing, with the message of {@link JSONObject#get(String)}.
+     */
+    public static void checkRequired(Object value, String key) throws JSONException {
+        if (value == null) {
+            throw new JSONException("No value for " + key);
+        }
+    }
+
+    public static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    public static Map<String, String> readMap(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        Map<String, String> properties = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            properties.put(reader.nextName(), reader.nextString());
+        }
+        reader.endObject();
+        return properties;
+    }
+
+    public static <M extends StreamingModel> List<M> readArray(JsonReader reader, ModelFactory<M> factory) throws IOException, JSONException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<M> array = factory.createList(INITIAL_ARRAY_CAPACITY);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            M model = factory.create();
+            model.read(reader);
+            array.add(model);
+        }
+        reader.endArray();
+        return array;
+    }
+
+    public static List<String> readStringArray(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<String> array = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            array.add(reader.nextString());
+        }
+        reader.endArray();
+        return array;
+    }
+
     public static void write(JSONStringer writer, String key, Object value) throws JSONException {
         if (value != null) {
             writer.key(key).value(value);
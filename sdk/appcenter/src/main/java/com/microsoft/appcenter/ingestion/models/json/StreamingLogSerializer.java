@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.ingestion.models.json;
+
+import androidx.annotation.NonNull;
+
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Log serializer that can also write logs directly to a stream, without building a string per log.
+ */
+public interface StreamingLogSerializer extends LogSerializer {
+
+    /**
+     * Write logs as JSON lines: each log is written like {@link #serializeLog(Log)} and followed by a line feed.
+     *
+     * @param logs   logs to write.
+     * @param writer destination, not closed.
+     * @throws JSONException if a log cannot be serialized.
+     * @throws IOException   if writing fails.
+     */
+    void writeLogLines(@NonNull List<Log> logs, @NonNull Writer writer) throws JSONException, IOException;
+
+    /**
+     * Write a log like {@link #serializeLog(Log)}, large values of
+     * {@link com.microsoft.appcenter.ingestion.models.FileBackedLog} being streamed from their files.
+     *
+     * @param log    log to write.
+     * @param writer destination, not closed.
+     * @throws JSONException if the log cannot be serialized.
+     * @throws IOException   if reading the log data or writing fails.
+     */
+    void writeLog(@NonNull Log log, @NonNull Writer writer) throws JSONException, IOException;
+
+    /**
+     * Write a container like {@link #serializeContainer(LogContainer)}, large values of
+     * {@link com.microsoft.appcenter.ingestion.models.FileBackedLog} being streamed from their files.
+     *
+     * @param logContainer container to write.
+     * @param writer       destination, not closed.
+     * @throws JSONException if a log cannot be serialized.
+     * @throws IOException   if reading the log data or writing fails.
+     */
+    void writeContainer(@NonNull LogContainer logContainer, @NonNull Writer writer) throws JSONException, IOException;
+
+    /**
+     * Read a log stored in a file by {@link #writeLog(Log, Writer)} or from {@link #serializeLog(Log)}.
+     * A {@link com.microsoft.appcenter.ingestion.models.FileBackedLog} keeps its large data in the file.
+     *
+     * @param file file containing the log.
+     * @param type log type, or null to read it from the file.
+     * @return log.
+     * @throws JSONException if the log cannot be deserialized.
+     * @throws IOException   if the file cannot be read.
+     */
+    @NonNull
+    Log deserializeLog(@NonNull File file, String type) throws JSONException, IOException;
+}
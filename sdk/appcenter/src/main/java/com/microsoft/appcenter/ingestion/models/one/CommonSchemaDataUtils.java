@@ -19,8 +19,11 @@ import com.microsoft.appcenter.utils.AppCenterLog;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.microsoft.appcenter.ingestion.models.one.Data.BASE_DATA;
 import static com.microsoft.appcenter.ingestion.models.one.Data.BASE_TYPE;
@@ -44,6 +47,33 @@ public class CommonSchemaDataUtils {
     @VisibleForTesting
     static final int DATA_TYPE_DATETIME = 9;
 
+    /**
+     * Metadata type of the properties that don't need metadata.
+     */
+    private static final int DATA_TYPE_DEFAULT = 0;
+
+    /**
+     * Metadata type of the properties that are skipped because invalid.
+     */
+    private static final int DATA_TYPE_INVALID = -1;
+
+    /**
+     * Maximum number of property plans kept, applications usually use a few sets of property names.
+     */
+    @VisibleForTesting
+    static final int MAX_PLANS = 32;
+
+    /**
+     * Plans by property names and types, least recently used first.
+     */
+    private static final Map<PlanKey, Plan> sPlans = new LinkedHashMap<PlanKey, Plan>(MAX_PLANS, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PlanKey, Plan> eldest) {
+            return size() > MAX_PLANS;
+        }
+    };
+
     /**
      * Adds part B and part C properties to a log and Part A metadata.
      *
@@ -60,34 +90,41 @@ public class CommonSchemaDataUtils {
             Data data = new Data();
             dest.setData(data);
 
-            /* We also build Part A metadata extension at the same time to reflect the data. */
-            MetadataExtension metadata = new MetadataExtension();
+            /* Validate properties and get their values, names and metadata types. */
+            int size = properties.size();
+            Object[] values = new Object[size];
+            String[] names = new String[size];
+            int[] types = new int[size];
+            int index = 0;
             for (TypedProperty property : properties) {
-
-                /* Validate property and get type. */
-                Object value;
                 try {
-                    value = validateProperty(property);
+                    values[index] = validateProperty(property);
+                    names[index] = property.getName();
+                    Integer metadataType = getMetadataType(property);
+                    types[index] = metadataType != null ? metadataType : DATA_TYPE_DEFAULT;
                 } catch (IllegalArgumentException e) {
                     AppCenterLog.warn(LOG_TAG, e.getMessage());
-                    continue;
+                    types[index] = DATA_TYPE_INVALID;
                 }
+                index++;
+            }
 
-                /* Get metadata type. */
-                Integer metadataType = getMetadataType(property);
-
-                /* Split property name by dot. */
-                String key = property.getName();
-                String[] keys = key.split("\\.", -1);
-                int lastIndex = keys.length - 1;
+            /* The split names and the Part A metadata only depend on the property names and types. */
+            Plan plan = getPlan(names, types);
+            JSONObject dataObject = data.getProperties();
+            for (int i = 0; i < size; i++) {
+                if (types[i] == DATA_TYPE_INVALID) {
+                    continue;
+                }
 
                 /* Handle all intermediate keys. */
-                JSONObject destProperties = data.getProperties();
-                JSONObject destMetadata = metadata.getMetadata();
-                for (int i = 0; i < lastIndex; i++) {
+                String[] keys = plan.mKeys[i];
+                int lastIndex = keys.length - 1;
+                JSONObject destProperties = dataObject;
+                for (int j = 0; j < lastIndex; j++) {
 
                     /* Add data sub object. */
-                    String subKey = keys[i];
+                    String subKey = keys[j];
                     JSONObject subDataObject = destProperties.optJSONObject(subKey);
                     if (subDataObject == null) {
                         if (destProperties.has(subKey)) {
@@ -99,9 +136,6 @@ public class CommonSchemaDataUtils {
                         destProperties.put(subKey, subDataObject);
                     }
                     destProperties = subDataObject;
-
-                    /* Handle metadata. */
-                    destMetadata = addIntermediateMetadata(destMetadata, subKey);
                 }
 
                 /* Handle the last key for data, the leaf. */
@@ -109,35 +143,23 @@ public class CommonSchemaDataUtils {
                 if (destProperties.has(lastKey)) {
                     AppCenterLog.warn(LOG_TAG, "Property key '" + lastKey + "' already has a value, the old value will be overridden.");
                 }
-                destProperties.put(lastKey, value);
-
-                /* Handle the last key for meta-data, the leaf. */
-                addLeafMetadata(metadataType, destMetadata, lastKey);
+                destProperties.put(lastKey, values[i]);
             }
 
-            /* Warn/cleanup if baseData and baseType are not paired. */
-            JSONObject dataObject = data.getProperties();
-            String baseType = dataObject.optString(BASE_TYPE, null);
-            JSONObject baseData = dataObject.optJSONObject(BASE_DATA);
-            if (baseType == null && baseData != null) {
-
-                /* Discard unpaired data and metadata. */
+            /* Warn/cleanup if baseData and baseType are not paired, metadata is already cleaned up in the plan. */
+            if (plan.mBaseTypeMissing) {
                 AppCenterLog.warn(LOG_TAG, "baseData was set but baseType is missing.");
                 dataObject.remove(BASE_DATA);
-                JSONObject baseMetaData = metadata.getMetadata().optJSONObject(METADATA_FIELDS);
-
-                /* baseMetaData is always non null as baseData has at least 1 sub object and not cleaned up yet if empty. */
-                baseMetaData.remove(BASE_DATA);
             }
-            if (baseType != null && baseData == null) {
-
-                /* Discard unpaired base type. */
+            if (plan.mBaseDataMissing) {
                 AppCenterLog.warn(LOG_TAG, "baseType was set but baseData is missing.");
                 dataObject.remove(BASE_TYPE);
             }
 
-            /* Add metadata extension only if not empty after cleanup. */
-            if (!cleanUpEmptyObjectsInMetadata(metadata.getMetadata())) {
+            /* Add metadata extension only if not empty after cleanup, with a copy as it can be modified. */
+            if (plan.mMetadata != null) {
+                MetadataExtension metadata = new MetadataExtension();
+                copyMetadata(plan.mMetadata, metadata.getMetadata());
                 if (dest.getExt() == null) {
                     dest.setExt(new Extensions());
                 }
@@ -149,6 +171,97 @@ public class CommonSchemaDataUtils {
         }
     }
 
+    /**
+     * Get the plan of valid property names and types from the cache or compile it.
+     *
+     * @param names property names, null for invalid properties.
+     * @param types metadata types, {@link #DATA_TYPE_DEFAULT} when not needed or {@link #DATA_TYPE_INVALID}.
+     * @return plan.
+     * @throws JSONException if JSON put fails.
+     */
+    private static Plan getPlan(String[] names, int[] types) throws JSONException {
+        PlanKey key = new PlanKey(names, types);
+        Plan plan;
+        synchronized (sPlans) {
+            plan = sPlans.get(key);
+        }
+        if (plan == null) {
+            plan = compilePlan(names, types);
+            synchronized (sPlans) {
+                sPlans.put(key, plan);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Split property names and build the Part A metadata they need.
+     *
+     * @param names property names, null for invalid properties.
+     * @param types metadata types.
+     * @return plan.
+     * @throws JSONException if JSON put fails.
+     */
+    private static Plan compilePlan(String[] names, int[] types) throws JSONException {
+        String[][] allKeys = new String[names.length][];
+        JSONObject metadata = new JSONObject();
+        boolean hasBaseType = false;
+        boolean hasBaseData = false;
+        for (int i = 0; i < names.length; i++) {
+            if (types[i] == DATA_TYPE_INVALID) {
+                continue;
+            }
+
+            /* Split property name by dot. */
+            String[] keys = names[i].split("\\.", -1);
+            allKeys[i] = keys;
+            int lastIndex = keys.length - 1;
+
+            /* baseType is always a leaf and baseData is always an object, as validated. */
+            hasBaseType |= lastIndex == 0 && keys[0].equals(BASE_TYPE);
+            hasBaseData |= lastIndex > 0 && keys[0].equals(BASE_DATA);
+
+            /* Handle all intermediate keys. */
+            JSONObject destMetadata = metadata;
+            for (int j = 0; j < lastIndex; j++) {
+                destMetadata = addIntermediateMetadata(destMetadata, keys[j]);
+            }
+
+            /* Handle the last key for meta-data, the leaf. */
+            addLeafMetadata(types[i] != DATA_TYPE_DEFAULT ? types[i] : null, destMetadata, keys[lastIndex]);
+        }
+
+        /* Discard metadata of unpaired data. */
+        boolean baseTypeMissing = hasBaseData && !hasBaseType;
+        if (baseTypeMissing) {
+
+            /* Fields are always non null as baseData has at least 1 sub object and not cleaned up yet if empty. */
+            metadata.optJSONObject(METADATA_FIELDS).remove(BASE_DATA);
+        }
+        boolean baseDataMissing = hasBaseType && !hasBaseData;
+        return new Plan(allKeys, cleanUpEmptyObjectsInMetadata(metadata) ? null : metadata, baseTypeMissing, baseDataMissing);
+    }
+
+    /**
+     * Copy metadata objects.
+     *
+     * @param source source metadata object.
+     * @param dest   empty destination object.
+     * @throws JSONException if JSON put fails.
+     */
+    private static void copyMetadata(JSONObject source, JSONObject dest) throws JSONException {
+        for (Iterator<String> iterator = source.keys(); iterator.hasNext(); ) {
+            String key = iterator.next();
+            Object value = source.get(key);
+            if (value instanceof JSONObject) {
+                JSONObject child = new JSONObject();
+                copyMetadata((JSONObject) value, child);
+                value = child;
+            }
+            dest.put(key, value);
+        }
+    }
+
     /**
      * Validate typed property.
      *
@@ -295,4 +408,70 @@ public class CommonSchemaDataUtils {
         }
         return object.length() == 0;
     }
+
+    /**
+     * Property names and metadata types identifying a plan.
+     */
+    private static class PlanKey {
+
+        private final String[] mNames;
+
+        private final int[] mTypes;
+
+        private final int mHashCode;
+
+        PlanKey(String[] names, int[] types) {
+            mNames = names;
+            mTypes = types;
+            mHashCode = 31 * Arrays.hashCode(names) + Arrays.hashCode(types);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            PlanKey planKey = (PlanKey) o;
+
+            return Arrays.equals(mNames, planKey.mNames) && Arrays.equals(mTypes, planKey.mTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+
+    /**
+     * What doesn't depend on the property values when building the data and metadata, for a set of property names.
+     */
+    private static class Plan {
+
+        /**
+         * Property names split by dot, null for invalid properties.
+         */
+        final String[][] mKeys;
+
+        /**
+         * Part A metadata after cleanup, null if empty. Must not be modified.
+         */
+        final JSONObject mMetadata;
+
+        /**
+         * True if baseData is set without baseType.
+         */
+        final boolean mBaseTypeMissing;
+
+        /**
+         * True if baseType is set without baseData.
+         */
+        final boolean mBaseDataMissing;
+
+        Plan(String[][] keys, JSONObject metadata, boolean baseTypeMissing, boolean baseDataMissing) {
+            mKeys = keys;
+            mMetadata = metadata;
+            mBaseTypeMissing = baseTypeMissing;
+            mBaseDataMissing = baseDataMissing;
+        }
+    }
 }
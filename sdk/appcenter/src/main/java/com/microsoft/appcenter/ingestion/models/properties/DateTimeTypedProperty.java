@@ -56,7 +56,7 @@ public class DateTimeTypedProperty extends TypedProperty {
     @Override
     public void write(JSONStringer writer) throws JSONException {
         super.write(writer);
-        writer.key(VALUE).value(JSONDateUtils.toString(getValue()));
+        JSONDateUtils.write(writer, VALUE, getValue());
     }
 
     @Override
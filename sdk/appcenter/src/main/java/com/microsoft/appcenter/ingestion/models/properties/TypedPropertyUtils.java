@@ -5,17 +5,26 @@
 
 package com.microsoft.appcenter.ingestion.models.properties;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 import androidx.annotation.NonNull;
 
+import com.microsoft.appcenter.ingestion.models.json.JSONDateUtils;
+import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.microsoft.appcenter.ingestion.models.CommonProperties.NAME;
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.TYPE;
 import static com.microsoft.appcenter.ingestion.models.CommonProperties.TYPED_PROPERTIES;
+import static com.microsoft.appcenter.ingestion.models.CommonProperties.VALUE;
 
 public class TypedPropertyUtils {
 
@@ -49,4 +58,74 @@ public class TypedPropertyUtils {
         }
         return null;
     }
+
+    /**
+     * Read the value of the typed properties property from a JSON stream.
+     *
+     * @param reader JSON stream positioned before the array.
+     * @return typed properties, or null if the value is null.
+     * @throws IOException   if the JSON is malformed.
+     * @throws JSONException if a property is invalid.
+     */
+    public static List<TypedProperty> read(JsonReader reader) throws IOException, JSONException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<TypedProperty> array = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            array.add(readTypedProperty(reader));
+        }
+        reader.endArray();
+        return array;
+    }
+
+    @SuppressWarnings("IfCanBeSwitch")
+    private static TypedProperty readTypedProperty(JsonReader reader) throws IOException, JSONException {
+
+        /* The type may come after the value, so keep the value until the object is read. */
+        String type = null;
+        String name = null;
+        String value = null;
+        Boolean booleanValue = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (TYPE.equals(key)) {
+                type = reader.nextString();
+            } else if (NAME.equals(key)) {
+                name = reader.nextString();
+            } else if (VALUE.equals(key)) {
+                if (reader.peek() == JsonToken.BOOLEAN) {
+                    booleanValue = reader.nextBoolean();
+                } else {
+                    value = reader.nextString();
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        JSONUtils.checkRequired(type, TYPE);
+        JSONUtils.checkRequired(name, NAME);
+        TypedProperty typedProperty = create(type);
+        typedProperty.setName(name);
+        if (typedProperty instanceof BooleanTypedProperty) {
+            JSONUtils.checkRequired(booleanValue, VALUE);
+            ((BooleanTypedProperty) typedProperty).setValue(booleanValue);
+        } else {
+            JSONUtils.checkRequired(value, VALUE);
+            if (typedProperty instanceof DateTimeTypedProperty) {
+                ((DateTimeTypedProperty) typedProperty).setValue(JSONDateUtils.toDate(value));
+            } else if (typedProperty instanceof DoubleTypedProperty) {
+                ((DoubleTypedProperty) typedProperty).setValue(Double.parseDouble(value));
+            } else if (typedProperty instanceof LongTypedProperty) {
+                ((LongTypedProperty) typedProperty).setValue(Long.parseLong(value));
+            } else {
+                ((StringTypedProperty) typedProperty).setValue(value);
+            }
+        }
+        return typedProperty;
+    }
 }
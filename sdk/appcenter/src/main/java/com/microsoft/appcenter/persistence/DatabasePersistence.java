@@ -24,7 +24,11 @@ import androidx.annotation.VisibleForTesting;
 
 import com.microsoft.appcenter.Constants;
 import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.ingestion.models.Device;
+import com.microsoft.appcenter.ingestion.models.FileBackedLog;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.json.BatchLogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.StreamingLogSerializer;
 import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 import com.microsoft.appcenter.ingestion.models.one.PartAUtils;
 import com.microsoft.appcenter.utils.AppCenterLog;
@@ -34,10 +38,16 @@ import com.microsoft.appcenter.utils.storage.FileManager;
 import com.microsoft.appcenter.utils.storage.SQLiteUtils;
 
 import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -84,10 +94,16 @@ public class DatabasePersistence extends Persistence {
     @VisibleForTesting
     static final int VERSION_TIMESTAMP_COLUMN = 5;
 
+    /**
+     * Last version where device properties were stored inline in every log payload.
+     */
+    @VisibleForTesting
+    static final int VERSION_INLINE_DEVICE = 6;
+
     /**
      * Current version of the schema.
      */
-    private static final int VERSION = 6;
+    private static final int VERSION = 7;
 
     /**
      * Project identifier part of the target token in clear text (the target token key).
@@ -106,6 +122,24 @@ public class DatabasePersistence extends Persistence {
      */
     private static final String COLUMN_DATA_TYPE = "type";
 
+    /**
+     * Name of the column referencing the device snapshot of a log, in both tables.
+     */
+    @VisibleForTesting
+    static final String COLUMN_DEVICE_KEY = "device_key";
+
+    /**
+     * Devices table name.
+     */
+    @VisibleForTesting
+    static final String DEVICES_TABLE = "devices";
+
+    /**
+     * Name of device JSON column in the devices table.
+     */
+    @VisibleForTesting
+    static final String COLUMN_DEVICE = "device";
+
     /**
      * Database name.
      */
@@ -116,7 +150,7 @@ public class DatabasePersistence extends Persistence {
      * Table schema for Persistence.
      */
     @VisibleForTesting
-    static final ContentValues SCHEMA = getContentValues("", "", "", "", "", 0);
+    static final ContentValues SCHEMA = getContentValues("", "", "", "", "", 0, "");
 
     /**
      * Order by clause to select logs.
@@ -140,6 +174,11 @@ public class DatabasePersistence extends Persistence {
      */
     private static final String PAYLOAD_FILE_EXTENSION = ".json";
 
+    /**
+     * Extension of a large payload file being written, before the log is stored in the database.
+     */
+    private static final String PAYLOAD_TEMPORARY_FILE_EXTENSION = ".tmp";
+
     /**
      * SQL command to create logs table
      */
@@ -151,7 +190,28 @@ public class DatabasePersistence extends Persistence {
             "`priority` INTEGER," +
             "`log` TEXT," +
             "`persistence_group` TEXT," +
-            "`target_key` TEXT);";
+            "`target_key` TEXT," +
+            "`device_key` TEXT);";
+
+    /**
+     * SQL command to add device key column when upgrading logs table.
+     */
+    private static final String ADD_DEVICE_KEY_COLUMN_SQL = "ALTER TABLE `logs` ADD COLUMN `device_key` TEXT";
+
+    /**
+     * SQL command to create devices table. Device snapshots are shared by all the logs referencing them.
+     */
+    @VisibleForTesting
+    static final String CREATE_DEVICES_SQL = "CREATE TABLE IF NOT EXISTS `devices`" +
+            "(`oid` INTEGER PRIMARY KEY AUTOINCREMENT," +
+            "`device_key` TEXT UNIQUE," +
+            "`device` TEXT);";
+
+    /**
+     * Where clause to delete device snapshots no longer referenced by any log.
+     */
+    private static final String UNREFERENCED_DEVICES_WHERE = COLUMN_DEVICE_KEY + " NOT IN " +
+            "(SELECT " + COLUMN_DEVICE_KEY + " FROM " + TABLE + " WHERE " + COLUMN_DEVICE_KEY + " IS NOT NULL)";
 
     /**
      * SQL command to drop logs table
@@ -196,6 +256,17 @@ public class DatabasePersistence extends Persistence {
      */
     private long mLargePayloadsSize;
 
+    /**
+     * Last device instance stored in the devices table.
+     * Logs of a session share the same instance so this avoids serializing it for every log.
+     */
+    private Device mLastStoredDevice;
+
+    /**
+     * Key of {@link #mLastStoredDevice} in the devices table.
+     */
+    private String mLastStoredDeviceKey;
+
     /**
      * Initializes variables with default values.
      *
@@ -222,6 +293,11 @@ public class DatabasePersistence extends Persistence {
             @Override
             public void onCreate(SQLiteDatabase db) {
                 db.execSQL(CREATE_PRIORITY_INDEX_LOGS);
+                db.execSQL(CREATE_DEVICES_SQL);
+
+                /* A database recreated after being corrupted no longer has the device stored before. */
+                mLastStoredDevice = null;
+                mLastStoredDeviceKey = null;
             }
 
             @Override
@@ -230,12 +306,16 @@ public class DatabasePersistence extends Persistence {
                 /*
                  * With version 3.0 of the SDK we decided to remove timestamp column and as
                  * it's a major SDK version and SQLite does not support removing column we just start over.
-                 * When adding a new column in a future version, update this code by something like
-                 * if (oldVersion <= VERSION_TIMESTAMP_COLUMN) {drop/create} else {add missing columns}
+                 * Logs stored before device key column was added keep their inline device and remain readable.
                  */
-                db.execSQL(DROP_LOGS_SQL);
-                db.execSQL(CREATE_LOGS_SQL);
-                db.execSQL(CREATE_PRIORITY_INDEX_LOGS);
+                if (oldVersion <= VERSION_TIMESTAMP_COLUMN) {
+                    db.execSQL(DROP_LOGS_SQL);
+                    db.execSQL(CREATE_LOGS_SQL);
+                    db.execSQL(CREATE_PRIORITY_INDEX_LOGS);
+                } else {
+                    db.execSQL(ADD_DEVICE_KEY_COLUMN_SQL);
+                }
+                db.execSQL(CREATE_DEVICES_SQL);
             }
         });
         mLargePayloadDirectory = new File(Constants.FILES_PATH + PAYLOAD_LARGE_DIRECTORY);
@@ -244,6 +324,7 @@ public class DatabasePersistence extends Persistence {
         mLargePayloadDirectory.mkdirs();
 
         mLargePayloadsSize = checkLargePayloadFilesAndCollectTheirSize();
+        deleteUnreferencedDevices();
     }
 
     /**
@@ -254,9 +335,10 @@ public class DatabasePersistence extends Persistence {
      * @param targetToken The target token if the log is common schema.
      * @param targetKey   The project identifier part of the target token in clear text.
      * @param priority    The persistence priority.
+     * @param deviceKey   The key of the device snapshot in the devices table, if not inline in the log.
      * @return A {@link ContentValues} instance.
      */
-    private static ContentValues getContentValues(@Nullable String group, @Nullable String logJ, String targetToken, String type, String targetKey, int priority) {
+    private static ContentValues getContentValues(@Nullable String group, @Nullable String logJ, String targetToken, String type, String targetKey, int priority, @Nullable String deviceKey) {
         ContentValues values = new ContentValues();
         values.put(COLUMN_GROUP, group);
         values.put(COLUMN_LOG, logJ);
@@ -264,6 +346,7 @@ public class DatabasePersistence extends Persistence {
         values.put(COLUMN_DATA_TYPE, type);
         values.put(COLUMN_TARGET_KEY, targetKey);
         values.put(COLUMN_PRIORITY, priority);
+        values.put(COLUMN_DEVICE_KEY, deviceKey);
         return values;
     }
 
@@ -278,14 +361,45 @@ public class DatabasePersistence extends Persistence {
     public long putLog(@NonNull Log log, @NonNull String group, @IntRange(from = Flags.NORMAL, to = Flags.CRITICAL) int flags) throws PersistenceException {
 
         /* Convert log to JSON string and put in the database. */
+        File temporaryPayloadFile = null;
         try {
             AppCenterLog.debug(LOG_TAG, "Storing a log to the Persistence database for log type " + log.getType() + " with flags=" + flags);
-            String payload = getLogSerializer().serializeLog(log);
+
+            /* Store device once in its own table and serialize the log without it. */
+            Device device = log.getDevice();
+            String deviceKey = null;
+            String payload = null;
+            if (device != null && !(log instanceof CommonSchemaLog)) {
+                deviceKey = putDevice(device);
+            }
+
+            /* Logs with data in a file are streamed to a large payload file instead of being serialized in memory. */
+            boolean isFileBacked = log instanceof FileBackedLog && ((FileBackedLog) log).isFileBacked() && getLogSerializer() instanceof StreamingLogSerializer;
+            if (deviceKey != null) {
+                log.setDevice(null);
+            }
+            try {
+                if (isFileBacked) {
+                    temporaryPayloadFile = getTemporaryPayloadFile(group);
+                    writePayloadFile(temporaryPayloadFile, log);
+                } else {
+                    payload = getLogSerializer().serializeLog(log);
+                }
+            } finally {
+                if (deviceKey != null) {
+                    log.setDevice(device);
+                }
+            }
             ContentValues contentValues;
+            long payloadSize;
+            if (isFileBacked) {
+                payloadSize = temporaryPayloadFile.length();
+            } else {
 
-            //noinspection CharsetObjectCanBeUsed min API level 19 required to fix this warning.
-            int payloadSize = payload.getBytes("UTF-8").length;
-            boolean isLargePayload = payloadSize >= PAYLOAD_MAX_SIZE;
+                //noinspection CharsetObjectCanBeUsed min API level 19 required to fix this warning.
+                payloadSize = payload.getBytes("UTF-8").length;
+            }
+            boolean isLargePayload = isFileBacked || payloadSize >= PAYLOAD_MAX_SIZE;
             String targetKey;
             String targetToken;
             if (log instanceof CommonSchemaLog) {
@@ -308,7 +422,7 @@ public class DatabasePersistence extends Persistence {
                         "Current maximum database size is " + maxSize + " bytes.");
             }
             int priority = Flags.getPersistenceFlag(flags, false);
-            contentValues = getContentValues(group, isLargePayload ? null : payload, targetToken, log.getType(), targetKey, priority);
+            contentValues = getContentValues(group, isLargePayload ? null : payload, targetToken, log.getType(), targetKey, priority, deviceKey);
             while (isLargePayload && payloadSize + getStoredDataSize() > maxSize) {
                 AppCenterLog.debug(LOG_TAG, "Storage is full, trying to delete the oldest log that has the lowest priority which is lower or equal priority than the new log.");
                 if (deleteTheOldestLog(priority) == OPERATION_FAILED_FLAG) {
@@ -338,7 +452,13 @@ public class DatabasePersistence extends Persistence {
                 directory.mkdir();
                 File payloadFile = getLargePayloadFile(directory, databaseId);
                 try {
-                    FileManager.write(payloadFile, payload);
+                    if (temporaryPayloadFile != null) {
+                        if (!temporaryPayloadFile.renameTo(payloadFile)) {
+                            throw new IOException("Cannot rename " + temporaryPayloadFile + " to " + payloadFile);
+                        }
+                    } else {
+                        FileManager.write(payloadFile, payload);
+                    }
                     mLargePayloadsSize += payloadFile.length();
                     AppCenterLog.verbose(LOG_TAG, "Store extra " + payloadFile.length() + " KB as a separated payload file.");
                 } catch (IOException e) {
@@ -355,6 +475,134 @@ public class DatabasePersistence extends Persistence {
             throw new PersistenceException("Cannot convert to JSON string.", e);
         } catch (IOException e) {
             throw new PersistenceException("Cannot save large payload in a file.", e);
+        } finally {
+
+            /* The temporary file no longer exists once stored, delete it if anything failed before. */
+            if (temporaryPayloadFile != null) {
+
+                //noinspection ResultOfMethodCallIgnored
+                temporaryPayloadFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Get a new file to stream a large payload to before the log is stored in the database.
+     *
+     * @param group group of the log.
+     * @return file in the large payloads directory of the group, not created yet.
+     */
+    @NonNull
+    private File getTemporaryPayloadFile(String group) {
+        File directory = getLargePayloadGroupDirectory(group);
+
+        //noinspection ResultOfMethodCallIgnored we'll get an error anyway at write time.
+        directory.mkdir();
+        return new File(directory, UUID.randomUUID() + PAYLOAD_TEMPORARY_FILE_EXTENSION);
+    }
+
+    /**
+     * Stream a log to a file with the log serializer, without holding its data in memory.
+     *
+     * @param file destination.
+     * @param log  log to write.
+     * @throws JSONException if the log cannot be serialized.
+     * @throws IOException   if reading the log data or writing the file fails.
+     */
+    private void writePayloadFile(File file, Log log) throws JSONException, IOException {
+        Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file)), "UTF-8");
+        try {
+            ((StreamingLogSerializer) getLogSerializer()).writeLog(log, writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Store a device snapshot in the devices table if not already there.
+     *
+     * @param device device to store.
+     * @return key of the device in the table, or null if it could not be stored (device is then kept inline).
+     * @throws JSONException if the device cannot be serialized.
+     */
+    @Nullable
+    private String putDevice(@NonNull Device device) throws JSONException {
+        if (device == mLastStoredDevice) {
+            return mLastStoredDeviceKey;
+        }
+        JSONStringer writer = new JSONStringer();
+        writer.object();
+        device.write(writer);
+        writer.endObject();
+        String deviceJson = writer.toString();
+        String deviceKey;
+        try {
+
+            /* Name based UUID: same device properties always give the same key. */
+            deviceKey = UUID.nameUUIDFromBytes(deviceJson.getBytes("UTF-8")).toString();
+        } catch (IOException e) {
+            throw new JSONException(e.getMessage());
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_DEVICE_KEY, deviceKey);
+        values.put(COLUMN_DEVICE, deviceJson);
+        if (mDatabaseManager.replace(DEVICES_TABLE, values) == OPERATION_FAILED_FLAG) {
+            AppCenterLog.warn(LOG_TAG, "Failed to store device snapshot, keeping it inline in log.");
+            return null;
+        }
+        AppCenterLog.debug(LOG_TAG, "Stored device snapshot with key=" + deviceKey);
+        mLastStoredDevice = device;
+        mLastStoredDeviceKey = deviceKey;
+        return deviceKey;
+    }
+
+    /**
+     * Get a device snapshot from the devices table.
+     *
+     * @param deviceKey key of the device.
+     * @param devices   devices already read by the current operation, key is device key.
+     * @return the device, shared with other logs referencing the same key.
+     * @throws JSONException if the device is missing or cannot be deserialized.
+     */
+    @NonNull
+    private Device getDevice(@NonNull String deviceKey, @NonNull Map<String, Device> devices) throws JSONException {
+        Device device = devices.get(deviceKey);
+        if (device != null) {
+            return device;
+        }
+        String deviceJson = null;
+        SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
+        builder.appendWhere(COLUMN_DEVICE_KEY + " = ?");
+        try {
+            Cursor cursor = mDatabaseManager.getCursor(DEVICES_TABLE, builder, new String[]{COLUMN_DEVICE}, new String[]{deviceKey}, null);
+            try {
+                if (cursor.moveToNext()) {
+                    deviceJson = cursor.getString(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        } catch (RuntimeException e) {
+            AppCenterLog.error(LOG_TAG, "Failed to get device snapshot: ", e);
+        }
+        if (deviceJson == null) {
+            throw new JSONException("Device snapshot " + deviceKey + " is missing.");
+        }
+        device = new Device();
+        device.read(new JSONObject(deviceJson));
+        devices.put(deviceKey, device);
+        return device;
+    }
+
+    /**
+     * Delete device snapshots that are no longer referenced by any log.
+     */
+    private void deleteUnreferencedDevices() {
+        int deletedCount = mDatabaseManager.delete(DEVICES_TABLE, UNREFERENCED_DEVICES_WHERE, null);
+        if (deletedCount > 0) {
+            AppCenterLog.debug(LOG_TAG, "Deleted " + deletedCount + " unreferenced device snapshot(s).");
+            mLastStoredDevice = null;
+            mLastStoredDeviceKey = null;
         }
     }
 
@@ -419,6 +667,7 @@ public class DatabasePersistence extends Persistence {
         /* Delete from database. */
         int deletedCount = mDatabaseManager.delete(COLUMN_GROUP, group);
         AppCenterLog.debug(LOG_TAG, "Deleted " + deletedCount + " logs.");
+        deleteUnreferencedDevices();
 
         /* Delete from pending state. */
         for (Iterator<String> iterator = mPendingDbIdentifiersGroups.keySet().iterator(); iterator.hasNext(); ) {
@@ -450,6 +699,98 @@ public class DatabasePersistence extends Persistence {
         return count;
     }
 
+    /**
+     * Deserialize rows of the logs table read together and add their logs to the candidates.
+     *
+     * @param rows                       rows by database identifier.
+     * @param largePayloadGroupDirectory directory of the payloads not stored in the database.
+     * @param devices                    devices already read from the devices table, by key.
+     * @param candidates                 where logs are added by database identifier.
+     * @param failedDbIdentifiers        where identifiers of logs that cannot be deserialized are added.
+     * @return number of logs added.
+     */
+    private int readLogs(Map<Long, ContentValues> rows, File largePayloadGroupDirectory, Map<String, Device> devices, Map<Long, Log> candidates, List<Long> failedDbIdentifiers) {
+
+        /* Deserialize the payloads stored in the database in a single batch when possible. */
+        List<Log> batchLogs = null;
+        List<JSONException> batchErrors = null;
+        if (getLogSerializer() instanceof BatchLogSerializer) {
+            List<String> payloads = new ArrayList<>(rows.size());
+            List<String> types = new ArrayList<>(rows.size());
+            for (ContentValues values : rows.values()) {
+                String databasePayload = values.getAsString(COLUMN_LOG);
+                if (databasePayload != null) {
+                    payloads.add(databasePayload);
+                    types.add(values.getAsString(COLUMN_DATA_TYPE));
+                }
+            }
+            batchErrors = new ArrayList<>(payloads.size());
+            batchLogs = ((BatchLogSerializer) getLogSerializer()).deserializeLogs(payloads, types, batchErrors);
+        }
+        int count = 0;
+        int batchIndex = 0;
+        for (Map.Entry<Long, ContentValues> row : rows.entrySet()) {
+            Long dbIdentifier = row.getKey();
+            ContentValues values = row.getValue();
+            try {
+
+                /* Deserialize JSON to Log. */
+                Log log;
+                String databasePayload = values.getAsString(COLUMN_LOG);
+                String databasePayloadType = values.getAsString(COLUMN_DATA_TYPE);
+                if (databasePayload == null) {
+                    File file = getLargePayloadFile(largePayloadGroupDirectory, dbIdentifier);
+                    AppCenterLog.debug(LOG_TAG, "Read payload file " + file);
+
+                    /* A streaming serializer reads the file itself, file backed logs keep their data there. */
+                    if (getLogSerializer() instanceof StreamingLogSerializer) {
+                        log = ((StreamingLogSerializer) getLogSerializer()).deserializeLog(file, databasePayloadType);
+                    } else {
+                        String logPayload = FileManager.read(file);
+                        if (logPayload == null) {
+                            throw new JSONException("Log payload is null and not stored as a file.");
+                        }
+                        log = getLogSerializer().deserializeLog(logPayload, databasePayloadType);
+                    }
+                } else if (batchLogs != null) {
+                    log = batchLogs.get(batchIndex);
+                    JSONException error = batchErrors.get(batchIndex);
+                    batchIndex++;
+                    if (log == null) {
+                        throw error;
+                    }
+                } else {
+                    log = getLogSerializer().deserializeLog(databasePayload, databasePayloadType);
+                }
+
+                /* Restore device if stored separately. */
+                String deviceKey = values.getAsString(COLUMN_DEVICE_KEY);
+                if (deviceKey != null) {
+                    log.setDevice(getDevice(deviceKey, devices));
+                }
+
+                /* Restore target token. */
+                String targetToken = values.getAsString(COLUMN_TARGET_TOKEN);
+                if (targetToken != null) {
+                    CryptoUtils.DecryptedData data = CryptoUtils.getInstance(mContext).decrypt(targetToken);
+                    log.addTransmissionTarget(data.getDecryptedData());
+                }
+
+                /* Add log to list and count. */
+                candidates.put(dbIdentifier, log);
+                count++;
+            } catch (JSONException | IOException e) {
+
+                /* If it is not able to deserialize, delete and get another log. */
+                AppCenterLog.error(LOG_TAG, "Cannot deserialize a log in the database", e);
+
+                /* Put the failed identifier to delete. */
+                failedDbIdentifiers.add(dbIdentifier);
+            }
+        }
+        return count;
+    }
+
     @Override
     @Nullable
     public String getLogs(@NonNull String group, @NonNull Collection<String> pausedTargetKeys, @IntRange(from = 0) int limit, @NonNull List<Log> outLogs) {
@@ -476,6 +817,7 @@ public class DatabasePersistence extends Persistence {
         /* Add logs to output parameter after deserialization if logs are not already sent. */
         int count = 0;
         Map<Long, Log> candidates = new LinkedHashMap<>();
+        Map<String, Device> devices = new HashMap<>();
         List<Long> failedDbIdentifiers = new ArrayList<>();
         File largePayloadGroupDirectory = getLargePayloadGroupDirectory(group);
         String[] selectionArgsArray = selectionArgs.toArray(new String[0]);
@@ -486,71 +828,46 @@ public class DatabasePersistence extends Persistence {
         } catch (RuntimeException e) {
             AppCenterLog.error(LOG_TAG, "Failed to get logs: ", e);
         }
-        while (cursor != null &&
-                (values = mDatabaseManager.nextValues(cursor)) != null &&
-                count < limit) {
-            Long dbIdentifier = values.getAsLong(PRIMARY_KEY);
-
-            /*
-             * When we can't even read the identifier (in this case ContentValues is most likely empty).
-             * That probably means it contained a record larger than 2MB (from a previous SDK version)
-             * and we hit the cursor limit.
-             * Get rid of first non pending log.
-             */
-            if (dbIdentifier == null) {
-                AppCenterLog.error(LOG_TAG, "Empty database record, probably content was larger than 2MB, need to delete as it's now corrupted.");
-                Set<Long> corruptedIds = getLogsIds(builder, selectionArgsArray);
-                for (Long corruptedId : corruptedIds) {
-                    if (!mPendingDbIdentifiers.contains(corruptedId) && !candidates.containsKey(corruptedId)) {
-
-                        /* Found the record to delete that we could not read when selecting all fields. */
-                        deleteLog(largePayloadGroupDirectory, corruptedId);
-                        AppCenterLog.error(LOG_TAG, "Empty database corrupted empty record deleted, id=" + corruptedId);
-                        break;
-                    }
+        boolean hasMoreRows = cursor != null;
+        while (hasMoreRows && count < limit) {
+
+            /* Read as many rows as missing logs, to deserialize them together. */
+            Map<Long, ContentValues> rows = new LinkedHashMap<>();
+            while (rows.size() < limit - count) {
+                values = mDatabaseManager.nextValues(cursor);
+                if (values == null) {
+                    hasMoreRows = false;
+                    break;
                 }
-                continue;
-            }
-
-            /* If the log is already in pending state, then skip. Otherwise put the log to candidate container. */
-            if (!mPendingDbIdentifiers.contains(dbIdentifier)) {
-                try {
+                Long dbIdentifier = values.getAsLong(PRIMARY_KEY);
 
-                    /* Deserialize JSON to Log. */
-                    String logPayload;
-                    String databasePayload = values.getAsString(COLUMN_LOG);
-                    if (databasePayload == null) {
-                        File file = getLargePayloadFile(largePayloadGroupDirectory, dbIdentifier);
-                        AppCenterLog.debug(LOG_TAG, "Read payload file " + file);
-                        logPayload = FileManager.read(file);
-                        if (logPayload == null) {
-                            throw new JSONException("Log payload is null and not stored as a file.");
+                /*
+                 * When we can't even read the identifier (in this case ContentValues is most likely empty).
+                 * That probably means it contained a record larger than 2MB (from a previous SDK version)
+                 * and we hit the cursor limit.
+                 * Get rid of first non pending log.
+                 */
+                if (dbIdentifier == null) {
+                    AppCenterLog.error(LOG_TAG, "Empty database record, probably content was larger than 2MB, need to delete as it's now corrupted.");
+                    Set<Long> corruptedIds = getLogsIds(builder, selectionArgsArray);
+                    for (Long corruptedId : corruptedIds) {
+                        if (!mPendingDbIdentifiers.contains(corruptedId) && !candidates.containsKey(corruptedId) && !rows.containsKey(corruptedId)) {
+
+                            /* Found the record to delete that we could not read when selecting all fields. */
+                            deleteLog(largePayloadGroupDirectory, corruptedId);
+                            AppCenterLog.error(LOG_TAG, "Empty database corrupted empty record deleted, id=" + corruptedId);
+                            break;
                         }
-                    } else {
-                        logPayload = databasePayload;
-                    }
-                    String databasePayloadType = values.getAsString(COLUMN_DATA_TYPE);
-                    Log log = getLogSerializer().deserializeLog(logPayload, databasePayloadType);
-
-                    /* Restore target token. */
-                    String targetToken = values.getAsString(COLUMN_TARGET_TOKEN);
-                    if (targetToken != null) {
-                        CryptoUtils.DecryptedData data = CryptoUtils.getInstance(mContext).decrypt(targetToken);
-                        log.addTransmissionTarget(data.getDecryptedData());
                     }
+                    continue;
+                }
 
-                    /* Add log to list and count. */
-                    candidates.put(dbIdentifier, log);
-                    count++;
-                } catch (JSONException e) {
-
-                    /* If it is not able to deserialize, delete and get another log. */
-                    AppCenterLog.error(LOG_TAG, "Cannot deserialize a log in the database", e);
-
-                    /* Put the failed identifier to delete. */
-                    failedDbIdentifiers.add(dbIdentifier);
+                /* If the log is already in pending state, then skip. Otherwise put the log to candidate container. */
+                if (!mPendingDbIdentifiers.contains(dbIdentifier)) {
+                    rows.put(dbIdentifier, values);
                 }
             }
+            count += readLogs(rows, largePayloadGroupDirectory, devices, candidates, failedDbIdentifiers);
         }
         if (cursor != null) {
             try {
@@ -601,6 +918,21 @@ public class DatabasePersistence extends Persistence {
         return id;
     }
 
+    @Override
+    @Nullable
+    public String splitLogs(@NonNull String group, @NonNull String batchId, int index) {
+        List<Long> dbIdentifiers = mPendingDbIdentifiersGroups.get(group + batchId);
+        if (dbIdentifiers == null || index <= 0 || index >= dbIdentifiers.size()) {
+            return null;
+        }
+        List<Long> movedDbIdentifiers = dbIdentifiers.subList(index, dbIdentifiers.size());
+        String id = UUID.randomUUID().toString();
+        mPendingDbIdentifiersGroups.put(group + id, new ArrayList<>(movedDbIdentifiers));
+        AppCenterLog.debug(LOG_TAG, "Moved " + movedDbIdentifiers.size() + " log(s) from " + batchId + " to " + id);
+        movedDbIdentifiers.clear();
+        return id;
+    }
+
     @Override
     public void clearPendingLogState() {
         mPendingDbIdentifiers.clear();
@@ -618,10 +950,15 @@ public class DatabasePersistence extends Persistence {
      */
     public void deleteLogsThatNotFitMaxSize() {
         int normalPriority = Flags.getPersistenceFlag(Flags.NORMAL, false);
+        boolean deleted = false;
         while (getStoredDataSize() >= mDatabaseManager.getMaxSize()) {
             if (deleteTheOldestLog(normalPriority) == OPERATION_FAILED_FLAG) {
                 break;
             }
+            deleted = true;
+        }
+        if (deleted) {
+            deleteUnreferencedDevices();
         }
     }
 
@@ -645,9 +982,51 @@ public class DatabasePersistence extends Persistence {
         }
         long deletedId = deletedRow.getAsLong(PRIMARY_KEY);
         String group = deletedRow.getAsString(COLUMN_GROUP);
+        deleteLargePayloadFile(group, deletedId);
+        return deletedId;
+    }
+
+    @Override
+    public boolean deleteTheOldestLog(@NonNull String group) {
+
+        /* Find the oldest log with the lowest priority that is not being sent. */
+        SQLiteQueryBuilder builder = SQLiteUtils.newSQLiteQueryBuilder();
+        builder.appendWhere(COLUMN_GROUP + " = ?");
+        Long deletedId = null;
+        try {
+            Cursor cursor = mDatabaseManager.getCursor(builder, SELECT_PRIMARY_KEY, new String[]{group}, COLUMN_PRIORITY + " , " + PRIMARY_KEY);
+            try {
+                while (deletedId == null && cursor.moveToNext()) {
+                    Long id = mDatabaseManager.buildValues(cursor).getAsLong(PRIMARY_KEY);
+                    if (id != null && !mPendingDbIdentifiers.contains(id)) {
+                        deletedId = id;
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        } catch (RuntimeException e) {
+            AppCenterLog.error(LOG_TAG, "Failed to get the oldest log: ", e);
+        }
+        if (deletedId == null) {
+            return false;
+        }
+        mDatabaseManager.delete(deletedId);
+        AppCenterLog.debug(LOG_TAG, "Deleted the oldest log of " + group + " with id=" + deletedId);
+        deleteLargePayloadFile(group, deletedId);
+        return true;
+    }
+
+    /**
+     * Delete the large payload file of a deleted log record if it exists.
+     *
+     * @param group     group of the deleted record.
+     * @param deletedId id of the deleted record.
+     */
+    private void deleteLargePayloadFile(String group, long deletedId) {
         File file = getLargePayloadFile(getLargePayloadGroupDirectory(group), deletedId);
         if (!file.exists()) {
-            return deletedId;
+            return;
         }
         long fileSize = file.length();
         if (file.delete()) {
@@ -656,14 +1035,13 @@ public class DatabasePersistence extends Persistence {
         } else {
             AppCenterLog.warn(LOG_TAG, "Cannot delete large payload file with id " + deletedId);
         }
-        return deletedId;
     }
 
     private long checkLargePayloadFilesAndCollectTheirSize() {
         FilenameFilter filter = new FilenameFilter() {
             @Override
             public boolean accept(File file, String fileName) {
-                return fileName.endsWith(PAYLOAD_FILE_EXTENSION);
+                return fileName.endsWith(PAYLOAD_FILE_EXTENSION) || fileName.endsWith(PAYLOAD_TEMPORARY_FILE_EXTENSION);
             }
         };
         long size = 0;
@@ -679,6 +1057,14 @@ public class DatabasePersistence extends Persistence {
                 continue;
             }
             for (File file : files) {
+
+                /* Files still being written when the application stopped are not stored logs. */
+                if (file.getName().endsWith(PAYLOAD_TEMPORARY_FILE_EXTENSION)) {
+                    if (!file.delete()) {
+                        AppCenterLog.warn(LOG_TAG, "Cannot delete temporary large payload file " + file.getName());
+                    }
+                    continue;
+                }
                 long id;
                 try {
                     id = Integer.parseInt(FileManager.getNameWithoutExtension(file));
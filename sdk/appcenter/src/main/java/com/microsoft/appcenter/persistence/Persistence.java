@@ -75,6 +75,27 @@ public abstract class Persistence implements Closeable {
     @Nullable
     public abstract String getLogs(@NonNull String group, @NonNull Collection<String> pausedTargetKeys, @IntRange(from = 0) int limit, @NonNull List<Log> outLogs);
 
+    /**
+     * Moves logs returned by {@link #getLogs(String, Collection, int, List)} to a new ID,
+     * so that they can be deleted separately from the logs before them.
+     *
+     * @param group   The group of the storage for logs.
+     * @param batchId The ID for a set of logs.
+     * @param index   The position of the first log to move, in the order the logs were returned.
+     * @return The ID of the moved logs. {@code null} if the ID is unknown or there are no logs before or after the position.
+     */
+    @Nullable
+    public abstract String splitLogs(@NonNull String group, @NonNull String batchId, int index);
+
+    /**
+     * Deletes the oldest log with the lowest priority of the {@code group}
+     * that is not part of an ID returned by {@link #getLogs(String, Collection, int, List)}.
+     *
+     * @param group The group of the storage for logs.
+     * @return true if a log was deleted, false if there is no such log.
+     */
+    public abstract boolean deleteTheOldestLog(@NonNull String group);
+
     /**
      * Clears all associations between logs of the {@code group} and ids returned by {@link #getLogs(String, Collection, int, List)}}.
      */
@@ -202,6 +202,22 @@ public class DatabaseManager implements Closeable {
         return id;
     }
 
+    /**
+     * Stores the entry to the specified table, replacing any existing entry that has the same unique key.
+     *
+     * @param table  The table to perform the operation on.
+     * @param values The entry to be stored.
+     * @return If the entry was stored, the database identifier. Otherwise -1.
+     */
+    public long replace(@NonNull String table, @NonNull ContentValues values) {
+        try {
+            return getDatabase().insertWithOnConflict(table, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (RuntimeException e) {
+            AppCenterLog.error(LOG_TAG, String.format("Failed to replace values (%s) in table %s of database %s.", values.toString(), table, mDatabase), e);
+            return OPERATION_FAILED_FLAG;
+        }
+    }
+
     /**
      * Deletes the entry by the identifier from the database.
      *
@@ -250,6 +266,23 @@ public class DatabaseManager implements Closeable {
         return delete(mDefaultTable, key, value);
     }
 
+    /**
+     * Deletes the entries that match a where clause.
+     *
+     * @param table       The table to perform the operation on.
+     * @param whereClause The where clause, without WHERE itself.
+     * @param whereArgs   The values for the where clause placeholders.
+     * @return the number of rows affected.
+     */
+    public int delete(@NonNull String table, @NonNull String whereClause, @Nullable String[] whereArgs) {
+        try {
+            return getDatabase().delete(table, whereClause, whereArgs);
+        } catch (RuntimeException e) {
+            AppCenterLog.error(LOG_TAG, String.format("Failed to delete values that match condition=\"%s\" and values=\"%s\" from table %s of database %s.", whereClause, Arrays.toString(whereArgs), table, mDatabase), e);
+            return 0;
+        }
+    }
+
     /**
      * Deletes the entries that matches key == value.
      *
@@ -332,7 +365,7 @@ public class DatabaseManager implements Closeable {
      * @return A cursor for all rows that matches the given criteria.
      * @throws RuntimeException If an error occurs.
      */
-    Cursor getCursor(@NonNull String table, @Nullable SQLiteQueryBuilder queryBuilder, String[] columns, @Nullable String[] selectionArgs, @Nullable String sortOrder) throws RuntimeException {
+    public Cursor getCursor(@NonNull String table, @Nullable SQLiteQueryBuilder queryBuilder, String[] columns, @Nullable String[] selectionArgs, @Nullable String sortOrder) throws RuntimeException {
         if (queryBuilder == null) {
             queryBuilder = SQLiteUtils.newSQLiteQueryBuilder();
         }
@@ -29,6 +29,7 @@ import android.os.HandlerThread;
 import android.os.Looper;
 
 import com.microsoft.appcenter.channel.DefaultChannel;
+import com.microsoft.appcenter.http.HttpConnectionWarmer;
 import com.microsoft.appcenter.ingestion.models.StartServiceLog;
 import com.microsoft.appcenter.ingestion.models.json.JSONUtils;
 import com.microsoft.appcenter.ingestion.models.json.LogFactory;
@@ -64,6 +65,7 @@ import java.util.Map;
         DefaultChannel.class,
         DeviceInfoHelper.class,
         FileManager.class,
+        HttpConnectionWarmer.class,
         IdHelper.class,
         InstrumentationRegistryHelper.class,
         JSONUtils.class,
@@ -100,6 +102,8 @@ public class AbstractAppCenterTest {
     @Mock
     Application mApplication;
 
+    Handler mHandler;
+
     ApplicationInfo mApplicationInfo;
 
     static void addArgumentToRegistry(String value) {
@@ -147,8 +151,8 @@ public class AbstractAppCenterTest {
         mockStatic(JSONUtils.class);
 
         /* Mock handlers. */
-        Handler handler = mock(Handler.class);
-        whenNew(Handler.class).withAnyArguments().thenReturn(handler);
+        mHandler = mock(Handler.class);
+        whenNew(Handler.class).withAnyArguments().thenReturn(mHandler);
         doAnswer(new Answer<Void>() {
 
             @Override
@@ -156,7 +160,7 @@ public class AbstractAppCenterTest {
                 ((Runnable) invocation.getArguments()[0]).run();
                 return null;
             }
-        }).when(handler).post(any(Runnable.class));
+        }).when(mHandler).post(any(Runnable.class));
         HandlerThread handlerThread = mock(HandlerThread.class);
         whenNew(HandlerThread.class).withAnyArguments().thenReturn(handlerThread);
         when(handlerThread.getLooper()).thenReturn(mock(Looper.class));
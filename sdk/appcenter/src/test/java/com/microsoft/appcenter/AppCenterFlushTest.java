@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter;
+
+import com.microsoft.appcenter.utils.async.AppCenterFuture;
+import com.microsoft.appcenter.utils.async.DefaultAppCenterFuture;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class AppCenterFlushTest extends AbstractAppCenterTest {
+
+    @Test
+    public void flushBeforeStart() {
+        assertFalse(AppCenter.flush().get());
+        verify(mChannel, never()).flush(isNull(), any(DefaultAppCenterFuture.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushAfterStart() {
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((DefaultAppCenterFuture<Boolean>) invocation.getArguments()[1]).complete(true);
+                return null;
+            }
+        }).when(mChannel).flush(isNull(), any(DefaultAppCenterFuture.class));
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        assertTrue(AppCenter.flush().get());
+        verify(mHandler, never()).postDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void flushWhenDisabled() {
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        AppCenter.setEnabled(false);
+        assertFalse(AppCenter.flush().get());
+        verify(mChannel, never()).flush(isNull(), any(DefaultAppCenterFuture.class));
+    }
+
+    @Test
+    public void flushTimeout() {
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+
+        /* Channel never completes the future. */
+        AppCenterFuture<Boolean> future = AppCenter.flush(1000);
+        verify(mChannel).flush(isNull(), any(DefaultAppCenterFuture.class));
+        assertFalse(future.isDone());
+
+        /* Time out. */
+        ArgumentCaptor<Runnable> timeoutRunnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(mHandler).postDelayed(timeoutRunnable.capture(), eq(1000L));
+        timeoutRunnable.getValue().run();
+        assertFalse(future.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushCompletedBeforeTimeout() {
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((DefaultAppCenterFuture<Boolean>) invocation.getArguments()[1]).complete(true);
+                return null;
+            }
+        }).when(mChannel).flush(isNull(), any(DefaultAppCenterFuture.class));
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        AppCenterFuture<Boolean> future = AppCenter.flush(1000);
+
+        /* Timeout is removed on completion and has no effect anyway. */
+        ArgumentCaptor<Runnable> timeoutRunnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(mHandler).postDelayed(timeoutRunnable.capture(), eq(1000L));
+        verify(mHandler).removeCallbacks(timeoutRunnable.getValue());
+        timeoutRunnable.getValue().run();
+        assertTrue(future.get());
+    }
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -34,6 +35,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.doAnswer;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 
@@ -42,6 +44,9 @@ import android.content.Context;
 
 import com.microsoft.appcenter.channel.Channel;
 import com.microsoft.appcenter.channel.OneCollectorChannelListener;
+import com.microsoft.appcenter.http.HttpConnectionWarmer;
+import com.microsoft.appcenter.ingestion.AppCenterIngestion;
+import com.microsoft.appcenter.ingestion.OneCollectorIngestion;
 import com.microsoft.appcenter.ingestion.models.StartServiceLog;
 import com.microsoft.appcenter.ingestion.models.WrapperSdk;
 import com.microsoft.appcenter.utils.AppCenterLog;
@@ -58,6 +63,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
@@ -871,6 +877,14 @@ public class AppCenterTest extends AbstractAppCenterTest {
         /* Check that method was called. */
         verifyStatic(DeviceInfoHelper.class);
         DeviceInfoHelper.setCountryCode(eq(expectedCountryCode));
+
+        /* Since the channel was not created when setting country code, no need to refresh channel after start. */
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verify(mChannel, never()).invalidateDeviceCache();
+
+        /* Update country code and check channel refreshed. */
+        AppCenter.setCountryCode("bb");
+        verify(mChannel).invalidateDeviceCache();
     }
 
     @Test
@@ -883,6 +897,33 @@ public class AppCenterTest extends AbstractAppCenterTest {
         assertEquals(AppCenter.getDataResidencyRegion(), expectedDataResidencyRegion);
     }
 
+    @Test
+    public void connectionWarmUp() {
+        mockStatic(HttpConnectionWarmer.class);
+
+        /* Disabled by default. */
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verifyStatic(HttpConnectionWarmer.class, never());
+        HttpConnectionWarmer.warmUp(any(Context.class), anyCollection());
+
+        /* Warm up both ingestion hosts once started. */
+        AppCenter.unsetInstance();
+        AppCenter.setConnectionWarmUpEnabled(true);
+        AppCenter.start(mApplication, DUMMY_APP_SECRET + PAIR_DELIMITER + DUMMY_TARGET_TOKEN_STRING, DummyService.class);
+        verifyStatic(HttpConnectionWarmer.class);
+        HttpConnectionWarmer.warmUp(mContext, Arrays.asList(AppCenterIngestion.DEFAULT_LOG_URL, OneCollectorIngestion.DEFAULT_LOG_URL));
+    }
+
+    @Test
+    public void noConnectionWarmUpWhenNetworkRequestsDisallowed() {
+        mockStatic(HttpConnectionWarmer.class);
+        AppCenter.setConnectionWarmUpEnabled(true);
+        AppCenter.setNetworkRequestsAllowed(false);
+        AppCenter.start(mApplication, DUMMY_APP_SECRET, DummyService.class);
+        verifyStatic(HttpConnectionWarmer.class, never());
+        HttpConnectionWarmer.warmUp(any(Context.class), anyCollection());
+    }
+
     @Test
     public void setDefaultLogLevelRelease() {
         mApplicationInfo.flags = 0;
@@ -10,16 +10,23 @@ import android.os.Handler;
 
 import com.microsoft.appcenter.channel.DefaultChannel;
 import com.microsoft.appcenter.http.HttpClient;
+import com.microsoft.appcenter.http.HttpClientFactory;
 import com.microsoft.appcenter.http.HttpClientRetryer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
 
 import org.junit.After;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.Executor;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.verifyNew;
 
 public class DependencyConfigurationTest extends AbstractAppCenterTest {
@@ -48,8 +55,42 @@ public class DependencyConfigurationTest extends AbstractAppCenterTest {
         verifyNew(DefaultChannel.class).withArguments(any(Context.class), eq(DUMMY_APP_SECRET), any(LogSerializer.class), eq(mockHttpClient), any(Handler.class));
     }
 
+    @Test
+    public void setDependencyFactoryCreatesHttpClient() throws Exception {
+        HttpClient mockHttpClient = mock(HttpClient.class);
+        HttpClientFactory httpClientFactory = mock(HttpClientFactory.class);
+        when(httpClientFactory.createHttpClient(any(Context.class), any(Executor.class))).thenReturn(mockHttpClient);
+        DependencyConfiguration.setHttpClientFactory(httpClientFactory);
+        AppCenter.start(mApplication, DUMMY_APP_SECRET);
+
+        /* Verify that the channel was instantiated with the created HTTP client. */
+        verifyNew(DefaultChannel.class).withArguments(any(Context.class), eq(DUMMY_APP_SECRET), any(LogSerializer.class), eq(mockHttpClient), any(Handler.class));
+
+        /* Verify that results are delivered on the App Center thread. */
+        ArgumentCaptor<Executor> callbackExecutor = ArgumentCaptor.forClass(Executor.class);
+        verify(httpClientFactory).createHttpClient(any(Context.class), callbackExecutor.capture());
+        Runnable runnable = mock(Runnable.class);
+        callbackExecutor.getValue().execute(runnable);
+        verify(mHandler).post(runnable);
+        verify(runnable).run();
+    }
+
+    @Test
+    public void setDependencyHttpClientIsUsedBeforeFactory() throws Exception {
+        HttpClient mockHttpClient = mock(HttpClient.class);
+        HttpClientFactory httpClientFactory = mock(HttpClientFactory.class);
+        DependencyConfiguration.setHttpClient(mockHttpClient);
+        DependencyConfiguration.setHttpClientFactory(httpClientFactory);
+        AppCenter.start(mApplication, DUMMY_APP_SECRET);
+
+        /* Verify that the channel was instantiated with the given HTTP client. */
+        verifyNew(DefaultChannel.class).withArguments(any(Context.class), eq(DUMMY_APP_SECRET), any(LogSerializer.class), eq(mockHttpClient), any(Handler.class));
+        verifyNoInteractions(httpClientFactory);
+    }
+
     @After
     public void resetDependencies() {
         DependencyConfiguration.setHttpClient(null);
+        DependencyConfiguration.setHttpClientFactory(null);
     }
 }
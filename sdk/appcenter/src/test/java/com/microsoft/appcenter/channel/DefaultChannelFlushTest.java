@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.AppCenterIngestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.persistence.Persistence;
+import com.microsoft.appcenter.utils.async.DefaultAppCenterFuture;
+
+import org.junit.Test;
+
+import java.net.SocketException;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultChannelFlushTest extends AbstractDefaultChannelTest {
+
+    @Test
+    public void flushSendsPendingLogsWithoutWaitingInterval() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        when(mockPersistence.getLogs(anyString(), anyCollection(), anyInt(), anyList()))
+                .then(getGetLogsAnswer(10)).then(getGetLogsAnswer(0));
+        when(mockIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class)))
+                .then(getSendAsyncAnswer());
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+
+        /* Enqueue less logs than a batch: timer is scheduled, nothing sent yet. */
+        for (int i = 0; i < 10; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        }
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(BATCH_TIME_INTERVAL));
+        verify(mockIngestion, never()).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+
+        /* Flush sends logs immediately. */
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(null, future);
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mockPersistence).deleteLogs(eq(TEST_GROUP), anyString());
+        assertTrue(future.isDone());
+        assertTrue(future.get());
+        assertEquals(0, channel.getGroupState(TEST_GROUP).mPendingLogCount);
+        assertTrue(channel.getGroupState(TEST_GROUP).mPendingFlushes.isEmpty());
+    }
+
+    @Test
+    public void flushSendsSeveralBatches() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockPersistence.countLogs(TEST_GROUP)).thenReturn(12);
+        when(mockPersistence.getLogs(anyString(), anyCollection(), anyInt(), anyList()))
+                .then(getGetLogsAnswer(5)).then(getGetLogsAnswer(5)).then(getGetLogsAnswer(2)).then(getGetLogsAnswer(0));
+        when(mockIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class)))
+                .then(getSendAsyncAnswer());
+
+        /* Start offline so that stored logs are not sent when adding the group. */
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 5, BATCH_TIME_INTERVAL, 1, null, null);
+        verify(mockPersistence, never()).getLogs(anyString(), anyCollection(), anyInt(), anyList());
+
+        /* Flush sends all 12 logs, one batch at a time. */
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(TEST_GROUP, future);
+        verify(mockIngestion, times(3)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(mockPersistence, times(3)).deleteLogs(eq(TEST_GROUP), anyString());
+        assertTrue(future.isDone());
+        assertTrue(future.get());
+        assertEquals(0, channel.getGroupState(TEST_GROUP).mPendingLogCount);
+    }
+
+    @Test
+    public void flushWithoutPendingLogs() {
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mock(Persistence.class), mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.addGroup(TEST_GROUP_TWO, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(null, future);
+        assertTrue(future.isDone());
+        assertTrue(future.get());
+        verify(mockIngestion, never()).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+    }
+
+    @Test
+    public void flushWithoutGroups() {
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mock(Persistence.class), mockIngestion, mAppCenterHandler);
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(null, future);
+        assertTrue(future.get());
+    }
+
+    @Test
+    public void flushInvalidGroup() {
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mock(Persistence.class), mockIngestion, mAppCenterHandler);
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(TEST_GROUP, future);
+        assertFalse(future.get());
+    }
+
+    @Test
+    public void flushWhenDisabledOrOffline() {
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mock(Persistence.class), mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+
+        /* Offline. */
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(null, future);
+        assertFalse(future.get());
+
+        /* Disabled. */
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        channel.setEnabled(false);
+        future = new DefaultAppCenterFuture<>();
+        channel.flush(null, future);
+        assertFalse(future.get());
+    }
+
+    @Test
+    public void flushPausedGroup() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.pauseGroup(TEST_GROUP, null);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(TEST_GROUP, future);
+        assertFalse(future.get());
+        verify(mockPersistence, never()).getLogs(anyString(), anyCollection(), anyInt(), anyList());
+    }
+
+    @Test
+    public void flushPausedTarget() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockPersistence.countLogs(TEST_GROUP)).thenReturn(2);
+
+        /* Stored logs all belong to a paused target, so none can be read. */
+        when(mockPersistence.getLogs(anyString(), anyCollection(), anyInt(), anyList())).then(getGetLogsAnswer(0));
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.pauseGroup(TEST_GROUP, "iKey-token");
+
+        /* Flush fails instead of reporting success with logs left behind. */
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(TEST_GROUP, future);
+        assertTrue(future.isDone());
+        assertFalse(future.get());
+        assertTrue(channel.getGroupState(TEST_GROUP).mPendingFlushes.isEmpty());
+        verify(mockIngestion, never()).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+    }
+
+    @Test
+    public void flushWithoutAppSecret() {
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), null, mock(Persistence.class), mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(TEST_GROUP, future);
+        assertFalse(future.get());
+    }
+
+    @Test
+    public void flushFailure() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        when(mockPersistence.getLogs(anyString(), anyCollection(), anyInt(), anyList()))
+                .then(getGetLogsAnswer(1)).then(getGetLogsAnswer(0));
+        when(mockIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class)))
+                .then(getSendAsyncAnswer(new SocketException()));
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(null, future);
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        assertFalse(future.get());
+        assertTrue(channel.getGroupState(TEST_GROUP).mPendingFlushes.isEmpty());
+    }
+
+    @Test
+    public void removeGroupWhileFlushing() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        when(mockPersistence.getLogs(anyString(), anyCollection(), anyInt(), anyList()))
+                .then(getGetLogsAnswer(1));
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+
+        /* Ingestion never calls back. */
+        DefaultAppCenterFuture<Boolean> future = new DefaultAppCenterFuture<>();
+        channel.flush(null, future);
+        verify(mockIngestion, times(1)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        assertFalse(future.isDone());
+        channel.removeGroup(TEST_GROUP);
+        assertFalse(future.get());
+    }
+}
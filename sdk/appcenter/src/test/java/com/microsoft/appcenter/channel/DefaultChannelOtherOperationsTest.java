@@ -7,6 +7,8 @@ package com.microsoft.appcenter.channel;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
+
 import com.microsoft.appcenter.Flags;
 import com.microsoft.appcenter.ingestion.AppCenterIngestion;
 import com.microsoft.appcenter.ingestion.Ingestion;
@@ -17,6 +19,7 @@ import org.junit.Test;
 
 import java.util.UUID;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -73,6 +76,55 @@ public class DefaultChannelOtherOperationsTest extends AbstractDefaultChannelTes
         verifyNoMoreInteractions(listener);
     }
 
+    @Test
+    public void logCallbacksOnlyCalledWhenImplemented() {
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mock(Persistence.class), mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        PreparingLogListener preparingLogListener = new PreparingLogListener();
+        Channel.Listener interfaceListener = mock(Channel.Listener.class);
+        channel.addListener(preparingLogListener);
+        channel.addListener(interfaceListener);
+
+        /* Check which callbacks are considered implemented. */
+        assertTrue(DefaultChannel.isImplemented(preparingLogListener, "onPreparingLog", Log.class, String.class));
+        assertFalse(DefaultChannel.isImplemented(preparingLogListener, "onPreparedLog", Log.class, String.class, int.class));
+        assertFalse(DefaultChannel.isImplemented(preparingLogListener, "shouldFilter", Log.class));
+        assertFalse(DefaultChannel.isImplemented(new AbstractChannelListener(), "onPreparingLog", Log.class, String.class));
+        assertTrue(DefaultChannel.isImplemented(interfaceListener, "shouldFilter", Log.class));
+        assertTrue(DefaultChannel.isImplemented(preparingLogListener, "missingMethod"));
+
+        /* Check enqueue calls all implemented callbacks. */
+        Log log = mock(Log.class);
+        channel.enqueue(log, TEST_GROUP, Flags.DEFAULTS);
+        assertEquals(1, preparingLogListener.mPreparingLogCount);
+        verify(interfaceListener).onPreparingLog(log, TEST_GROUP);
+        verify(interfaceListener).onPreparedLog(log, TEST_GROUP, Flags.DEFAULTS);
+        verify(interfaceListener).shouldFilter(log);
+
+        /* Check no more calls after removing listener. */
+        channel.removeListener(preparingLogListener);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        assertEquals(1, preparingLogListener.mPreparingLogCount);
+    }
+
+    @Test
+    public void filterStopsAtFirstListener() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        Channel.Listener firstListener = mock(Channel.Listener.class);
+        Channel.Listener secondListener = mock(Channel.Listener.class);
+        channel.addListener(firstListener);
+        channel.addListener(secondListener);
+        Log log = mock(Log.class);
+        when(firstListener.shouldFilter(log)).thenReturn(true);
+        channel.enqueue(log, TEST_GROUP, Flags.DEFAULTS);
+        verify(firstListener).shouldFilter(log);
+        verify(secondListener, never()).shouldFilter(any(Log.class));
+        verify(secondListener).onPreparedLog(log, TEST_GROUP, Flags.DEFAULTS);
+        verify(mockPersistence, never()).putLog(any(Log.class), anyString(), anyInt());
+    }
+
     @Test
     public void clear() {
         Persistence mockPersistence = mock(Persistence.class);
@@ -213,4 +265,14 @@ public class DefaultChannelOtherOperationsTest extends AbstractDefaultChannelTes
         assertTrue(channel.setMaxStorageSize(20480));
         assertFalse(channel.setMaxStorageSize(2));
     }
+
+    private static class PreparingLogListener extends AbstractChannelListener {
+
+        private int mPreparingLogCount;
+
+        @Override
+        public void onPreparingLog(@NonNull Log log, @NonNull String groupName) {
+            mPreparingLogCount++;
+        }
+    }
 }
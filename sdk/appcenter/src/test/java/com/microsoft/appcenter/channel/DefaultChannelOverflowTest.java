@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+
+import com.microsoft.appcenter.CancellationException;
+import com.microsoft.appcenter.Flags;
+import com.microsoft.appcenter.OverflowException;
+import com.microsoft.appcenter.OverflowPolicy;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.AppCenterIngestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.persistence.Persistence;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultChannelOverflowTest extends AbstractDefaultChannelTest {
+
+    private static final long BLOCK_TIMEOUT = 1234;
+
+    @Test
+    public void dropNewest() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+        channel.pauseGroup(TEST_GROUP, null);
+        channel.setOverflowPolicy(TEST_GROUP, new OverflowPolicy(OverflowPolicy.DROP_NEWEST, 3));
+
+        /* Enqueue more logs than the capacity. */
+        for (int i = 0; i < 5; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        }
+
+        /* Verify the last logs are discarded without accessing storage. */
+        verify(mockPersistence, times(3)).putLog(any(Log.class), eq(TEST_GROUP), anyInt());
+        verify(mockPersistence, never()).getLogs(anyString(), anyCollection(), anyInt(), anyList());
+        verify(groupListener, times(2)).onBeforeSending(any(Log.class));
+        verify(groupListener, times(2)).onFailure(any(Log.class), any(OverflowException.class));
+        assertEquals(3, channel.getGroupState(TEST_GROUP).mPendingLogCount);
+    }
+
+    @Test
+    public void dropOldest() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.deleteTheOldestLog(TEST_GROUP)).thenReturn(true);
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+        channel.pauseGroup(TEST_GROUP, null);
+        channel.setOverflowPolicy(TEST_GROUP, new OverflowPolicy(OverflowPolicy.DROP_OLDEST, 2));
+
+        /* Enqueue more logs than the capacity. */
+        Log newestLog = mock(Log.class);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        channel.enqueue(newestLog, TEST_GROUP, Flags.DEFAULTS);
+
+        /* Verify the oldest log is deleted to keep the new one, without reading logs. */
+        verify(mockPersistence, times(3)).putLog(any(Log.class), eq(TEST_GROUP), anyInt());
+        verify(mockPersistence).putLog(newestLog, TEST_GROUP, Flags.DEFAULTS);
+        verify(mockPersistence).deleteTheOldestLog(TEST_GROUP);
+        verify(mockPersistence, never()).getLogs(anyString(), anyCollection(), anyInt(), anyList());
+        verify(groupListener, never()).onFailure(any(Log.class), any(Exception.class));
+        assertEquals(2, channel.getGroupState(TEST_GROUP).mPendingLogCount);
+    }
+
+    @Test
+    public void dropOldestWhenAllLogsAreBeingSent() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.getLogs(anyString(), anyCollection(), anyInt(), anyList())).then(getGetLogsAnswer(1));
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 1, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+        channel.setOverflowPolicy(TEST_GROUP, new OverflowPolicy(OverflowPolicy.DROP_OLDEST, 1));
+
+        /* First log is being sent. */
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+
+        /* No stored log can be dropped, the new one is discarded. */
+        Log newestLog = mock(Log.class);
+        channel.enqueue(newestLog, TEST_GROUP, Flags.DEFAULTS);
+        verify(mockPersistence, never()).putLog(eq(newestLog), anyString(), anyInt());
+        verify(mockPersistence, never()).deleteTheOldestLog(anyString());
+        verify(groupListener).onFailure(eq(newestLog), any(OverflowException.class));
+    }
+
+    @Test
+    public void sample() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.deleteTheOldestLog(TEST_GROUP)).thenReturn(true);
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+        channel.pauseGroup(TEST_GROUP, null);
+        channel.setOverflowPolicy(TEST_GROUP, new OverflowPolicy(OverflowPolicy.SAMPLE, 1).setSamplingInterval(3));
+
+        /* Fill the backlog then enqueue 6 more logs. */
+        for (int i = 0; i < 7; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        }
+
+        /* One log out of 3 replaces the oldest one. */
+        verify(mockPersistence, times(3)).putLog(any(Log.class), eq(TEST_GROUP), anyInt());
+        verify(mockPersistence, times(2)).deleteTheOldestLog(TEST_GROUP);
+        verify(groupListener, times(4)).onFailure(any(Log.class), any(OverflowException.class));
+        assertEquals(1, channel.getGroupState(TEST_GROUP).mPendingLogCount);
+    }
+
+    @Test
+    public void blockUntilCapacityOrTimeout() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.getLogs(anyString(), anyCollection(), anyInt(), anyList())).then(getGetLogsAnswer(1));
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 1, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+        channel.setOverflowPolicy(TEST_GROUP, new OverflowPolicy(OverflowPolicy.BLOCK, 1).setBlockTimeout(BLOCK_TIMEOUT));
+
+        /* First log is being sent, the next one is blocked. */
+        Log log1 = mock(Log.class);
+        Log log2 = mock(Log.class);
+        channel.enqueue(log1, TEST_GROUP, Flags.DEFAULTS);
+        channel.enqueue(log2, TEST_GROUP, Flags.DEFAULTS);
+        ArgumentCaptor<ServiceCallback> callback = ArgumentCaptor.forClass(ServiceCallback.class);
+        verify(mockIngestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), callback.capture());
+        verify(mockPersistence).putLog(any(Log.class), anyString(), anyInt());
+        ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+        verify(mAppCenterHandler).postDelayed(timeout.capture(), eq(BLOCK_TIMEOUT));
+
+        /* No more logs than the capacity are blocked. */
+        Log log3 = mock(Log.class);
+        channel.enqueue(log3, TEST_GROUP, Flags.DEFAULTS);
+        verify(groupListener).onFailure(eq(log3), any(OverflowException.class));
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(BLOCK_TIMEOUT));
+        assertEquals(1, channel.getGroupState(TEST_GROUP).mBlockedLogs.size());
+
+        /* When the batch is sent, the blocked log is persisted and sent and its timeout is removed. */
+        callback.getValue().onCallSucceeded(null);
+        verify(mockPersistence).putLog(log2, TEST_GROUP, Flags.DEFAULTS);
+        verify(mAppCenterHandler).removeCallbacks(timeout.getValue());
+        verify(mockIngestion, times(2)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+
+        /* Timeout of a blocked log discards it. */
+        Log log4 = mock(Log.class);
+        channel.enqueue(log4, TEST_GROUP, Flags.DEFAULTS);
+        verify(mAppCenterHandler, times(2)).postDelayed(timeout.capture(), eq(BLOCK_TIMEOUT));
+        timeout.getValue().run();
+        verify(groupListener).onFailure(eq(log4), any(OverflowException.class));
+        verify(mockPersistence, never()).putLog(eq(log4), anyString(), anyInt());
+        assertEquals(0, channel.getGroupState(TEST_GROUP).mBlockedLogs.size());
+    }
+
+    @Test
+    public void removingPolicyReleasesBlockedLogs() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.pauseGroup(TEST_GROUP, null);
+        channel.setOverflowPolicy(TEST_GROUP, new OverflowPolicy(OverflowPolicy.BLOCK, 1));
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        verify(mockPersistence).putLog(any(Log.class), anyString(), anyInt());
+
+        /* Remove policy. */
+        channel.setOverflowPolicy(TEST_GROUP, null);
+        verify(mockPersistence, times(2)).putLog(any(Log.class), anyString(), anyInt());
+        assertEquals(2, channel.getGroupState(TEST_GROUP).mPendingLogCount);
+    }
+
+    @Test
+    public void removingGroupDiscardsBlockedLogs() throws Persistence.PersistenceException {
+        Persistence mockPersistence = mock(Persistence.class);
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mock(AppCenterIngestion.class), mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+        channel.pauseGroup(TEST_GROUP, null);
+        channel.setOverflowPolicy(TEST_GROUP, new OverflowPolicy(OverflowPolicy.BLOCK, 1));
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        Log blockedLog = mock(Log.class);
+        channel.enqueue(blockedLog, TEST_GROUP, Flags.DEFAULTS);
+
+        /* Remove group. */
+        channel.removeGroup(TEST_GROUP);
+        verify(groupListener).onFailure(eq(blockedLog), any(CancellationException.class));
+        verify(mockPersistence, never()).putLog(eq(blockedLog), anyString(), anyInt());
+    }
+
+    @Test
+    public void watermarks() {
+        Persistence mockPersistence = mock(Persistence.class);
+        when(mockPersistence.getLogs(anyString(), anyCollection(), anyInt(), anyList())).then(getGetLogsAnswer(4)).then(getGetLogsAnswer(0));
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        when(mockIngestion.sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class))).then(getSendAsyncAnswer());
+        Channel.Listener listener = mock(Channel.Listener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addListener(listener);
+        channel.addGroup(TEST_GROUP, 4, BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, null);
+        channel.pauseGroup(TEST_GROUP, null);
+        channel.setOverflowPolicy(TEST_GROUP, new OverflowPolicy(OverflowPolicy.DROP_NEWEST, 10).setWatermarks(2, 4));
+
+        /* Reach high watermark. */
+        for (int i = 0; i < 3; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        }
+        verify(listener, never()).onBackpressureChanged(anyString(), eq(true));
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        verify(listener).onBackpressureChanged(TEST_GROUP, true);
+
+        /* Notified only once. */
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        verify(listener).onBackpressureChanged(TEST_GROUP, true);
+
+        /* Sending logs goes back to low watermark. */
+        channel.resumeGroup(TEST_GROUP, null);
+        verify(listener).onBackpressureChanged(TEST_GROUP, false);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.channel;
+
+import android.content.Context;
+
+import com.microsoft.appcenter.http.HttpException;
+import com.microsoft.appcenter.http.HttpResponse;
+import com.microsoft.appcenter.http.ServiceCallback;
+import com.microsoft.appcenter.ingestion.AppCenterIngestion;
+import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.LogContainer;
+import com.microsoft.appcenter.persistence.Persistence;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultChannelPayloadTooLargeTest extends AbstractDefaultChannelTest {
+
+    private static final String BATCH_ID = "batch";
+
+    private static Persistence mockPersistence(final List<Log> logs) {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.countLogs(TEST_GROUP)).thenReturn(logs.size());
+        when(persistence.getLogs(anyString(), anyCollection(), anyInt(), anyList())).then(new Answer<String>() {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public String answer(InvocationOnMock invocation) {
+                ((List<Log>) invocation.getArguments()[3]).addAll(logs);
+                return BATCH_ID;
+            }
+        });
+        when(persistence.splitLogs(anyString(), anyString(), anyInt())).then(new Answer<String>() {
+
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                return invocation.getArguments()[1] + "/" + invocation.getArguments()[2];
+            }
+        });
+        return persistence;
+    }
+
+    /**
+     * Mock ingestion rejecting any request containing the given log.
+     */
+    private static AppCenterIngestion mockIngestion(final Log poisonLog, final Exception otherException) {
+        AppCenterIngestion ingestion = mock(AppCenterIngestion.class);
+        when(ingestion.isEnabled()).thenReturn(true);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                List<Log> logs = ((LogContainer) invocation.getArguments()[2]).getLogs();
+                ServiceCallback serviceCallback = (ServiceCallback) invocation.getArguments()[3];
+                if (logs.contains(poisonLog)) {
+                    serviceCallback.onCallFailed(new HttpException(new HttpResponse(413)));
+                } else if (otherException != null) {
+                    serviceCallback.onCallFailed(otherException);
+                } else {
+                    serviceCallback.onCallSucceeded(new HttpResponse(200, ""));
+                }
+                return null;
+            }
+        }).when(ingestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        return ingestion;
+    }
+
+    @Test
+    public void bisectUntilPoisonLog() {
+        Log poisonLog = mock(Log.class);
+        List<Log> logs = Arrays.asList(mock(Log.class), mock(Log.class), mock(Log.class), poisonLog);
+        Persistence persistence = mockPersistence(logs);
+        AppCenterIngestion ingestion = mockIngestion(poisonLog, null);
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        Channel.Listener listener = mock(Channel.Listener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
+        channel.addListener(listener);
+        channel.addGroup(TEST_GROUP, logs.size(), BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+
+        /* The batch, its second half and the poison log are rejected, then the poison log is discarded. */
+        verify(ingestion, times(5)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        verify(listener).onPayloadTooLarge(TEST_GROUP, 4);
+        verify(listener).onPayloadTooLarge(TEST_GROUP, 2);
+        verify(listener).onPayloadTooLarge(TEST_GROUP, 1);
+        for (int i = 0; i < 3; i++) {
+            verify(groupListener).onSuccess(logs.get(i));
+        }
+        verify(groupListener, never()).onSuccess(poisonLog);
+        verify(groupListener).onFailure(eq(poisonLog), any(HttpException.class));
+        verify(groupListener).onFailure(any(Log.class), any(Exception.class));
+
+        /* Each part is deleted once completed and the channel keeps sending. */
+        verify(persistence).splitLogs(TEST_GROUP, BATCH_ID, 2);
+        verify(persistence).splitLogs(TEST_GROUP, BATCH_ID + "/2", 1);
+        verify(persistence).deleteLogs(TEST_GROUP, BATCH_ID);
+        verify(persistence).deleteLogs(TEST_GROUP, BATCH_ID + "/2");
+        verify(persistence).deleteLogs(TEST_GROUP, BATCH_ID + "/2/1");
+        verify(persistence, times(3)).deleteLogs(anyString(), anyString());
+        verify(persistence, never()).deleteLogs(TEST_GROUP);
+        assertTrue(channel.isEnabled());
+        assertTrue(channel.getGroupState(TEST_GROUP).mSendingBatches.isEmpty());
+    }
+
+    @Test
+    public void recoverableErrorWhileBisecting() {
+        Log poisonLog = mock(Log.class);
+        List<Log> logs = Arrays.asList(poisonLog, mock(Log.class));
+        Persistence persistence = mockPersistence(logs);
+        AppCenterIngestion ingestion = mockIngestion(poisonLog, new HttpException(new HttpResponse(503)));
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, logs.size(), BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+
+        /* The poison log is discarded, the other half fails with a recoverable error. */
+        verify(groupListener).onFailure(eq(poisonLog), any(HttpException.class));
+        verify(groupListener, never()).onFailure(eq(logs.get(1)), any(Exception.class));
+
+        /* Only the other half is still stored and will be read again when the channel is enabled. */
+        verify(persistence).deleteLogs(TEST_GROUP, BATCH_ID);
+        verify(persistence, never()).deleteLogs(TEST_GROUP, BATCH_ID + "/1");
+        verify(persistence).clearPendingLogState();
+        assertFalse(channel.isEnabled());
+        assertEquals(1, channel.getGroupState(TEST_GROUP).mPendingLogCount);
+    }
+
+    @Test
+    public void firstHalfSucceedsSecondHalfRecoverableError() {
+        final List<Log> logs = Arrays.asList(mock(Log.class), mock(Log.class), mock(Log.class), mock(Log.class));
+        Persistence persistence = mockPersistence(logs);
+        AppCenterIngestion ingestion = mock(AppCenterIngestion.class);
+        when(ingestion.isEnabled()).thenReturn(true);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                List<Log> sentLogs = ((LogContainer) invocation.getArguments()[2]).getLogs();
+                ServiceCallback serviceCallback = (ServiceCallback) invocation.getArguments()[3];
+                if (sentLogs.size() == logs.size()) {
+                    serviceCallback.onCallFailed(new HttpException(new HttpResponse(413)));
+                } else if (sentLogs.contains(logs.get(0))) {
+                    serviceCallback.onCallSucceeded(new HttpResponse(200, ""));
+                } else {
+                    serviceCallback.onCallFailed(new HttpException(new HttpResponse(503)));
+                }
+                return null;
+            }
+        }).when(ingestion).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
+        Channel.GroupListener groupListener = mock(Channel.GroupListener.class);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), persistence, ingestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, logs.size(), BATCH_TIME_INTERVAL, MAX_PARALLEL_BATCHES, null, groupListener);
+
+        /* The first half is reported and deleted once. */
+        verify(groupListener).onSuccess(logs.get(0));
+        verify(groupListener).onSuccess(logs.get(1));
+        verify(groupListener, times(2)).onSuccess(any(Log.class));
+        verify(groupListener, never()).onFailure(any(Log.class), any(Exception.class));
+        verify(persistence).deleteLogs(TEST_GROUP, BATCH_ID);
+
+        /* Only the second half is still stored and counted as pending. */
+        verify(persistence, never()).deleteLogs(TEST_GROUP, BATCH_ID + "/2");
+        verify(persistence).clearPendingLogState();
+        assertFalse(channel.isEnabled());
+        assertEquals(2, channel.getGroupState(TEST_GROUP).mPendingLogCount);
+        assertTrue(channel.getGroupState(TEST_GROUP).mSendingBatches.isEmpty());
+    }
+}
@@ -1156,6 +1156,66 @@ public class DefaultChannelTest extends AbstractDefaultChannelTest {
         verify(mockIngestion, times(4)).sendAsync(anyString(), any(UUID.class), any(LogContainer.class), any(ServiceCallback.class));
     }
 
+    @Test
+    public void customIntervalStartTimeReadOnlyOnce() {
+
+        /* Mock current time. */
+        long now = 1000;
+        when(System.currentTimeMillis()).thenReturn(now);
+
+        /* Create channel and group. */
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, CUSTOM_INTERVAL, MAX_PARALLEL_BATCHES, null, mock(Channel.GroupListener.class));
+
+        /* Enqueue several logs. */
+        for (int i = 0; i < 10; i++) {
+            channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        }
+
+        /* Verify timer started only once and storage was read only when adding the group. */
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(CUSTOM_INTERVAL));
+        verifyStatic(SharedPreferencesManager.class);
+        SharedPreferencesManager.getLong(eq(START_TIMER_PREFIX + TEST_GROUP));
+        verifyStatic(SharedPreferencesManager.class);
+        SharedPreferencesManager.putLong(eq(START_TIMER_PREFIX + TEST_GROUP), eq(now));
+    }
+
+    @Test
+    public void cancelTimerKeepsStartTimeInStorage() {
+
+        /* Mock current time. */
+        long now = 1000;
+        when(System.currentTimeMillis()).thenReturn(now);
+
+        /* Create channel and group. */
+        Persistence mockPersistence = mock(Persistence.class);
+        AppCenterIngestion mockIngestion = mock(AppCenterIngestion.class);
+        when(mockIngestion.isEnabled()).thenReturn(true);
+        DefaultChannel channel = new DefaultChannel(mock(Context.class), UUID.randomUUID().toString(), mockPersistence, mockIngestion, mAppCenterHandler);
+        channel.addGroup(TEST_GROUP, 50, CUSTOM_INTERVAL, MAX_PARALLEL_BATCHES, null, mock(Channel.GroupListener.class));
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        verify(mAppCenterHandler).postDelayed(any(Runnable.class), eq(CUSTOM_INTERVAL));
+
+        /* Cancel timer by disabling. */
+        channel.setEnabled(false);
+        verify(mAppCenterHandler).removeCallbacks(any(Runnable.class));
+
+        /* Storage is not written when timer is cancelled. */
+        verifyStatic(SharedPreferencesManager.class, never());
+        SharedPreferencesManager.remove(eq(START_TIMER_PREFIX + TEST_GROUP));
+
+        /* Enqueuing after enabling again starts a new timer from memory. */
+        now = 2000;
+        when(System.currentTimeMillis()).thenReturn(now);
+        channel.setEnabled(true);
+        channel.enqueue(mock(Log.class), TEST_GROUP, Flags.DEFAULTS);
+        verifyStatic(SharedPreferencesManager.class);
+        SharedPreferencesManager.putLong(eq(START_TIMER_PREFIX + TEST_GROUP), eq(now));
+    }
+
     @Test
     public void setNetworkRequest() {
 
@@ -10,6 +10,7 @@ import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyMap;
@@ -62,19 +63,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -117,7 +124,8 @@ public class DefaultHttpClientTest {
                         (HttpClient.CallTemplate) invocation.getArguments()[3],
                         (ServiceCallback) invocation.getArguments()[4],
                         (DefaultHttpClientCallTask.Tracker) invocation.getArguments()[5],
-                        (boolean) invocation.getArguments()[6]));
+                        (RequestCompression) invocation.getArguments()[6],
+                        (Executor) invocation.getArguments()[7]));
                 when(call.executeOnExecutor(any())).then(new Answer<DefaultHttpClientCallTask>() {
 
                     @Override
@@ -634,6 +642,107 @@ public class DefaultHttpClientTest {
         TrafficStats.clearThreadStatsTag();
     }
 
+    @Test
+    public void discardResponse() throws Exception {
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock/logs";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        when(urlConnection.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        HttpClient.ResponseCallTemplate callTemplate = mock(HttpClient.ResponseCallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn("mockPayload");
+        when(callTemplate.getResponseMode()).thenReturn(HttpClient.ResponseMode.DISCARD);
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "", Collections.emptyMap()));
+
+        /* Neither body nor headers are read. */
+        verify(urlConnection, never()).getInputStream();
+        verify(urlConnection, never()).getHeaderFields();
+        verify(callTemplate, never()).readResponseBody(any(InputStream.class));
+        verify(urlConnection).disconnect();
+    }
+
+    @Test
+    public void readHeadersOnly() throws Exception {
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock/logs";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        when(urlConnection.getHeaderFields()).thenReturn(Collections.singletonMap("x-mock", Collections.singletonList("value")));
+        HttpClient.ResponseCallTemplate callTemplate = mock(HttpClient.ResponseCallTemplate.class);
+        when(callTemplate.getResponseMode()).thenReturn(HttpClient.ResponseMode.HEADERS);
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "", Collections.singletonMap("x-mock", "value")));
+        verify(urlConnection, never()).getInputStream();
+    }
+
+    @Test
+    public void streamResponse() throws Exception {
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock/release";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        InputStream inputStream = spy(new ByteArrayInputStream("binary".getBytes()));
+        when(urlConnection.getInputStream()).thenReturn(inputStream);
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        HttpClient.ResponseCallTemplate callTemplate = mock(HttpClient.ResponseCallTemplate.class);
+        when(callTemplate.getResponseMode()).thenReturn(HttpClient.ResponseMode.STREAM);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                InputStream stream = (InputStream) invocation.getArguments()[0];
+                int b;
+                while ((b = stream.read()) >= 0) {
+                    sink.write(b);
+                }
+                return null;
+            }
+        }).when(callTemplate).readResponseBody(any(InputStream.class));
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "", Collections.<String, String>emptyMap()));
+        assertEquals("binary", sink.toString());
+        verify(inputStream).close();
+    }
+
+    @Test
+    public void errorResponseReadWhenDiscarding() throws Exception {
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock/logs";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(503);
+        when(urlConnection.getErrorStream()).thenReturn(new ByteArrayInputStream("Busy".getBytes()));
+        HttpClient.ResponseCallTemplate callTemplate = mock(HttpClient.ResponseCallTemplate.class);
+        when(callTemplate.getResponseMode()).thenReturn(HttpClient.ResponseMode.DISCARD);
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallFailed(new HttpException(new HttpResponse(503, "Busy")));
+        verify(callTemplate, never()).getResponseMode();
+    }
+
     @Test
     public void cancel() throws Exception {
 
@@ -667,7 +776,8 @@ public class DefaultHttpClientTest {
                         (HttpClient.CallTemplate) invocation.getArguments()[3],
                         (ServiceCallback) invocation.getArguments()[4],
                         (DefaultHttpClientCallTask.Tracker) invocation.getArguments()[5],
-                        (boolean) invocation.getArguments()[6]));
+                        (RequestCompression) invocation.getArguments()[6],
+                        (Executor) invocation.getArguments()[7]));
                 callTask.set(call);
                 when(call.executeOnExecutor(any())).then(new Answer<DefaultHttpClientCallTask>() {
 
@@ -988,6 +1098,77 @@ public class DefaultHttpClientTest {
         verify(serviceCallback, never()).onCallSucceeded(any(HttpResponse.class));
     }
 
+    @Test
+    public void deliverResultOnCallbackExecutor() throws Exception {
+
+        /* Configure mock HTTPS. */
+        mockStatic(TrafficStats.class);
+        String urlString = "https://mock/get";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+
+        /* Run calls directly and hold callbacks. */
+        final List<Runnable> callbacks = new ArrayList<>();
+        Executor executor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        Executor callbackExecutor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                callbacks.add(command);
+            }
+        };
+        DefaultHttpClient httpClient = new DefaultHttpClient(true, executor, callbackExecutor);
+
+        /* Call. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        httpClient.callAsync(urlString, METHOD_GET, new HashMap<String, String>(), null, serviceCallback);
+        verify(urlConnection).disconnect();
+
+        /* Callback not called until callback executor runs it. */
+        verifyNoInteractions(serviceCallback);
+        assertEquals(1, httpClient.getTasks().size());
+        assertEquals(1, callbacks.size());
+        callbacks.get(0).run();
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "OK", Collections.emptyMap()));
+        assertEquals(0, httpClient.getTasks().size());
+    }
+
+    @Test
+    public void rejectedByExecutor() throws Exception {
+
+        /* Executor rejecting calls, callbacks run directly. */
+        final RejectedExecutionException exception = new RejectedExecutionException();
+        Executor executor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                throw exception;
+            }
+        };
+        Executor callbackExecutor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        DefaultHttpClient httpClient = new DefaultHttpClient(true, executor, callbackExecutor);
+
+        /* Verify failure reported and no task left. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        assertNotNull(httpClient.callAsync("https://mock", METHOD_GET, new HashMap<String, String>(), null, serviceCallback));
+        verify(serviceCallback).onCallFailed(exception);
+        verify(serviceCallback, never()).onCallSucceeded(any(HttpResponse.class));
+        assertEquals(0, httpClient.getTasks().size());
+    }
+
     @Test
     public void sendGzipWithoutVerboseLogging() throws Exception {
 
@@ -1230,6 +1411,303 @@ public class DefaultHttpClientTest {
         AppCenterLog.verbose(anyString(), contains(payload));
     }
 
+    private static HttpClient.StreamingCallTemplate mockStreamingCallTemplate(final String payload) throws Exception {
+        HttpClient.StreamingCallTemplate callTemplate = mock(HttpClient.StreamingCallTemplate.class);
+        when(callTemplate.buildRequestBody()).thenReturn(payload);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Writer writer = (Writer) invocation.getArguments()[0];
+
+                /* Write in several parts like a serializer would. */
+                for (int i = 0; i < payload.length(); i += 100) {
+                    writer.write(payload.substring(i, Math.min(payload.length(), i + 100)));
+                }
+                return null;
+            }
+        }).when(callTemplate).writeRequestBody(any(Writer.class));
+        return callTemplate;
+    }
+
+    private static String decompress(byte[] bytes) throws IOException {
+        GZIPInputStream stream = new GZIPInputStream(new ByteArrayInputStream(bytes));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int len;
+        while ((len = stream.read(buffer)) > 0) {
+            out.write(buffer, 0, len);
+        }
+        stream.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void streamLargePayloadWithGzip() throws Exception {
+
+        /* Mock no verbose logging. */
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(Log.DEBUG);
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+
+        /* Long mock payload with non ASCII characters. */
+        StringBuilder payloadBuilder = new StringBuilder();
+        for (int i = 0; i < 8000; i++) {
+            payloadBuilder.append(i % 10 == 0 ? '\u00e9' : 'a');
+        }
+        String payload = payloadBuilder.toString();
+        HttpClient.StreamingCallTemplate callTemplate = mockStreamingCallTemplate(payload);
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "OK", Collections.emptyMap()));
+        verify(urlConnection).setRequestProperty("Content-Type", "application/json");
+        verify(urlConnection).setRequestProperty("Content-Encoding", "gzip");
+        verify(urlConnection).setDoOutput(true);
+        verify(urlConnection).setChunkedStreamingMode(HttpUtils.WRITE_BUFFER_SIZE);
+        verify(urlConnection, never()).setFixedLengthStreamingMode(anyInt());
+        verify(callTemplate).onBeforeCalling(any(URL.class), anyMap());
+        verify(callTemplate, never()).buildRequestBody();
+        verify(urlConnection).disconnect();
+
+        /* Verify payload compressed. */
+        assertEquals(payload, decompress(buffer.toByteArray()));
+    }
+
+    @Test
+    public void failedToStreamPayload() throws Exception {
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+        /* Fail serializing after the compressed body started. */
+        final JSONException exception = new JSONException("mock");
+        HttpClient.StreamingCallTemplate callTemplate = mock(HttpClient.StreamingCallTemplate.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Writer writer = (Writer) invocation.getArguments()[0];
+                writer.write(new char[RequestCompression.DEFAULT_MIN_LENGTH * 2]);
+                throw exception;
+            }
+        }).when(callTemplate).writeRequestBody(any(Writer.class));
+        RequestCompression.sIdleRawDeflaters.clear();
+        Deflater deflater = spy(new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        RequestCompression.sIdleRawDeflaters.add(deflater);
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* The compressor is ended, not given back to the pool. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallFailed(exception);
+        verify(deflater).end();
+        assertEquals(0, RequestCompression.sIdleRawDeflaters.size());
+        verify(urlConnection).disconnect();
+    }
+
+    @Test
+    public void streamLargePayloadWithDictionary() throws Exception {
+
+        /* Mock no verbose logging. */
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(Log.DEBUG);
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+
+        /* Payload just above the custom minimum length. */
+        StringBuilder payloadBuilder = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            payloadBuilder.append("{\"type\":\"event\",\"id\":\"").append(i).append("\"}");
+        }
+        String payload = payloadBuilder.toString();
+        HttpClient.StreamingCallTemplate callTemplate = mockStreamingCallTemplate(payload);
+        byte[] dictionary = RequestCompression.getLogDictionary();
+        DefaultHttpClient httpClient = new DefaultHttpClient(new RequestCompression(Deflater.BEST_SPEED, 100, dictionary), HttpUtils.getDefaultExecutor(), DefaultHttpClient.MAIN_THREAD_EXECUTOR);
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "OK", Collections.emptyMap()));
+        verify(urlConnection).setRequestProperty("Content-Encoding", "deflate");
+        verify(urlConnection).setChunkedStreamingMode(HttpUtils.WRITE_BUFFER_SIZE);
+
+        /* Verify payload compressed with the dictionary. */
+        Inflater inflater = new Inflater();
+        inflater.setInput(buffer.toByteArray());
+        byte[] inflated = new byte[payload.length() * 2];
+        assertEquals(0, inflater.inflate(inflated));
+        assertTrue(inflater.needsDictionary());
+        inflater.setDictionary(dictionary);
+        int length = inflater.inflate(inflated);
+        assertTrue(inflater.finished());
+        assertEquals(payload, new String(inflated, 0, length, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void traceStreamedPayload() throws Exception {
+
+        /* Mock no verbose logging. */
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(Log.DEBUG);
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        when(urlConnection.getContentLength()).thenReturn(2);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+        StringBuilder payloadBuilder = new StringBuilder();
+        for (int i = 0; i < 8000; i++) {
+            payloadBuilder.append('a');
+        }
+        HttpClient.StreamingCallTemplate callTemplate = mockStreamingCallTemplate(payloadBuilder.toString());
+        HttpClientTracer.Listener listener = mock(HttpClientTracer.Listener.class);
+        HttpClientTracer.addListener(listener);
+        HttpClient httpClient = new HttpClientTracer(new DefaultHttpClient());
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        try {
+            httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        } finally {
+            HttpClientTracer.removeListener(listener);
+        }
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "OK", Collections.emptyMap()));
+
+        /* Verify trace. */
+        ArgumentCaptor<HttpCallTrace> trace = ArgumentCaptor.forClass(HttpCallTrace.class);
+        verify(listener).onCallTraced(trace.capture());
+        verify(urlConnection).setSSLSocketFactory(any(TracingSSLSocketFactory.class));
+        assertEquals(200, trace.getValue().getStatusCode());
+        assertEquals(8000, trace.getValue().getRequestSize());
+        assertEquals(buffer.size(), trace.getValue().getCompressedRequestSize());
+        assertTrue(trace.getValue().getCompressedRequestSize() < 8000);
+        assertTrue(trace.getValue().getCompressionTime() >= 0);
+        assertEquals(2, trace.getValue().getResponseSize());
+        assertEquals(2, trace.getValue().getCompressedResponseSize());
+
+        /* No socket created by the mock connection, as if reused. */
+        assertEquals(0, trace.getValue().getConnectTime());
+        assertEquals(0, trace.getValue().getTlsTime());
+    }
+
+    @Test
+    public void streamLargePayloadWithoutGzipWhenCompressionDisabled() throws Exception {
+
+        /* Mock no verbose logging. */
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(Log.DEBUG);
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+
+        /* Long mock payload. */
+        StringBuilder payloadBuilder = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            payloadBuilder.append('a');
+        }
+        String payload = payloadBuilder.toString();
+        HttpClient.StreamingCallTemplate callTemplate = mockStreamingCallTemplate(payload);
+        DefaultHttpClient httpClient = new DefaultHttpClient(false);
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "OK", Collections.emptyMap()));
+        verify(urlConnection, never()).setRequestProperty(eq("Content-Encoding"), anyString());
+        verify(urlConnection).setChunkedStreamingMode(HttpUtils.WRITE_BUFFER_SIZE);
+        assertEquals(payload, new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void streamSmallPayloadWithFixedLength() throws Exception {
+
+        /* Mock no verbose logging. */
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(Log.DEBUG);
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+        HttpClient.StreamingCallTemplate callTemplate = mockStreamingCallTemplate("{\"a\":1}");
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "OK", Collections.emptyMap()));
+
+        /* Small payload is neither compressed nor chunked. */
+        verify(urlConnection, never()).setRequestProperty(eq("Content-Encoding"), anyString());
+        verify(urlConnection, never()).setChunkedStreamingMode(anyInt());
+        verify(urlConnection).setFixedLengthStreamingMode(7);
+        assertEquals("{\"a\":1}", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void streamingTemplateBuildsBodyWithVerboseLogging() throws Exception {
+
+        /* Mock verbose logging. */
+        mockStatic(AppCenterLog.class);
+        when(AppCenterLog.getLogLevel()).thenReturn(Log.VERBOSE);
+
+        /* Configure mock HTTPS. */
+        String urlString = "https://mock";
+        HttpsURLConnection urlConnection = mockConnection(urlString);
+        when(urlConnection.getResponseCode()).thenReturn(200);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        when(urlConnection.getOutputStream()).thenReturn(buffer);
+        when(urlConnection.getInputStream()).thenReturn(new ByteArrayInputStream("OK".getBytes()));
+        HttpClient.StreamingCallTemplate callTemplate = mockStreamingCallTemplate("{\"a\":1}");
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+
+        /* Test calling code. */
+        ServiceCallback serviceCallback = mock(ServiceCallback.class);
+        mockCall();
+        httpClient.callAsync(urlString, METHOD_POST, new HashMap<String, String>(), callTemplate, serviceCallback);
+        verify(serviceCallback).onCallSucceeded(new HttpResponse(200, "OK", Collections.emptyMap()));
+
+        /* Payload built as a string to be logged. */
+        verify(callTemplate).buildRequestBody();
+        verify(callTemplate, never()).writeRequestBody(any(Writer.class));
+        assertEquals("{\"a\":1}", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
     @Test
     public void failedToConnectWithHttpUrl() throws Exception {
         String urlString = "http://mock/get";
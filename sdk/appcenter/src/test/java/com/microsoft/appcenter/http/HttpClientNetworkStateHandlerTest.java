@@ -9,25 +9,37 @@ import android.content.Context;
 import android.net.ConnectivityManager;
 import android.net.Network;
 import android.os.Build;
+import android.os.Handler;
 
 import com.microsoft.appcenter.test.TestUtils;
 import com.microsoft.appcenter.utils.NetworkStateHelper;
 
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.mockito.ArgumentMatchers;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_GET;
+import static com.microsoft.appcenter.http.DefaultHttpClient.METHOD_POST;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -37,6 +49,19 @@ import static org.mockito.Mockito.when;
 @SuppressWarnings("unused")
 public class HttpClientNetworkStateHandlerTest {
 
+    private static Handler mockImmediateHandler() {
+        Handler handler = mock(Handler.class);
+        when(handler.postDelayed(any(Runnable.class), anyLong())).then(new Answer<Boolean>() {
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return true;
+            }
+        });
+        return handler;
+    }
+
     @Test
     public void success() throws IOException {
 
@@ -144,15 +169,23 @@ public class HttpClientNetworkStateHandlerTest {
         when(networkStateHelper.isNetworkConnected()).thenReturn(false).thenReturn(true);
 
         /* Test call. */
-        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper);
+        Handler handler = mockImmediateHandler();
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, handler);
         decorator.callAsync(url, METHOD_GET, headers, callTemplate, callback);
 
         /* Network is down: no call to target API must be done. */
         verify(httpClient, times(0)).callAsync(eq(url), eq(METHOD_GET), eq(headers), eq(callTemplate), any(ServiceCallback.class));
         verify(callback, times(0)).onCallSucceeded(new HttpResponse(200, ""));
 
-        /* Network now up: call must be done and succeed. */
+        /* Network now up: call must be done after a random delay and succeed. */
         decorator.onNetworkStateUpdated(true);
+        verify(handler).postDelayed(any(Runnable.class), longThat(new ArgumentMatcher<Long>() {
+
+            @Override
+            public boolean matches(Long delay) {
+                return delay >= 0 && delay < HttpClientNetworkStateHandler.REPLAY_JITTER;
+            }
+        }));
         verify(httpClient).callAsync(eq(url), eq(METHOD_GET), eq(headers), eq(callTemplate), any(ServiceCallback.class));
         verify(callback).onCallSucceeded(new HttpResponse(200, ""));
 
@@ -233,6 +266,330 @@ public class HttpClientNetworkStateHandlerTest {
         verify(httpClient).close();
     }
 
+    @Test
+    public void mergeCallsWhenNetworkBecomesUp() throws IOException {
+
+        /* Configure mock wrapped API. */
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        HttpClient.MergeableCallTemplate firstTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate secondTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate mergedTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.CallTemplate otherTemplate = mock(HttpClient.CallTemplate.class);
+        when(firstTemplate.merge(secondTemplate)).thenReturn(mergedTemplate);
+        ServiceCallback firstCallback = mock(ServiceCallback.class);
+        ServiceCallback secondCallback = mock(ServiceCallback.class);
+        ServiceCallback otherCallback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                ((ServiceCallback) invocationOnMock.getArguments()[4]).onCallSucceeded(new HttpResponse(200, ""));
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+
+        /* Make calls while network is down, the last one to another URL. */
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, mockImmediateHandler());
+        decorator.callAsync(url, METHOD_POST, headers, firstTemplate, firstCallback);
+        decorator.callAsync(url, METHOD_POST, headers, secondTemplate, secondCallback);
+        decorator.callAsync("http://mock/other", METHOD_POST, headers, otherTemplate, otherCallback);
+
+        /* The calls to the same URL are sent in a single request. */
+        decorator.onNetworkStateUpdated(true);
+        verify(httpClient).callAsync(eq(url), eq(METHOD_POST), eq(headers), eq(mergedTemplate), any(ServiceCallback.class));
+        verify(httpClient).callAsync(eq("http://mock/other"), eq(METHOD_POST), eq(headers), eq(otherTemplate), any(ServiceCallback.class));
+        verify(httpClient, times(2)).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+        verify(firstCallback).onCallSucceeded(new HttpResponse(200, ""));
+        verify(secondCallback).onCallSucceeded(new HttpResponse(200, ""));
+        verify(otherCallback).onCallSucceeded(new HttpResponse(200, ""));
+    }
+
+    @Test
+    public void mergedPayloadTooLarge() {
+
+        /* Configure mock wrapped API rejecting the merged request only. */
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        HttpClient.MergeableCallTemplate firstTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate secondTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        final HttpClient.MergeableCallTemplate mergedTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        when(firstTemplate.merge(secondTemplate)).thenReturn(mergedTemplate);
+        ServiceCallback firstCallback = mock(ServiceCallback.class);
+        ServiceCallback secondCallback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                ServiceCallback serviceCallback = (ServiceCallback) invocationOnMock.getArguments()[4];
+                if (invocationOnMock.getArguments()[3] == mergedTemplate) {
+                    serviceCallback.onCallFailed(new HttpException(new HttpResponse(413)));
+                } else {
+                    serviceCallback.onCallSucceeded(new HttpResponse(200, ""));
+                }
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, mockImmediateHandler());
+        decorator.callAsync(url, METHOD_POST, headers, firstTemplate, firstCallback);
+        decorator.callAsync(url, METHOD_POST, headers, secondTemplate, secondCallback);
+
+        /* Each call is sent on its own after the merged request is rejected. */
+        decorator.onNetworkStateUpdated(true);
+        verify(httpClient).callAsync(eq(url), eq(METHOD_POST), eq(headers), eq(mergedTemplate), any(ServiceCallback.class));
+        verify(httpClient).callAsync(eq(url), eq(METHOD_POST), eq(headers), eq(firstTemplate), any(ServiceCallback.class));
+        verify(httpClient).callAsync(eq(url), eq(METHOD_POST), eq(headers), eq(secondTemplate), any(ServiceCallback.class));
+        verify(firstCallback).onCallSucceeded(new HttpResponse(200, ""));
+        verify(secondCallback).onCallSucceeded(new HttpResponse(200, ""));
+        verify(firstCallback, never()).onCallFailed(any(Exception.class));
+        verify(secondCallback, never()).onCallFailed(any(Exception.class));
+    }
+
+    @Test
+    public void mergedRecoverableErrorTakesOneRetry() {
+
+        /* Configure mock wrapped API failing the merged request with a recoverable error. */
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        HttpClient.MergeableCallTemplate firstTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate secondTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        final HttpClient.MergeableCallTemplate mergedTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        when(firstTemplate.merge(secondTemplate)).thenReturn(mergedTemplate);
+        ServiceCallback firstCallback = mock(ServiceCallback.class);
+        ServiceCallback secondCallback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                ServiceCallback serviceCallback = (ServiceCallback) invocationOnMock.getArguments()[4];
+                if (invocationOnMock.getArguments()[3] == mergedTemplate) {
+                    serviceCallback.onCallFailed(new HttpException(new HttpResponse(503)));
+                } else {
+                    serviceCallback.onCallSucceeded(new HttpResponse(200, ""));
+                }
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+
+        /* Retry the calls with a budget of a single retry. */
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, mockImmediateHandler());
+        Handler retryHandler = mock(Handler.class);
+        HttpClientRetryer retryer = new HttpClientRetryer(decorator, retryHandler, new RetryBudget(1, TimeUnit.HOURS.toMillis(1), false));
+        retryer.callAsync(url, METHOD_POST, headers, firstTemplate, firstCallback);
+        retryer.callAsync(url, METHOD_POST, headers, secondTemplate, secondCallback);
+
+        /* Both calls of the failed request are retried at the same time. */
+        decorator.onNetworkStateUpdated(true);
+        when(networkStateHelper.isNetworkConnected()).thenReturn(true);
+        ArgumentCaptor<Runnable> retries = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Long> delays = ArgumentCaptor.forClass(Long.class);
+        verify(retryHandler, times(2)).postDelayed(retries.capture(), delays.capture());
+        assertEquals(delays.getAllValues().get(0), delays.getAllValues().get(1));
+        verify(firstCallback, never()).onCallFailed(any(Exception.class));
+        verify(secondCallback, never()).onCallFailed(any(Exception.class));
+
+        /* The retries succeed. */
+        for (Runnable retry : retries.getAllValues()) {
+            retry.run();
+        }
+        verify(httpClient).callAsync(eq(url), eq(METHOD_POST), eq(headers), eq(firstTemplate), any(ServiceCallback.class));
+        verify(httpClient).callAsync(eq(url), eq(METHOD_POST), eq(headers), eq(secondTemplate), any(ServiceCallback.class));
+        verify(firstCallback).onCallSucceeded(new HttpResponse(200, ""));
+        verify(secondCallback).onCallSucceeded(new HttpResponse(200, ""));
+    }
+
+    @Test
+    public void limitConcurrentCallsWhenNetworkBecomesUp() throws IOException {
+
+        /* Configure mock wrapped API that never completes by itself. */
+        final List<ServiceCallback> pendingCallbacks = new ArrayList<>();
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                pendingCallbacks.add((ServiceCallback) invocationOnMock.getArguments()[4]);
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+
+        /* Keep scheduled requests. */
+        final List<Runnable> scheduled = new ArrayList<>();
+        Handler handler = mock(Handler.class);
+        when(handler.postDelayed(any(Runnable.class), anyLong())).then(new Answer<Boolean>() {
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                scheduled.add((Runnable) invocation.getArguments()[0]);
+                return true;
+            }
+        });
+
+        /* Make more calls than allowed at once while network is down. */
+        int callCount = HttpClientNetworkStateHandler.MAX_CONCURRENT_REPLAYS + 2;
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, handler);
+        for (int i = 0; i < callCount; i++) {
+            decorator.callAsync("http://mock/call" + i, METHOD_POST, new HashMap<String, String>(), mock(HttpClient.CallTemplate.class), mock(ServiceCallback.class));
+        }
+
+        /* Only some requests are scheduled. */
+        decorator.onNetworkStateUpdated(true);
+        assertEquals(HttpClientNetworkStateHandler.MAX_CONCURRENT_REPLAYS, scheduled.size());
+        scheduled.get(0).run();
+        assertEquals(1, pendingCallbacks.size());
+
+        /* Completing a request schedules the next one. */
+        pendingCallbacks.get(0).onCallSucceeded(new HttpResponse(200, ""));
+        assertEquals(HttpClientNetworkStateHandler.MAX_CONCURRENT_REPLAYS + 1, scheduled.size());
+
+        /* Losing network again cancels the scheduled requests, they are made when network comes back. */
+        decorator.onNetworkStateUpdated(false);
+        verify(handler, times(HttpClientNetworkStateHandler.MAX_CONCURRENT_REPLAYS)).removeCallbacks(any(Runnable.class));
+        scheduled.get(1).run();
+        assertEquals(1, pendingCallbacks.size());
+        scheduled.clear();
+        decorator.onNetworkStateUpdated(true);
+        assertEquals(HttpClientNetworkStateHandler.MAX_CONCURRENT_REPLAYS, scheduled.size());
+
+        /* Close cancels scheduled requests. */
+        decorator.close();
+        verify(handler, times(2 * HttpClientNetworkStateHandler.MAX_CONCURRENT_REPLAYS)).removeCallbacks(any(Runnable.class));
+        for (Runnable runnable : scheduled) {
+            runnable.run();
+        }
+        assertEquals(1, pendingCallbacks.size());
+    }
+
+    @Test
+    public void cancelMergedCall() {
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        HttpClient.MergeableCallTemplate firstTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate secondTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate mergedTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        when(firstTemplate.merge(secondTemplate)).thenReturn(mergedTemplate);
+        ServiceCallback firstCallback = mock(ServiceCallback.class);
+        ServiceCallback secondCallback = mock(ServiceCallback.class);
+        final List<ServiceCallback> pendingCallbacks = new ArrayList<>();
+        final ServiceCall call = mock(ServiceCall.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                pendingCallbacks.add((ServiceCallback) invocationOnMock.getArguments()[4]);
+                return call;
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, mockImmediateHandler());
+        ServiceCall firstCall = decorator.callAsync(url, METHOD_POST, headers, firstTemplate, firstCallback);
+        decorator.callAsync(url, METHOD_POST, headers, secondTemplate, secondCallback);
+        decorator.onNetworkStateUpdated(true);
+
+        /* Canceling one call keeps the shared request but the call is not notified. */
+        firstCall.cancel();
+        verify(call, never()).cancel();
+        pendingCallbacks.get(0).onCallSucceeded(new HttpResponse(200, ""));
+        verifyNoMoreInteractions(firstCallback);
+        verify(secondCallback).onCallSucceeded(new HttpResponse(200, ""));
+    }
+
+    @Test
+    public void cancelMergedCallBeforeSending() {
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        HttpClient.MergeableCallTemplate firstTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate secondTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate mergedTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        when(firstTemplate.merge(secondTemplate)).thenReturn(mergedTemplate);
+        ServiceCallback firstCallback = mock(ServiceCallback.class);
+        ServiceCallback secondCallback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class))).thenReturn(mock(ServiceCall.class));
+
+        /* Keep scheduled requests. */
+        final List<Runnable> scheduled = new ArrayList<>();
+        Handler handler = mock(Handler.class);
+        when(handler.postDelayed(any(Runnable.class), anyLong())).then(new Answer<Boolean>() {
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                scheduled.add((Runnable) invocation.getArguments()[0]);
+                return true;
+            }
+        });
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, handler);
+        ServiceCall firstCall = decorator.callAsync(url, METHOD_POST, headers, firstTemplate, firstCallback);
+        ServiceCall secondCall = decorator.callAsync(url, METHOD_POST, headers, secondTemplate, secondCallback);
+        decorator.onNetworkStateUpdated(true);
+        assertEquals(1, scheduled.size());
+
+        /* The body of a call canceled before the request is made is not sent. */
+        firstCall.cancel();
+        scheduled.get(0).run();
+        verify(httpClient).callAsync(eq(url), eq(METHOD_POST), eq(headers), eq(secondTemplate), any(ServiceCallback.class));
+        verify(httpClient, never()).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), eq(mergedTemplate), any(ServiceCallback.class));
+
+        /* Nothing is sent when all the calls are canceled. */
+        firstCall = decorator.callAsync(url, METHOD_POST, headers, firstTemplate, firstCallback);
+        secondCall = decorator.callAsync(url, METHOD_POST, headers, secondTemplate, secondCallback);
+        decorator.onNetworkStateUpdated(true);
+        firstCall.cancel();
+        secondCall.cancel();
+        assertEquals(2, scheduled.size());
+        scheduled.get(1).run();
+        verify(httpClient).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+        verifyNoMoreInteractions(firstCallback, secondCallback);
+    }
+
+    @Test
+    public void mergedNonRecoverableError() {
+
+        /* Configure mock wrapped API rejecting the merged request and the first call. */
+        String url = "http://mock/call";
+        Map<String, String> headers = new HashMap<>();
+        final HttpClient.MergeableCallTemplate firstTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        HttpClient.MergeableCallTemplate secondTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        final HttpClient.MergeableCallTemplate mergedTemplate = mock(HttpClient.MergeableCallTemplate.class);
+        when(firstTemplate.merge(secondTemplate)).thenReturn(mergedTemplate);
+        ServiceCallback firstCallback = mock(ServiceCallback.class);
+        ServiceCallback secondCallback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                ServiceCallback serviceCallback = (ServiceCallback) invocationOnMock.getArguments()[4];
+                Object callTemplate = invocationOnMock.getArguments()[3];
+                if (callTemplate == mergedTemplate || callTemplate == firstTemplate) {
+                    serviceCallback.onCallFailed(new HttpException(new HttpResponse(400)));
+                } else {
+                    serviceCallback.onCallSucceeded(new HttpResponse(200, ""));
+                }
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(anyString(), anyString(), ArgumentMatchers.<String, String>anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class));
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        HttpClientNetworkStateHandler decorator = new HttpClientNetworkStateHandler(httpClient, networkStateHelper, mockImmediateHandler());
+        decorator.callAsync(url, METHOD_POST, headers, firstTemplate, firstCallback);
+        decorator.callAsync(url, METHOD_POST, headers, secondTemplate, secondCallback);
+
+        /* Only the call rejected on its own fails. */
+        decorator.onNetworkStateUpdated(true);
+        verify(firstCallback).onCallFailed(any(HttpException.class));
+        verify(secondCallback).onCallSucceeded(new HttpResponse(200, ""));
+        verify(secondCallback, never()).onCallFailed(any(Exception.class));
+    }
+
     @Test(timeout = 3000)
     public void changeNetworkConnectionDuringCallWithoutDeadlock() throws Exception {
         TestUtils.setInternalState(Build.VERSION.class, "SDK_INT", Build.VERSION_CODES.LOLLIPOP);
@@ -8,12 +8,18 @@ package com.microsoft.appcenter.http;
 import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_TYPE_KEY;
 import static com.microsoft.appcenter.http.DefaultHttpClient.CONTENT_TYPE_VALUE;
 import static com.microsoft.appcenter.http.DefaultHttpClient.X_MS_RETRY_AFTER_MS_HEADER;
+import static com.microsoft.appcenter.http.HttpClientRetryer.MAX_RETRY_AFTER_DELAY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.longThat;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -26,8 +32,14 @@ import org.mockito.stubbing.Answer;
 
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unused")
 public class HttpClientRetryerTest {
@@ -226,4 +238,104 @@ public class HttpClientRetryerTest {
         verifyNoMoreInteractions(callback);
         verify(call).cancel();
     }
+
+    @Test
+    public void retryBudgetExhausted() {
+        final HttpException exception = new HttpException(new HttpResponse(503));
+        ServiceCallback callback = mock(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                ((ServiceCallback) invocationOnMock.getArguments()[4]).onCallFailed(exception);
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(any(), any(), any(), any(), any(ServiceCallback.class));
+        Handler handler = mock(Handler.class);
+        HttpClient retryer = new HttpClientRetryer(httpClient, handler, new RetryBudget(1, TimeUnit.HOURS.toMillis(1), false));
+        simulateRetryAfterDelay(handler);
+
+        /* Only one retry for the first call. */
+        retryer.callAsync(null, null, null, null, callback);
+        verifyDelay(handler, 0);
+        verifyNoMoreInteractions(handler);
+        verify(callback).onCallFailed(exception);
+        verify(httpClient, times(2)).callAsync(any(), any(), any(), any(), any(ServiceCallback.class));
+
+        /* No retry for another call using the same budget. */
+        ServiceCallback callback2 = mock(ServiceCallback.class);
+        retryer.callAsync(null, null, null, null, callback2);
+        verifyNoMoreInteractions(handler);
+        verify(callback2).onCallFailed(exception);
+        verify(httpClient, times(3)).callAsync(any(), any(), any(), any(), any(ServiceCallback.class));
+    }
+
+    @Test
+    public void retryAfterAppliesToHost() {
+        Map<String, String> responseHeader = new HashMap<>();
+        responseHeader.put("retry-after", "120");
+        final HttpException exception = new HttpException(new HttpResponse(429, "", responseHeader));
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocationOnMock) {
+                ((ServiceCallback) invocationOnMock.getArguments()[4]).onCallFailed(exception);
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(any(), any(), any(), any(), any(ServiceCallback.class));
+        Handler handler = mock(Handler.class);
+        HttpClient retryer = new HttpClientRetryer(httpClient, handler);
+
+        /* First call is retried after the delay requested by the server. */
+        retryer.callAsync("https://mock/logs", null, null, null, mock(ServiceCallback.class));
+        verifyDelayFromHeader(handler, TimeUnit.SECONDS.toMillis(120));
+        verify(httpClient).callAsync(eq("https://mock/logs"), any(), any(), any(), any(ServiceCallback.class));
+
+        /* Another call to the same host waits too. */
+        ServiceCall call = retryer.callAsync("https://mock/other", null, null, null, mock(ServiceCallback.class));
+        verify(handler, times(2)).postDelayed(any(Runnable.class), longThat(new ArgumentMatcher<Long>() {
+
+            @Override
+            public boolean matches(Long delay) {
+                return delay > 0 && delay <= TimeUnit.SECONDS.toMillis(120);
+            }
+        }));
+        verify(httpClient, never()).callAsync(eq("https://mock/other"), any(), any(), any(), any(ServiceCallback.class));
+
+        /* Cancelling a call that did not start only removes it from the handler. */
+        call.cancel();
+        verify(handler).removeCallbacks(any(Runnable.class));
+
+        /* Calls to other hosts are not delayed. */
+        retryer.callAsync("https://other", null, null, null, mock(ServiceCallback.class));
+        verify(httpClient).callAsync(eq("https://other"), any(), any(), any(), any(ServiceCallback.class));
+    }
+
+    @Test
+    public void parseRetryAfterHeaders() {
+        assertEquals(0, HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503)));
+        assertEquals(1500, HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503, "", Collections.singletonMap("X-MS-Retry-After-Ms", "1500"))));
+        assertEquals(30000, HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503, "", Collections.singletonMap("Retry-After", "30"))));
+        assertEquals(0, HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503, "", Collections.singletonMap("Retry-After", "invalid"))));
+        assertEquals(0, HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503, "", Collections.singletonMap("Retry-After", "Wed, 21 Oct 2015 07:28:00 GMT"))));
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String date = format.format(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10)));
+        long delay = HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503, "", Collections.singletonMap("Retry-After", date)));
+        assertTrue(delay > TimeUnit.MINUTES.toMillis(9) && delay <= TimeUnit.MINUTES.toMillis(10));
+
+        /* Delays are capped. */
+        assertEquals(MAX_RETRY_AFTER_DELAY, HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503, "", Collections.singletonMap("X-MS-Retry-After-Ms", Long.toString(Long.MAX_VALUE)))));
+        assertEquals(MAX_RETRY_AFTER_DELAY, HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503, "", Collections.singletonMap("Retry-After", "31536000"))));
+        assertEquals(0, HttpClientRetryer.getRetryAfterDelay(new HttpResponse(503, "", Collections.singletonMap("X-MS-Retry-After-Ms", "-1000"))));
+    }
+
+    @Test
+    public void getHost() {
+        assertNull(HttpClientRetryer.getHost(null));
+        assertNull(HttpClientRetryer.getHost("not a url"));
+        assertEquals("in.appcenter.ms", HttpClientRetryer.getHost("https://in.appcenter.ms/logs?api-version=1.0.0"));
+    }
 }
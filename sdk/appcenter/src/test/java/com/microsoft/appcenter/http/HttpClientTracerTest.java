@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.os.Handler;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class HttpClientTracerTest {
+
+    @After
+    public void tearDown() {
+        HttpClientTracer.removeAllListeners();
+    }
+
+    @Test
+    public void notDecoratedWithoutListener() {
+        HttpClient httpClient = mock(HttpClient.class);
+        ServiceCallback callback = mock(ServiceCallback.class);
+        HttpClientTracer tracer = new HttpClientTracer(httpClient);
+
+        /* Callback is passed as is. */
+        tracer.callAsync("https://mock", "GET", null, null, callback);
+        verify(httpClient).callAsync("https://mock", "GET", null, null, callback);
+        assertNull(HttpClientTracer.getTrace(callback));
+
+        /* Removed listener is not called. */
+        HttpClientTracer.Listener listener = mock(HttpClientTracer.Listener.class);
+        HttpClientTracer.addListener(listener);
+        HttpClientTracer.removeListener(listener);
+        tracer.callAsync("https://mock", "GET", null, null, callback);
+        verify(httpClient, times(2)).callAsync("https://mock", "GET", null, null, callback);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void traceSuccess() {
+        final ArgumentCaptor<ServiceCallback> decoratedCallback = ArgumentCaptor.forClass(ServiceCallback.class);
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocation) {
+                ServiceCallback serviceCallback = (ServiceCallback) invocation.getArguments()[4];
+                HttpClientTracer.getTrace(serviceCallback).setRequestSize(10);
+                serviceCallback.onCallSucceeded(new HttpResponse(200, "OK"));
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(any(), any(), any(), any(), decoratedCallback.capture());
+        HttpClientTracer.Listener listener = mock(HttpClientTracer.Listener.class);
+        HttpClientTracer.addListener(listener);
+        ServiceCallback callback = mock(ServiceCallback.class);
+        new HttpClientTracer(httpClient).callAsync("https://mock", "POST", null, null, callback);
+
+        /* Verify trace. */
+        ArgumentCaptor<HttpCallTrace> trace = ArgumentCaptor.forClass(HttpCallTrace.class);
+        verify(listener).onCallTraced(trace.capture());
+        assertSame(trace.getValue(), HttpClientTracer.getTrace(decoratedCallback.getValue()));
+        assertEquals("https://mock", trace.getValue().getUrl());
+        assertEquals("POST", trace.getValue().getMethod());
+        assertEquals(0, trace.getValue().getRetryAttempt());
+        assertEquals(200, trace.getValue().getStatusCode());
+        assertEquals(10, trace.getValue().getRequestSize());
+        assertEquals(HttpCallTrace.UNKNOWN, trace.getValue().getConnectTime());
+        assertNull(trace.getValue().getException());
+        assertNotNull(trace.getValue().toString());
+        verify(callback).onCallSucceeded(new HttpResponse(200, "OK"));
+    }
+
+    @Test
+    public void traceRetries() {
+        final HttpException exception = new HttpException(new HttpResponse(503));
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocation) {
+                ((ServiceCallback) invocation.getArguments()[4]).onCallFailed(exception);
+                return mock(ServiceCall.class);
+            }
+        }).doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocation) {
+                ((ServiceCallback) invocation.getArguments()[4]).onCallSucceeded(new HttpResponse(200, "OK"));
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(any(), any(), any(), any(), any(ServiceCallback.class));
+        Handler handler = mock(Handler.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(handler).postDelayed(any(Runnable.class), anyLong());
+        HttpClientTracer.Listener listener = mock(HttpClientTracer.Listener.class);
+        HttpClientTracer.addListener(listener);
+        ServiceCallback callback = mock(ServiceCallback.class);
+        new HttpClientRetryer(new HttpClientTracer(httpClient), handler).callAsync("https://mock", "POST", null, null, callback);
+
+        /* Each attempt is reported. */
+        ArgumentCaptor<HttpCallTrace> trace = ArgumentCaptor.forClass(HttpCallTrace.class);
+        verify(listener, times(2)).onCallTraced(trace.capture());
+        List<HttpCallTrace> traces = trace.getAllValues();
+        assertEquals(0, traces.get(0).getRetryAttempt());
+        assertEquals(503, traces.get(0).getStatusCode());
+        assertSame(exception, traces.get(0).getException());
+        assertEquals(1, traces.get(1).getRetryAttempt());
+        assertEquals(200, traces.get(1).getStatusCode());
+        verify(callback).onCallSucceeded(new HttpResponse(200, "OK"));
+    }
+
+    @Test
+    public void failingListener() {
+        HttpClient httpClient = mock(HttpClient.class);
+        doAnswer(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocation) {
+                ((ServiceCallback) invocation.getArguments()[4]).onCallSucceeded(new HttpResponse(200, "OK"));
+                return mock(ServiceCall.class);
+            }
+        }).when(httpClient).callAsync(any(), any(), any(), any(), any(ServiceCallback.class));
+        HttpClientTracer.Listener failingListener = mock(HttpClientTracer.Listener.class);
+        doThrow(new RuntimeException("mock")).when(failingListener).onCallTraced(any(HttpCallTrace.class));
+        HttpClientTracer.Listener listener = mock(HttpClientTracer.Listener.class);
+        HttpClientTracer.addListener(failingListener);
+        HttpClientTracer.addListener(listener);
+        ServiceCallback callback = mock(ServiceCallback.class);
+        new HttpClientTracer(httpClient).callAsync("https://mock", "POST", null, null, callback);
+
+        /* Other listeners and the callback are still called. */
+        verify(listener).onCallTraced(any(HttpCallTrace.class));
+        verify(callback).onCallSucceeded(new HttpResponse(200, "OK"));
+    }
+}
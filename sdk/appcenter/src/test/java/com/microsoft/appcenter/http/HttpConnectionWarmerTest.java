@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import android.content.Context;
+import android.net.TrafficStats;
+
+import com.microsoft.appcenter.utils.NetworkStateHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.rule.PowerMockRule;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+import static org.powermock.api.mockito.PowerMockito.whenNew;
+
+@PrepareForTest({
+        HttpConnectionWarmer.class,
+        HttpUtils.class,
+        NetworkStateHelper.class,
+        TrafficStats.class
+})
+public class HttpConnectionWarmerTest {
+
+    private static final String HOST = "in.appcenter.ms";
+
+    @Rule
+    public PowerMockRule mRule = new PowerMockRule();
+
+    private Socket mSocket;
+
+    private SSLSocket mSslSocket;
+
+    @Before
+    public void setUp() throws Exception {
+        mockStatic(InetAddress.class);
+        when(InetAddress.getByName(HOST)).thenReturn(mock(InetAddress.class));
+        mSocket = mock(Socket.class);
+        whenNew(Socket.class).withNoArguments().thenReturn(mSocket);
+        mSslSocket = mock(SSLSocket.class);
+        SSLSocketFactory socketFactory = mock(SSLSocketFactory.class);
+        when(socketFactory.createSocket(mSocket, HOST, 443, true)).thenReturn(mSslSocket);
+        mockStatic(HttpUtils.class);
+        when(HttpUtils.getSSLSocketFactory()).thenReturn(socketFactory);
+        mockStatic(TrafficStats.class);
+    }
+
+    @After
+    public void tearDown() {
+        HttpConnectionWarmer.reset();
+    }
+
+    @Test
+    public void init() {
+        new HttpConnectionWarmer();
+    }
+
+    @Test
+    public void warmUpOncePerHost() throws IOException {
+        assertTrue(HttpConnectionWarmer.warmUp("https://" + HOST + "/logs?api-version=1.0.0"));
+        verify(mSocket).connect(any(InetSocketAddress.class), eq(HttpUtils.CONNECT_TIMEOUT));
+        verify(mSocket).setSoTimeout(HttpUtils.READ_TIMEOUT);
+        verify(mSslSocket).startHandshake();
+        verify(mSslSocket).close();
+        verifyStatic(TrafficStats.class);
+        TrafficStats.setThreadStatsTag(HttpUtils.THREAD_STATS_TAG);
+        verifyStatic(TrafficStats.class);
+        TrafficStats.clearThreadStatsTag();
+
+        /* Another path on the same host is not warmed up again. */
+        assertFalse(HttpConnectionWarmer.warmUp("https://" + HOST + "/other"));
+        verify(mSslSocket).startHandshake();
+    }
+
+    @Test
+    public void handshakeFailure() throws IOException {
+        doThrow(new IOException("mock")).when(mSslSocket).startHandshake();
+        assertFalse(HttpConnectionWarmer.warmUp("https://" + HOST));
+        verify(mSslSocket).close();
+        verifyStatic(TrafficStats.class);
+        TrafficStats.clearThreadStatsTag();
+    }
+
+    @Test
+    public void retryAfterFailure() throws IOException {
+        doThrow(new IOException("mock")).doNothing().when(mSslSocket).startHandshake();
+        assertFalse(HttpConnectionWarmer.warmUp("https://" + HOST));
+
+        /* Failed host is tried again, then only once it succeeded. */
+        assertTrue(HttpConnectionWarmer.warmUp("https://" + HOST));
+        assertFalse(HttpConnectionWarmer.warmUp("https://" + HOST));
+        verify(mSslSocket, times(2)).startHandshake();
+    }
+
+    @Test
+    public void dnsFailure() throws Exception {
+        when(InetAddress.getByName(HOST)).thenThrow(new UnknownHostException());
+        assertFalse(HttpConnectionWarmer.warmUp("https://" + HOST));
+        verify(mSocket, never()).connect(any(InetSocketAddress.class), anyInt());
+        verify(mSocket).close();
+    }
+
+    @Test
+    public void invalidUrl() throws Exception {
+        assertFalse(HttpConnectionWarmer.warmUp("invalid"));
+        verify(mSocket, never()).connect(any(InetSocketAddress.class), anyInt());
+        verifyStatic(TrafficStats.class, never());
+        TrafficStats.setThreadStatsTag(anyInt());
+    }
+
+    @Test
+    public void warmUpInBackgroundWhenConnected() {
+        Context context = mock(Context.class);
+        NetworkStateHelper networkStateHelper = mock(NetworkStateHelper.class);
+        mockStatic(NetworkStateHelper.class);
+        when(NetworkStateHelper.getSharedInstance(context)).thenReturn(networkStateHelper);
+        Executor executor = mock(Executor.class);
+        when(HttpUtils.createExecutor(1, HttpConnectionWarmer.THREAD_PRIORITY)).thenReturn(executor);
+
+        /* Nothing is done without network. */
+        HttpConnectionWarmer.warmUp(context, Arrays.asList("https://a", "https://b"));
+        verify(executor, never()).execute(any(Runnable.class));
+
+        /* Each URL is warmed up in background. */
+        when(networkStateHelper.isNetworkConnected()).thenReturn(true);
+        HttpConnectionWarmer.warmUp(context, Arrays.asList("https://a", "https://b"));
+        verify(executor, times(2)).execute(any(Runnable.class));
+
+        /* Warm-ups don't use the threads of the HTTP calls. */
+        verifyStatic(HttpUtils.class);
+        HttpUtils.createExecutor(1, HttpConnectionWarmer.THREAD_PRIORITY);
+        verifyStatic(HttpUtils.class, never());
+        HttpUtils.getDefaultExecutor();
+    }
+}
@@ -9,9 +9,17 @@ import android.content.Context;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 import static com.microsoft.appcenter.http.HttpUtils.MAX_CHARACTERS_DISPLAYED_FOR_SECRET;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
@@ -77,6 +85,17 @@ public class HttpUtilsTest {
         assertEquals("asIs", HttpUtils.hideTickets("asIs"));
     }
 
+    @Test
+    public void hideUrlEncodedTokens() {
+        assertEquals("grant_type=refresh&token=***&scope=all", HttpUtils.hideUrlEncodedTokens("grant_type=refresh&token=mock&scope=all"));
+        assertEquals("token=***", HttpUtils.hideUrlEncodedTokens("token=mock"));
+    }
+
+    @Test
+    public void hideNoUrlEncodedToken() {
+        assertEquals("asIs", HttpUtils.hideUrlEncodedTokens("asIs"));
+    }
+
     @Test
     public void defaultCompressionSettings() {
         HttpClient httpClient = HttpUtils.createHttpClient(mock(Context.class));
@@ -98,8 +117,46 @@ public class HttpUtilsTest {
         assertFalse(defaultHttpClient.isCompressionEnabled());
     }
 
+    @Test
+    public void createHttpClientWithCallbackExecutor() {
+        Executor callbackExecutor = mock(Executor.class);
+        HttpClient httpClient = HttpUtils.createHttpClient(mock(Context.class), callbackExecutor);
+        DefaultHttpClient defaultHttpClient = getDefaultHttpClient((HttpClientDecorator) httpClient);
+        assertTrue(defaultHttpClient.isCompressionEnabled());
+        assertSame(callbackExecutor, defaultHttpClient.getCallbackExecutor());
+        assertSame(DefaultHttpClient.MAIN_THREAD_EXECUTOR, getDefaultHttpClient((HttpClientDecorator) HttpUtils.createHttpClient(mock(Context.class))).getCallbackExecutor());
+    }
+
+    @Test
+    public void defaultExecutorIsShared() {
+        assertSame(HttpUtils.getDefaultExecutor(), HttpUtils.getDefaultExecutor());
+    }
+
+    @Test
+    public void executorRunsCallsOnSdkThreads() throws InterruptedException {
+        Executor executor = HttpUtils.createExecutor(2, HttpUtils.DEFAULT_THREAD_PRIORITY);
+        final Semaphore semaphore = new Semaphore(0);
+        final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+        for (int i = 0; i < 3; i++) {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    threadNames.add(Thread.currentThread().getName());
+                    semaphore.release();
+                }
+            });
+        }
+        assertTrue(semaphore.tryAcquire(3, 5, TimeUnit.SECONDS));
+        for (String threadName : threadNames) {
+            assertTrue(threadName.startsWith("AppCenter.Http-"));
+        }
+    }
+
     private DefaultHttpClient getDefaultHttpClient(HttpClientDecorator httpClientDecorator) {
         httpClientDecorator = (HttpClientDecorator) httpClientDecorator.getDecoratedApi();
+        httpClientDecorator = (HttpClientDecorator) httpClientDecorator.getDecoratedApi();
+        assertTrue(httpClientDecorator instanceof HttpClientTracer);
         return (DefaultHttpClient) httpClientDecorator.getDecoratedApi();
     }
 }
\ No newline at end of file
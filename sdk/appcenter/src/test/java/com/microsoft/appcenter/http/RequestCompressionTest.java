@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class RequestCompressionTest {
+
+    private static final String PAYLOAD = "{\"logs\":[{\"type\":\"event\",\"id\":\"42\",\"name\":\"click\"},{\"type\":\"event\",\"id\":\"43\",\"name\":\"click\"}]}";
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        GZIPInputStream stream = new GZIPInputStream(new ByteArrayInputStream(bytes));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int len;
+        while ((len = stream.read(buffer)) > 0) {
+            out.write(buffer, 0, len);
+        }
+        stream.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void defaultIsGzip() throws IOException {
+        RequestCompression compression = RequestCompression.getDefault();
+        assertEquals(RequestCompression.ENCODING_GZIP, compression.getContentEncoding());
+        assertEquals(RequestCompression.DEFAULT_MIN_LENGTH, compression.getMinLength());
+
+        /* Same size as the JDK gzip stream, which only differs by the operating system header byte. */
+        byte[] payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzipBuffer = new ByteArrayOutputStream();
+        GZIPOutputStream gzipStream = new GZIPOutputStream(gzipBuffer);
+        gzipStream.write(payload);
+        gzipStream.close();
+        byte[] compressed = compression.compress(payload);
+        assertEquals(gzipBuffer.size(), compressed.length);
+        assertArrayEquals(payload, gunzip(compressed));
+
+        /* Reusing the pooled deflater gives the same result. */
+        assertArrayEquals(compressed, compression.compress(payload));
+    }
+
+    @Test
+    public void compressionLevels() throws IOException {
+        byte[] payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        for (int level = Deflater.BEST_SPEED; level <= Deflater.BEST_COMPRESSION; level++) {
+            RequestCompression compression = new RequestCompression(level, 0, null);
+            assertArrayEquals(payload, gunzip(compression.compress(payload)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLevel() {
+        new RequestCompression(10, 0, null);
+    }
+
+    @Test
+    public void dictionary() throws Exception {
+        byte[] dictionary = RequestCompression.getLogDictionary();
+        RequestCompression compression = new RequestCompression(Deflater.BEST_COMPRESSION, 0, dictionary);
+        assertEquals(RequestCompression.ENCODING_DEFLATE, compression.getContentEncoding());
+        byte[] payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compression.compress(payload);
+
+        /* Smaller than without the dictionary. */
+        assertTrue(compressed.length < new RequestCompression(Deflater.BEST_COMPRESSION, 0, null).compress(payload).length);
+
+        /* Inflate with the dictionary. */
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        byte[] inflated = new byte[payload.length];
+        assertEquals(0, inflater.inflate(inflated));
+        assertTrue(inflater.needsDictionary());
+        inflater.setDictionary(dictionary);
+        assertEquals(payload.length, inflater.inflate(inflated));
+        assertTrue(inflater.finished());
+        assertArrayEquals(payload, inflated);
+    }
+
+    @Test
+    public void idleDeflatersAreBounded() throws IOException {
+        byte[] payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        RequestCompression compression = new RequestCompression(Deflater.BEST_SPEED, 0, null);
+        RequestCompression.sIdleRawDeflaters.clear();
+        RequestCompression.sIdleZlibDeflaters.clear();
+
+        /* Open more streams than deflaters kept idle. */
+        List<OutputStream> streams = new ArrayList<>();
+        List<ByteArrayOutputStream> buffers = new ArrayList<>();
+        for (int i = 0; i < RequestCompression.MAX_IDLE_DEFLATERS + 2; i++) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            buffers.add(buffer);
+            streams.add(compression.compress(buffer, HttpUtils.WRITE_BUFFER_SIZE));
+        }
+        assertEquals(0, RequestCompression.sIdleRawDeflaters.size());
+
+        /* Closing keeps only the maximum, the other deflaters are ended. */
+        for (OutputStream stream : streams) {
+            stream.write(payload);
+            stream.close();
+            stream.close();
+        }
+        assertEquals(RequestCompression.MAX_IDLE_DEFLATERS, RequestCompression.sIdleRawDeflaters.size());
+        for (ByteArrayOutputStream buffer : buffers) {
+            assertArrayEquals(payload, gunzip(buffer.toByteArray()));
+        }
+
+        /* Pooled deflaters are reused and still usable. */
+        assertArrayEquals(payload, gunzip(compression.compress(payload)));
+        assertEquals(RequestCompression.MAX_IDLE_DEFLATERS, RequestCompression.sIdleRawDeflaters.size());
+        assertEquals(0, RequestCompression.sIdleZlibDeflaters.size());
+        new RequestCompression(Deflater.BEST_SPEED, 0, RequestCompression.getLogDictionary()).compress(payload);
+        assertEquals(1, RequestCompression.sIdleZlibDeflaters.size());
+    }
+
+    @Test
+    public void abortEndsDeflater() throws IOException {
+        RequestCompression compression = new RequestCompression(Deflater.BEST_SPEED, 0, null);
+        RequestCompression.sIdleRawDeflaters.clear();
+        Deflater deflater = spy(new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        RequestCompression.sIdleRawDeflaters.add(deflater);
+        OutputStream stream = compression.compress(new ByteArrayOutputStream(), HttpUtils.WRITE_BUFFER_SIZE);
+        stream.write(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+
+        /* Aborting twice doesn't end the deflater again. */
+        RequestCompression.abort(stream);
+        RequestCompression.abort(stream);
+        verify(deflater).end();
+        assertEquals(0, RequestCompression.sIdleRawDeflaters.size());
+
+        /* Other streams are ignored. */
+        RequestCompression.abort(new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void failedHeaderEndsDeflater() throws IOException {
+        RequestCompression compression = new RequestCompression(Deflater.BEST_SPEED, 0, null);
+        RequestCompression.sIdleRawDeflaters.clear();
+        Deflater deflater = spy(new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        RequestCompression.sIdleRawDeflaters.add(deflater);
+        OutputStream out = mock(OutputStream.class);
+        IOException exception = new IOException("mock");
+        doThrow(exception).when(out).write(any(byte[].class));
+        try {
+            compression.compress(out, HttpUtils.WRITE_BUFFER_SIZE);
+            fail();
+        } catch (IOException e) {
+            assertSame(exception, e);
+        }
+        verify(deflater).end();
+        assertEquals(0, RequestCompression.sIdleRawDeflaters.size());
+    }
+
+    @Test
+    public void failedCloseEndsDeflater() throws IOException {
+        RequestCompression compression = new RequestCompression(Deflater.BEST_SPEED, 0, null);
+        RequestCompression.sIdleRawDeflaters.clear();
+        Deflater deflater = spy(new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        RequestCompression.sIdleRawDeflaters.add(deflater);
+        OutputStream out = mock(OutputStream.class);
+        doThrow(new IOException("mock")).when(out).close();
+        OutputStream stream = compression.compress(out, HttpUtils.WRITE_BUFFER_SIZE);
+        try {
+            stream.close();
+            fail();
+        } catch (IOException ignored) {
+        }
+        verify(deflater).end();
+        assertEquals(0, RequestCompression.sIdleRawDeflaters.size());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import com.microsoft.appcenter.utils.storage.SharedPreferencesManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.rule.PowerMockRule;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.microsoft.appcenter.http.RetryBudget.PREF_REFILL_TIME;
+import static com.microsoft.appcenter.http.RetryBudget.PREF_RETRY_AFTER_PREFIX;
+import static com.microsoft.appcenter.http.RetryBudget.PREF_TOKENS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+
+@PrepareForTest(SharedPreferencesManager.class)
+public class RetryBudgetTest {
+
+    @Rule
+    public PowerMockRule mRule = new PowerMockRule();
+
+    @Before
+    public void setUp() {
+        mockStatic(SharedPreferencesManager.class);
+        when(SharedPreferencesManager.getInt(anyString(), anyInt())).thenAnswer(new Answer<Integer>() {
+
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                return (Integer) invocation.getArguments()[1];
+            }
+        });
+        when(SharedPreferencesManager.getLong(anyString(), anyLong())).thenAnswer(new Answer<Long>() {
+
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return (Long) invocation.getArguments()[1];
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        RetryBudget.unsetSharedInstance();
+    }
+
+    @Test
+    public void sharedInstance() {
+        RetryBudget retryBudget = RetryBudget.getSharedInstance();
+        assertSame(retryBudget, RetryBudget.getSharedInstance());
+        RetryBudget.unsetSharedInstance();
+        assertTrue(retryBudget != RetryBudget.getSharedInstance());
+    }
+
+    @Test
+    public void exhaustedThenRefilled() throws InterruptedException {
+        RetryBudget retryBudget = new RetryBudget(2, 100, false);
+        assertTrue(retryBudget.tryAcquire());
+        assertTrue(retryBudget.tryAcquire());
+        assertFalse(retryBudget.tryAcquire());
+
+        /* A token comes back after the refill interval. */
+        Thread.sleep(150);
+        assertTrue(retryBudget.tryAcquire());
+        assertFalse(retryBudget.tryAcquire());
+
+        /* Not persisted. */
+        verifyStatic(SharedPreferencesManager.class, never());
+        SharedPreferencesManager.putInt(anyString(), anyInt());
+    }
+
+    @Test
+    public void persistedTokens() {
+        RetryBudget retryBudget = new RetryBudget(2, TimeUnit.HOURS.toMillis(1), true);
+        assertTrue(retryBudget.tryAcquire());
+        verifyStatic(SharedPreferencesManager.class);
+        SharedPreferencesManager.putInt(PREF_TOKENS, 1);
+        verifyStatic(SharedPreferencesManager.class);
+        SharedPreferencesManager.putLong(eq(PREF_REFILL_TIME), anyLong());
+    }
+
+    @Test
+    public void loadStoredTokens() {
+        when(SharedPreferencesManager.getInt(eq(PREF_TOKENS), anyInt())).thenReturn(0);
+        when(SharedPreferencesManager.getLong(eq(PREF_REFILL_TIME), anyLong())).thenReturn(System.currentTimeMillis());
+
+        /* Budget exhausted by a previous process. */
+        RetryBudget retryBudget = new RetryBudget(2, TimeUnit.HOURS.toMillis(1), true);
+        assertFalse(retryBudget.tryAcquire());
+    }
+
+    @Test
+    public void retryAfter() {
+        RetryBudget retryBudget = new RetryBudget(2, TimeUnit.HOURS.toMillis(1), true);
+        assertEquals(0, retryBudget.getRetryAfterDelay(null));
+        assertEquals(0, retryBudget.getRetryAfterDelay("mock"));
+
+        /* Keep the longest delay. */
+        retryBudget.setRetryAfter("mock", 10000);
+        retryBudget.setRetryAfter("mock", 1000);
+        retryBudget.setRetryAfter(null, 1000);
+        long delay = retryBudget.getRetryAfterDelay("mock");
+        assertTrue(delay > 1000 && delay <= 10000);
+        assertEquals(0, retryBudget.getRetryAfterDelay("other"));
+        verifyStatic(SharedPreferencesManager.class);
+        SharedPreferencesManager.putLong(eq(PREF_RETRY_AFTER_PREFIX + "mock"), anyLong());
+    }
+
+    @Test
+    public void expiredStoredRetryAfter() {
+        when(SharedPreferencesManager.getLong(eq(PREF_RETRY_AFTER_PREFIX + "mock"), anyLong())).thenReturn(System.currentTimeMillis() - 1);
+        RetryBudget retryBudget = new RetryBudget(2, TimeUnit.HOURS.toMillis(1), true);
+        assertEquals(0, retryBudget.getRetryAfterDelay("mock"));
+        verifyStatic(SharedPreferencesManager.class);
+        SharedPreferencesManager.remove(PREF_RETRY_AFTER_PREFIX + "mock");
+    }
+
+    @Test
+    public void retryAfterIsCapped() {
+        RetryBudget retryBudget = new RetryBudget(2, TimeUnit.HOURS.toMillis(1), false);
+        retryBudget.setRetryAfter("mock", TimeUnit.DAYS.toMillis(30));
+        assertTrue(retryBudget.getRetryAfterDelay("mock") <= HttpClientRetryer.MAX_RETRY_AFTER_DELAY);
+    }
+
+    @Test
+    public void storedRetryAfterIsCapped() {
+        when(SharedPreferencesManager.getLong(eq(PREF_RETRY_AFTER_PREFIX + "mock"), anyLong())).thenReturn(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(30));
+        RetryBudget retryBudget = new RetryBudget(2, TimeUnit.HOURS.toMillis(1), true);
+        assertEquals(HttpClientRetryer.MAX_RETRY_AFTER_DELAY, retryBudget.getRetryAfterDelay("mock"));
+
+        /* The stored time is moved closer so that the delay expires. */
+        verifyStatic(SharedPreferencesManager.class);
+        SharedPreferencesManager.putLong(eq(PREF_RETRY_AFTER_PREFIX + "mock"), longThat(new ArgumentMatcher<Long>() {
+
+            @Override
+            public boolean matches(Long argument) {
+                return argument <= System.currentTimeMillis() + HttpClientRetryer.MAX_RETRY_AFTER_DELAY;
+            }
+        }));
+        assertTrue(retryBudget.getRetryAfterDelay("mock") <= HttpClientRetryer.MAX_RETRY_AFTER_DELAY);
+    }
+}
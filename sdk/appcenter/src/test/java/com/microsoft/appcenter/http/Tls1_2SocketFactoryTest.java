@@ -24,6 +24,7 @@ import javax.net.ssl.SSLSocketFactory;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -118,4 +119,12 @@ public class Tls1_2SocketFactoryTest {
         assertArrayEquals(DEFAULT_CIPHER_SUITES, getFactory().getDefaultCipherSuites());
         assertArrayEquals(SUPPORTED_CIPHER_SUITES, getFactory().getSupportedCipherSuites());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sharedInstance() throws Exception {
+        getFactory();
+        TLS1_2SocketFactory factory = TLS1_2SocketFactory.getInstance();
+        assertNotNull(factory);
+        assertSame(factory, TLS1_2SocketFactory.getInstance());
+    }
+}
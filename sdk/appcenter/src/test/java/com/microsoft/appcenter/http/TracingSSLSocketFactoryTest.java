@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ */
+
+package com.microsoft.appcenter.http;
+
+import org.junit.Test;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.mock;
+
+public class TracingSSLSocketFactoryTest {
+
+    @Test
+    public void equalsIsSymmetric() {
+        SSLSocketFactory delegate = mock(SSLSocketFactory.class);
+        TracingSSLSocketFactory factory = new TracingSSLSocketFactory(delegate, new HttpCallTrace("https://mock", "POST", 0));
+        TracingSSLSocketFactory otherFactory = new TracingSSLSocketFactory(delegate, new HttpCallTrace("https://mock", "POST", 0));
+
+        /* Traced calls share the pooled connections of the same factory. */
+        assertEquals(factory, otherFactory);
+        assertEquals(otherFactory, factory);
+        assertEquals(factory.hashCode(), otherFactory.hashCode());
+
+        /* Not equal to the wrapped factory, which is not equal to it. */
+        assertNotEquals(factory, delegate);
+        assertNotEquals(delegate, factory);
+        assertNotEquals(factory, new TracingSSLSocketFactory(mock(SSLSocketFactory.class), null));
+    }
+}
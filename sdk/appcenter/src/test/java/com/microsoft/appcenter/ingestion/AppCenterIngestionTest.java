@@ -13,6 +13,7 @@ import com.microsoft.appcenter.http.ServiceCallback;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.StreamingLogSerializer;
 import com.microsoft.appcenter.utils.AppCenterLog;
 import com.microsoft.appcenter.utils.storage.SharedPreferencesManager;
 
@@ -27,8 +28,11 @@ import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +50,7 @@ import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -114,6 +119,11 @@ public class AppCenterIngestionTest {
         assertNotNull(callTemplate.get());
         assertEquals("mockPayload", callTemplate.get().buildRequestBody());
 
+        /* Verify streaming body. */
+        StringWriter writer = new StringWriter();
+        ((HttpClient.StreamingCallTemplate) callTemplate.get()).writeRequestBody(writer);
+        assertEquals("mockPayload", writer.toString());
+
         /* Verify close. */
         ingestion.close();
         verify(mHttpClient).close();
@@ -123,6 +133,43 @@ public class AppCenterIngestionTest {
         verify(mHttpClient).reopen();
     }
 
+    @Test
+    public void sendAsyncWithStreamingSerializer() throws Exception {
+
+        /* Build some payload. */
+        final LogContainer container = new LogContainer();
+        container.setLogs(Collections.singletonList(mock(Log.class)));
+        StreamingLogSerializer serializer = mock(StreamingLogSerializer.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((Writer) invocation.getArguments()[1]).write("mockPayload");
+                return null;
+            }
+        }).when(serializer).writeContainer(eq(container), any(Writer.class));
+
+        /* Configure mock HTTP. */
+        final AtomicReference<HttpClient.CallTemplate> callTemplate = new AtomicReference<>();
+        when(mHttpClient.callAsync(anyString(), anyString(), anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class))).then(new Answer<ServiceCall>() {
+            @Override
+            public ServiceCall answer(InvocationOnMock invocation) {
+                callTemplate.set((HttpClient.CallTemplate) invocation.getArguments()[3]);
+                return mock(ServiceCall.class);
+            }
+        });
+
+        /* Test calling code. */
+        AppCenterIngestion ingestion = new AppCenterIngestion(mHttpClient, serializer);
+        ingestion.sendAsync(UUID.randomUUID().toString(), UUID.randomUUID(), container, mock(ServiceCallback.class));
+
+        /* Verify the container is written to the stream without serializing it to a string. */
+        StringWriter writer = new StringWriter();
+        ((HttpClient.StreamingCallTemplate) callTemplate.get()).writeRequestBody(writer);
+        assertEquals("mockPayload", writer.toString());
+        verify(serializer, never()).serializeContainer(any(LogContainer.class));
+    }
+
     @Test
     public void failedSerialization() throws Exception {
 
@@ -228,6 +275,62 @@ public class AppCenterIngestionTest {
         AppCenterLog.verbose(anyString(), anyString());
     }
 
+    @Test
+    public void responseReadOnlyWhenVerbose() {
+        HttpClient.ResponseCallTemplate callTemplate = (HttpClient.ResponseCallTemplate) getCallTemplate(UUID.randomUUID().toString());
+        AppCenterLog.setLogLevel(android.util.Log.WARN);
+        assertEquals(HttpClient.ResponseMode.DISCARD, callTemplate.getResponseMode());
+        AppCenterLog.setLogLevel(android.util.Log.VERBOSE);
+        assertEquals(HttpClient.ResponseMode.READ, callTemplate.getResponseMode());
+    }
+
+    @Test
+    public void mergeCallTemplates() throws JSONException {
+
+        /* Capture the call templates of 2 batches. */
+        final List<HttpClient.CallTemplate> callTemplates = new ArrayList<>();
+        when(mHttpClient.callAsync(anyString(), anyString(), anyMap(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class))).then(new Answer<ServiceCall>() {
+
+            @Override
+            public ServiceCall answer(InvocationOnMock invocation) {
+                callTemplates.add((HttpClient.CallTemplate) invocation.getArguments()[3]);
+                return mock(ServiceCall.class);
+            }
+        });
+        LogSerializer serializer = mock(LogSerializer.class);
+        when(serializer.serializeContainer(any(LogContainer.class))).thenReturn("mockPayload");
+        AppCenterIngestion ingestion = new AppCenterIngestion(mHttpClient, serializer);
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Log log = mock(Log.class);
+            logs.add(log);
+            LogContainer container = new LogContainer();
+            container.setLogs(Collections.singletonList(log));
+            ingestion.sendAsync("mockSecret", UUID.randomUUID(), container, mock(ServiceCallback.class));
+        }
+
+        /* The merged template sends the logs of both batches in a single container. */
+        HttpClient.CallTemplate merged = ((HttpClient.MergeableCallTemplate) callTemplates.get(0)).merge(callTemplates.get(1));
+        assertNotNull(merged);
+        assertEquals("mockPayload", merged.buildRequestBody());
+        LogContainer expectedContainer = new LogContainer();
+        expectedContainer.setLogs(logs);
+        verify(serializer).serializeContainer(expectedContainer);
+
+        /* Other templates can't be merged. */
+        assertNull(((HttpClient.MergeableCallTemplate) callTemplates.get(0)).merge(mock(HttpClient.CallTemplate.class)));
+
+        /* Batches are not merged beyond the maximum log count. */
+        List<Log> largeBatch = new ArrayList<>();
+        for (int i = 0; i < AppCenterIngestion.MAX_MERGED_LOG_COUNT; i++) {
+            largeBatch.add(mock(Log.class));
+        }
+        LogContainer largeContainer = new LogContainer();
+        largeContainer.setLogs(largeBatch);
+        ingestion.sendAsync("mockSecret", UUID.randomUUID(), largeContainer, mock(ServiceCallback.class));
+        assertNull(((HttpClient.MergeableCallTemplate) callTemplates.get(0)).merge(callTemplates.get(2)));
+    }
+
     @Test
     public void sendLogsWhenIngestionDisable() throws JSONException {
         mockStatic(SharedPreferencesManager.class);
@@ -14,6 +14,7 @@ import com.microsoft.appcenter.http.ServiceCallback;
 import com.microsoft.appcenter.ingestion.models.Log;
 import com.microsoft.appcenter.ingestion.models.LogContainer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
+import com.microsoft.appcenter.ingestion.models.json.StreamingLogSerializer;
 import com.microsoft.appcenter.ingestion.models.one.CommonSchemaLog;
 import com.microsoft.appcenter.ingestion.models.one.Extensions;
 import com.microsoft.appcenter.ingestion.models.one.ProtocolExtension;
@@ -36,6 +37,8 @@ import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.rule.PowerMockRule;
 
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -61,6 +64,7 @@ import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -175,6 +179,11 @@ public class OneCollectorIngestionTest {
         assertNotNull(callTemplate.getValue());
         assertEquals("mockPayload1\nmockPayload2\n", callTemplate.getValue().buildRequestBody());
 
+        /* Verify streaming body. */
+        StringWriter writer = new StringWriter();
+        ((HttpClient.StreamingCallTemplate) callTemplate.getValue()).writeRequestBody(writer);
+        assertEquals("mockPayload1\nmockPayload2\n", writer.toString());
+
         /* Verify close. */
         ingestion.close();
         verify(mHttpClient).close();
@@ -184,6 +193,73 @@ public class OneCollectorIngestionTest {
         verify(mHttpClient).reopen();
     }
 
+    @Test
+    public void sendAsyncWithStreamingSerializer() throws Exception {
+
+        /* Build some payload. */
+        final CommonSchemaLog log = mock(CommonSchemaLog.class);
+        when(log.getExt()).thenReturn(new Extensions() {{
+            setProtocol(new ProtocolExtension());
+        }});
+        when(log.getTransmissionTargetTokens()).thenReturn(Collections.singleton("token1"));
+        final LogContainer container = new LogContainer() {{
+            setLogs(Collections.<Log>singletonList(log));
+        }};
+        StreamingLogSerializer serializer = mock(StreamingLogSerializer.class);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((Writer) invocation.getArguments()[1]).write("mockPayload\n");
+                return null;
+            }
+        }).when(serializer).writeLogLines(eq(container.getLogs()), any(Writer.class));
+
+        /* Configure mock HTTP. */
+        ServiceCall call = mock(ServiceCall.class);
+        ArgumentCaptor<HttpClient.CallTemplate> callTemplate = ArgumentCaptor.forClass(HttpClient.CallTemplate.class);
+        when(mHttpClient.callAsync(anyString(), anyString(), anyMap(), callTemplate.capture(), any(ServiceCallback.class))).thenReturn(call);
+
+        /* Test calling code. */
+        OneCollectorIngestion ingestion = new OneCollectorIngestion(mHttpClient, serializer);
+        assertEquals(call, ingestion.sendAsync(null, null, container, mock(ServiceCallback.class)));
+
+        /* Verify logs are written to the stream without serializing each of them to a string. */
+        StringWriter writer = new StringWriter();
+        ((HttpClient.StreamingCallTemplate) callTemplate.getValue()).writeRequestBody(writer);
+        assertEquals("mockPayload\n", writer.toString());
+        assertEquals("mockPayload\n", callTemplate.getValue().buildRequestBody());
+        verify(serializer, never()).serializeLog(any(Log.class));
+    }
+
+    @Test
+    public void passSameTicketsOnce() {
+
+        /* Build logs sharing the same tickets. */
+        final CommonSchemaLog log1 = mock(CommonSchemaLog.class);
+        final CommonSchemaLog log2 = mock(CommonSchemaLog.class);
+        TicketCache.putTicket("key1", "value1");
+        Extensions ext = new Extensions() {{
+            setProtocol(new ProtocolExtension() {{
+                setTicketKeys(Collections.singletonList("key1"));
+            }});
+        }};
+        when(log1.getExt()).thenReturn(ext);
+        when(log2.getExt()).thenReturn(ext);
+        LogContainer container = new LogContainer() {{
+            setLogs(Arrays.<Log>asList(log1, log2));
+        }};
+
+        /* Configure mock HTTP. */
+        ServiceCall call = mock(ServiceCall.class);
+        when(mHttpClient.callAsync(anyString(), anyString(), mHeadersCaptor.capture(), any(HttpClient.CallTemplate.class), any(ServiceCallback.class))).thenReturn(call);
+
+        /* Verify the ticket is passed once. */
+        OneCollectorIngestion ingestion = new OneCollectorIngestion(mHttpClient, mock(LogSerializer.class));
+        assertEquals(call, ingestion.sendAsync(null, null, container, mock(ServiceCallback.class)));
+        assertEquals("{\"key1\":\"value1\"}", mHeadersCaptor.getValue().get(TICKETS));
+    }
+
     @Test
     public void passTicketsDebug() {
         Constants.APPLICATION_DEBUGGABLE = true;
@@ -387,6 +463,15 @@ public class OneCollectorIngestionTest {
         AppCenterLog.verbose(anyString(), anyString());
     }
 
+    @Test
+    public void responseReadOnlyWhenVerbose() {
+        HttpClient.ResponseCallTemplate callTemplate = (HttpClient.ResponseCallTemplate) getCallTemplate();
+        AppCenterLog.setLogLevel(android.util.Log.WARN);
+        assertEquals(HttpClient.ResponseMode.DISCARD, callTemplate.getResponseMode());
+        AppCenterLog.setLogLevel(android.util.Log.VERBOSE);
+        assertEquals(HttpClient.ResponseMode.READ, callTemplate.getResponseMode());
+    }
+
     private HttpClient.CallTemplate getCallTemplate() {
 
         /* Configure mock HTTP to get an instance of IngestionCallTemplate. */
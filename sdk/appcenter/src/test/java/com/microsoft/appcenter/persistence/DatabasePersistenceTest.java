@@ -13,6 +13,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -20,6 +21,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNotNull;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -38,6 +40,7 @@ import androidx.annotation.Nullable;
 
 import com.microsoft.appcenter.AppCenter;
 import com.microsoft.appcenter.ingestion.models.Log;
+import com.microsoft.appcenter.ingestion.models.json.BatchLogSerializer;
 import com.microsoft.appcenter.ingestion.models.json.LogSerializer;
 import com.microsoft.appcenter.persistence.Persistence.PersistenceException;
 import com.microsoft.appcenter.utils.AppCenterLog;
@@ -58,6 +61,7 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -408,6 +412,54 @@ public class DatabasePersistenceTest {
         verify(mDatabaseManager).delete(anyLong());
     }
 
+    @Test
+    public void getLogsWithBatchSerializer() throws Exception {
+
+        /* Mock instances. */
+        int logCount = 3;
+        when(mDatabaseManager.nextValues(any(Cursor.class))).thenCallRealMethod();
+        DatabasePersistence persistence = createDatabasePersistenceInstance();
+
+        /* Make 3 logs, the second one cannot be deserialized. */
+        List<ContentValues> fieldValues = new ArrayList<>(logCount);
+        for (long i = 0; i < logCount; i++) {
+            ContentValues contentValues = mock(ContentValues.class);
+            when(contentValues.getAsLong(DatabaseManager.PRIMARY_KEY)).thenReturn(i);
+            when(contentValues.getAsString(DatabasePersistence.COLUMN_LOG)).thenReturn("payload" + i);
+            when(contentValues.getAsString(DatabasePersistence.COLUMN_DATA_TYPE)).thenReturn("type");
+            fieldValues.add(contentValues);
+        }
+        MockCursor mockCursor = new MockCursor(fieldValues);
+        mockCursor.mockBuildValues(mDatabaseManager);
+        when(mDatabaseManager.getCursor(any(SQLiteQueryBuilder.class), isNull(), any(String[].class), anyString()))
+                .thenReturn(mockCursor);
+
+        /* Mock a serializer deserializing all rows in a single call. */
+        final Log firstLog = mock(Log.class);
+        final Log lastLog = mock(Log.class);
+        BatchLogSerializer logSerializer = mock(BatchLogSerializer.class);
+        when(logSerializer.deserializeLogs(anyList(), anyList(), anyList())).thenAnswer(new Answer<List<Log>>() {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<Log> answer(InvocationOnMock invocation) {
+                assertEquals(Arrays.asList("payload0", "payload1", "payload2"), invocation.getArguments()[0]);
+                assertEquals(Arrays.asList("type", "type", "type"), invocation.getArguments()[1]);
+                List<JSONException> errors = (List<JSONException>) invocation.getArguments()[2];
+                errors.addAll(Arrays.asList(null, new JSONException("mock"), null));
+                return Arrays.asList(firstLog, null, lastLog);
+            }
+        });
+        persistence.setLogSerializer(logSerializer);
+
+        /* Get logs and verify the log that cannot be deserialized is deleted. */
+        ArrayList<Log> outLogs = new ArrayList<>();
+        persistence.getLogs("mock", Collections.emptyList(), 50, outLogs);
+        assertEquals(Arrays.asList(firstLog, lastLog), outLogs);
+        verify(mDatabaseManager).delete(1);
+        verify(logSerializer, never()).deserializeLog(anyString(), any());
+    }
+
     @Test
     public void checkSetStorageSizeForwarding() throws Exception {
 